@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.benchmarks;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sources used by benchmarks: perl sources from the {@code testData} and synthetic CPAN-style modules
+ */
+public final class PerlBenchmarkCorpus {
+  public static final String TEST_DATA_PROPERTY = "perl.benchmarks.testData";
+
+  public static final String TEST_DATA = "testData";
+  public static final String PERL_TIDY = "perlTidy";
+  public static final String SYNTHETIC = "synthetic";
+  public static final String HEREDOCS = "heredocs";
+
+  private PerlBenchmarkCorpus() {
+  }
+
+  /**
+   * @return list of sources for the corpus with {@code name}
+   */
+  @NotNull
+  public static List<String> load(@NotNull String name) throws IOException {
+    switch (name) {
+      case TEST_DATA:
+        return loadTestData();
+      case PERL_TIDY:
+        return Collections.singletonList(loadFile(new File(getTestDataRoot(), "perlTidy.code")));
+      case SYNTHETIC:
+        return Collections.singletonList(generateModule(2000));
+      case HEREDOCS:
+        return Collections.singletonList(generateHeredocs(1000));
+      default:
+        throw new IllegalArgumentException("Unknown corpus: " + name);
+    }
+  }
+
+  /**
+   * @return array of {@code text.length() + 1} elements, where element {@code i} is the size of the first {@code i} chars encoded in UTF-8
+   */
+  @NotNull
+  public static int[] computeUtf8Offsets(@NotNull CharSequence text) {
+    int[] result = new int[text.length() + 1];
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      int size;
+      if (c < 0x80) {
+        size = 1;
+      }
+      else if (c < 0x800) {
+        size = 2;
+      }
+      else if (Character.isHighSurrogate(c)) {
+        size = 4;
+      }
+      else {
+        size = Character.isLowSurrogate(c) && i > 0 && Character.isHighSurrogate(text.charAt(i - 1)) ? 0 : 3;
+      }
+      result[i + 1] = result[i] + size;
+    }
+    return result;
+  }
+
+  @NotNull
+  private static File getTestDataRoot() {
+    return new File(System.getProperty(TEST_DATA_PROPERTY, "plugin/testData"));
+  }
+
+  @NotNull
+  private static List<String> loadTestData() throws IOException {
+    File[] files = new File(getTestDataRoot(), "parser/perl").listFiles((dir, name) -> name.endsWith(".code"));
+    if (files == null || files.length == 0) {
+      throw new IOException("No test data found in " + getTestDataRoot());
+    }
+    List<String> result = new ArrayList<>(files.length);
+    for (File file : files) {
+      result.add(loadFile(file));
+    }
+    return result;
+  }
+
+  @NotNull
+  private static String loadFile(@NotNull File file) throws IOException {
+    return StringUtil.convertLineSeparators(FileUtil.loadFile(file, CharsetToolkit.UTF8));
+  }
+
+  /**
+   * Generates a module similar to the big CPAN ones: package with pod, exporter, heredocs, regexps, OO and many subs
+   *
+   * @param subsNumber number of subs to generate
+   */
+  @NotNull
+  public static String generateModule(int subsNumber) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("package Benchmark::Generated::Module;\n")
+      .append("use strict;\nuse warnings;\nuse parent qw/Exporter Benchmark::Generated::Base/;\n")
+      .append("use Scalar::Util qw/blessed reftype/;\nuse constant {DEBUG => 0, LIMIT => 42};\n\n")
+      .append("our $VERSION = '1.00';\nour @EXPORT_OK = qw/");
+    for (int i = 0; i < subsNumber; i += 10) {
+      sb.append(" method_").append(i);
+    }
+    sb.append("/;\n\n");
+
+    for (int i = 0; i < subsNumber; i++) {
+      if (i % 50 == 0) {
+        sb.append("=head2 method_").append(i).append("\n\nDocumentation for C<method_").append(i)
+          .append("> with L<Benchmark::Generated::Base/new> link and I<italic> text.\n\n=cut\n\n");
+      }
+      sb.append("sub method_").append(i).append(" {\n")
+        .append("  my ($self, %args) = @_;\n")
+        .append("  my $value = $args{value} // $self->{default_").append(i % 7).append("};\n")
+        .append("  return unless defined $value && $value =~ m{^\\s*(\\d+)(?:\\.(\\d+))?\\s*$}x;\n")
+        .append("  $value =~ s/(\\w+)/\\u$1/g;\n")
+        .append("  my @items = map { $_ * 2 } grep { $_ % 2 } (1 .. LIMIT);\n")
+        .append("  my %index = map { $_ => scalar @items } qw/alpha beta gamma/;\n")
+        .append("  if ( ref $value eq 'HASH' ) {\n")
+        .append("    $self->{cache}->{\"key_$i\"} = { %$value, items => [@items] };\n")
+        .append("  }\n")
+        .append("  elsif (blessed $value and $value->can('method_").append(i + 1).append("')) {\n")
+        .append("    return $value->method_").append(i + 1).append("(value => $index{alpha});\n")
+        .append("  }\n");
+      if (i % 10 == 0) {
+        sb.append("  my $text = <<\"EOT\" . <<'EOS';\n")
+          .append("Generated text for $self->{name} number ").append(i).append("\n")
+          .append("EOT\nRaw text with $no @interpolation\nEOS\n")
+          .append("  printf STDERR \"%s: %d\\n\", $text, length $text if DEBUG;\n");
+      }
+      sb.append("  return wantarray ? @items : \\%index;\n}\n\n");
+    }
+    sb.append("1;\n__END__\n\n=head1 NAME\n\nBenchmark::Generated::Module - generated module\n\n=cut\n");
+    return sb.toString();
+  }
+
+  /**
+   * Generates a template-like module, where most of the code is in heredocs: sequential, indentable and interpolated ones,
+   * heredocs inside calls and blocks
+   *
+   * @param subsNumber number of subs to generate
+   */
+  @NotNull
+  public static String generateHeredocs(int subsNumber) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("package Benchmark::Generated::Templates;\nuse strict;\nuse warnings;\n\n");
+    for (int i = 0; i < subsNumber; i++) {
+      sb.append("sub render_").append(i).append(" {\n")
+        .append("  my ($self, %args) = @_;\n")
+        .append("  my $header = <<\"HEADER\" . <<'STYLE';\n")
+        .append("<h1>$args{title} number ").append(i).append("</h1>\n")
+        .append("<p>@{[ $self->name ]} and $self->{items}->[0]</p>\n")
+        .append("HEADER\n<style>.item_").append(i).append(" { color: red; }</style>\n")
+        .append("STYLE\n")
+        .append("  $self->output(<<~BODY, $header);\n")
+        .append("    <div class=\"item_").append(i).append("\">\n")
+        .append("      $args{body}\n")
+        .append("    </div>\n")
+        .append("    BODY\n")
+        .append("  return $self->query(<<SQL) if $args{save};\n")
+        .append("SELECT id, name FROM items WHERE id = ").append(i).append(" AND name LIKE '%$args{name}%'\n")
+        .append("SQL\n")
+        .append("  return $header;\n}\n\n");
+    }
+    sb.append("1;\n");
+    return sb.toString();
+  }
+}
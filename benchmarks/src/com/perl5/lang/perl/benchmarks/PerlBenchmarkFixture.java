@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.benchmarks;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Light project with the plugin loaded, shared by all benchmarks in the forked JVM
+ */
+@State(Scope.Benchmark)
+public class PerlBenchmarkFixture {
+  private IdeaProjectTestFixture myFixture;
+
+  @Setup
+  public void setUp() {
+    myFixture = IdeaTestFixtureFactory.getFixtureFactory()
+      .createLightFixtureBuilder(LightProjectDescriptor.EMPTY_PROJECT_DESCRIPTOR)
+      .getFixture();
+    EdtTestUtil.runInEdtAndWait(myFixture::setUp);
+  }
+
+  @TearDown
+  public void tearDown() {
+    EdtTestUtil.runInEdtAndWait(myFixture::tearDown);
+  }
+
+  @NotNull
+  public Project getProject() {
+    return myFixture.getProject();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.benchmarks;
+
+import com.intellij.lexer.Lexer;
+import com.perl5.lang.perl.lexer.adapters.PerlHighlightingLexerAdapter;
+import com.perl5.lang.perl.lexer.adapters.PerlMergingLexerAdapter;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link com.perl5.lang.perl.lexer.PerlBaseLexer} through the parsing and highlighting adapters.
+ * Score is corpus passes per second, {@link PerlLexingCounters} add tokens/sec and bytes/sec. Run with {@code -prof gc} for allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerlLexerBenchmark {
+  @Param({PerlBenchmarkCorpus.TEST_DATA, PerlBenchmarkCorpus.PERL_TIDY, PerlBenchmarkCorpus.SYNTHETIC})
+  public String corpus;
+
+  private List<String> mySources;
+  /**
+   * Size of the corpus in UTF-8
+   */
+  private long myBytes;
+
+  @Setup
+  public void setUp() throws IOException {
+    mySources = PerlBenchmarkCorpus.load(corpus);
+    myBytes = 0;
+    for (String source : mySources) {
+      myBytes += source.getBytes(StandardCharsets.UTF_8).length;
+    }
+  }
+
+  @Benchmark
+  public int mergingLexer(@NotNull PerlBenchmarkFixture fixture, @NotNull PerlLexingCounters counters) {
+    return lexCorpus(new PerlMergingLexerAdapter(fixture.getProject(), false, true), counters);
+  }
+
+  @Benchmark
+  public int highlightingLexer(@NotNull PerlBenchmarkFixture fixture, @NotNull PerlLexingCounters counters) {
+    return lexCorpus(new PerlHighlightingLexerAdapter(fixture.getProject()), counters);
+  }
+
+  private int lexCorpus(@NotNull Lexer lexer, @NotNull PerlLexingCounters counters) {
+    int tokens = 0;
+    for (String source : mySources) {
+      lexer.start(source);
+      while (lexer.getTokenType() != null) {
+        tokens++;
+        lexer.advance();
+      }
+    }
+    counters.tokens += tokens;
+    counters.bytes += myBytes;
+    return tokens;
+  }
+}
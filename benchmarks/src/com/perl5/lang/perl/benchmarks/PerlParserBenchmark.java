@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.benchmarks;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.perl5.lang.perl.fileTypes.PerlFileTypePackage;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the perl parser, built with {@link com.perl5.lang.perl.parser.PerlParserUtil}. Lazy code blocks are expanded, so
+ * every pass parses the whole corpus. {@link PerlLexingCounters} report parsed bytes/sec and PSI elements/sec as tokens.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerlParserBenchmark {
+  @Param({PerlBenchmarkCorpus.TEST_DATA, PerlBenchmarkCorpus.PERL_TIDY, PerlBenchmarkCorpus.SYNTHETIC})
+  public String corpus;
+
+  private List<String> mySources;
+
+  @Setup
+  public void setUp() throws IOException {
+    mySources = PerlBenchmarkCorpus.load(corpus);
+  }
+
+  @Benchmark
+  public int parse(@NotNull PerlBenchmarkFixture fixture, @NotNull PerlLexingCounters counters) {
+    PsiFileFactory fileFactory = PsiFileFactory.getInstance(fixture.getProject());
+    return ReadAction.compute(() -> {
+      int elements = 0;
+      for (String source : mySources) {
+        PsiFile psiFile = fileFactory.createFileFromText("benchmark.pm", PerlFileTypePackage.INSTANCE, source);
+        ElementsCounter counter = new ElementsCounter();
+        psiFile.accept(counter);
+        elements += counter.myElements;
+        counters.bytes += source.length();
+      }
+      counters.tokens += elements;
+      return elements;
+    });
+  }
+
+  private static class ElementsCounter extends PsiRecursiveElementWalkingVisitor {
+    private int myElements;
+
+    @Override
+    public void visitElement(PsiElement element) {
+      myElements++;
+      super.visitElement(element);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.benchmarks;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.psi.tree.IElementType;
+import com.perl5.lang.perl.lexer.adapters.PerlHighlightingLexerAdapter;
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-lexing cost of a single keystroke with {@link PerlHighlightingLexerAdapter}, the way editor highlighter does it: lexing restarts
+ * from the nearest token in the initial state before the change and stops at the first token after the change, matching the old one
+ * and being in the initial state. Keystrokes are spread over the whole file, including heredoc bodies.
+ * Score is keystrokes per second, {@link PerlLexingCounters} add re-lexed tokens/sec and bytes/sec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerlRelexingBenchmark {
+  private static final int EDITS_NUMBER = 64;
+  private static final String TYPED_TEXT = " ";
+
+  @Param({PerlBenchmarkCorpus.HEREDOCS, PerlBenchmarkCorpus.SYNTHETIC})
+  public String corpus;
+
+  private Lexer myLexer;
+  private int myInitialState;
+  private int[] myTokenStarts;
+  private int[] myTokenStates;
+  private IElementType[] myTokenTypes;
+  private int[] myEditOffsets;
+  private String[] myEditedTexts;
+  /**
+   * UTF-8 offsets in the original source, used to count re-lexed bytes in edited texts
+   */
+  private int[] myUtf8Offsets;
+  private int myTypedBytes;
+  private int myEditIndex;
+
+  @Setup
+  public void setUp(@NotNull PerlBenchmarkFixture fixture) throws IOException {
+    String source = PerlBenchmarkCorpus.load(corpus).get(0);
+    myLexer = new PerlHighlightingLexerAdapter(fixture.getProject());
+    myLexer.start("");
+    myInitialState = myLexer.getState();
+
+    TIntArrayList tokenStarts = new TIntArrayList();
+    TIntArrayList tokenStates = new TIntArrayList();
+    List<IElementType> tokenTypes = new ArrayList<>();
+    myLexer.start(source);
+    IElementType tokenType;
+    while ((tokenType = myLexer.getTokenType()) != null) {
+      tokenStarts.add(myLexer.getTokenStart());
+      tokenStates.add(myLexer.getState());
+      tokenTypes.add(tokenType);
+      myLexer.advance();
+    }
+    myTokenStarts = tokenStarts.toNativeArray();
+    myTokenStates = tokenStates.toNativeArray();
+    myTokenTypes = tokenTypes.toArray(IElementType.EMPTY_ARRAY);
+    myUtf8Offsets = PerlBenchmarkCorpus.computeUtf8Offsets(source);
+    myTypedBytes = TYPED_TEXT.getBytes(StandardCharsets.UTF_8).length;
+
+    TIntArrayList lineStarts = new TIntArrayList();
+    for (int i = 0; i < source.length() - 1; i++) {
+      if (source.charAt(i) == '\n') {
+        lineStarts.add(i + 1);
+      }
+    }
+    myEditOffsets = new int[EDITS_NUMBER];
+    myEditedTexts = new String[EDITS_NUMBER];
+    for (int i = 0; i < EDITS_NUMBER; i++) {
+      int offset = lineStarts.get((int)((long)i * lineStarts.size() / EDITS_NUMBER));
+      myEditOffsets[i] = offset;
+      myEditedTexts[i] = source.substring(0, offset) + TYPED_TEXT + source.substring(offset);
+    }
+  }
+
+  @Benchmark
+  public int keystroke(@NotNull PerlLexingCounters counters) {
+    int editIndex = myEditIndex;
+    myEditIndex = (editIndex + 1) % EDITS_NUMBER;
+    return relex(myEditedTexts[editIndex], myEditOffsets[editIndex], TYPED_TEXT.length(), counters);
+  }
+
+  /**
+   * @return number of re-lexed tokens
+   */
+  private int relex(@NotNull String text, int changeStart, int delta, @NotNull PerlLexingCounters counters) {
+    int tokenIndex = findTokenIndex(changeStart);
+    while (tokenIndex > 0 && myTokenStates[tokenIndex] != myInitialState) {
+      tokenIndex--;
+    }
+    int restartOffset = myTokenStarts[tokenIndex];
+    int changeEnd = changeStart + delta;
+    int oldTokenIndex = tokenIndex;
+    int tokens = 0;
+
+    myLexer.start(text, restartOffset, text.length(), myInitialState);
+    IElementType tokenType;
+    while ((tokenType = myLexer.getTokenType()) != null) {
+      int tokenStart = myLexer.getTokenStart();
+      int state = myLexer.getState();
+      if (tokenStart >= changeEnd && state == myInitialState) {
+        int oldTokenStart = tokenStart - delta;
+        while (oldTokenIndex < myTokenStarts.length && myTokenStarts[oldTokenIndex] < oldTokenStart) {
+          oldTokenIndex++;
+        }
+        if (oldTokenIndex < myTokenStarts.length &&
+            myTokenStarts[oldTokenIndex] == oldTokenStart &&
+            myTokenStates[oldTokenIndex] == state &&
+            myTokenTypes[oldTokenIndex] == tokenType) {
+          break;
+        }
+      }
+      tokens++;
+      myLexer.advance();
+    }
+
+    int stopOffset = tokenType == null ? text.length() : myLexer.getTokenStart();
+    counters.tokens += tokens;
+    counters.bytes += getUtf8Offset(stopOffset, changeStart, delta) - getUtf8Offset(restartOffset, changeStart, delta);
+    return tokens;
+  }
+
+  /**
+   * @return UTF-8 offset of the {@code offset}, which is not inside the typed text, in the text edited at {@code changeStart}
+   */
+  private int getUtf8Offset(int offset, int changeStart, int delta) {
+    if (offset <= changeStart) {
+      return myUtf8Offsets[offset];
+    }
+    return myUtf8Offsets[offset - delta] + myTypedBytes;
+  }
+
+  /**
+   * @return index of the original token containing {@code offset}
+   */
+  private int findTokenIndex(int offset) {
+    int index = Arrays.binarySearch(myTokenStarts, offset);
+    return index >= 0 ? index : Math.max(0, -index - 2);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.benchmarks;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.SerializerNotFoundException;
+import com.intellij.psi.stubs.Stub;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.tree.IStubFileElementType;
+import com.perl5.lang.perl.fileTypes.PerlFileTypePackage;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stub trees serialization and deserialization. {@link PerlLexingCounters} report stubs/sec as tokens and written/read bytes/sec;
+ * bytes divided by the score is the stub size of the corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerlStubSerializationBenchmark {
+  @Param({PerlBenchmarkCorpus.TEST_DATA, PerlBenchmarkCorpus.PERL_TIDY, PerlBenchmarkCorpus.SYNTHETIC})
+  public String corpus;
+
+  private final List<StubElement<?>> myStubs = new ArrayList<>();
+  private final List<byte[]> mySerializedStubs = new ArrayList<>();
+  private int myStubsNumber;
+
+  @Setup
+  public void setUp(@NotNull PerlBenchmarkFixture fixture) throws IOException {
+    PsiFileFactory fileFactory = PsiFileFactory.getInstance(fixture.getProject());
+    ReadAction.run(() -> {
+      for (String source : PerlBenchmarkCorpus.load(corpus)) {
+        PsiFile psiFile = fileFactory.createFileFromText("benchmark.pm", PerlFileTypePackage.INSTANCE, source);
+        IStubFileElementType<?> fileElementType = (IStubFileElementType<?>)psiFile.getNode().getElementType();
+        StubElement<?> stub = fileElementType.getBuilder().buildStubTree(psiFile);
+        myStubs.add(stub);
+        myStubsNumber += countStubs(stub);
+        mySerializedStubs.add(serialize(stub).toByteArray());
+      }
+    });
+  }
+
+  @Benchmark
+  public int serialize(@NotNull PerlLexingCounters counters) {
+    int bytes = 0;
+    for (StubElement<?> stub : myStubs) {
+      bytes += serialize(stub).size();
+    }
+    counters.tokens += myStubsNumber;
+    counters.bytes += bytes;
+    return bytes;
+  }
+
+  @Benchmark
+  public int deserialize(@NotNull PerlLexingCounters counters) throws SerializerNotFoundException {
+    int bytes = 0;
+    int stubs = 0;
+    for (byte[] serializedStub : mySerializedStubs) {
+      Stub stub = SerializationManagerEx.getInstanceEx().deserialize(new ByteArrayInputStream(serializedStub));
+      stubs += countStubs(stub);
+      bytes += serializedStub.length;
+    }
+    counters.tokens += stubs;
+    counters.bytes += bytes;
+    return stubs;
+  }
+
+  @NotNull
+  private static BufferExposingByteArrayOutputStream serialize(@NotNull Stub stub) {
+    BufferExposingByteArrayOutputStream outputStream = new BufferExposingByteArrayOutputStream();
+    SerializationManagerEx.getInstanceEx().serialize(stub, outputStream);
+    return outputStream;
+  }
+
+  private static int countStubs(@NotNull Stub stub) {
+    int result = 1;
+    for (Stub childStub : stub.getChildrenStubs()) {
+      result += countStubs(childStub);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.perl5.lang.perl.psi.references;
+
+import com.intellij.openapi.project.Project;
+import com.perl5.lang.perl.benchmarks.PerlBenchmarkFixture;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time and memory of implicit declarations. With the default {@code -prof gc}, {@code gc.alloc.rate.norm} is the memory
+ * allocated per operation:
+ * <ul>
+ * <li>{@link #loadData()} - reading declarations from all providers into shared descriptors, once per application</li>
+ * <li>{@link #createService()} - project service over loaded descriptors, once per project</li>
+ * <li>{@link #createAllElements()} - psi elements for all declarations of a project, which were created eagerly before the
+ * descriptors were shared; the difference with {@link #createService()} is the memory saved for each project</li>
+ * </ul>
+ * Lives in this package to access package-private data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerlImplicitDeclarationsBenchmark {
+  private Project myProject;
+  private PerlImplicitDeclarationsData myDeclarationsData;
+
+  @Setup
+  public void setUp(@NotNull PerlBenchmarkFixture fixture) {
+    myProject = fixture.getProject();
+    myDeclarationsData = loadData();
+  }
+
+  @Benchmark
+  public PerlImplicitDeclarationsData loadData() {
+    PerlImplicitDeclarationsData declarationsData = new PerlImplicitDeclarationsData();
+    declarationsData.getSubs();
+    return declarationsData;
+  }
+
+  @Benchmark
+  public PerlImplicitDeclarationsService createService() {
+    return new PerlImplicitDeclarationsService(myProject, myDeclarationsData);
+  }
+
+  @Benchmark
+  public int createAllElements() {
+    PerlImplicitDeclarationsService declarationsService = new PerlImplicitDeclarationsService(myProject, myDeclarationsData);
+    int[] elementsNumber = new int[1];
+    declarationsService.processSubs(it -> ++elementsNumber[0] > 0);
+    declarationsService.processScalars(it -> ++elementsNumber[0] > 0);
+    declarationsService.processArrays(it -> ++elementsNumber[0] > 0);
+    declarationsService.processHashes(it -> ++elementsNumber[0] > 0);
+    return elementsNumber[0];
+  }
+}
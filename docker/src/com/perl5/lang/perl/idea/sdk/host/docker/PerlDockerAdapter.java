@@ -19,6 +19,7 @@ package com.perl5.lang.perl.idea.sdk.host.docker;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.process.ProcessOutput;
 import com.intellij.execution.util.ExecUtil;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
@@ -37,11 +38,14 @@ import com.perl5.lang.perl.idea.sdk.host.PerlFileDescriptor;
 import com.perl5.lang.perl.idea.sdk.host.PerlHostData;
 import com.perl5.lang.perl.idea.sdk.host.PerlHostHandler;
 import com.perl5.lang.perl.util.PerlPluginUtil;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -121,6 +125,89 @@ class PerlDockerAdapter {
     }
   }
 
+  /**
+   * Copies {@code remotePaths} from the container to the local cache with a single tar stream. Symlinks are followed, missing paths are
+   * skipped.
+   */
+  public void copyRemote(@NotNull String containerName, @NotNull Collection<String> remotePaths) throws ExecutionException {
+    if (remotePaths.isEmpty()) {
+      return;
+    }
+    Process process = baseCommandLine()
+      .withParameters(EXEC, INTERACTIVELY, containerName, "sh", "-c",
+                      "for p in \"$@\"; do [ -e \"$p\" ] && printf '%s\\n' \"$p\"; done | tar -chf - -T -", "sh")
+      .withParameters(new ArrayList<>(remotePaths))
+      .createProcess();
+    Future<String> stderrFuture = ApplicationManager.getApplication().executeOnPooledThread(
+      () -> FileUtil.loadTextAndClose(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8)));
+    try {
+      int filesNumber = extractArchive(process.getInputStream());
+      int exitCode = process.waitFor();
+      LOG.info("Copied " + filesNumber + " files from " + containerName + "; exit code: " + exitCode);
+      if (exitCode != 0) {
+        // tar reports unreadable files, but still copies the rest
+        LOG.warn("Errors while copying from " + containerName + ": " + stderrFuture.get());
+      }
+    }
+    catch (IOException | InterruptedException | java.util.concurrent.ExecutionException e) {
+      throw new ExecutionException(e);
+    }
+    finally {
+      process.destroy();
+    }
+  }
+
+  /**
+   * Extracts tar archive with paths relative to the container root into the local cache
+   *
+   * @return number of extracted files
+   */
+  private int extractArchive(@NotNull InputStream inputStream) throws IOException {
+    int filesNumber = 0;
+    try (TarArchiveInputStream tarInputStream = new TarArchiveInputStream(new BufferedInputStream(inputStream))) {
+      TarArchiveEntry entry;
+      while ((entry = tarInputStream.getNextTarEntry()) != null) {
+        String localPath = myData.getLocalPath("/" + StringUtil.trimStart(entry.getName(), "/"));
+        if (localPath == null) {
+          continue;
+        }
+        File localFile = new File(localPath);
+        if (entry.isDirectory()) {
+          FileUtil.createDirectory(localFile);
+        }
+        else if (entry.isLink()) {
+          String targetPath = myData.getLocalPath("/" + StringUtil.trimStart(entry.getLinkName(), "/"));
+          if (targetPath != null) {
+            FileUtil.copy(new File(targetPath), localFile);
+            filesNumber++;
+          }
+        }
+        else if (entry.isFile()) {
+          FileUtil.createParentDirs(localFile);
+          try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(localFile))) {
+            FileUtil.copy(tarInputStream, outputStream);
+          }
+          //noinspection ResultOfMethodCallIgnored
+          localFile.setExecutable((entry.getMode() & 0100) != 0);
+          //noinspection ResultOfMethodCallIgnored
+          localFile.setLastModified(entry.getModTime().getTime());
+          filesNumber++;
+        }
+      }
+    }
+    return filesNumber;
+  }
+
+  /**
+   * @return new shell, running in the {@code containerName}
+   * @see PerlDockerShell
+   */
+  @NotNull
+  public PerlDockerShell openShell(@NotNull String containerName) throws ExecutionException {
+    return new PerlDockerShell(
+      baseCommandLine().withParameters(EXEC, INTERACTIVELY, containerName, "sh", "-c", "exec sh 2>/dev/null").createProcess());
+  }
+
   public void killContainer(@NotNull String... containers) throws ExecutionException {
     runCommand(ArrayUtil.mergeArrays(new String[]{KILL}, containers));
   }
@@ -160,6 +247,17 @@ class PerlDockerAdapter {
     }
   }
 
+  /**
+   * @return contents of {@code path}, listed by the {@code shell}
+   */
+  @NotNull
+  public List<PerlFileDescriptor> listFiles(@NotNull PerlDockerShell shell, @NotNull String path) throws IOException {
+    return shell.execute("ls -LAs --classify " + PerlDockerShell.quote(path)).stream()
+      .map(it -> PerlFileDescriptor.create(path, it))
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList());
+  }
+
   private static String createContainerName(@NotNull String seed) {
     return CONTAINER_NAME_PREFIX + seed + "_" + System.currentTimeMillis();
   }
@@ -28,6 +28,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +59,12 @@ class PerlDockerFileSystem extends PerlPluggableVirtualFileSystem {
     return containerName;
   });
 
+  /**
+   * Shell in the filesystem container, listing directories without spawning a process per request
+   */
+  @Nullable
+  private PerlDockerShell myShell;
+
   private PerlDockerFileSystem(@NotNull PerlDockerAdapter adapter) {
     myAdapter = adapter;
   }
@@ -87,7 +94,45 @@ class PerlDockerFileSystem extends PerlPluggableVirtualFileSystem {
   @NotNull
   private List<PerlFileDescriptor> listFiles(@NotNull String path) {
     String containerName = myContainerNameProvider.getValue();
-    return containerName == null ? Collections.emptyList() : myAdapter.listFiles(containerName, FileUtil.toSystemIndependentName(path));
+    if (containerName == null) {
+      return Collections.emptyList();
+    }
+    String remotePath = FileUtil.toSystemIndependentName(path);
+    PerlDockerShell shell = getShell(containerName);
+    if (shell != null) {
+      try {
+        return myAdapter.listFiles(shell, remotePath);
+      }
+      catch (IOException e) {
+        LOG.warn("Error listing " + remotePath + " with shell in " + containerName, e);
+        dropShell(shell);
+      }
+    }
+    return myAdapter.listFiles(containerName, remotePath);
+  }
+
+  private synchronized void dropShell(@NotNull PerlDockerShell shell) {
+    shell.close();
+    if (myShell == shell) {
+      myShell = null;
+    }
+  }
+
+  /**
+   * @return alive shell in the {@code containerName}, restarted if necessary, or null if it can't be started
+   */
+  @Nullable
+  private synchronized PerlDockerShell getShell(@NotNull String containerName) {
+    if (myShell != null && myShell.isAlive()) {
+      return myShell;
+    }
+    try {
+      return myShell = myAdapter.openShell(containerName);
+    }
+    catch (ExecutionException e) {
+      LOG.warn("Error starting shell in " + containerName, e);
+      return myShell = null;
+    }
   }
 
   @Nullable
@@ -102,6 +147,10 @@ class PerlDockerFileSystem extends PerlPluggableVirtualFileSystem {
       return;
     }
     myContainerCreated = false;
+    if (myShell != null) {
+      myShell.close();
+      myShell = null;
+    }
     String containerName = myContainerNameProvider.getValue();
     try {
       myAdapter.killContainer(containerName);
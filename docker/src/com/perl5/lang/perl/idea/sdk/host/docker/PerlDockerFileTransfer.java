@@ -23,6 +23,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.Map;
 
 class PerlDockerFileTransfer extends PerlHostFileTransfer<PerlDockerData> {
   @NotNull
@@ -69,6 +70,24 @@ class PerlDockerFileTransfer extends PerlHostFileTransfer<PerlDockerData> {
     }
   }
 
+  /**
+   * Copies all paths with a single tar stream from the container
+   */
+  @Override
+  protected void doSyncPaths(@NotNull Map<String, String> remoteToLocalPaths) throws IOException {
+    assertNotClosed();
+    String containerName = getContainerName();
+    if (containerName == null) {
+      throw new IOException("Container could not be created.", myCreationError);
+    }
+    try {
+      myAdapter.copyRemote(containerName, remoteToLocalPaths.keySet());
+    }
+    catch (ExecutionException e) {
+      throw new IOException(e);
+    }
+  }
+
   private synchronized void assertNotClosed() throws IOException {
     if (closedThrowable != null) {
       throw new IOException("This transfer is already closed", closedThrowable);
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.sdk.host.docker;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Long-living {@code sh} process in a running container. Commands are sent through the stdin one by one and their output is read up to
+ * the end marker, so each request costs a round trip instead of a new {@code docker exec} process.
+ */
+class PerlDockerShell implements Closeable {
+  private static final Logger LOG = Logger.getInstance(PerlDockerShell.class);
+  private static final String END_MARKER = "__intellijPerlEndOfOutput__";
+  @NotNull
+  private final Process myProcess;
+  @NotNull
+  private final Writer myWriter;
+  @NotNull
+  private final BufferedReader myReader;
+
+  PerlDockerShell(@NotNull Process process) {
+    myProcess = process;
+    myWriter = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+    myReader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  public boolean isAlive() {
+    return myProcess.isAlive();
+  }
+
+  /**
+   * @return stdout lines of the {@code command}
+   */
+  @NotNull
+  public synchronized List<String> execute(@NotNull String command) throws IOException {
+    if (!isAlive()) {
+      throw new IOException("Shell process is terminated");
+    }
+    myWriter.write(command);
+    myWriter.write("\nprintf '\\n%s\\n' " + END_MARKER + "\n");
+    myWriter.flush();
+
+    List<String> result = new ArrayList<>();
+    String line;
+    while ((line = myReader.readLine()) != null) {
+      if (line.equals(END_MARKER)) {
+        // removing new line we've added before the marker
+        if (!result.isEmpty() && result.get(result.size() - 1).isEmpty()) {
+          result.remove(result.size() - 1);
+        }
+        return result;
+      }
+      result.add(line);
+    }
+    throw new IOException("Unexpected end of shell output for: " + command);
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      myWriter.write("exit\n");
+      myWriter.flush();
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+    myProcess.destroy();
+  }
+
+  /**
+   * @return {@code text} quoted for the shell
+   */
+  @NotNull
+  static String quote(@NotNull String text) {
+    return '\'' + text.replace("'", "'\\''") + '\'';
+  }
+}
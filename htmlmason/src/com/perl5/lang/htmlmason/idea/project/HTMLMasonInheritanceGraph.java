@@ -0,0 +1,495 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.htmlmason.idea.project;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.util.Consumer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
+import com.perl5.lang.htmlmason.filetypes.HTMLMasonFileType;
+import com.perl5.lang.htmlmason.idea.configuration.HTMLMasonSettings;
+import com.perl5.lang.htmlmason.parser.psi.HTMLMasonFile;
+import com.perl5.lang.htmlmason.parser.psi.HTMLMasonFlagsStatement;
+import com.perl5.lang.htmlmason.parser.psi.impl.HTMLMasonFileImpl;
+import com.perl5.lang.htmlmason.parser.stubs.HTMLMasonFlagsStubIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.*;
+
+/**
+ * Project-wide graph of HTML::Mason components inheritance: explicit one, defined with {@code inherit} flag, and implicit one, via
+ * autohandlers.
+ * <p>
+ * Graph is built in background on first request, on settings and components roots change; until it is ready, children are computed
+ * directly for the requested component. Afterwards edges are patched incrementally: parents are re-computed only for components
+ * affected by changes since the last request, e.g. for components under the directory where autohandler was created or for children
+ * of the removed one.
+ */
+public class HTMLMasonInheritanceGraph {
+  private static final Logger LOG = Logger.getInstance(HTMLMasonInheritanceGraph.class);
+
+  private final Project myProject;
+  /**
+   * Components which parents should be re-computed
+   */
+  private final Set<VirtualFile> myChangedFiles = ContainerUtil.newConcurrentSet();
+  /**
+   * Components which parents and children should be re-computed, e.g. created, moved or renamed ones
+   */
+  private final Set<VirtualFile> myMovedFiles = ContainerUtil.newConcurrentSet();
+  /**
+   * Directories with all components under them should be re-computed, e.g. created or moved ones or ones with new autohandler
+   */
+  private final Set<VirtualFile> myChangedDirectories = ContainerUtil.newConcurrentSet();
+  /**
+   * Names of created, removed, moved or renamed files and directories, components explicitly inheriting paths with such names
+   * should be re-computed
+   */
+  private final Set<String> myChangedNames = ContainerUtil.newConcurrentSet();
+  /**
+   * Set when some files were removed or moved and graph may contain invalid components
+   */
+  private volatile boolean myPruneRequired;
+
+  /**
+   * Serializes updates, parents are computed under this lock only, so readers of the built graph are not blocked
+   */
+  private final Object myUpdateLock = new Object();
+  private final Object myLock = new Object();
+  /**
+   * Graph edges, {@code null} until first build is finished
+   */
+  @Nullable
+  private Edges myEdges;
+  private int myEdgesSettingsChangeCounter;
+  @NotNull
+  private List<VirtualFile> myEdgesRoots = Collections.emptyList();
+  private boolean myBuildScheduled;
+
+  public HTMLMasonInheritanceGraph(@NotNull Project project) {
+    myProject = project;
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+      @Override
+      public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+    }, project);
+
+    project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void before(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          if (event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent || isRename(event)) {
+            VirtualFile file = event.getFile();
+            if (file != null && isRelevant(file)) {
+              myChangedNames.add(file.getName());
+              myPruneRequired = true;
+            }
+          }
+        }
+      }
+
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          if (event instanceof VFileContentChangeEvent) {
+            if (HTMLMasonFileType.INSTANCE.isMyFileType(event.getFile())) {
+              myChangedFiles.add(event.getFile());
+            }
+          }
+          else if (event instanceof VFileCreateEvent || event instanceof VFileMoveEvent || isRename(event)) {
+            VirtualFile file = event.getFile();
+            if (file != null) {
+              fileCreated(file);
+            }
+          }
+          else if (event instanceof VFileCopyEvent) {
+            VFileCopyEvent copyEvent = (VFileCopyEvent)event;
+            VirtualFile file = copyEvent.getNewParent().findChild(copyEvent.getNewChildName());
+            if (file != null) {
+              fileCreated(file);
+            }
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * @return components, inheriting from the {@code component} explicitly or implicitly
+   */
+  @NotNull
+  public List<VirtualFile> getChildComponents(@NotNull VirtualFile component) {
+    HTMLMasonSettings settings = HTMLMasonSettings.getInstance(myProject);
+    int settingsChangeCounter = settings.getChangeCounter();
+    List<VirtualFile> componentsRoots = settings.getComponentsRoots();
+    Edges edges;
+    synchronized (myLock) {
+      edges = myEdges;
+      if (edges == null || myEdgesSettingsChangeCounter != settingsChangeCounter || !myEdgesRoots.equals(componentsRoots)) {
+        scheduleBuild(settingsChangeCounter, componentsRoots);
+        edges = null;
+      }
+    }
+    if (edges == null) {
+      return computeChildren(component);
+    }
+    update(edges);
+    synchronized (myLock) {
+      return edges.getChildren(component);
+    }
+  }
+
+  @TestOnly
+  public boolean isBuilt() {
+    synchronized (myLock) {
+      return myEdges != null;
+    }
+  }
+
+  private static boolean isRename(@NotNull VFileEvent event) {
+    return event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent)event).isRename();
+  }
+
+  private boolean isRelevant(@NotNull VirtualFile file) {
+    return file.isDirectory() || HTMLMasonFileType.INSTANCE.isMyFileType(file);
+  }
+
+  private void fileChanged(@Nullable PsiFile psiFile) {
+    if (psiFile == null) {
+      return;
+    }
+    FileViewProvider viewProvider = psiFile.getViewProvider();
+    if (ContainerUtil.exists(viewProvider.getAllFiles(), it -> it instanceof HTMLMasonFile)) {
+      myChangedFiles.add(viewProvider.getVirtualFile());
+    }
+  }
+
+  /**
+   * Registers file or directory appeared at new location: created, copied, moved or renamed
+   */
+  private void fileCreated(@NotNull VirtualFile file) {
+    if (!isRelevant(file)) {
+      return;
+    }
+    myChangedNames.add(file.getName());
+    if (file.isDirectory()) {
+      myChangedDirectories.add(file);
+      return;
+    }
+    myMovedFiles.add(file);
+    VirtualFile parent = file.getParent();
+    if (parent != null && StringUtil.equals(file.getName(), HTMLMasonSettings.getInstance(myProject).autoHandlerName)) {
+      myChangedDirectories.add(parent);
+    }
+  }
+
+  /**
+   * Patches {@code edges} for components affected by changes since the last update. Pending changes are taken at the start and
+   * returned back if update has been cancelled; parents are computed without holding the graph lock, which is taken only to apply
+   * them and only if graph has not been rebuilt meanwhile.
+   */
+  private void update(@NotNull Edges edges) {
+    synchronized (myUpdateLock) {
+      if (myPruneRequired) {
+        myPruneRequired = false;
+        synchronized (myLock) {
+          edges.prune(myChangedFiles);
+        }
+      }
+
+      Set<String> changedNames = DumbService.isDumb(myProject) ? Collections.emptySet() : takePending(myChangedNames);
+      Set<VirtualFile> changedDirectories = takePending(myChangedDirectories);
+      Set<VirtualFile> movedFiles = takePending(myMovedFiles);
+      Set<VirtualFile> changedFiles = takePending(myChangedFiles);
+      Map<VirtualFile, VirtualFile> parents = new HashMap<>();
+      try {
+        if (!changedNames.isEmpty()) {
+          processFlaggedComponents(it -> ContainerUtil.exists(StringUtil.split(it, "/"), changedNames::contains), changedFiles::add);
+        }
+
+        for (VirtualFile directory : changedDirectories) {
+          if (directory.isValid()) {
+            VfsUtilCore.iterateChildrenRecursively(directory, null, file -> {
+              ProgressManager.checkCanceled();
+              if (!file.isDirectory() && HTMLMasonFileType.INSTANCE.isMyFileType(file)) {
+                changedFiles.add(file);
+              }
+              return true;
+            });
+          }
+        }
+
+        synchronized (myLock) {
+          for (VirtualFile file : movedFiles) {
+            changedFiles.add(file);
+            changedFiles.addAll(edges.getChildren(file));
+          }
+        }
+
+        for (VirtualFile file : changedFiles) {
+          ProgressManager.checkCanceled();
+          parents.put(file, computeParent(file));
+        }
+      }
+      catch (ProcessCanceledException e) {
+        myChangedNames.addAll(changedNames);
+        myChangedDirectories.addAll(changedDirectories);
+        myMovedFiles.addAll(movedFiles);
+        myChangedFiles.addAll(changedFiles);
+        throw e;
+      }
+
+      synchronized (myLock) {
+        // rebuilt graph contains all changes made before the rebuild
+        if (myEdges == edges) {
+          parents.forEach(edges::setParent);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return pending changes from {@code pending} removing them from it
+   */
+  @NotNull
+  private static <T> Set<T> takePending(@NotNull Set<T> pending) {
+    Set<T> result = new LinkedHashSet<>(pending);
+    pending.removeAll(result);
+    return result;
+  }
+
+  private void scheduleBuild(int settingsChangeCounter, @NotNull List<VirtualFile> componentsRoots) {
+    if (myBuildScheduled) {
+      return;
+    }
+    myBuildScheduled = true;
+    ReadAction.nonBlocking(() -> buildEdges(componentsRoots))
+      .inSmartMode(myProject)
+      .expireWith(myProject)
+      .submit(AppExecutorUtil.getAppExecutorService())
+      .onProcessed(edges -> {
+        synchronized (myLock) {
+          myBuildScheduled = false;
+          // stale graph is going to be rebuilt on the next request
+          if (edges != null) {
+            myEdges = edges;
+            myEdgesSettingsChangeCounter = settingsChangeCounter;
+            myEdgesRoots = componentsRoots;
+          }
+        }
+      });
+  }
+
+  /**
+   * Builds graph for all components, may be restarted on write actions. Changes made after the start are applied incrementally
+   * on the next request.
+   */
+  @NotNull
+  private Edges buildEdges(@NotNull List<VirtualFile> componentsRoots) {
+    long startTime = System.currentTimeMillis();
+    myChangedFiles.clear();
+    myMovedFiles.clear();
+    myChangedDirectories.clear();
+    myChangedNames.clear();
+    myPruneRequired = false;
+
+    Set<VirtualFile> components = new LinkedHashSet<>();
+    for (VirtualFile root : componentsRoots) {
+      if (!root.isValid()) {
+        continue;
+      }
+      VfsUtilCore.iterateChildrenRecursively(root, null, file -> {
+        ProgressManager.checkCanceled();
+        if (!file.isDirectory() && HTMLMasonFileType.INSTANCE.isMyFileType(file)) {
+          components.add(file);
+        }
+        return true;
+      });
+    }
+    // explicitly inheriting components may be outside of the components roots
+    processFlaggedComponents(it -> true, components::add);
+
+    Edges edges = new Edges();
+    for (VirtualFile component : components) {
+      ProgressManager.checkCanceled();
+      edges.setParent(component, computeParent(component));
+    }
+    LOG.debug("Built inheritance graph of ", components.size(), " components in ", System.currentTimeMillis() - startTime, " ms");
+    return edges;
+  }
+
+  /**
+   * Computes children of the {@code component} without the graph: explicitly inheriting components, which parent path ends with
+   * component name, and, for autohandlers, components under the autohandler directory
+   */
+  @NotNull
+  private List<VirtualFile> computeChildren(@NotNull VirtualFile component) {
+    Set<VirtualFile> candidates = new LinkedHashSet<>();
+    String componentName = component.getName();
+    if (!DumbService.isDumb(myProject)) {
+      processFlaggedComponents(it -> StringUtil.equals(StringUtil.substringAfterLast("/" + it, "/"), componentName), candidates::add);
+    }
+
+    String autoHandlerName = HTMLMasonSettings.getInstance(myProject).autoHandlerName;
+    VirtualFile componentDir = component.getParent();
+    if (componentDir != null && StringUtil.equals(componentName, autoHandlerName)) {
+      VfsUtilCore.visitChildrenRecursively(componentDir, new VirtualFileVisitor<Void>() {
+        @NotNull
+        @Override
+        public Result visitFileEx(@NotNull VirtualFile file) {
+          ProgressManager.checkCanceled();
+          if (!file.isDirectory()) {
+            if (HTMLMasonFileType.INSTANCE.isMyFileType(file)) {
+              candidates.add(file);
+            }
+            return CONTINUE;
+          }
+          VirtualFile nestedAutoHandler = file.equals(componentDir) ? null : file.findChild(autoHandlerName);
+          if (nestedAutoHandler != null) {
+            // components in this directory inherit the nested autohandler
+            candidates.add(nestedAutoHandler);
+            return SKIP_CHILDREN;
+          }
+          return CONTINUE;
+        }
+      });
+    }
+
+    List<VirtualFile> result = new ArrayList<>();
+    for (VirtualFile candidate : candidates) {
+      ProgressManager.checkCanceled();
+      if (!candidate.equals(component) && component.equals(computeParent(candidate))) {
+        result.add(candidate);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Passes files of components, which parent path in {@code inherit} flag satisfies {@code pathCondition}, to the {@code consumer}
+   */
+  private void processFlaggedComponents(@NotNull Condition<String> pathCondition, @NotNull Consumer<VirtualFile> consumer) {
+    GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+    for (String parentPath : StubIndex.getInstance().getAllKeys(HTMLMasonFlagsStubIndex.KEY, myProject)) {
+      if (!pathCondition.value(parentPath)) {
+        continue;
+      }
+      for (HTMLMasonFlagsStatement statement : StubIndex.getElements(
+        HTMLMasonFlagsStubIndex.KEY, parentPath, myProject, scope, HTMLMasonFlagsStatement.class)) {
+        ProgressManager.checkCanceled();
+        consumer.consume(statement.getContainingFile().getViewProvider().getVirtualFile());
+      }
+    }
+  }
+
+  @Nullable
+  private VirtualFile computeParent(@NotNull VirtualFile component) {
+    if (!component.isValid()) {
+      return null;
+    }
+    PsiFile psiFile = PsiManager.getInstance(myProject).findFile(component);
+    return psiFile instanceof HTMLMasonFileImpl ? ((HTMLMasonFileImpl)psiFile).getParentComponentFile() : null;
+  }
+
+  @NotNull
+  public static HTMLMasonInheritanceGraph getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, HTMLMasonInheritanceGraph.class);
+  }
+
+  private static class Edges {
+    private final Map<VirtualFile, VirtualFile> myParents = new HashMap<>();
+    private final Map<VirtualFile, Set<VirtualFile>> myChildren = new HashMap<>();
+
+    @NotNull
+    List<VirtualFile> getChildren(@NotNull VirtualFile component) {
+      Set<VirtualFile> children = myChildren.get(component);
+      return children == null ? Collections.emptyList() : new ArrayList<>(children);
+    }
+
+    void setParent(@NotNull VirtualFile component, @Nullable VirtualFile parent) {
+      VirtualFile oldParent = parent == null ? myParents.remove(component) : myParents.put(component, parent);
+      if (Objects.equals(oldParent, parent)) {
+        return;
+      }
+      if (oldParent != null) {
+        Set<VirtualFile> oldSiblings = myChildren.get(oldParent);
+        if (oldSiblings != null && oldSiblings.remove(component) && oldSiblings.isEmpty()) {
+          myChildren.remove(oldParent);
+        }
+      }
+      if (parent != null) {
+        myChildren.computeIfAbsent(parent, it -> new LinkedHashSet<>()).add(component);
+      }
+    }
+
+    /**
+     * Removes invalid components from the graph and passes their children to {@code orphans}
+     */
+    void prune(@NotNull Set<VirtualFile> orphans) {
+      for (VirtualFile component : new ArrayList<>(myParents.keySet())) {
+        if (!component.isValid()) {
+          setParent(component, null);
+        }
+      }
+      for (VirtualFile parent : new ArrayList<>(myChildren.keySet())) {
+        if (!parent.isValid()) {
+          orphans.addAll(myChildren.remove(parent));
+        }
+      }
+    }
+  }
+}
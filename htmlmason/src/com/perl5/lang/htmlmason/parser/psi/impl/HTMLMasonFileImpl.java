@@ -16,15 +16,12 @@
 
 package com.perl5.lang.htmlmason.parser.psi.impl;
 
-import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.scope.PsiScopeProcessor;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.stubs.StubElement;
-import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.util.CachedValueProvider;
 import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
@@ -33,8 +30,8 @@ import com.perl5.lang.htmlmason.HTMLMasonLanguage;
 import com.perl5.lang.htmlmason.HTMLMasonUtil;
 import com.perl5.lang.htmlmason.MasonCoreUtil;
 import com.perl5.lang.htmlmason.idea.configuration.HTMLMasonSettings;
+import com.perl5.lang.htmlmason.idea.project.HTMLMasonInheritanceGraph;
 import com.perl5.lang.htmlmason.parser.psi.*;
-import com.perl5.lang.htmlmason.parser.stubs.HTMLMasonFlagsStubIndex;
 import com.perl5.lang.perl.psi.PerlCompositeElement;
 import com.perl5.lang.perl.psi.PerlVariableDeclarationElement;
 import com.perl5.lang.perl.psi.impl.PerlFileImpl;
@@ -122,6 +119,22 @@ public class HTMLMasonFileImpl extends PerlFileImpl implements HTMLMasonFile {
 
   @Nullable
   public HTMLMasonFileImpl getParentComponent() {
+    VirtualFile parentFile = getParentComponentFile();
+    if (parentFile != null) {
+      PsiFile file = PsiManager.getInstance(getProject()).findFile(parentFile);
+      if (file instanceof HTMLMasonFileImpl) {
+        return (HTMLMasonFileImpl)file;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @return file of the parent component, explicitly set with {@code inherit} flag or implicit autohandler
+   */
+  @Nullable
+  public VirtualFile getParentComponentFile() {
     String parentComponentPath = getParentComponentPath();
     HTMLMasonSettings settings = HTMLMasonSettings.getInstance(getProject());
     VirtualFile parentFile = null;
@@ -169,55 +182,24 @@ public class HTMLMasonFileImpl extends PerlFileImpl implements HTMLMasonFile {
       }
     }
 
-    if (parentFile != null) {
-      PsiFile file = PsiManager.getInstance(getProject()).findFile(parentFile);
-      if (file instanceof HTMLMasonFileImpl) {
-        return (HTMLMasonFileImpl)file;
-      }
-    }
-
-    return null;
+    return parentFile;
   }
 
+  /**
+   * @return components inheriting from this one
+   * @see HTMLMasonInheritanceGraph
+   */
   @NotNull
   public List<HTMLMasonFileImpl> getChildComponents() {
-    final List<HTMLMasonFileImpl> result = new ArrayList<>();
+    List<HTMLMasonFileImpl> result = new ArrayList<>();
     VirtualFile containingFile = getComponentVirtualFile();
 
-    if (containingFile != null) {
-      VirtualFile componentRoot = getComponentRoot();
-
-      if (componentRoot != null) {
-        final String relativePath = VfsUtil.VFS_SEPARATOR_CHAR + VfsUtil.getRelativePath(containingFile, componentRoot);
-        final Project project = getProject();
-        final GlobalSearchScope scope = GlobalSearchScope.allScope(project);
-        final HTMLMasonFileImpl currentFile = this;
-        HTMLMasonSettings settings = HTMLMasonSettings.getInstance(project);
-
-        // indexed children
-        for (String parentPath : StubIndex.getInstance().getAllKeys(HTMLMasonFlagsStubIndex.KEY, project)) {
-          boolean isEquals = StringUtil.equals(relativePath, parentPath);
-          boolean isRelative = parentPath.length() == 0 || parentPath.charAt(0) != VfsUtil.VFS_SEPARATOR_CHAR;
-
-          for (HTMLMasonFlagsStatement statement : StubIndex.getElements(
-            HTMLMasonFlagsStubIndex.KEY,
-            parentPath,
-            project,
-            scope,
-            HTMLMasonFlagsStatement.class
-          )) {
-            PsiFile file = statement.getContainingFile();
-            if (file instanceof HTMLMasonFileImpl) {
-              if (isEquals || isRelative && currentFile.equals(((HTMLMasonFileImpl)file).getParentComponent())) {
-                result.add((HTMLMasonFileImpl)file);
-              }
-            }
-          }
-        }
-
-        // implicit auto-handled children
-        if (StringUtil.equals(containingFile.getName(), settings.autoHandlerName)) {
-          collectAutoHandledFiles(PsiManager.getInstance(project), containingFile.getParent(), result, settings.autoHandlerName, null);
+    if (containingFile != null && getComponentRoot() != null) {
+      PsiManager manager = PsiManager.getInstance(getProject());
+      for (VirtualFile childFile : HTMLMasonInheritanceGraph.getInstance(getProject()).getChildComponents(containingFile)) {
+        PsiFile childPsiFile = manager.findFile(childFile);
+        if (childPsiFile instanceof HTMLMasonFileImpl) {
+          result.add((HTMLMasonFileImpl)childPsiFile);
         }
       }
     }
@@ -225,49 +207,6 @@ public class HTMLMasonFileImpl extends PerlFileImpl implements HTMLMasonFile {
     return result;
   }
 
-  protected void collectAutoHandledFiles(
-    PsiManager manager,
-    VirtualFile dir,
-    List<HTMLMasonFileImpl> result,
-    String autoHandlerName,
-    @Nullable Set<VirtualFile> recursionMap
-  ) {
-    if (dir != null) {
-      if (recursionMap == null) // first iteration
-      {
-        recursionMap = new THashSet<>();
-      }
-      else // non-first iteration
-      {
-        VirtualFile autoHandlerVirtualFile = dir.findChild(autoHandlerName);
-        if (autoHandlerVirtualFile != null) {
-          PsiFile autoHandlerPsiFile = manager.findFile(autoHandlerVirtualFile);
-          if (autoHandlerPsiFile instanceof HTMLMasonFileImpl &&
-              this.equals(((HTMLMasonFileImpl)autoHandlerPsiFile).getParentComponent())) {
-            result.add((HTMLMasonFileImpl)autoHandlerPsiFile);
-          }
-          return;
-        }
-      }
-
-      recursionMap.add(dir);
-
-      // all iterations
-      for (VirtualFile file : dir.getChildren()) {
-        if (file.isDirectory() && !recursionMap.contains(file)) {
-          collectAutoHandledFiles(manager, file, result, autoHandlerName, recursionMap);
-        }
-        else if (!StringUtil.equals(file.getName(), autoHandlerName)) // non auto-handler file
-        {
-          PsiFile psiFile = manager.findFile(file);
-          if (psiFile instanceof HTMLMasonFileImpl && this.equals(((HTMLMasonFileImpl)psiFile).getParentComponent())) {
-            result.add((HTMLMasonFileImpl)psiFile);
-          }
-        }
-      }
-    }
-  }
-
   @Nullable
   protected String getParentComponentPath() {
     HTMLMasonFlagsStatement statement = getFlagsStatement();
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package project;
+
+import base.HTMLMasonLightTestCase;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.projectRoots.impl.PerlModuleExtension;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.TimeoutUtil;
+import com.perl5.lang.htmlmason.idea.configuration.HTMLMasonSourceRootType;
+import com.perl5.lang.htmlmason.idea.project.HTMLMasonInheritanceGraph;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class HTMLMasonInheritanceGraphTest extends HTMLMasonLightTestCase {
+  private static final long BUILD_TIMEOUT_MS = 10_000;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    VirtualFile componentsRoot = myFixture.getTempDirFixture().findOrCreateDir("comps");
+    PerlModuleExtension modifiableModel =
+      (PerlModuleExtension)PerlModuleExtension.getInstance(myFixture.getModule()).getModifiableModel(true);
+    modifiableModel.setRoot(componentsRoot, HTMLMasonSourceRootType.INSTANCE);
+    modifiableModel.commit();
+    addPerlTearDownListener(() -> removePerlSourceRoot(componentsRoot));
+  }
+
+  public void testAutohandlerAdded() {
+    VirtualFile rootHandler = addComponent("autohandler", "");
+    addComponent("page.mas", "");
+    addComponent("sub/inner.mas", "");
+    assertChildren(rootHandler, "page.mas", "sub/inner.mas");
+
+    VirtualFile subHandler = addComponent("sub/autohandler", "");
+    assertChildren(rootHandler, "page.mas", "sub/autohandler");
+    assertChildren(subHandler, "sub/inner.mas");
+  }
+
+  public void testAutohandlerRemoved() throws IOException {
+    VirtualFile rootHandler = addComponent("autohandler", "");
+    addComponent("page.mas", "");
+    addComponent("sub/inner.mas", "");
+    VirtualFile subHandler = addComponent("sub/autohandler", "");
+    assertChildren(rootHandler, "page.mas", "sub/autohandler");
+    assertChildren(subHandler, "sub/inner.mas");
+
+    deleteFile(subHandler);
+    assertChildren(rootHandler, "page.mas", "sub/inner.mas");
+
+    deleteFile(rootHandler);
+    VirtualFile newRootHandler = addComponent("autohandler", "");
+    assertChildren(newRootHandler, "page.mas", "sub/inner.mas");
+  }
+
+  public void testExplicitParentAdded() {
+    VirtualFile rootHandler = addComponent("autohandler", "");
+    addComponent("page.mas", "<%flags>\ninherit=>'/sub/base.mas'\n</%flags>");
+    addComponent("other.mas", "");
+    assertChildren(rootHandler, "other.mas");
+
+    VirtualFile base = addComponent("sub/base.mas", "");
+    assertChildren(base, "page.mas");
+    assertChildren(rootHandler, "other.mas", "sub/base.mas");
+  }
+
+  /**
+   * Checks children of the {@code component} now and after the graph is built
+   */
+  private void assertChildren(@NotNull VirtualFile component, @NotNull String... expectedPaths) {
+    HTMLMasonInheritanceGraph graph = HTMLMasonInheritanceGraph.getInstance(getProject());
+    doAssertChildren(graph, component, expectedPaths);
+    long deadline = System.currentTimeMillis() + BUILD_TIMEOUT_MS;
+    while (!graph.isBuilt()) {
+      assertTrue("Inheritance graph was not built in time", System.currentTimeMillis() < deadline);
+      PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+      TimeoutUtil.sleep(10);
+    }
+    doAssertChildren(graph, component, expectedPaths);
+  }
+
+  private void doAssertChildren(@NotNull HTMLMasonInheritanceGraph graph,
+                                @NotNull VirtualFile component,
+                                @NotNull String... expectedPaths) {
+    VirtualFile componentsRoot = myFixture.findFileInTempDir("comps");
+    List<String> childrenPaths = graph.getChildComponents(component).stream()
+      .map(it -> it.getPath().substring(componentsRoot.getPath().length() + 1))
+      .sorted()
+      .collect(Collectors.toList());
+    assertEquals(Arrays.asList(expectedPaths), childrenPaths);
+  }
+
+  @NotNull
+  private VirtualFile addComponent(@NotNull String path, @NotNull String text) {
+    return myFixture.addFileToProject("comps/" + path, text).getVirtualFile();
+  }
+
+  private void deleteFile(@NotNull VirtualFile file) throws IOException {
+    WriteAction.run(() -> file.delete(this));
+  }
+}
@@ -16,20 +16,23 @@
 
 package com.perl5.lang.mason2;
 
-import com.intellij.openapi.project.DumbModeTask;
-import com.intellij.openapi.project.DumbServiceImpl;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.search.FileTypeIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.stubs.StubIndex;
-import com.intellij.util.indexing.FileBasedIndex;
-import com.intellij.util.indexing.FileBasedIndexImpl;
-import com.intellij.util.indexing.FileBasedIndexProjectHandler;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.perl5.lang.htmlmason.MasonCoreUtil;
+import com.perl5.lang.mason2.filetypes.MasonInternalComponentFileType;
 import com.perl5.lang.mason2.filetypes.MasonPurePerlComponentFileType;
+import com.perl5.lang.mason2.filetypes.MasonTopLevelComponentFileType;
 import com.perl5.lang.mason2.idea.configuration.MasonSettings;
+import com.perl5.lang.mason2.idea.project.MasonComponentsModificationTracker;
 import com.perl5.lang.mason2.psi.MasonNamespaceDefinition;
 import com.perl5.lang.mason2.psi.stubs.MasonNamespaceDefitnitionsStubIndex;
 import com.perl5.lang.perl.psi.PerlNamespaceDefinitionElement;
@@ -38,15 +41,15 @@ import com.perl5.lang.perl.util.PerlPackageUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 
 public class Mason2Util {
+  public static final String CLASS_NAME_PREFIX = "/MC0::";
+
   @NotNull
   public static String getClassnameFromPath(@NotNull String path) {
-    return "/MC0::" +
+    return CLASS_NAME_PREFIX +
            path.replaceAll("[^\\p{L}\\d_\\/]", "_").replaceAll("" + VfsUtil.VFS_SEPARATOR_CHAR, PerlPackageUtil.NAMESPACE_SEPARATOR);
   }
 
@@ -63,24 +66,75 @@ public class Mason2Util {
     return null;
   }
 
+  /**
+   * @return class name of the {@code componentFile} computed from the current components roots or, if file is not under any of them,
+   * from the content root
+   */
+  @Nullable
+  public static String getComponentClassName(@NotNull Project project, @Nullable VirtualFile componentFile) {
+    String className = getVirtualFileClassName(project, componentFile);
+    if (className != null) {
+      return className;
+    }
+    String contentPath = PerlFileUtil.getPathRelativeToContentRoot(componentFile, project);
+    return contentPath == null ? null : getClassnameFromPath(contentPath);
+  }
+
   @Nullable
   public static VirtualFile getComponentRoot(@NotNull Project project, @Nullable VirtualFile file) {
     return MasonCoreUtil.getComponentRoot(MasonSettings.getInstance(project), file);
   }
 
-  public static List<PerlNamespaceDefinitionElement> getMasonNamespacesByAbsolutePath(@NotNull Project project,
-                                                                                      @NotNull String absolutePath) {
+  /**
+   * @return namespace definitions from the {@code componentFile}
+   */
+  @NotNull
+  public static List<PerlNamespaceDefinitionElement> getMasonNamespaces(@NotNull Project project, @NotNull VirtualFile componentFile) {
+    if (DumbService.isDumb(project)) {
+      return new ArrayList<>();
+    }
     return new ArrayList<>(
       StubIndex.getElements(
         MasonNamespaceDefitnitionsStubIndex.KEY,
-        absolutePath,
+        componentFile.getName(),
         project,
-        GlobalSearchScope.projectScope(project),
+        GlobalSearchScope.fileScope(project, componentFile),
         MasonNamespaceDefinition.class
       )
     );
   }
 
+  /**
+   * @return components files of the project, grouped by class names, computed from the current components roots. Computed lazily
+   * and cached until project roots or components paths change
+   * @see MasonComponentsModificationTracker
+   */
+  @NotNull
+  public static Map<String, List<VirtualFile>> getComponentsByClassNames(@NotNull Project project) {
+    return CachedValuesManager.getManager(project).getCachedValue(project, () -> CachedValueProvider.Result.create(
+      computeComponentsByClassNames(project),
+      MasonComponentsModificationTracker.getInstance(project),
+      ProjectRootManager.getInstance(project)));
+  }
+
+  @NotNull
+  private static Map<String, List<VirtualFile>> computeComponentsByClassNames(@NotNull Project project) {
+    Map<String, List<VirtualFile>> result = new HashMap<>();
+    GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+    for (MasonPurePerlComponentFileType fileType : Arrays.asList(
+      MasonPurePerlComponentFileType.INSTANCE, MasonTopLevelComponentFileType.INSTANCE, MasonInternalComponentFileType.INSTANCE)) {
+      FileTypeIndex.processFiles(fileType, componentFile -> {
+        ProgressManager.checkCanceled();
+        String className = getComponentClassName(project, componentFile);
+        if (className != null) {
+          result.computeIfAbsent(className, it -> new ArrayList<>()).add(componentFile);
+        }
+        return true;
+      }, scope);
+    }
+    return result;
+  }
+
   @NotNull
   public static List<PerlNamespaceDefinitionElement> collectComponentNamespacesByPaths(@NotNull Project project,
                                                                                        @NotNull List<String> componentPaths,
@@ -106,50 +160,10 @@ public class Mason2Util {
       }
 
       if (componentFile != null) {
-        String absolutePath = PerlFileUtil.getPathRelativeToContentRoot(componentFile, project);
-        if (absolutePath != null) {
-          result.addAll(Mason2Util.getMasonNamespacesByAbsolutePath(project, absolutePath));
-        }
+        result.addAll(getMasonNamespaces(project, componentFile));
       }
     }
 
     return result;
   }
-
-  public static void reindexProjectFile(Project project, VirtualFile virtualFile) {
-    if (VfsUtil.isAncestor(project.getBaseDir(), virtualFile, false)) {
-      reindexProjectRoots(project, Collections.singletonList(PerlFileUtil.getPathRelativeToContentRoot(virtualFile, project)));
-    }
-  }
-
-  public static void reindexProjectRoots(Project project, List<String> rootsToReindex) {
-    if (rootsToReindex.isEmpty()) {
-      return;
-    }
-
-    PsiDocumentManager.getInstance(project).commitAllDocuments();
-
-    VirtualFile projectRoot = project.getBaseDir();
-
-    if (projectRoot != null) {
-      final FileBasedIndex index = FileBasedIndex.getInstance();
-
-      for (String root : rootsToReindex) {
-        VirtualFile componentRoot = VfsUtil.findRelativeFile(root, projectRoot);
-        if (componentRoot != null) {
-          for (VirtualFile file : VfsUtil.collectChildrenRecursively(componentRoot)) {
-            if (file.getFileType() instanceof MasonPurePerlComponentFileType) {
-              index.requestReindex(file);
-            }
-          }
-        }
-      }
-      if (index instanceof FileBasedIndexImpl) {
-        DumbModeTask changedFilesIndexingTask = FileBasedIndexProjectHandler.createChangedFilesIndexingTask(project);
-        if (changedFilesIndexingTask != null) {
-          DumbServiceImpl.getInstance(project).queueTask(changedFilesIndexingTask);
-        }
-      }
-    }
-  }
 }
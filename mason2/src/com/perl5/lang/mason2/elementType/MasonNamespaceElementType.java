@@ -18,11 +18,12 @@ package com.perl5.lang.mason2.elementType;
 
 import com.intellij.lang.ASTNode;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.stubs.IndexSink;
 import com.intellij.psi.stubs.StubElement;
+import com.perl5.lang.htmlmason.MasonCoreUtil;
 import com.perl5.lang.mason2.Mason2Language;
-import com.perl5.lang.mason2.Mason2Util;
 import com.perl5.lang.mason2.psi.MasonNamespaceDefinition;
 import com.perl5.lang.mason2.psi.impl.MasonNamespaceDefinitionImpl;
 import com.perl5.lang.mason2.psi.stubs.MasonNamespaceDefitnitionsStubIndex;
@@ -32,8 +33,8 @@ import com.perl5.lang.perl.psi.PerlNamespaceDefinitionElement;
 import com.perl5.lang.perl.psi.stubs.namespaces.PerlNamespaceDefinitionData;
 import com.perl5.lang.perl.psi.stubs.namespaces.PerlNamespaceDefinitionElementType;
 import com.perl5.lang.perl.psi.stubs.namespaces.PerlNamespaceDefinitionStub;
-import com.perl5.lang.perl.psi.stubs.namespaces.PerlNamespaceIndex;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 
 public class MasonNamespaceElementType extends PerlNamespaceDefinitionElementType implements PsiElementProvider {
@@ -51,7 +52,17 @@ public class MasonNamespaceElementType extends PerlNamespaceDefinitionElementTyp
   public PerlNamespaceDefinitionStub createStub(@NotNull PerlNamespaceDefinitionElement psi, StubElement parentStub) {
     assert psi instanceof MasonNamespaceDefinitionImpl;
     return new PerlNamespaceDefinitionStub(parentStub, this, new PerlNamespaceDefinitionData(
-      StringUtil.notNullize(((MasonNamespaceDefinitionImpl)psi).getAbsoluteComponentPath()), psi));
+      StringUtil.notNullize(getComponentFileName(psi)), psi));
+  }
+
+  /**
+   * Stub keeps only the component file name; class name depends on the components roots and computed from the current ones on demand,
+   * so roots changes and directories renaming do not require re-indexing
+   */
+  @Nullable
+  private static String getComponentFileName(@NotNull PsiElement psi) {
+    VirtualFile componentFile = MasonCoreUtil.getContainingVirtualFile(psi.getContainingFile());
+    return componentFile == null ? null : componentFile.getName();
   }
 
   @Override
@@ -60,9 +71,6 @@ public class MasonNamespaceElementType extends PerlNamespaceDefinitionElementTyp
     assert name != null;
     sink.occurrence(MasonNamespaceDefitnitionsStubIndex.KEY, name);
 
-    // fixme this is kinda hack to make MRO work. But, it should be smarter
-    sink.occurrence(PerlNamespaceIndex.KEY, Mason2Util.getClassnameFromPath(name));
-
     for (String parent : stub.getParentNamespacesNames()) {
       if (parent != null && !parent.isEmpty()) {
         sink.occurrence(MasonParentNamespacesStubIndex.KEY, parent);
@@ -75,7 +83,7 @@ public class MasonNamespaceElementType extends PerlNamespaceDefinitionElementTyp
     PsiElement psi = node.getPsi();
     return psi instanceof MasonNamespaceDefinition &&
            psi.isValid() &&
-           StringUtil.isNotEmpty(((MasonNamespaceDefinition)psi).getAbsoluteComponentPath());
+           StringUtil.isNotEmpty(getComponentFileName(psi));
   }
 
   @NotNull
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.mason2.idea.project;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
+import com.perl5.lang.mason2.Mason2Util;
+import com.perl5.lang.mason2.filetypes.MasonPurePerlComponentFileType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Tracks changes of Mason2 components paths: creation, removal, moving or renaming of components files anywhere and of directories
+ * under the components roots. Unlike {@link VirtualFileManager#VFS_STRUCTURE_MODIFICATIONS}, unrelated files changes do not
+ * invalidate caches of components class names. Roots changes should be tracked separately.
+ */
+public class MasonComponentsModificationTracker extends SimpleModificationTracker {
+  private final Project myProject;
+
+  public MasonComponentsModificationTracker(@NotNull Project project) {
+    myProject = project;
+    project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void before(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          if ((event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent || isRename(event)) &&
+              isComponentPath(event.getFile())) {
+            incModificationCount();
+            return;
+          }
+        }
+      }
+
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          VirtualFile file = null;
+          if (event instanceof VFileCreateEvent || event instanceof VFileMoveEvent || isRename(event)) {
+            file = event.getFile();
+          }
+          else if (event instanceof VFileCopyEvent) {
+            VFileCopyEvent copyEvent = (VFileCopyEvent)event;
+            file = copyEvent.getNewParent().findChild(copyEvent.getNewChildName());
+          }
+          if (isComponentPath(file)) {
+            incModificationCount();
+            return;
+          }
+        }
+      }
+    });
+  }
+
+  private static boolean isRename(@NotNull VFileEvent event) {
+    return event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent)event).isRename();
+  }
+
+  /**
+   * @return true iff {@code file} is a component or a directory under the components roots, which path affects class names
+   */
+  private boolean isComponentPath(@Nullable VirtualFile file) {
+    if (file == null || !file.isValid()) {
+      return false;
+    }
+    if (file.isDirectory()) {
+      return Mason2Util.getComponentRoot(myProject, file) != null;
+    }
+    return file.getFileType() instanceof MasonPurePerlComponentFileType;
+  }
+
+  @NotNull
+  public static MasonComponentsModificationTracker getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, MasonComponentsModificationTracker.class);
+  }
+}
@@ -18,14 +18,19 @@ package com.perl5.lang.mason2.psi.impl;
 
 import com.intellij.lang.ASTNode;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
 import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.perl5.lang.htmlmason.MasonCoreUtil;
 import com.perl5.lang.mason2.Mason2Util;
 import com.perl5.lang.mason2.idea.configuration.MasonSettings;
+import com.perl5.lang.mason2.idea.project.MasonComponentsModificationTracker;
 import com.perl5.lang.mason2.psi.MasonNamespaceDefinition;
 import com.perl5.lang.mason2.psi.stubs.MasonNamespaceDefitnitionsStubIndex;
 import com.perl5.lang.mason2.psi.stubs.MasonParentNamespacesStubIndex;
@@ -73,11 +78,10 @@ public class MasonNamespaceDefinitionImpl extends PsiPerlNamespaceDefinitionImpl
   @Nullable
   @Override
   public String getNamespaceName() {
-    String absoluteComponentPath = getAbsoluteComponentPath();
-    if (absoluteComponentPath != null) {
-      return Mason2Util.getClassnameFromPath(absoluteComponentPath);
-    }
-    return null;
+    return CachedValuesManager.getCachedValue(this, () -> CachedValueProvider.Result.create(
+      Mason2Util.getComponentClassName(getProject(), MasonCoreUtil.getContainingVirtualFile(getContainingFile())),
+      MasonComponentsModificationTracker.getInstance(getProject()),
+      ProjectRootManager.getInstance(getProject())));
   }
 
   @Override
@@ -104,9 +108,9 @@ public class MasonNamespaceDefinitionImpl extends PsiPerlNamespaceDefinitionImpl
       parentsNamespaces = Mason2Util.collectComponentNamespacesByPaths(getProject(), parentsPaths, containingFile.getParent());
     }
     else {
-      String autobaseParent = getParentNamespaceFromAutobase();
+      VirtualFile autobaseParent = getParentComponentFromAutobase();
       if (autobaseParent != null) {
-        parentsNamespaces = Mason2Util.getMasonNamespacesByAbsolutePath(getProject(), autobaseParent);
+        parentsNamespaces = Mason2Util.getMasonNamespaces(getProject(), autobaseParent);
       }
       else {
         parentsNamespaces = new ArrayList<>();
@@ -145,21 +149,13 @@ public class MasonNamespaceDefinitionImpl extends PsiPerlNamespaceDefinitionImpl
   }
 
   @Nullable
-  protected String getParentNamespaceFromAutobase() {
+  protected VirtualFile getParentComponentFromAutobase() {
     // autobase
     VirtualFile componentRoot = getContainingFile().getComponentRoot();
     VirtualFile containingFile = MasonCoreUtil.getContainingVirtualFile(getContainingFile());
 
     if (componentRoot != null && containingFile != null) {
-      VirtualFile parentComponentFile = getParentComponentFile(componentRoot, containingFile.getParent(), containingFile);
-      if (parentComponentFile != null) // found autobase class
-      {
-        String componentPath = PerlFileUtil.getPathRelativeToContentRoot(parentComponentFile, getProject());
-
-        if (componentPath != null) {
-          return componentPath;
-        }
-      }
+      return getParentComponentFile(componentRoot, containingFile.getParent(), containingFile);
     }
     return null;
   }
@@ -254,32 +250,21 @@ public class MasonNamespaceDefinitionImpl extends PsiPerlNamespaceDefinitionImpl
     if (masonSettings.autobaseNames.contains(getContainingFile().getName())) {
       VirtualFile containingFile = MasonCoreUtil.getContainingVirtualFile(getContainingFile());
       if (containingFile != null) {
-        final String basePath = PerlFileUtil.getPathRelativeToContentRoot(containingFile.getParent(), getProject());
-
-        if (basePath != null) {
-          final List<String> componentPaths = new ArrayList<>();
-          StubIndex.getInstance().processAllKeys(
-            MasonNamespaceDefitnitionsStubIndex.KEY, getProject(), componentPath1 -> {
-              if (componentPath1.startsWith(basePath)) {
-                componentPaths.add(componentPath1);
-              }
-              return true;
-            }
-          );
-
-          for (String compoPath : componentPaths) {
-            for (MasonNamespaceDefinition namespaceDefinition : StubIndex.getElements(
-              MasonNamespaceDefitnitionsStubIndex.KEY,
-              compoPath,
-              project,
-              projectScope,
-              MasonNamespaceDefinition.class
-            )) {
-              if (namespaceDefinition.getParentNamespaceDefinitions().contains(MasonNamespaceDefinitionImpl.this)
-                  && !childNamespaces.contains(namespaceDefinition)
-                ) {
-                childNamespaces.add(namespaceDefinition);
-              }
+        final GlobalSearchScope baseScope =
+          projectScope.intersectWith(GlobalSearchScopesCore.directoryScope(project, containingFile.getParent(), true));
+
+        for (String componentName : StubIndex.getInstance().getAllKeys(MasonNamespaceDefitnitionsStubIndex.KEY, project)) {
+          for (MasonNamespaceDefinition namespaceDefinition : StubIndex.getElements(
+            MasonNamespaceDefitnitionsStubIndex.KEY,
+            componentName,
+            project,
+            baseScope,
+            MasonNamespaceDefinition.class
+          )) {
+            if (namespaceDefinition.getParentNamespaceDefinitions().contains(MasonNamespaceDefinitionImpl.this)
+                && !childNamespaces.contains(namespaceDefinition)
+              ) {
+              childNamespaces.add(namespaceDefinition);
             }
           }
         }
@@ -21,9 +21,11 @@ import com.perl5.lang.mason2.psi.MasonNamespaceDefinition;
 import com.perl5.lang.perl.psi.stubs.PerlStubIndexBase;
 import org.jetbrains.annotations.NotNull;
 
-
+/**
+ * Mason2 components namespaces by the component file name
+ */
 public class MasonNamespaceDefitnitionsStubIndex extends PerlStubIndexBase<MasonNamespaceDefinition> {
-  public static final int VERSION = 2;
+  public static final int VERSION = 3;
   public static final StubIndexKey<String, MasonNamespaceDefinition> KEY = StubIndexKey.createIndexKey("perl.mason2.namespace");
 
   @Override
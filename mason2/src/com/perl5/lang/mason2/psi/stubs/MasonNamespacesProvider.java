@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.mason2.psi.stubs;
+
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.Processor;
+import com.perl5.lang.mason2.Mason2Util;
+import com.perl5.lang.perl.extensions.namespaces.PerlNamespacesProvider;
+import com.perl5.lang.perl.psi.PerlNamespaceDefinitionElement;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves Mason2 components by class names. Class names depend on components roots, so they are not indexed, but computed from
+ * the current roots, see {@link Mason2Util#getComponentsByClassNames(Project)}
+ */
+public class MasonNamespacesProvider implements PerlNamespacesProvider {
+  @Override
+  public boolean processNamespaces(@NotNull Project project,
+                                   @NotNull String packageName,
+                                   @NotNull GlobalSearchScope scope,
+                                   @NotNull Processor<? super PerlNamespaceDefinitionElement> processor) {
+    if (!packageName.startsWith(Mason2Util.CLASS_NAME_PREFIX) || DumbService.isDumb(project)) {
+      return true;
+    }
+    List<VirtualFile> componentFiles = Mason2Util.getComponentsByClassNames(project).get(packageName);
+    if (componentFiles == null) {
+      return true;
+    }
+    for (VirtualFile componentFile : componentFiles) {
+      if (!componentFile.isValid() || !scope.contains(componentFile)) {
+        continue;
+      }
+      for (PerlNamespaceDefinitionElement namespaceDefinition : Mason2Util.getMasonNamespaces(project, componentFile)) {
+        if (!processor.process(namespaceDefinition)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  @Override
+  public Collection<String> getNamespacesNames(@NotNull Project project) {
+    return DumbService.isDumb(project) ? Collections.emptyList() : Mason2Util.getComponentsByClassNames(project).keySet();
+  }
+}
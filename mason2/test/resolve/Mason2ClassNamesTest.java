@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package resolve;
+
+import base.Mason2TopLevelComponentTestCase;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.projectRoots.impl.PerlModuleExtension;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.perl5.lang.mason2.idea.configuration.Mason2SourceRootType;
+import com.perl5.lang.mason2.psi.MasonNamespaceDefinition;
+import com.perl5.lang.perl.idea.gotosearch.PerlGoToClassContributor;
+import com.perl5.lang.perl.psi.PerlNamespaceDefinitionElement;
+import com.perl5.lang.perl.util.PerlPackageUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+public class Mason2ClassNamesTest extends Mason2TopLevelComponentTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    VirtualFile componentsRoot = myFixture.getTempDirFixture().findOrCreateDir("comps");
+    PerlModuleExtension modifiableModel =
+      (PerlModuleExtension)PerlModuleExtension.getInstance(myFixture.getModule()).getModifiableModel(true);
+    modifiableModel.setRoot(componentsRoot, Mason2SourceRootType.INSTANCE);
+    modifiableModel.commit();
+    addPerlTearDownListener(() -> removePerlSourceRoot(componentsRoot));
+  }
+
+  public void testClassNameRelativeToComponentsRoot() {
+    MasonNamespaceDefinition namespace = addComponent("sub/Page.mc");
+    assertEquals("/MC0::sub::Page_mc", namespace.getNamespaceName());
+  }
+
+  public void testClassNameResolution() {
+    MasonNamespaceDefinition namespace = addComponent("sub/Page.mc");
+    addComponent("Other.mc");
+    assertEquals(Collections.singletonList(namespace), getDefinitions("/MC0::sub::Page_mc"));
+    assertEmpty(getDefinitions("/MC0::sub::Missing_mc"));
+  }
+
+  public void testClassNameResolutionAfterRename() throws IOException {
+    MasonNamespaceDefinition namespace = addComponent("sub/Page.mc");
+    assertEquals(Collections.singletonList(namespace), getDefinitions("/MC0::sub::Page_mc"));
+
+    VirtualFile directory = namespace.getContainingFile().getVirtualFile().getParent();
+    WriteAction.run(() -> directory.rename(this, "renamed"));
+    assertEmpty(getDefinitions("/MC0::sub::Page_mc"));
+    Collection<PerlNamespaceDefinitionElement> renamedDefinitions = getDefinitions("/MC0::renamed::Page_mc");
+    assertSize(1, renamedDefinitions);
+    assertEquals("/MC0::renamed::Page_mc", renamedDefinitions.iterator().next().getNamespaceName());
+  }
+
+  public void testGoToClass() {
+    MasonNamespaceDefinition namespace = addComponent("sub/Page.mc");
+    addComponent("Other.mc");
+    PerlGoToClassContributor contributor = new PerlGoToClassContributor();
+    assertContainsElements(Arrays.asList(contributor.getNames(getProject(), false)), "/MC0::sub::Page_mc", "/MC0::Other_mc");
+    NavigationItem[] items = contributor.getItemsByName("/MC0::sub::Page_mc", "Page", getProject(), false);
+    assertEquals(Collections.singletonList(namespace), Arrays.asList(items));
+  }
+
+  @NotNull
+  private Collection<PerlNamespaceDefinitionElement> getDefinitions(@NotNull String className) {
+    return PerlPackageUtil.getNamespaceDefinitions(getProject(), GlobalSearchScope.allScope(getProject()), className);
+  }
+
+  @NotNull
+  private MasonNamespaceDefinition addComponent(@NotNull String path) {
+    PsiFile file = myFixture.addFileToProject("comps/" + path, "<%class>\n</%class>\n");
+    MasonNamespaceDefinition namespace = PsiTreeUtil.findChildOfType(file, MasonNamespaceDefinition.class);
+    assertNotNull(namespace);
+    return namespace;
+  }
+}
@@ -16,21 +16,32 @@
 
 package com.perl5.lang.mojolicious.model;
 
+import com.intellij.ProjectTopics;
 import com.intellij.ide.projectView.ProjectView;
+import com.intellij.ide.projectView.impl.AbstractProjectViewPane;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.DumbAware;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.startup.StartupActivity;
 import com.intellij.openapi.startup.StartupManager;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
+import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiUtilCore;
 import com.intellij.util.containers.ContainerUtil;
@@ -39,7 +50,10 @@ import com.intellij.util.ui.update.MergingUpdateQueue;
 import com.intellij.util.ui.update.Update;
 import com.perl5.lang.mojolicious.MojoUtil;
 import com.perl5.lang.mojolicious.idea.modules.MojoTemplateMarkSourceRootAction;
+import com.perl5.lang.perl.fileTypes.PerlPluginBaseFileType;
 import com.perl5.lang.perl.idea.actions.PerlMarkLibrarySourceRootAction;
+import com.perl5.lang.perl.idea.project.PerlStartupTimings;
+import com.perl5.lang.perl.psi.PerlFile;
 import com.perl5.lang.perl.psi.PerlNamespaceDefinitionElement;
 import com.perl5.lang.perl.util.PerlPackageUtil;
 import org.jetbrains.annotations.Contract;
@@ -52,8 +66,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.perl5.lang.mojolicious.model.MojoProjectListener.MOJO_PROJECT_TOPIC;
 
+/**
+ * Model of the mojo applications and plugins in the project. Model is built on startup and when project content roots or perl sdk
+ * change. After that it is updated incrementally: only files changed since the last update and perl files from the new directories
+ * are re-scanned for mojo classes. Durations of rebuilds are recorded with {@link PerlStartupTimings}, durations of incremental
+ * updates are logged in debug mode
+ */
 public class MojoProjectManager {
   static final Logger LOG = Logger.getInstance(MojoProjectManager.class);
+  private static final String MODEL_REBUILD = "mojo model rebuild";
   @NotNull
   private final Project myProject;
   @NotNull
@@ -62,6 +83,28 @@ public class MojoProjectManager {
   private final AtomicBoolean myUpdatingModel = new AtomicBoolean(false);
   @NotNull
   private volatile Model myModel = new Model(Collections.emptySet());
+  /**
+   * Files changed since the last update
+   */
+  @NotNull
+  private final Set<VirtualFile> myChangedFiles = ContainerUtil.newConcurrentSet();
+  /**
+   * Directories created in or moved into the project content since the last update, perl files from them should be scanned
+   */
+  @NotNull
+  private final Set<VirtualFile> myNewDirectories = ContainerUtil.newConcurrentSet();
+  private volatile boolean myFullUpdateRequired = true;
+  /**
+   * Mojo script from perl sdk, content and excluded roots of the project, the model was built for. Other roots changes, e.g. marking
+   * of library roots, performed by this manager for new applications, do not require a full rebuild
+   */
+  @NotNull
+  private volatile List<Object> myRootsState = Collections.emptyList();
+  /**
+   * Files with mojo classes and projects they are defining. Files with classes out of any project are kept with empty sets
+   */
+  @NotNull
+  private final Map<VirtualFile, Set<MojoProject>> myFilesProjects = ContainerUtil.newConcurrentMap();
 
   public MojoProjectManager(@NotNull Project project) {
     myProject = project;
@@ -75,6 +118,55 @@ public class MojoProjectManager {
       }
     });
 
+    connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+      @Override
+      public void rootsChanged(@NotNull ModuleRootEvent event) {
+        List<Object> rootsState = computeRootsState();
+        if (rootsState.equals(myRootsState)) {
+          LOG.debug("Roots changed, content roots and sdk are the same");
+          return;
+        }
+        LOG.debug("Content roots or sdk changed");
+        myRootsState = rootsState;
+        myFullUpdateRequired = true;
+        scheduleUpdate();
+      }
+    });
+
+    connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        events.forEach(MojoProjectManager.this::processFileEvent);
+      }
+    });
+
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+      @Override
+      public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+    }, project);
+
     connection.subscribe(MOJO_PROJECT_TOPIC, new MojoProjectListener() {
       @Override
       public void applicationCreated(@NotNull MojoApp mojoApp) {
@@ -118,6 +210,57 @@ public class MojoProjectManager {
     return Collections.unmodifiableList(new ArrayList<>(myModel.myProjectRoots.values()));
   }
 
+  private void fileChanged(@Nullable PsiFile psiFile) {
+    if (psiFile instanceof PerlFile) {
+      VirtualFile virtualFile = psiFile.getViewProvider().getVirtualFile();
+      if (virtualFile.isInLocalFileSystem()) {
+        myChangedFiles.add(virtualFile);
+        scheduleUpdate();
+      }
+    }
+  }
+
+  private void processFileEvent(@NotNull VFileEvent event) {
+    if (myFullUpdateRequired) {
+      return;
+    }
+    VirtualFile file = event instanceof VFileCopyEvent ?
+                       ((VFileCopyEvent)event).getNewParent().findChild(((VFileCopyEvent)event).getNewChildName()) : event.getFile();
+    if (file == null) {
+      return;
+    }
+    if (!file.isDirectory()) {
+      if (event instanceof VFileDeleteEvent || myFilesProjects.containsKey(file) || file.getFileType() instanceof PerlPluginBaseFileType) {
+        myChangedFiles.add(file);
+        scheduleUpdate();
+      }
+    }
+    else if (event instanceof VFileCreateEvent || event instanceof VFileCopyEvent) {
+      if (ProjectFileIndex.getInstance(myProject).isInContent(file)) {
+        LOG.debug("Directory created: ", file);
+        myNewDirectories.add(file);
+        scheduleUpdate();
+      }
+    }
+    else if (event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent ||
+             event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent)event).isRename()) {
+      // changes location of the nested files and may change their projects roots
+      for (VirtualFile trackedFile : myFilesProjects.keySet()) {
+        if (!trackedFile.isValid() || VfsUtilCore.isAncestor(file, trackedFile, false)) {
+          myChangedFiles.add(trackedFile);
+        }
+      }
+      if (event instanceof VFileMoveEvent) {
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(myProject);
+        if (fileIndex.isInContent(file) && !fileIndex.isInContent(((VFileMoveEvent)event).getOldParent())) {
+          LOG.debug("Directory moved into content: ", file);
+          myNewDirectories.add(file);
+        }
+      }
+      scheduleUpdate();
+    }
+  }
+
   /**
    * Queues model update
    */
@@ -166,7 +309,31 @@ public class MojoProjectManager {
    */
   private void doUpdateModel() {
     LOG.debug("Updating model");
-    Set<MojoProject> newProjects = findAllProjects();
+    if (myFullUpdateRequired) {
+      myFullUpdateRequired = false;
+      myChangedFiles.clear();
+      myNewDirectories.clear();
+      boolean isSuccessful = false;
+      try {
+        PerlStartupTimings.measure(myProject, MODEL_REBUILD, this::rebuildFilesProjects);
+        isSuccessful = true;
+      }
+      finally {
+        if (!isSuccessful) {
+          myFullUpdateRequired = true;
+        }
+      }
+    }
+    else if (!myChangedFiles.isEmpty() || !myNewDirectories.isEmpty()) {
+      updateFilesProjects();
+    }
+    else {
+      LOG.debug("Nothing changed");
+      return;
+    }
+
+    Set<MojoProject> newProjects = new HashSet<>();
+    myFilesProjects.values().forEach(newProjects::addAll);
     Set<MojoProject> oldProjects = myModel.getProjects();
     if (oldProjects.equals(newProjects)) {
       LOG.debug("Model was not changed");
@@ -175,7 +342,7 @@ public class MojoProjectManager {
 
     if (LOG.isDebugEnabled()) {
       LOG.debug("Current projects: " + newProjects);
-      LOG.debug("Old projects: " + newProjects);
+      LOG.debug("Old projects: " + oldProjects);
     }
     MojoProjectListener projectListener = myProject.getMessageBus().syncPublisher(MOJO_PROJECT_TOPIC);
     Collection<MojoProject> removedProjects = ContainerUtil.subtract(oldProjects, newProjects);
@@ -190,32 +357,91 @@ public class MojoProjectManager {
     }
     createdProjects.forEach(projectListener::projectCreated);
     LOG.debug("Model updated");
+
+    Set<MojoProject> changedProjects = new HashSet<>(removedProjects);
+    changedProjects.addAll(createdProjects);
     ApplicationManager.getApplication().invokeLater(() -> {
       if (!myProject.isDisposed() && !ApplicationManager.getApplication().isUnitTestMode()) {
-        ProjectView.getInstance(myProject).refresh();
+        refreshProjectView(changedProjects);
       }
     });
   }
 
   /**
-   * @return a set of mojo entities in project
+   * Re-scans the whole project for mojo entities
    */
-  @NotNull
-  private Set<MojoProject> findAllProjects() {
+  private void rebuildFilesProjects() {
+    myRootsState = computeRootsState();
+    Map<VirtualFile, Set<MojoProject>> filesProjects = new HashMap<>();
+    if (MojoUtil.isMojoAvailable(myProject)) {
+      collectProjects(GlobalSearchScope.projectScope(myProject), filesProjects);
+    }
+    else {
+      LOG.debug("Mojo is not available in project");
+    }
+    myFilesProjects.clear();
+    myFilesProjects.putAll(filesProjects);
+    LOG.debug("Model rebuilt from ", filesProjects.size(), " files");
+  }
+
+  /**
+   * Re-scans files changed since the last update and perl files from the new directories. Files and directories may be dropped from
+   * the queues only after successful processing
+   */
+  private void updateFilesProjects() {
     if (!MojoUtil.isMojoAvailable(myProject)) {
       LOG.debug("Mojo is not available in project");
-      return Collections.emptySet();
+      myChangedFiles.clear();
+      myNewDirectories.clear();
+      myFilesProjects.clear();
+      return;
+    }
+    long startTime = System.currentTimeMillis();
+    ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(myProject);
+    for (VirtualFile directory : new ArrayList<>(myNewDirectories)) {
+      if (directory.isValid()) {
+        VfsUtilCore.iterateChildrenRecursively(directory, fileIndex::isInContent, file -> {
+          ProgressManager.checkCanceled();
+          if (!file.isDirectory() && file.getFileType() instanceof PerlPluginBaseFileType) {
+            myChangedFiles.add(file);
+          }
+          return true;
+        });
+      }
+      myNewDirectories.remove(directory);
     }
-    HashSet<MojoProject> result = new HashSet<>();
+
+    GlobalSearchScope projectScope = GlobalSearchScope.projectScope(myProject);
+    int filesNumber = 0;
+    for (VirtualFile file : new ArrayList<>(myChangedFiles)) {
+      ProgressManager.checkCanceled();
+      Map<VirtualFile, Set<MojoProject>> fileProjects = new HashMap<>();
+      if (file.isValid() && projectScope.contains(file)) {
+        collectProjects(GlobalSearchScope.fileScope(myProject, file), fileProjects);
+      }
+      myFilesProjects.remove(file);
+      myFilesProjects.putAll(fileProjects);
+      myChangedFiles.remove(file);
+      filesNumber++;
+    }
+    myFilesProjects.keySet().removeIf(it -> !it.isValid());
+    LOG.debug("Model updated from ", filesNumber, " changed files in ", System.currentTimeMillis() - startTime, " ms");
+  }
+
+  /**
+   * Collects mojo entities defined in the {@code scope} into {@code result}, grouped by files with mojo classes
+   */
+  private void collectProjects(@NotNull GlobalSearchScope scope, @NotNull Map<VirtualFile, Set<MojoProject>> result) {
     List<PerlNamespaceDefinitionElement> applicationClasses = PerlPackageUtil.getChildNamespaces(
-      myProject, MojoUtil.MOJO_PACKAGE_NAME, GlobalSearchScope.projectScope(myProject));
+      myProject, MojoUtil.MOJO_PACKAGE_NAME, scope);
     for (PerlNamespaceDefinitionElement namespace : applicationClasses) {
       LOG.debug("Got application class: " + namespace);
       ProgressManager.checkCanceled();
+      Set<MojoProject> fileProjects = getFileProjects(namespace, result);
       VirtualFile root = findLibContainer(namespace);
-      if (root != null) {
+      if (fileProjects != null && root != null) {
         LOG.debug("App root: " + root);
-        result.add(new MojoApp(root));
+        fileProjects.add(new MojoApp(root));
       }
       else {
         LOG.debug("No app root");
@@ -223,22 +449,67 @@ public class MojoProjectManager {
     }
 
     List<PerlNamespaceDefinitionElement> pluginClasses = PerlPackageUtil.getChildNamespaces(
-      myProject, MojoUtil.MOJO_PLUGIN_PACKAGE_NAME, GlobalSearchScope.projectScope(myProject));
+      myProject, MojoUtil.MOJO_PLUGIN_PACKAGE_NAME, scope);
     for (PerlNamespaceDefinitionElement namespace : pluginClasses) {
       LOG.debug("Got plugin class: " + namespace);
       ProgressManager.checkCanceled();
+      Set<MojoProject> fileProjects = getFileProjects(namespace, result);
       VirtualFile root = findLibContainer(namespace);
-      if (root != null) {
+      if (fileProjects != null && root != null) {
         LOG.debug("Plugin root: " + root);
-        result.add(new MojoPlugin(root));
+        fileProjects.add(new MojoPlugin(root));
       }
       else {
         LOG.debug("No plugin root");
       }
     }
+  }
+
+  /**
+   * @return mojo script from perl sdk, content and excluded roots of the project, changes of which require a full rebuild
+   */
+  @NotNull
+  private List<Object> computeRootsState() {
+    List<Object> result = new ArrayList<>();
+    result.add(MojoUtil.getMojoScript(myProject));
+    for (Module module : ModuleManager.getInstance(myProject).getModules()) {
+      ModuleRootManager rootManager = ModuleRootManager.getInstance(module);
+      ContainerUtil.addAll(result, rootManager.getContentRoots());
+      ContainerUtil.addAll(result, rootManager.getExcludeRoots());
+    }
     return result;
   }
 
+  @Nullable
+  private static Set<MojoProject> getFileProjects(@NotNull PerlNamespaceDefinitionElement namespaceDefinition,
+                                                  @NotNull Map<VirtualFile, Set<MojoProject>> filesProjects) {
+    VirtualFile namespaceFile = PsiUtilCore.getVirtualFile(namespaceDefinition);
+    return namespaceFile == null ? null : filesProjects.computeIfAbsent(namespaceFile, it -> new HashSet<>());
+  }
+
+  /**
+   * Updates project view nodes of the {@code changedProjects} roots, so they are decorated according to the current model
+   */
+  private void refreshProjectView(@NotNull Collection<MojoProject> changedProjects) {
+    AbstractProjectViewPane projectViewPane = ProjectView.getInstance(myProject).getCurrentProjectViewPane();
+    if (projectViewPane == null) {
+      return;
+    }
+    PsiManager psiManager = PsiManager.getInstance(myProject);
+    ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(myProject);
+    for (MojoProject mojoProject : changedProjects) {
+      VirtualFile parent = mojoProject.getRoot().getParent();
+      PsiDirectory parentDirectory = parent == null || !parent.isValid() || !fileIndex.isInContent(parent) ?
+                                     null : psiManager.findDirectory(parent);
+      if (parentDirectory == null) {
+        // project root node is a content root node, or it is gone
+        projectViewPane.updateFromRoot(false);
+        return;
+      }
+      projectViewPane.updateFrom(parentDirectory, false, true);
+    }
+  }
+
   /**
    * @return a directory in project, containing a {@code lib} directory, containing current class or null
    */
@@ -40,6 +40,7 @@ import com.perl5.lang.pod.PodLanguage;
 import com.perl5.lang.pod.parser.psi.*;
 import com.perl5.lang.pod.parser.psi.impl.PodFileImpl;
 import com.perl5.lang.pod.parser.psi.mixin.PodSectionItem;
+import com.perl5.lang.pod.parser.psi.stubs.PodTitlesStubIndex;
 import com.perl5.lang.pod.parser.psi.util.PodFileUtil;
 import com.perl5.lang.pod.parser.psi.util.PodRenderUtil;
 import org.jetbrains.annotations.Contract;
@@ -50,6 +51,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import static com.perl5.lang.perl.lexer.PerlTokenSets.*;
 import static com.perl5.lang.perl.util.PerlSubUtil.SUB_AUTOLOAD;
@@ -68,6 +70,9 @@ public class PerlDocUtil implements PerlElementTypes {
   private static final PodLinkDescriptor AUTOLOAD_LINK = PodLinkDescriptor.create("perlsub", "Autoloading");
   private static final PodLinkDescriptor DESTROY_LINK = PodLinkDescriptor.create("perlobj", "Destructors");
 
+  private static final Pattern FILE_TEST_OPERATOR_PATTERN = Pattern.compile("-[rwxoRWXOeszfdlpSbctugkTBMAC]");
+  private static final Pattern CAPTURE_VARIABLE_PATTERN = Pattern.compile("\\$[1-9]\\d*");
+
   private static final Map<String, PodLinkDescriptor> OPERATORS_LINKS = new HashMap<>();
   private static final Map<String, PodLinkDescriptor> VARIABLES_LINKS = new HashMap<>();
 
@@ -159,7 +164,7 @@ public class PerlDocUtil implements PerlElementTypes {
 
       if (variable.isBuiltIn()) {
         PodDocumentPattern pattern;
-        if (text.matches("\\$[1-9]\\d*")) {
+        if (CAPTURE_VARIABLE_PATTERN.matcher(text).matches()) {
           pattern = PodDocumentPattern.indexPattern("$1");
         }
         else {
@@ -209,7 +214,7 @@ public class PerlDocUtil implements PerlElementTypes {
   }
 
   static PsiElement getPerlFuncDocFromText(@NotNull PsiElement element, @NotNull String text) {
-    if (text.matches("-[rwxoRWXOeszfdlpSbctugkTBMAC]")) {
+    if (FILE_TEST_OPERATOR_PATTERN.matcher(text).matches()) {
       text = "-X";
     }
 
@@ -233,7 +238,7 @@ public class PerlDocUtil implements PerlElementTypes {
         element instanceof PerlHeredocElementImpl) {
       pattern.withIndexPattern("heredoc");    // searches with X<>
     }
-    else if (text.matches("-[rwxoRWXOeszfdlpSbctugkTBMAC]")) {
+    else if (FILE_TEST_OPERATOR_PATTERN.matcher(text).matches()) {
       pattern.withIndexPattern("-X");
     }
     else if ("?".equals(text) || ":".equals(text)) {
@@ -264,6 +269,19 @@ public class PerlDocUtil implements PerlElementTypes {
       }
     }
 
+    String searchText = pattern.getSearchText();
+    if (searchText != null && PodTitlesStubIndex.isAvailable(psiFile)) {
+      Ref<PodCompositeElement> resultRef = Ref.create();
+      PodTitlesStubIndex.processElements(psiFile, searchText, element -> {
+        if (pattern.accepts(element)) {
+          resultRef.set(element);
+          return false;
+        }
+        return true;
+      });
+      return resultRef.get();
+    }
+
     final List<PodCompositeElement> result = new ArrayList<>();
 
     psiFile.accept(new PsiStubsAwareRecursiveVisitor() {
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.extensions.namespaces;
+
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.Processor;
+import com.perl5.lang.perl.psi.PerlNamespaceDefinitionElement;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Extension point that can provide namespace definitions, which names can't be indexed, e.g. because they depend on project
+ * configuration, like Mason2 components names, depending on components roots
+ */
+public interface PerlNamespacesProvider {
+  ExtensionPointName<PerlNamespacesProvider> EP_NAME = ExtensionPointName.create("com.perl5.namespacesProvider");
+
+  /**
+   * Processes namespace definitions with {@code packageName} from the {@code scope}
+   *
+   * @return false iff processing was stopped by {@code processor}
+   */
+  boolean processNamespaces(@NotNull Project project,
+                            @NotNull String packageName,
+                            @NotNull GlobalSearchScope scope,
+                            @NotNull Processor<? super PerlNamespaceDefinitionElement> processor);
+
+  /**
+   * @return names of namespaces provided by this provider, used for names enumeration, e.g. in completion or go to class
+   */
+  @NotNull
+  Collection<String> getNamespacesNames(@NotNull Project project);
+
+  /**
+   * Processes namespace definitions with {@code packageName} from all providers
+   */
+  static boolean processAllNamespaces(@NotNull Project project,
+                                      @NotNull String packageName,
+                                      @NotNull GlobalSearchScope scope,
+                                      @NotNull Processor<? super PerlNamespaceDefinitionElement> processor) {
+    for (PerlNamespacesProvider provider : EP_NAME.getExtensionList()) {
+      if (!provider.processNamespaces(project, packageName, scope, processor)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds names of namespaces from all providers to the {@code result}
+   */
+  static void collectAllNamespacesNames(@NotNull Project project, @NotNull Collection<? super String> result) {
+    for (PerlNamespacesProvider provider : EP_NAME.getExtensionList()) {
+      result.addAll(provider.getNamespacesNames(project));
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
 import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.Presentation;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.command.WriteCommandAction;
@@ -36,17 +37,24 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.containers.ContainerUtil;
 import com.perl5.PerlBundle;
 import com.perl5.lang.perl.idea.configuration.settings.PerlSharedSettings;
 import com.perl5.lang.perl.idea.execution.PerlCommandLine;
 import com.perl5.lang.perl.idea.sdk.host.PerlHostData;
 import com.perl5.lang.perl.util.PerlActionUtil;
+import com.perl5.lang.perl.util.PerlPluginUtil;
 import com.perl5.lang.perl.util.PerlRunUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -82,7 +90,6 @@ public class PerlFormatWithPerlTidyAction extends PurePerlActionBase {
 
   @Nullable
   private PerlCommandLine getPerlTidyCommandLine(@NotNull Project project) throws ExecutionException {
-    PerlSharedSettings sharedSettings = PerlSharedSettings.getInstance(project);
     VirtualFile perlTidyScript =
       ReadAction.compute(() -> PerlRunUtil.findLibraryScriptWithNotification(project, SCRIPT_NAME, PACKAGE_NAME));
     if (perlTidyScript == null) {
@@ -92,100 +99,186 @@ public class PerlFormatWithPerlTidyAction extends PurePerlActionBase {
     if (commandLine == null) {
       return null;
     }
-    commandLine.withParameters("-st", "-se").withWorkDirectory(project.getBasePath());
+    return commandLine.withParameters("-st", "-se").withWorkDirectory(project.getBasePath())
+      .withParameters(getPerlTidyArguments(project));
+  }
 
-    if (StringUtil.isNotEmpty(sharedSettings.PERL_TIDY_ARGS)) {
-      commandLine.addParameters(StringUtil.split(sharedSettings.PERL_TIDY_ARGS, " "));
-    }
+  /**
+   * @return command line for the {@link PerlTidyDaemon}, loading Perl::Tidy once for all formatting requests
+   */
+  @Nullable
+  private static PerlCommandLine getPerlTidyDaemonCommandLine(@NotNull Project project) {
+    PerlCommandLine commandLine = PerlRunUtil.getPerlCommandLine(
+      project, null, PerlPluginUtil.getHelperPath(PerlTidyDaemon.SCRIPT_NAME), Collections.emptyList(),
+      getPerlTidyArguments(project));
+    return commandLine == null ? null : commandLine.withWorkDirectory(project.getBasePath());
+  }
 
-    return commandLine;
+  @NotNull
+  private static List<String> getPerlTidyArguments(@NotNull Project project) {
+    String perlTidyArgs = PerlSharedSettings.getInstance(project).PERL_TIDY_ARGS;
+    return StringUtil.isNotEmpty(perlTidyArgs) ? StringUtil.split(perlTidyArgs, " ") : Collections.emptyList();
   }
 
   @Override
   public void actionPerformed(@NotNull AnActionEvent event) {
-    if (isEnabled(event)) {
-      final PsiFile file = PerlActionUtil.getPsiFileFromEvent(event);
-
-      if (file == null) {
-        return;
-      }
-
-      final Project project = file.getProject();
-
-      final Document document = file.getViewProvider().getDocument();
-      if (document == null) {
-        return;
-      }
-
-      final VirtualFile virtualFile = file.getVirtualFile();
+    if (!isEnabled(event)) {
+      return;
+    }
+    final PsiFile file = PerlActionUtil.getPsiFileFromEvent(event);
+    if (file == null) {
+      return;
+    }
+    final Project project = file.getProject();
+    List<FormattingTarget> targets = new ArrayList<>();
 
-      if (virtualFile == null) {
-        return;
+    VirtualFile[] selectedFiles = event.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+    if (event.getData(CommonDataKeys.EDITOR) == null && selectedFiles != null && selectedFiles.length > 1) {
+      PsiManager psiManager = PsiManager.getInstance(project);
+      for (VirtualFile selectedFile : selectedFiles) {
+        PsiFile selectedPsiFile = selectedFile.isValid() ? psiManager.findFile(selectedFile) : null;
+        if (isMyFile(selectedPsiFile) && selectedPsiFile.isWritable()) {
+          ContainerUtil.addIfNotNull(targets, FormattingTarget.create(selectedPsiFile));
+        }
       }
+    }
+    else {
+      ContainerUtil.addIfNotNull(targets, FormattingTarget.create(file));
+    }
+    if (targets.isEmpty()) {
+      return;
+    }
 
-      FileDocumentManager.getInstance().saveDocument(document);
-
-      new Task.Backgroundable(project, PerlBundle.message("perl.tidy.formatting"), false) {
-        @Override
-        public void run(@NotNull ProgressIndicator indicator) {
-          indicator.setIndeterminate(true);
-          try {
-            PerlCommandLine perlTidyCommandLine = getPerlTidyCommandLine(project);
-            if (perlTidyCommandLine == null) {
-              return;
-            }
-            BaseProcessHandler processHandler = PerlHostData.createProcessHandler(
-              perlTidyCommandLine.withCharset(virtualFile.getCharset()));
-
-            final OutputStream outputStream = Objects.requireNonNull(processHandler.getProcessInput());
-
-            try {
-              final byte[] sourceBytes = virtualFile.contentsToByteArray();
-              outputStream.write(sourceBytes);
-              outputStream.close();
-            }
-            catch (IOException e) {
-              LOG.error(e);
-              Notifications.Bus.notify(new Notification(
-                getGroup(),
-                PerlBundle.message("perl.action.perl.tidy.formatting.error.title"),
-                e.getMessage(),
-                NotificationType.ERROR
-              ));
-              return;
+    new Task.Backgroundable(project, PerlBundle.message("perl.tidy.formatting"), true) {
+      @Override
+      public void run(@NotNull ProgressIndicator indicator) {
+        indicator.setIndeterminate(true);
+        try {
+          PerlCommandLine perlTidyCommandLine = getPerlTidyCommandLine(project);
+          if (perlTidyCommandLine == null) {
+            return;
+          }
+          List<PerlTidyDaemon.PerlTidyResult> results = null;
+          PerlCommandLine daemonCommandLine = getPerlTidyDaemonCommandLine(project);
+          if (daemonCommandLine != null) {
+            results = PerlTidyDaemonManager.getInstance(project).tidy(
+              daemonCommandLine, ContainerUtil.map(targets, FormattingTarget::getSourceBytes));
+          }
+          if (results == null) {
+            results = new ArrayList<>(targets.size());
+            for (FormattingTarget target : targets) {
+              indicator.checkCanceled();
+              results.add(runPerlTidy(perlTidyCommandLine, target));
             }
+          }
 
-            ProcessOutput processOutput = PerlHostData.getOutput(processHandler);
-            final List<String> stdoutLines = processOutput.getStdoutLines(false);
-            List<String> stderrLines = processOutput.getStderrLines();
-
-            if (stderrLines.isEmpty()) {
-              WriteCommandAction.runWriteCommandAction(project, () -> {
-                document.setText(StringUtil.join(stdoutLines, "\n"));
-                PsiDocumentManager.getInstance(project).commitDocument(document);
-              });
+          indicator.checkCanceled();
+          List<String> errors = new ArrayList<>();
+          for (int i = 0; i < targets.size(); i++) {
+            FormattingTarget target = targets.get(i);
+            PerlTidyDaemon.PerlTidyResult result = results.get(i);
+            if (!result.getErrors().isEmpty()) {
+              LOG.warn("Non-empty stderr for " + target.myVirtualFile + ": " + result.getErrors());
+              errors.add(result.getErrors());
             }
             else {
-              LOG.warn("Non-empty stderr: " + processOutput.getStderr());
-              Notifications.Bus.notify(new Notification(
-                getGroup(),
-                PerlBundle.message("perl.action.perl.tidy.formatting.error.title"),
-                StringUtil.join(stderrLines, "<br>"),
-                NotificationType.ERROR
-              ));
+              WriteCommandAction.runWriteCommandAction(project, () -> target.apply(project, result.getOutput()));
             }
           }
-          catch (ExecutionException e) {
-            LOG.error(e);
+
+          if (!errors.isEmpty()) {
             Notifications.Bus.notify(new Notification(
               getGroup(),
-              PerlBundle.message("perl.action.perl.tidy.running.error.title"),
-              e.getMessage(),
+              PerlBundle.message("perl.action.perl.tidy.formatting.error.title"),
+              StringUtil.join(errors, it -> StringUtil.join(StringUtil.splitByLines(it), "<br>"), "<br>"),
               NotificationType.ERROR
             ));
           }
         }
-      }.queue();
+        catch (ExecutionException e) {
+          LOG.error(e);
+          Notifications.Bus.notify(new Notification(
+            getGroup(),
+            PerlBundle.message("perl.action.perl.tidy.running.error.title"),
+            e.getMessage(),
+            NotificationType.ERROR
+          ));
+        }
+      }
+    }.queue();
+  }
+
+  /**
+   * Formats {@code target} with new perltidy process
+   */
+  @NotNull
+  private static PerlTidyDaemon.PerlTidyResult runPerlTidy(@NotNull PerlCommandLine perlTidyCommandLine,
+                                                           @NotNull FormattingTarget target) throws ExecutionException {
+    BaseProcessHandler processHandler = PerlHostData.createProcessHandler(
+      new PerlCommandLine(perlTidyCommandLine).withCharset(target.myCharset));
+
+    final OutputStream outputStream = Objects.requireNonNull(processHandler.getProcessInput());
+    try {
+      outputStream.write(target.getSourceBytes());
+      outputStream.close();
+    }
+    catch (IOException e) {
+      LOG.warn(e);
+      return new PerlTidyDaemon.PerlTidyResult(ArrayUtil.EMPTY_BYTE_ARRAY, StringUtil.notNullize(e.getMessage(), e.toString()));
+    }
+
+    ProcessOutput processOutput = PerlHostData.getOutput(processHandler);
+    return new PerlTidyDaemon.PerlTidyResult(processOutput.getStdout().getBytes(target.myCharset), processOutput.getStderr());
+  }
+
+  /**
+   * Document to be formatted. Perl::Tidy formats any source as a top-level code, so only whole documents are formatted
+   */
+  private static final class FormattingTarget {
+    @NotNull
+    private final VirtualFile myVirtualFile;
+    @NotNull
+    private final Document myDocument;
+    @NotNull
+    private final Charset myCharset;
+    private final long myModificationStamp;
+    @NotNull
+    private final byte[] mySourceBytes;
+
+    private FormattingTarget(@NotNull VirtualFile virtualFile, @NotNull Document document) {
+      myVirtualFile = virtualFile;
+      myDocument = document;
+      myCharset = virtualFile.getCharset();
+      myModificationStamp = document.getModificationStamp();
+      mySourceBytes = document.getText().getBytes(myCharset);
+    }
+
+    @NotNull
+    byte[] getSourceBytes() {
+      return mySourceBytes;
+    }
+
+    /**
+     * Replaces document text with perltidy {@code output}
+     */
+    void apply(@NotNull Project project, @NotNull byte[] output) {
+      if (myDocument.getModificationStamp() != myModificationStamp) {
+        LOG.warn("Document has been modified while formatting, skipping: " + myVirtualFile);
+        return;
+      }
+      myDocument.setText(StringUtil.convertLineSeparators(new String(output, myCharset)));
+      PsiDocumentManager.getInstance(project).commitDocument(myDocument);
+    }
+
+    @Nullable
+    static FormattingTarget create(@NotNull PsiFile file) {
+      VirtualFile virtualFile = file.getVirtualFile();
+      Document document = file.getViewProvider().getDocument();
+      if (virtualFile == null || document == null) {
+        return null;
+      }
+      FileDocumentManager.getInstance().saveDocument(document);
+      return new FormattingTarget(virtualFile, document);
     }
   }
 }
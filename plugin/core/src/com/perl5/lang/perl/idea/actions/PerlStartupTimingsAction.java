@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.actions;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.perl5.PerlBundle;
+import com.perl5.lang.perl.idea.project.PerlStartupTimings;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Internal action, showing per-phase {@link PerlStartupTimings} statistics with ability to export them as json or reset
+ */
+public class PerlStartupTimingsAction extends PerlActionBase implements DumbAware {
+  private static final String JSON_EXTENSION = "json";
+
+  public PerlStartupTimingsAction() {
+    super(PerlBundle.message("perl.action.startup.timings"));
+  }
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    Project project = e.getProject();
+    if (project == null) {
+      return;
+    }
+    PerlStartupTimings timings = PerlStartupTimings.getInstance();
+    StringBuilder message = new StringBuilder();
+    for (PerlStartupTimings.PhaseStatistics statistics : timings.getPhasesStatistics()) {
+      message.append(PerlBundle.message("perl.action.startup.timings.phase",
+                                        statistics.getPhase(), statistics.getCount(), statistics.getTotal(), statistics.getMax()))
+        .append('\n');
+    }
+    if (message.length() == 0) {
+      message.append(PerlBundle.message("perl.action.startup.timings.empty"));
+    }
+
+    int result = Messages.showYesNoCancelDialog(
+      project,
+      message.toString(),
+      PerlBundle.message("perl.action.startup.timings"),
+      PerlBundle.message("perl.action.startup.timings.export"),
+      PerlBundle.message("perl.action.startup.timings.reset"),
+      Messages.getCancelButton(),
+      Messages.getInformationIcon());
+    if (result == Messages.YES) {
+      exportToJson(project, timings);
+    }
+    else if (result == Messages.NO) {
+      timings.reset();
+    }
+  }
+
+  private static void exportToJson(@NotNull Project project, @NotNull PerlStartupTimings timings) {
+    VirtualFileWrapper fileWrapper = FileChooserFactory.getInstance().createSaveFileDialog(
+      new FileSaverDescriptor(PerlBundle.message("perl.action.startup.timings.export"), "", JSON_EXTENSION), project)
+      .save(null, "perl5-startup-timings." + JSON_EXTENSION);
+    if (fileWrapper == null) {
+      return;
+    }
+    try {
+      FileUtil.writeToFile(fileWrapper.getFile(), timings.toJson());
+    }
+    catch (IOException ex) {
+      Messages.showErrorDialog(project, ex.getMessage(), PerlBundle.message("perl.action.startup.timings.export"));
+    }
+  }
+}
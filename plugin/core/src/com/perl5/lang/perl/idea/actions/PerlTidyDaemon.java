@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.perl5.lang.perl.idea.actions;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.perl5.lang.perl.idea.execution.PerlHelperDaemon;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-living {@code perltidy_daemon.pl} process, keeping Perl::Tidy loaded between formatting requests. Batches of sources are
+ * pipelined: all sources are written before responses are read.
+ *
+ * @see PerlTidyDaemonManager
+ */
+class PerlTidyDaemon extends PerlHelperDaemon {
+  static final String SCRIPT_NAME = "perltidy_daemon.pl";
+  private final AtomicInteger myRequestId = new AtomicInteger();
+
+  PerlTidyDaemon(@NotNull String key, @NotNull Process process) {
+    super(key, process);
+  }
+
+  @NotNull
+  @Override
+  protected String getPresentableName() {
+    return "Perl::Tidy daemon";
+  }
+
+  /**
+   * Formats {@code sources} in one batch
+   *
+   * @return results in the same order as sources
+   */
+  @NotNull
+  List<PerlTidyResult> tidy(@NotNull List<byte[]> sources) throws IOException {
+    int firstRequestId = myRequestId.getAndAdd(sources.size()) + 1;
+    return request(it -> {
+      int requestId = firstRequestId;
+      for (byte[] source : sources) {
+        it.write((requestId++ + " " + source.length + "\n").getBytes(StandardCharsets.UTF_8));
+        it.write(source);
+      }
+    }, () -> {
+      List<PerlTidyResult> result = new ArrayList<>(sources.size());
+      for (int i = 0; i < sources.size(); i++) {
+        result.add(readResult(firstRequestId + i));
+      }
+      return result;
+    });
+  }
+
+  @NotNull
+  private PerlTidyResult readResult(int requestId) throws IOException {
+    String header = readLine();
+    List<String> headerParts = StringUtil.split(header, " ");
+    if (headerParts.size() != 3 || !headerParts.get(0).equals(Integer.toString(requestId))) {
+      throw new IOException("Unexpected response header for request " + requestId + ": " + header);
+    }
+    try {
+      byte[] output = readBytes(Integer.parseInt(headerParts.get(1)));
+      byte[] errors = readBytes(Integer.parseInt(headerParts.get(2)));
+      return new PerlTidyResult(output, new String(errors, StandardCharsets.UTF_8));
+    }
+    catch (NumberFormatException e) {
+      throw new IOException("Unexpected response header for request " + requestId + ": " + header, e);
+    }
+  }
+
+  static final class PerlTidyResult {
+    @NotNull
+    private final byte[] myOutput;
+    @NotNull
+    private final String myErrors;
+
+    PerlTidyResult(@NotNull byte[] output, @NotNull String errors) {
+      myOutput = output;
+      myErrors = errors;
+    }
+
+    @NotNull
+    byte[] getOutput() {
+      return myOutput;
+    }
+
+    @NotNull
+    String getErrors() {
+      return myErrors;
+    }
+  }
+}
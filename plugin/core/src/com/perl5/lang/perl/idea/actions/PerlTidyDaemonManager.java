@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.perl5.lang.perl.idea.actions;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.perl5.lang.perl.idea.execution.PerlCommandLine;
+import com.perl5.lang.perl.idea.execution.PerlHelperDaemonManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Holds a Perl::Tidy daemon for the project
+ */
+public class PerlTidyDaemonManager extends PerlHelperDaemonManager<PerlTidyDaemon> {
+  /**
+   * @return formatting results for {@code sources} or null if daemon is not available for the {@code commandLine}
+   */
+  @Nullable
+  List<PerlTidyDaemon.PerlTidyResult> tidy(@NotNull PerlCommandLine commandLine, @NotNull List<byte[]> sources) {
+    return request(commandLine, it -> it.tidy(sources));
+  }
+
+  @NotNull
+  @Override
+  protected PerlTidyDaemon createDaemon(@NotNull String key, @NotNull Process process) {
+    return new PerlTidyDaemon(key, process);
+  }
+
+  @NotNull
+  public static PerlTidyDaemonManager getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, PerlTidyDaemonManager.class);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.actions;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.perl5.PerlBundle;
+import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValuesCacheService;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Internal action, showing and resetting {@link PerlValuesCacheService} statistics
+ */
+public class PerlValuesCacheStatisticsAction extends PerlActionBase implements DumbAware {
+  public PerlValuesCacheStatisticsAction() {
+    super(PerlBundle.message("perl.action.values.cache.statistics"));
+  }
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    Project project = e.getProject();
+    if (project == null) {
+      return;
+    }
+    PerlValuesCacheService cacheService = PerlValuesCacheService.getInstance(project);
+    PerlValuesCacheService.Statistics statistics = cacheService.getStatistics();
+    int result = Messages.showOkCancelDialog(
+      project,
+      PerlBundle.message("perl.action.values.cache.statistics.message",
+                         statistics.getRequests(), statistics.getBuilds(), statistics.getHitRatio(), statistics.getEvictions(),
+                         statistics.getInvalidations(), statistics.getClears(), statistics.getSize()),
+      PerlBundle.message("perl.action.values.cache.statistics"),
+      PerlBundle.message("perl.action.values.cache.statistics.reset"),
+      Messages.getCancelButton(),
+      Messages.getInformationIcon());
+    if (result == Messages.OK) {
+      cacheService.resetStatistics();
+    }
+  }
+}
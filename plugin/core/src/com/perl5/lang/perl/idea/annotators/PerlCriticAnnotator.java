@@ -27,6 +27,7 @@ import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.util.text.StringUtil;
@@ -39,12 +40,14 @@ import com.perl5.lang.perl.idea.configuration.settings.PerlSharedSettings;
 import com.perl5.lang.perl.idea.execution.PerlCommandLine;
 import com.perl5.lang.perl.idea.sdk.host.PerlHostData;
 import com.perl5.lang.perl.psi.PerlFile;
+import com.perl5.lang.perl.util.PerlPluginUtil;
 import com.perl5.lang.perl.util.PerlRunUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -63,7 +66,6 @@ public class PerlCriticAnnotator extends ExternalAnnotator<PerlFile, List<PerlCr
 
   @Nullable
   protected PerlCommandLine getPerlCriticCommandLine(Project project) throws ExecutionException {
-    PerlSharedSettings sharedSettings = PerlSharedSettings.getInstance(project);
     VirtualFile perlCriticScript =
       ReadAction.compute(() -> PerlRunUtil.findLibraryScriptWithNotification(project, SCRIPT_NAME, PACKAGE_NAME));
     if (perlCriticScript == null) {
@@ -73,15 +75,25 @@ public class PerlCriticAnnotator extends ExternalAnnotator<PerlFile, List<PerlCr
     if (commandLine == null) {
       return null;
     }
-    commandLine.withWorkDirectory(project.getBasePath());
-
-    if (StringUtil.isNotEmpty(sharedSettings.PERL_CRITIC_ARGS)) {
-      commandLine.addParameters(StringUtil.split(sharedSettings.PERL_CRITIC_ARGS, " "));
-    }
+    return commandLine.withWorkDirectory(project.getBasePath()).withParameters(getPerlCriticArguments(project));
+  }
 
-    return commandLine;
+  /**
+   * @return command line for the {@link PerlCriticDaemon}; policies are loaded once per daemon instead of once per file
+   */
+  @Nullable
+  protected PerlCommandLine getPerlCriticDaemonCommandLine(@NotNull Project project) {
+    PerlCommandLine commandLine = PerlRunUtil.getPerlCommandLine(
+      project, null, PerlPluginUtil.getHelperPath(PerlCriticDaemon.SCRIPT_NAME), Collections.emptyList(),
+      getPerlCriticArguments(project));
+    return commandLine == null ? null : commandLine.withWorkDirectory(project.getBasePath());
   }
 
+  @NotNull
+  private static List<String> getPerlCriticArguments(@NotNull Project project) {
+    String perlCriticArgs = PerlSharedSettings.getInstance(project).PERL_CRITIC_ARGS;
+    return StringUtil.isNotEmpty(perlCriticArgs) ? StringUtil.split(perlCriticArgs, " ") : Collections.emptyList();
+  }
 
   @Nullable
   @Override
@@ -100,13 +112,22 @@ public class PerlCriticAnnotator extends ExternalAnnotator<PerlFile, List<PerlCr
       return null;
     }
 
+    Project project = sourcePsiFile.getProject();
     try {
-      PerlCommandLine criticCommandLine = getPerlCriticCommandLine(sourcePsiFile.getProject());
+      PerlCommandLine criticCommandLine = getPerlCriticCommandLine(project);
       if (criticCommandLine == null) {
-        PerlSharedSettings.getInstance(sourcePsiFile.getProject()).PERL_CRITIC_ENABLED = false;
+        PerlSharedSettings.getInstance(project).PERL_CRITIC_ENABLED = false;
         return null;
       }
 
+      PerlCommandLine daemonCommandLine = getPerlCriticDaemonCommandLine(project);
+      if (daemonCommandLine != null) {
+        List<String> daemonOutput = PerlCriticDaemonManager.getInstance(project).critique(daemonCommandLine, sourceBytes);
+        if (daemonOutput != null) {
+          return parseOutput(daemonOutput);
+        }
+      }
+
       BaseProcessHandler processHandler = PerlHostData.createProcessHandler(
         criticCommandLine.withCharset(virtualFile.getCharset())
       );
@@ -115,21 +136,10 @@ public class PerlCriticAnnotator extends ExternalAnnotator<PerlFile, List<PerlCr
       outputStream.write(sourceBytes);
       outputStream.close();
 
-      List<PerlCriticErrorDescriptor> errors = new ArrayList<>();
-      PerlCriticErrorDescriptor lastDescriptor = null;
-      for (String output : PerlHostData.getOutput(processHandler).getStdoutLines()) {
-        PerlCriticErrorDescriptor fromString = PerlCriticErrorDescriptor.getFromString(output);
-        if (fromString != null) {
-          errors.add(lastDescriptor = fromString);
-        }
-        else if (lastDescriptor != null) {
-          lastDescriptor.append(" " + output);
-        }
-        else if (!StringUtil.equals(output, "source OK")) {
-          LOG.warn("Could not parse line: " + output);
-        }
-      }
-      return errors;
+      return parseOutput(PerlHostData.getOutput(processHandler).getStdoutLines());
+    }
+    catch (ProcessCanceledException e) {
+      throw e;
     }
     catch (Exception e) {
       LOG.error("Error running perlcritic", e);
@@ -140,11 +150,30 @@ public class PerlCriticAnnotator extends ExternalAnnotator<PerlFile, List<PerlCr
         PerlBundle.message("perl.critic.execution.error.message", e.getMessage()),
         NotificationType.ERROR
       ));
-      PerlSharedSettings.getInstance(sourcePsiFile.getProject()).PERL_CRITIC_ENABLED = false;
+      PerlSharedSettings.getInstance(project).PERL_CRITIC_ENABLED = false;
     }
     return null;
   }
 
+  @NotNull
+  private static List<PerlCriticErrorDescriptor> parseOutput(@NotNull List<String> outputLines) {
+    List<PerlCriticErrorDescriptor> errors = new ArrayList<>();
+    PerlCriticErrorDescriptor lastDescriptor = null;
+    for (String output : outputLines) {
+      PerlCriticErrorDescriptor fromString = PerlCriticErrorDescriptor.getFromString(output);
+      if (fromString != null) {
+        errors.add(lastDescriptor = fromString);
+      }
+      else if (lastDescriptor != null) {
+        lastDescriptor.append(" " + output);
+      }
+      else if (!StringUtil.equals(output, "source OK")) {
+        LOG.warn("Could not parse line: " + output);
+      }
+    }
+    return errors;
+  }
+
   @Override
   public void apply(@NotNull PsiFile file, List<PerlCriticErrorDescriptor> annotationResult, @NotNull AnnotationHolder holder) {
     if (annotationResult == null) {
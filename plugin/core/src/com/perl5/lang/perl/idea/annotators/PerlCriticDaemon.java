@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.perl5.lang.perl.idea.annotators;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.perl5.lang.perl.idea.execution.PerlHelperDaemon;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-living {@code perlcritic_daemon.pl} process, keeping Perl::Critic policies loaded between annotations. Sources are sent
+ * through the stdin with a request id and violations are read back in the {@code perlcritic} output format
+ *
+ * @see PerlCriticDaemonManager
+ */
+class PerlCriticDaemon extends PerlHelperDaemon {
+  static final String SCRIPT_NAME = "perlcritic_daemon.pl";
+  private final AtomicInteger myRequestId = new AtomicInteger();
+
+  PerlCriticDaemon(@NotNull String key, @NotNull Process process) {
+    super(key, process);
+  }
+
+  @NotNull
+  @Override
+  protected String getPresentableName() {
+    return "Perl::Critic daemon";
+  }
+
+  /**
+   * @return perlcritic output lines for the {@code source}
+   */
+  @NotNull
+  List<String> critique(@NotNull byte[] source) throws IOException {
+    int requestId = myRequestId.incrementAndGet();
+    return request(it -> {
+      it.write((requestId + " " + source.length + "\n").getBytes(StandardCharsets.UTF_8));
+      it.write(source);
+    }, () -> readResponse(requestId));
+  }
+
+  @NotNull
+  private List<String> readResponse(int requestId) throws IOException {
+    String header = readLine();
+    List<String> headerParts = StringUtil.split(header, " ");
+    if (headerParts.size() != 2 || !headerParts.get(0).equals(Integer.toString(requestId))) {
+      throw new IOException("Unexpected response header for request " + requestId + ": " + header);
+    }
+    int linesNumber;
+    try {
+      linesNumber = Integer.parseInt(headerParts.get(1));
+    }
+    catch (NumberFormatException e) {
+      throw new IOException("Unexpected response header for request " + requestId + ": " + header, e);
+    }
+    List<String> result = new ArrayList<>(linesNumber);
+    for (int i = 0; i < linesNumber; i++) {
+      result.add(readLine());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.perl5.lang.perl.idea.annotators;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.perl5.lang.perl.idea.execution.PerlCommandLine;
+import com.perl5.lang.perl.idea.execution.PerlHelperDaemonManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Holds a Perl::Critic daemon for the project
+ */
+public class PerlCriticDaemonManager extends PerlHelperDaemonManager<PerlCriticDaemon> {
+  /**
+   * @return perlcritic output lines for {@code source} or null if daemon is not available for the {@code commandLine}
+   */
+  @Nullable
+  public List<String> critique(@NotNull PerlCommandLine commandLine, @NotNull byte[] source) {
+    return request(commandLine, it -> it.critique(source));
+  }
+
+  @NotNull
+  @Override
+  protected PerlCriticDaemon createDaemon(@NotNull String key, @NotNull Process process) {
+    return new PerlCriticDaemon(key, process);
+  }
+
+  @NotNull
+  public static PerlCriticDaemonManager getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, PerlCriticDaemonManager.class);
+  }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.codeInsight.controlFlow;
+
+import com.intellij.codeInsight.controlflow.Instruction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Trinity;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.containers.IntStack;
+import com.perl5.lang.perl.extensions.PerlImplicitVariablesProvider;
+import com.perl5.lang.perl.psi.PerlSubDefinitionElement;
+import com.perl5.lang.perl.psi.PerlSubExpr;
+import com.perl5.lang.perl.psi.PerlVariable;
+import com.perl5.lang.perl.psi.PerlVariableDeclarationElement;
+import com.perl5.lang.perl.psi.impl.PerlBuiltInVariable;
+import com.perl5.lang.perl.psi.utils.PerlResolveUtil;
+import com.perl5.lang.perl.psi.utils.PerlVariableType;
+import gnu.trove.TIntObjectHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Reaching definitions of variables in the control flow of some scope. Forward dataflow is solved once per control flow for all
+ * definitions: mutations of variables, entry points of {@code @_}, variables declarations and the scope entry. Each instruction keeps
+ * a bitset of definitions, indexed by definition, reaching it. Definitions of the same variable hide each other, queries mask the bitset
+ * with definitions of the queried variable. Declarations of other same-named lexical variables and sub entry points for variables other
+ * than {@code @_} do not hide definitions of the queried variable, so definitions reaching them are looked up through them.
+ *
+ * @see #getFor(PsiElement)
+ * @see PerlControlFlowBuilder#getFor(PsiElement)
+ */
+public class PerlReachingDefinitions {
+  private static final Trinity<PerlVariableType, String, String> ARGUMENTS_VARIABLE = Trinity.create(PerlVariableType.ARRAY, "_", null);
+
+  @NotNull
+  private final Instruction[] myInstructions;
+
+  /**
+   * All definitions of the control flow, indexed as in the bitsets
+   */
+  @NotNull
+  private final List<Definition> myDefinitions = new ArrayList<>();
+
+  /**
+   * Masks of definitions, grouped by variable: actual type, name and explicit namespace name
+   */
+  @NotNull
+  private final Map<Trinity<PerlVariableType, String, String>, BitSet> myVariablesMasks = new HashMap<>();
+
+  /**
+   * Mask of the scope entry definition for variables without definitions in this control flow
+   */
+  @NotNull
+  private final BitSet myEntryMask = new BitSet();
+
+  /**
+   * Definitions reaching the end of each instruction
+   */
+  @NotNull
+  private final BitSet[] myOut;
+
+  private PerlReachingDefinitions(@NotNull Instruction[] instructions) {
+    myInstructions = instructions;
+    myOut = new BitSet[instructions.length];
+
+    TIntObjectHashMap<Set<Trinity<PerlVariableType, String, String>>> definedVariables = new TIntObjectHashMap<>();
+    for (Instruction instruction : instructions) {
+      if (instruction instanceof PerlMutationInstruction) {
+        PsiElement leftSide = ((PerlMutationInstruction)instruction).getLeftSide();
+        if (leftSide instanceof PerlVariable) {
+          addDefinition(instruction, DefinitionKind.VALUE, computeVariable((PerlVariable)leftSide), definedVariables);
+        }
+        continue;
+      }
+      PsiElement element = instruction.getElement();
+      if (element instanceof PerlSubDefinitionElement || element instanceof PerlSubExpr) {
+        addDefinition(instruction, DefinitionKind.ARGUMENTS, ARGUMENTS_VARIABLE, definedVariables);
+      }
+      if (element instanceof PerlVariableDeclarationElement) {
+        addDefinition(instruction, DefinitionKind.STOP, computeVariable((PerlVariableDeclarationElement)element), definedVariables);
+      }
+      if (element instanceof PerlImplicitVariablesProvider) {
+        for (PerlVariableDeclarationElement implicitVariable : ((PerlImplicitVariablesProvider)element).getImplicitVariables()) {
+          addDefinition(instruction, DefinitionKind.STOP, computeVariable(implicitVariable), definedVariables);
+        }
+      }
+    }
+
+    boolean hasEntry = hasEntry(instructions);
+    if (hasEntry) {
+      Instruction entryInstruction = instructions[1];
+      for (BitSet variableMask : myVariablesMasks.values()) {
+        variableMask.set(myDefinitions.size());
+        myDefinitions.add(new Definition(entryInstruction, DefinitionKind.ENTRY));
+      }
+      myEntryMask.set(myDefinitions.size());
+      myDefinitions.add(new Definition(entryInstruction, DefinitionKind.ENTRY));
+    }
+
+    BitSet[] kill = new BitSet[instructions.length];
+    definedVariables.forEachEntry((instructionNum, variables) -> {
+      BitSet instructionKill = new BitSet();
+      variables.forEach(it -> instructionKill.or(myVariablesMasks.get(it)));
+      kill[instructionNum] = instructionKill;
+      return true;
+    });
+    if (hasEntry) {
+      // scope entry hides everything
+      kill[1] = new BitSet();
+      kill[1].set(0, myDefinitions.size());
+    }
+
+    for (int i = 0; i < instructions.length; i++) {
+      myOut[i] = new BitSet();
+    }
+    for (int i = 0; i < myDefinitions.size(); i++) {
+      myOut[myDefinitions.get(i).myInstruction.num()].set(i);
+    }
+    if (myDefinitions.isEmpty()) {
+      return;
+    }
+
+    IntStack worklist = new IntStack(instructions.length);
+    boolean[] queued = new boolean[instructions.length];
+    for (int i = instructions.length - 1; i >= 0; i--) {
+      if (!myOut[i].isEmpty()) {
+        worklist.push(i);
+        queued[i] = true;
+      }
+    }
+    while (!worklist.empty()) {
+      ProgressManager.checkCanceled();
+      int current = worklist.pop();
+      queued[current] = false;
+      BitSet currentOut = myOut[current];
+      for (Instruction successor : instructions[current].allSucc()) {
+        int successorNum = successor.num();
+        BitSet propagated = currentOut;
+        if (kill[successorNum] != null) {
+          propagated = (BitSet)currentOut.clone();
+          propagated.andNot(kill[successorNum]);
+        }
+        BitSet successorOut = myOut[successorNum];
+        int cardinality = successorOut.cardinality();
+        successorOut.or(propagated);
+        if (successorOut.cardinality() != cardinality && !queued[successorNum]) {
+          worklist.push(successorNum);
+          queued[successorNum] = true;
+        }
+      }
+    }
+  }
+
+  private void addDefinition(@NotNull Instruction instruction,
+                             @NotNull DefinitionKind kind,
+                             @NotNull Trinity<PerlVariableType, String, String> variable,
+                             @NotNull TIntObjectHashMap<Set<Trinity<PerlVariableType, String, String>>> definedVariables) {
+    myVariablesMasks.computeIfAbsent(variable, it -> new BitSet()).set(myDefinitions.size());
+    myDefinitions.add(new Definition(instruction, kind));
+    Set<Trinity<PerlVariableType, String, String>> instructionVariables = definedVariables.get(instruction.num());
+    if (instructionVariables == null) {
+      definedVariables.put(instruction.num(), instructionVariables = new HashSet<>());
+    }
+    instructionVariables.add(variable);
+  }
+
+  /**
+   * Collects definitions of the variable, visible at the instruction with {@code instructionIndex}. Mutations with number
+   * greater or equal to the {@code instructionIndex} are not reported, like with backward walk of the control flow.
+   *
+   * @param lexicalDeclaration variable declaration element
+   * @param stopElement        stop element, lexical declaration or it's context for the light elements
+   * @return list of reachable definitions, mutations, {@code @_} entry points or scope entry
+   */
+  @NotNull
+  public List<Definition> getReachingDefinitions(int instructionIndex,
+                                                 @Nullable String namespaceName,
+                                                 @NotNull String variableName,
+                                                 @NotNull PerlVariableType actualType,
+                                                 @Nullable PerlVariableDeclarationElement lexicalDeclaration,
+                                                 @Nullable PsiElement stopElement) {
+    Key key = new Key(namespaceName, variableName, actualType, lexicalDeclaration, stopElement);
+    BitSet variableMask = myVariablesMasks.getOrDefault(key.getVariable(), myEntryMask);
+    Instruction instruction = myInstructions[instructionIndex];
+    BitSet reaching;
+    if (key.isDefinedBy(instruction)) {
+      // mutation of the variable itself sees previous definitions
+      reaching = computeIn(instruction);
+    }
+    else {
+      reaching = (BitSet)myOut[instructionIndex].clone();
+    }
+    reaching.and(variableMask);
+
+    List<Definition> result = new ArrayList<>();
+    BitSet processed = new BitSet();
+    BitSet lookedThrough = new BitSet();
+    Deque<BitSet> queue = new ArrayDeque<>();
+    queue.add(reaching);
+    while (!queue.isEmpty()) {
+      BitSet definitions = queue.poll();
+      for (int i = definitions.nextSetBit(0); i >= 0; i = definitions.nextSetBit(i + 1)) {
+        if (processed.get(i)) {
+          continue;
+        }
+        processed.set(i);
+        Definition definition = myDefinitions.get(i);
+        Instruction definitionInstruction = definition.myInstruction;
+        boolean isHiding;
+        switch (definition.myKind) {
+          case VALUE:
+            if (definitionInstruction.num() < instructionIndex &&
+                key.getMutationKind((PerlMutationInstruction)definitionInstruction) == DefinitionKind.VALUE) {
+              result.add(definition);
+            }
+            isHiding = true;
+            break;
+          case ARGUMENTS:
+            if (key.isArguments()) {
+              result.add(definition);
+            }
+            isHiding = key.isArguments();
+            break;
+          case STOP:
+            isHiding = key.isStoppedBy(definitionInstruction);
+            break;
+          default:
+            if (!key.isStoppedBy(definitionInstruction) && !(key.isArguments() && isSubInstruction(definitionInstruction))) {
+              result.add(definition);
+            }
+            isHiding = true;
+        }
+        int definitionInstructionNum = definitionInstruction.num();
+        if (!isHiding && !lookedThrough.get(definitionInstructionNum)) {
+          lookedThrough.set(definitionInstructionNum);
+          BitSet definitionIn = computeIn(definitionInstruction);
+          definitionIn.and(variableMask);
+          queue.add(definitionIn);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return definitions reaching the start of the {@code instruction}
+   */
+  @NotNull
+  private BitSet computeIn(@NotNull Instruction instruction) {
+    BitSet result = new BitSet();
+    for (Instruction predecessor : instruction.allPred()) {
+      result.or(myOut[predecessor.num()]);
+    }
+    return result;
+  }
+
+  /**
+   * @return true iff scope of this control flow has an outer scope to look variables in
+   */
+  private static boolean hasEntry(@NotNull Instruction[] instructions) {
+    if (instructions.length < 2 || instructions[1] instanceof PerlMutationInstruction) {
+      return false;
+    }
+    PsiElement entryElement = instructions[1].getElement();
+    return entryElement != null && entryElement.getContext() != null;
+  }
+
+  private static boolean isSubInstruction(@NotNull Instruction instruction) {
+    PsiElement element = instruction.getElement();
+    return element instanceof PerlSubDefinitionElement || element instanceof PerlSubExpr;
+  }
+
+  @NotNull
+  private static Trinity<PerlVariableType, String, String> computeVariable(@NotNull PerlVariable variable) {
+    return Trinity.create(variable.getActualType(), variable.getName(), variable.getExplicitNamespaceName());
+  }
+
+  /**
+   * @return variable of the lexical {@code declaration}, lexical variables have no explicit namespace
+   */
+  @NotNull
+  private static Trinity<PerlVariableType, String, String> computeVariable(@NotNull PerlVariableDeclarationElement declaration) {
+    return Trinity.create(declaration.getActualType(), declaration.getName(), null);
+  }
+
+  /**
+   * @return reaching definitions for the control flow of {@code scope}, cached along with the control flow itself
+   */
+  @NotNull
+  public static PerlReachingDefinitions getFor(@NotNull PsiElement scope) {
+    return CachedValuesManager.getCachedValue(scope, () -> CachedValueProvider.Result.create(
+      new PerlReachingDefinitions(PerlControlFlowBuilder.getFor(scope).getInstructions()), scope));
+  }
+
+  public enum DefinitionKind {
+    /**
+     * Mutation of the variable
+     */
+    VALUE,
+    /**
+     * Mutation of the same-named variable with other declaration, hides previous definitions
+     */
+    SHADOW,
+    /**
+     * Sub definition or anonymous sub, an entry point for the {@code @_}
+     */
+    ARGUMENTS,
+    /**
+     * Declaration of the variable, hides previous definitions of this variable
+     */
+    STOP,
+    /**
+     * Entry of the scope, variable should be searched in the outer control flow
+     */
+    ENTRY
+  }
+
+  public static final class Definition {
+    @NotNull
+    private final Instruction myInstruction;
+    @NotNull
+    private final DefinitionKind myKind;
+
+    private Definition(@NotNull Instruction instruction, @NotNull DefinitionKind kind) {
+      myInstruction = instruction;
+      myKind = kind;
+    }
+
+    @NotNull
+    public Instruction getInstruction() {
+      return myInstruction;
+    }
+
+    @NotNull
+    public DefinitionKind getKind() {
+      return myKind;
+    }
+
+    @Override
+    public String toString() {
+      return myKind + ": " + myInstruction;
+    }
+  }
+
+  private static final class Key {
+    @Nullable
+    private final String myNamespaceName;
+    @NotNull
+    private final String myVariableName;
+    @NotNull
+    private final PerlVariableType myActualType;
+    @Nullable
+    private final PerlVariableDeclarationElement myLexicalDeclaration;
+    @Nullable
+    private final PsiElement myStopElement;
+
+    private Key(@Nullable String namespaceName,
+                @NotNull String variableName,
+                @NotNull PerlVariableType actualType,
+                @Nullable PerlVariableDeclarationElement lexicalDeclaration,
+                @Nullable PsiElement stopElement) {
+      myNamespaceName = namespaceName;
+      myVariableName = variableName;
+      myActualType = actualType;
+      myLexicalDeclaration = lexicalDeclaration;
+      myStopElement = stopElement;
+    }
+
+    @NotNull
+    Trinity<PerlVariableType, String, String> getVariable() {
+      return Trinity.create(myActualType, myVariableName, myNamespaceName);
+    }
+
+    boolean isArguments() {
+      return myLexicalDeclaration instanceof PerlBuiltInVariable && "_".equals(myVariableName) && myActualType == PerlVariableType.ARRAY;
+    }
+
+    boolean isStoppedBy(@NotNull Instruction instruction) {
+      return myStopElement != null && myStopElement.equals(instruction.getElement());
+    }
+
+    /**
+     * @return true iff {@code instruction} is a mutation of this variable or same-named variable with other declaration
+     */
+    boolean isDefinedBy(@NotNull Instruction instruction) {
+      if (!(instruction instanceof PerlMutationInstruction)) {
+        return false;
+      }
+      PsiElement leftSide = ((PerlMutationInstruction)instruction).getLeftSide();
+      return leftSide instanceof PerlVariable && getVariable().equals(computeVariable((PerlVariable)leftSide));
+    }
+
+    /**
+     * @return kind of definition, made by the {@code instruction} for this variable or null if it is not related
+     */
+    @Nullable
+    DefinitionKind getMutationKind(@NotNull PerlMutationInstruction instruction) {
+      PsiElement assignee = instruction.getLeftSide();
+      if (!(assignee instanceof PerlVariable)) {
+        return null;
+      }
+      String explicitNamespaceName = ((PerlVariable)assignee).getExplicitNamespaceName();
+      if ((explicitNamespaceName != null || myNamespaceName != null) && !Objects.equals(myNamespaceName, explicitNamespaceName)) {
+        return null;
+      }
+      PerlVariableDeclarationElement assigneeDeclaration = PerlResolveUtil.getLexicalDeclaration((PerlVariable)assignee);
+      if (myLexicalDeclaration == null && assigneeDeclaration == null && !(assignee.getParent() instanceof PerlVariableDeclarationElement) ||
+          myLexicalDeclaration != null &&
+          (Objects.equals(myLexicalDeclaration, assigneeDeclaration) || Objects.equals(myLexicalDeclaration, assignee.getParent()))
+      ) {
+        return DefinitionKind.VALUE;
+      }
+      return DefinitionKind.SHADOW;
+    }
+  }
+}
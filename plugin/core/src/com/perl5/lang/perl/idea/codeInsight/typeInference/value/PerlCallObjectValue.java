@@ -112,6 +112,14 @@ public final class PerlCallObjectValue extends PerlCallValue {
     }
   }
 
+  @Override
+  protected void registerNamespacesDependencies(@NotNull Set<String> namespaceNames, @NotNull PerlValueResolver resolver) {
+    for (String contextNamespace : namespaceNames) {
+      PerlMro.getLinearISA(resolver.getProject(), resolver.getResolveScope(), getEffectiveNamespaceName(contextNamespace), isSuper())
+        .forEach(resolver::registerNamespaceDependency);
+    }
+  }
+
   @Override
   protected boolean processCallTargets(@NotNull Project project,
                                        @NotNull GlobalSearchScope searchScope,
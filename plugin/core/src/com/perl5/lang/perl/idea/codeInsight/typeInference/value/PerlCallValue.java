@@ -83,12 +83,14 @@ public abstract class PerlCallValue extends PerlParametrizedOperationValue {
     List<PerlValue> resolvedArguments = computeResolvedArguments(resolvedNamespaceValue, resolver);
     PerlValue argumentsValue = PerlArrayValue.builder().addElements(resolvedArguments).build();
 
+    registerNamespacesDependencies(namespaceNames, resolver);
     PerlOneOfValue.Builder builder = PerlOneOfValue.builder();
     boolean[] hasTargets = new boolean[]{false};
     RecursionManager.doPreventingRecursion(
       Pair.create(resolver.getResolveScope(), this), true, () -> {
         processCallTargets(resolver.getProject(), resolver.getResolveScope(), resolver.getContextFile(), namespaceNames, subNames, it -> {
           hasTargets[0] = true;
+          resolver.registerTargetDependency(it);
             if (it instanceof PerlSubElement) {
               builder.addVariant(new PerlSubValueResolver(it, argumentsValue).resolve(((PerlSubElement)it).getReturnValue()));
             }
@@ -102,6 +104,14 @@ public abstract class PerlCallValue extends PerlParametrizedOperationValue {
     return builder.build();
   }
 
+  /**
+   * Registers namespaces, which definitions may change call targets, as dependencies of the value being resolved. Namespaces of found
+   * targets, e.g. parent or exporting ones, are registered while processing targets.
+   */
+  protected void registerNamespacesDependencies(@NotNull Set<String> namespaceNames, @NotNull PerlValueResolver resolver) {
+    namespaceNames.forEach(resolver::registerNamespaceDependency);
+  }
+
   /**
    * @return set of a namepsaces names that should be used for the {@code resolvedNamespaceValue}
    */
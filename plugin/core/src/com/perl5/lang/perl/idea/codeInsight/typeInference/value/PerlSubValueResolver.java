@@ -16,8 +16,10 @@
 
 package com.perl5.lang.perl.idea.codeInsight.typeInference.value;
 
+import com.intellij.openapi.util.Pair;
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class PerlSubValueResolver extends PerlValueResolver {
   @NotNull
@@ -35,6 +37,13 @@ public class PerlSubValueResolver extends PerlValueResolver {
     return perlValue == PerlValues.ARGUMENTS_VALUE ? myArguments : perlValue;
   }
 
+  @Nullable
+  @Override
+  Object getCacheKey() {
+    Object cacheKey = super.getCacheKey();
+    return cacheKey == null ? null : Pair.create(cacheKey, myArguments);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -119,7 +119,7 @@ public abstract class PerlValue {
    * Serializes this value data
    */
   public final void serialize(@NotNull StubOutputStream dataStream) throws IOException {
-    new PerlValueSerializer(dataStream).writeValue(this);
+    PerlValuesManager.writeValue(dataStream, this);
   }
 
   protected abstract void serializeData(@NotNull PerlValueSerializer serializer) throws IOException;
@@ -59,9 +59,9 @@ public class PerlValueDeserializer {
       return ARGUMENTS_VALUE;
     }
 
-    PerlValue value = readValue(valueId);
+    PerlValue value = PerlValuesManager.intern(readValue(valueId));
     myDryMap.put(myDryMap.size() + 1, value);
-    return PerlValuesManager.intern(value);
+    return value;
   }
 
   @NotNull
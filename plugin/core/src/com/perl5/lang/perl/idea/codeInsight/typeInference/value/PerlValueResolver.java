@@ -17,6 +17,9 @@
 package com.perl5.lang.perl.idea.codeInsight.typeInference.value;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.Trinity;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.GlobalSearchScope;
@@ -46,6 +49,7 @@ public abstract class PerlValueResolver {
   @NotNull
   public PerlValue resolve(@NotNull PerlValue unresolvedValue) {
     PerlValue substitutedUnresolvedValue = substitute(unresolvedValue);
+    myCacheService.registerDependency(this, substitutedUnresolvedValue);
     if (substitutedUnresolvedValue.isUndef() || substitutedUnresolvedValue.isUnknown() || substitutedUnresolvedValue.isDeterministic()) {
       return substitutedUnresolvedValue;
     }
@@ -57,6 +61,36 @@ public abstract class PerlValueResolver {
     return myContextFile;
   }
 
+  /**
+   * @return key of values resolved by this resolver in the {@link PerlValuesCacheService}, holding no psi elements, or null if values
+   * can't be cached, e.g. resolved in context of the non-physical file
+   */
+  @Nullable
+  Object getCacheKey() {
+    if (myContextFile == null) {
+      return Pair.create(getClass(), myResolveScope);
+    }
+    if (!myContextFile.isPhysical()) {
+      return null;
+    }
+    VirtualFile contextVirtualFile = myContextFile.getViewProvider().getVirtualFile();
+    return Trinity.create(getClass(), myResolveScope, contextVirtualFile);
+  }
+
+  /**
+   * Registers call {@code target} as a dependency of the value being resolved
+   */
+  void registerTargetDependency(@NotNull PsiElement target) {
+    myCacheService.registerTargetDependency(target);
+  }
+
+  /**
+   * Registers {@code namespaceName} as a dependency of the value being resolved
+   */
+  void registerNamespaceDependency(@Nullable String namespaceName) {
+    myCacheService.registerNamespaceDependency(namespaceName);
+  }
+
   @NotNull
   public final GlobalSearchScope getResolveScope() {
     return myResolveScope;
@@ -16,66 +16,538 @@
 
 package com.perl5.lang.perl.idea.codeInsight.typeInference.value;
 
+import com.intellij.ProjectTopics;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.RecursionManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import com.perl5.lang.perl.psi.PerlFile;
+import com.perl5.lang.perl.psi.PerlNamespaceDefinitionElement;
+import com.perl5.lang.perl.psi.properties.PerlPackageMember;
+import com.perl5.lang.perl.util.PerlPackageUtil;
+import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValues.UNKNOWN_VALUE;
 
+/**
+ * Size-bounded LRU cache of resolved values.
+ * <p>
+ * Each entry remembers files and namespaces it depends on: context files of all resolvers, namespaces of all values, files and namespaces
+ * of call targets, namespaces in the MRO of method calls and exporting namespaces of imported subs, involved in the computation, including
+ * nested cached entries. Perl PSI change drops only entries depending on changed files, namespaces defined in changed PSI before or after
+ * the change, or namespaces derived from them. Entries resolved to unknown value are dropped on any perl change, because change may
+ * introduce missing definition. Changes not caused by PSI modifications, roots changes and exiting dumb mode clear the whole cache.
+ * <p>
+ * Entries are keyed by {@link PerlValueResolver#getCacheKey()}, holding no PSI, so the cache does not keep files in memory.
+ */
 public class PerlValuesCacheService implements PsiModificationTracker.Listener {
   private static final Logger LOG = Logger.getInstance(PerlValuesCacheService.class);
+  static final int CACHE_SIZE = 20000;
+
+  @NotNull
+  private final Project myProject;
+  @NotNull
+  private final Object myLock = new Object();
+  @NotNull
+  private final Map<Pair<PerlValue, Object>, CacheEntry> myResolveMap = new LinkedHashMap<Pair<PerlValue, Object>, CacheEntry>(
+    1024, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Pair<PerlValue, Object>, CacheEntry> eldest) {
+      if (size() <= CACHE_SIZE) {
+        return false;
+      }
+      myEvictions.incrementAndGet();
+      return true;
+    }
+  };
+  @NotNull
+  private final ThreadLocal<Deque<Dependencies>> myDependenciesStack = ThreadLocal.withInitial(ArrayDeque::new);
+  /**
+   * Files with changed perl psi, waiting for invalidation
+   */
   @NotNull
-  private final Map<Pair<PerlValue, PerlValueResolver>, PerlValue> myResolveMap = ContainerUtil.createConcurrentWeakMap();
+  private final Set<VirtualFile> myChangedFiles = ContainerUtil.newConcurrentSet();
+  /**
+   * Namespaces defined in changed psi before and after changes, waiting for invalidation
+   */
+  @NotNull
+  private final Set<String> myChangedNamespaces = ContainerUtil.newConcurrentSet();
+  @NotNull
+  private final AtomicBoolean myClearRequested = new AtomicBoolean(false);
+  /**
+   * Set on every {@link PsiModificationTracker} tick and reset by the psi event following it. Psi modification tracker is a tree change
+   * preprocessor: it ticks before psi listeners are notified, both on before and after events. So tick, not followed by a psi event by
+   * the time of the next lookup, was not caused by psi change and may affect anything
+   */
+  @NotNull
+  private final AtomicBoolean myUnexplainedTick = new AtomicBoolean(false);
+  /**
+   * Incremented on every invalidation, values computed before the invalidation are not cached
+   */
+  @NotNull
+  private final AtomicLong myStamp = new AtomicLong();
 
   private final AtomicLong myResolveRequests = new AtomicLong();
   private final AtomicLong myResolveBuilds = new AtomicLong();
+  private final AtomicLong myEvictions = new AtomicLong();
+  private final AtomicLong myInvalidations = new AtomicLong();
+  private final AtomicLong myClears = new AtomicLong();
 
   public PerlValuesCacheService(@NotNull Project project) {
-    project.getMessageBus().connect().subscribe(PsiModificationTracker.TOPIC, this);
+    myProject = project;
+    MessageBusConnection connection = project.getMessageBus().connect(project);
+    connection.subscribe(PsiModificationTracker.TOPIC, this);
+    connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+      @Override
+      public void rootsChanged(@NotNull ModuleRootEvent event) {
+        requestClear();
+      }
+    });
+    connection.subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+      @Override
+      public void exitDumbMode() {
+        requestClear();
+      }
+    });
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiChangesListener(), project);
   }
 
-
   @NotNull
   public PerlValue getResolvedValue(@NotNull PerlValue deferredValue, @NotNull PerlValueResolver resolver) {
-    Pair<PerlValue, PerlValueResolver> key = Pair.create(deferredValue, resolver);
+    processPendingChanges();
+    Object resolverKey = resolver.getCacheKey();
+    Pair<PerlValue, Object> cacheKey = resolverKey == null ? null : Pair.create(deferredValue, resolverKey);
     myResolveRequests.incrementAndGet();
-    PerlValue result = myResolveMap.get(key);
-    if (result != null) {
-      return result;
+    CacheEntry cacheEntry = null;
+    if (cacheKey != null) {
+      synchronized (myLock) {
+        cacheEntry = myResolveMap.get(cacheKey);
+      }
+    }
+    Deque<Dependencies> dependenciesStack = myDependenciesStack.get();
+    if (cacheEntry != null) {
+      Dependencies parentDependencies = dependenciesStack.peek();
+      if (parentDependencies != null) {
+        parentDependencies.addAll(cacheEntry.myDependencies);
+      }
+      return cacheEntry.myValue;
     }
     myResolveBuilds.incrementAndGet();
-    PerlValue resolvedValue = RecursionManager.doPreventingRecursion(
-      key, true, () -> PerlValuesManager.intern(deferredValue.computeResolve(resolver)));
+    long stamp = myStamp.get();
+    Dependencies dependencies = new Dependencies();
+    dependenciesStack.push(dependencies);
+    PerlValue resolvedValue = null;
+    try {
+      resolvedValue = RecursionManager.doPreventingRecursion(
+        Pair.create(deferredValue, resolver), true, () -> PerlValuesManager.intern(deferredValue.computeResolve(resolver)));
+    }
+    finally {
+      dependenciesStack.pop();
+      if (resolvedValue == null || resolvedValue.isUnknown()) {
+        dependencies.myIsVolatile = true;
+      }
+      else {
+        dependencies.addNamespaces(resolvedValue);
+      }
+      Dependencies parentDependencies = dependenciesStack.peek();
+      if (parentDependencies != null) {
+        parentDependencies.addAll(dependencies);
+      }
+    }
     if (resolvedValue == null) {
       // fixme probably we could use this for recursion prevention. Actually, this may happen because of flaws of our loops/conditions handling
       return UNKNOWN_VALUE;
     }
-    myResolveMap.putIfAbsent(key, resolvedValue);
+    if (cacheKey != null) {
+      synchronized (myLock) {
+        if (stamp == myStamp.get()) {
+          myResolveMap.putIfAbsent(cacheKey, new CacheEntry(resolvedValue, dependencies));
+        }
+      }
+    }
     return resolvedValue;
   }
 
+  /**
+   * Registers {@code value} and {@code resolver}'s context file as dependencies of the value being computed now, if any
+   */
+  void registerDependency(@NotNull PerlValueResolver resolver, @NotNull PerlValue value) {
+    Dependencies dependencies = myDependenciesStack.get().peek();
+    if (dependencies == null) {
+      return;
+    }
+    PsiFile contextFile = resolver.getContextFile();
+    VirtualFile contextVirtualFile = contextFile == null ? null : contextFile.getViewProvider().getVirtualFile();
+    if (contextVirtualFile != null) {
+      dependencies.myFiles.add(contextVirtualFile);
+    }
+    dependencies.addNamespaces(value);
+  }
+
+  /**
+   * Registers {@code target} file and namespace as dependencies of the value being computed now, if any
+   */
+  void registerTargetDependency(@NotNull PsiElement target) {
+    Dependencies dependencies = myDependenciesStack.get().peek();
+    if (dependencies == null) {
+      return;
+    }
+    PsiFile targetFile = target.getContainingFile();
+    VirtualFile targetVirtualFile = targetFile == null ? null : targetFile.getViewProvider().getVirtualFile();
+    if (targetVirtualFile != null) {
+      dependencies.myFiles.add(targetVirtualFile);
+    }
+    if (target instanceof PerlPackageMember) {
+      ContainerUtil.addIfNotNull(dependencies.myNamespaces, ((PerlPackageMember)target).getNamespaceName());
+    }
+  }
+
+  /**
+   * Registers {@code namespaceName}, e.g. parent or exporting namespace, as a dependency of the value being computed now, if any
+   */
+  void registerNamespaceDependency(@Nullable String namespaceName) {
+    Dependencies dependencies = myDependenciesStack.get().peek();
+    if (dependencies != null) {
+      ContainerUtil.addIfNotNull(dependencies.myNamespaces, namespaceName);
+    }
+  }
+
   @Override
   public void modificationCountChanged() {
-    myResolveMap.clear();
+    myStamp.incrementAndGet();
+    myUnexplainedTick.set(true);
+  }
 
-    if (myResolveRequests.get() > 0) {
-      LOG.debug(String.format("Value resolve effectiveness: %d, %d, %d", myResolveRequests.get(), myResolveBuilds.get(),
-                              (myResolveRequests.get() - myResolveBuilds.get()) * 100 / myResolveRequests.get()));
+  @NotNull
+  public Statistics getStatistics() {
+    int size;
+    synchronized (myLock) {
+      size = myResolveMap.size();
     }
+    return new Statistics(myResolveRequests.get(), myResolveBuilds.get(), myEvictions.get(), myInvalidations.get(), myClears.get(), size);
+  }
+
+  public void resetStatistics() {
     myResolveRequests.set(0);
     myResolveBuilds.set(0);
+    myEvictions.set(0);
+    myInvalidations.set(0);
+    myClears.set(0);
+  }
+
+  private void requestClear() {
+    myStamp.incrementAndGet();
+    myClearRequested.set(true);
+  }
+
+  /**
+   * Drops entries invalidated by changes happened since last invocation. Invoked under read action
+   */
+  private void processPendingChanges() {
+    boolean unexplainedTick = myUnexplainedTick.getAndSet(false);
+    if (myClearRequested.getAndSet(false) || unexplainedTick) {
+      myChangedFiles.clear();
+      myChangedNamespaces.clear();
+      synchronized (myLock) {
+        myResolveMap.clear();
+      }
+      myClears.incrementAndGet();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Cache cleared: " + getStatistics());
+      }
+      return;
+    }
+    if (myChangedFiles.isEmpty()) {
+      return;
+    }
+    List<VirtualFile> changedFiles = new ArrayList<>(myChangedFiles);
+    myChangedFiles.removeAll(changedFiles);
+    Set<String> changedNamespaces = new THashSet<>(myChangedNamespaces);
+    myChangedNamespaces.removeAll(changedNamespaces);
+
+    addDerivedNamespaces(changedNamespaces);
+
+    int invalidated = 0;
+    synchronized (myLock) {
+      Iterator<CacheEntry> iterator = myResolveMap.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().myDependencies.isAffectedBy(changedFiles, changedNamespaces)) {
+          iterator.remove();
+          invalidated++;
+        }
+      }
+    }
+    myInvalidations.addAndGet(invalidated);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Invalidated " + invalidated + " entries for " + changedFiles + ": " + getStatistics());
+    }
+  }
+
+  /**
+   * Adds all namespaces transitively derived from {@code namespaces} to the set, because they may inherit changed subs
+   */
+  private void addDerivedNamespaces(@NotNull Set<String> namespaces) {
+    GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+    Deque<String> queue = new ArrayDeque<>(namespaces);
+    while (!queue.isEmpty()) {
+      PerlPackageUtil.processChildNamespaces(queue.poll(), myProject, scope, it -> {
+        String childName = it.getNamespaceName();
+        if (childName != null && namespaces.add(childName)) {
+          queue.add(childName);
+        }
+        return true;
+      });
+    }
+  }
+
+  private static boolean isPerlFile(@NotNull PsiFile psiFile) {
+    return ContainerUtil.exists(psiFile.getViewProvider().getAllFiles(), it -> it instanceof PerlFile);
   }
 
   @NotNull
   public static PerlValuesCacheService getInstance(@NotNull Project project) {
     return ServiceManager.getService(project, PerlValuesCacheService.class);
   }
+
+  /**
+   * Marks psi modification tracker ticks as caused by psi changes and collects files with changed perl psi and namespaces defined in
+   * the changed psi before and after the change. Generic changes of the file or element may change anything inside, so all namespaces
+   * in it are collected.
+   */
+  private class PsiChangesListener extends PsiTreeChangeAdapter {
+    @Override
+    public void beforeChildAddition(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getParent(), false);
+    }
+
+    @Override
+    public void beforeChildRemoval(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getParent(), false);
+      collectNamespaces(event, event.getChild(), true);
+    }
+
+    @Override
+    public void beforeChildReplacement(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getParent(), false);
+      collectNamespaces(event, event.getOldChild(), true);
+    }
+
+    @Override
+    public void beforeChildMovement(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getOldParent(), false);
+      collectNamespaces(event, event.getChild(), true);
+    }
+
+    @Override
+    public void beforeChildrenChange(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getParent(), true);
+    }
+
+    @Override
+    public void beforePropertyChange(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+    }
+
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getParent(), false);
+      collectNamespaces(event, event.getChild(), true);
+      changeFinished(event);
+    }
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getParent(), false);
+      changeFinished(event);
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getParent(), false);
+      collectNamespaces(event, event.getNewChild(), true);
+      changeFinished(event);
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getNewParent(), false);
+      collectNamespaces(event, event.getChild(), true);
+      changeFinished(event);
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      collectNamespaces(event, event.getParent(), true);
+      changeFinished(event);
+    }
+
+    @Override
+    public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+      myUnexplainedTick.set(false);
+      changeFinished(event);
+    }
+
+    /**
+     * Collects the namespace {@code element} is in and, if {@code withSubtree}, all namespaces defined inside the {@code element}
+     */
+    private void collectNamespaces(@NotNull PsiTreeChangeEvent event, @Nullable PsiElement element, boolean withSubtree) {
+      PsiFile psiFile = event.getFile();
+      if (element == null || psiFile == null || !element.isValid() || !isPerlFile(psiFile)) {
+        return;
+      }
+      ContainerUtil.addIfNotNull(myChangedNamespaces, PerlPackageUtil.getContextNamespaceName(element));
+      if (!withSubtree) {
+        return;
+      }
+      if (element instanceof PerlNamespaceDefinitionElement) {
+        ContainerUtil.addIfNotNull(myChangedNamespaces, ((PerlNamespaceDefinitionElement)element).getNamespaceName());
+      }
+      for (PsiElement root : element instanceof PsiFile ? ((PsiFile)element).getViewProvider().getAllFiles() : Collections.singletonList(element)) {
+        for (PerlNamespaceDefinitionElement namespaceDefinition : PsiTreeUtil.findChildrenOfType(root, PerlNamespaceDefinitionElement.class)) {
+          ContainerUtil.addIfNotNull(myChangedNamespaces, namespaceDefinition.getNamespaceName());
+        }
+      }
+    }
+
+    private void changeFinished(@NotNull PsiTreeChangeEvent event) {
+      PsiFile psiFile = event.getFile();
+      if (psiFile == null) {
+        // files or directories structure changed
+        requestClear();
+      }
+      else if (isPerlFile(psiFile)) {
+        myStamp.incrementAndGet();
+        myChangedFiles.add(psiFile.getViewProvider().getVirtualFile());
+      }
+    }
+  }
+
+  private static class CacheEntry {
+    @NotNull
+    private final PerlValue myValue;
+    @NotNull
+    private final Dependencies myDependencies;
+
+    public CacheEntry(@NotNull PerlValue value, @NotNull Dependencies dependencies) {
+      myValue = value;
+      myDependencies = dependencies;
+    }
+  }
+
+  private static class Dependencies {
+    @NotNull
+    private final Set<VirtualFile> myFiles = new THashSet<>();
+    @NotNull
+    private final Set<String> myNamespaces = new THashSet<>();
+    private boolean myIsVolatile = false;
+
+    private void addNamespaces(@NotNull PerlValue value) {
+      myNamespaces.addAll(value.getNamespaceNames());
+    }
+
+    private void addAll(@NotNull Dependencies dependencies) {
+      myFiles.addAll(dependencies.myFiles);
+      myNamespaces.addAll(dependencies.myNamespaces);
+      myIsVolatile |= dependencies.myIsVolatile;
+    }
+
+    private boolean isAffectedBy(@NotNull Collection<VirtualFile> changedFiles, @NotNull Set<String> changedNamespaces) {
+      if (myIsVolatile) {
+        return true;
+      }
+      for (VirtualFile changedFile : changedFiles) {
+        if (myFiles.contains(changedFile)) {
+          return true;
+        }
+      }
+      for (String namespace : myNamespaces) {
+        if (changedNamespaces.contains(namespace)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  public static class Statistics {
+    private final long myRequests;
+    private final long myBuilds;
+    private final long myEvictions;
+    private final long myInvalidations;
+    private final long myClears;
+    private final int mySize;
+
+    public Statistics(long requests, long builds, long evictions, long invalidations, long clears, int size) {
+      myRequests = requests;
+      myBuilds = builds;
+      myEvictions = evictions;
+      myInvalidations = invalidations;
+      myClears = clears;
+      mySize = size;
+    }
+
+    public long getRequests() {
+      return myRequests;
+    }
+
+    public long getBuilds() {
+      return myBuilds;
+    }
+
+    public long getEvictions() {
+      return myEvictions;
+    }
+
+    public long getInvalidations() {
+      return myInvalidations;
+    }
+
+    public long getClears() {
+      return myClears;
+    }
+
+    public int getSize() {
+      return mySize;
+    }
+
+    /**
+     * @return percent of requests served from the cache
+     */
+    public long getHitRatio() {
+      return myRequests == 0 ? 0 : (myRequests - myBuilds) * 100 / myRequests;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("requests: %d, builds: %d, hits: %d%%, evictions: %d, invalidations: %d, clears: %d, size: %d",
+                           myRequests, myBuilds, getHitRatio(), myEvictions, myInvalidations, myClears, mySize);
+    }
+  }
 }
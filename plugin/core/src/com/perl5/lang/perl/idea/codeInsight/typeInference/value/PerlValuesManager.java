@@ -21,6 +21,7 @@ import com.intellij.openapi.util.AtomicNotNullLazyValue;
 import com.intellij.openapi.util.RecursionManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.tree.TokenSet;
 import com.intellij.psi.util.CachedValueProvider;
@@ -114,10 +115,18 @@ public final class PerlValuesManager {
 
   private static final WeakInterner<PerlValue> INTERNER = new WeakInterner<>();
 
+  /**
+   * Reads a value written by {@link #writeValue(StubOutputStream, PerlValue)}. Back-references are local to the value, because stubs of
+   * the tree may be deserialized lazily and independently from each other
+   */
   public static PerlValue readValue(@NotNull StubInputStream dataStream) throws IOException {
     return new PerlValueDeserializer(dataStream).readValue();
   }
 
+  static void writeValue(@NotNull StubOutputStream dataStream, @NotNull PerlValue value) throws IOException {
+    new PerlValueSerializer(dataStream).writeValue(value);
+  }
+
   static <T extends PerlValue> T intern(T value) {
     //noinspection unchecked
     return (T)INTERNER.intern(value);
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.perl5.lang.perl.idea.execution;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.util.ThrowableConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Long-living helper script process, keeping modules loaded between requests. Script prints {@code READY} line when it is loaded
+ * and then serves requests from the stdin in order.
+ * <p>
+ * Requests are written and responses are read in pooled threads, while the caller is waiting for the response and checking for
+ * cancellation. Response of the cancelled request is consumed before the next request. Daemon is killed if it has not responded in
+ * {@link #getResponseTimeout()} milliseconds.
+ *
+ * @see PerlHelperDaemonManager
+ */
+public abstract class PerlHelperDaemon implements Closeable {
+  private static final Logger LOG = Logger.getInstance(PerlHelperDaemon.class);
+  private static final String READY_MARKER = "READY";
+  private static final long RESPONSE_TIMEOUT_MS = 30_000;
+  private static final long POLLING_INTERVAL_MS = 50;
+  @NotNull
+  private final String myKey;
+  @NotNull
+  private final Process myProcess;
+  @NotNull
+  private final OutputStream myOutputStream;
+  @NotNull
+  private final InputStream myInputStream;
+  /**
+   * Response of the cancelled request, which should be read before sending a new one
+   */
+  @Nullable
+  private Future<?> myPendingResponse;
+  private long myPendingResponseDeadline;
+
+  protected PerlHelperDaemon(@NotNull String key, @NotNull Process process) {
+    myKey = key;
+    myProcess = process;
+    myOutputStream = new BufferedOutputStream(process.getOutputStream());
+    myInputStream = new BufferedInputStream(process.getInputStream());
+    ApplicationManager.getApplication().executeOnPooledThread(() -> drainErrors(process.getErrorStream()));
+  }
+
+  /**
+   * @return key of the command line this daemon has been started with
+   */
+  @NotNull
+  public String getKey() {
+    return myKey;
+  }
+
+  public boolean isAlive() {
+    return myProcess.isAlive();
+  }
+
+  /**
+   * @return name of the daemon for logs and error messages
+   */
+  @NotNull
+  protected abstract String getPresentableName();
+
+  /**
+   * @return time in milliseconds daemon has to respond to a request
+   */
+  protected long getResponseTimeout() {
+    return RESPONSE_TIMEOUT_MS;
+  }
+
+  /**
+   * Waits for the script to load
+   */
+  protected void awaitReady() throws IOException {
+    String line = request(null, this::readLine);
+    if (!READY_MARKER.equals(line)) {
+      throw new IOException("Unexpected " + getPresentableName() + " output: " + line);
+    }
+  }
+
+  /**
+   * Sends a request with {@code writer} and reads the response with {@code reader}
+   *
+   * @throws IOException if daemon failed or has not responded in time, daemon is killed in this case
+   */
+  protected final synchronized <T> T request(@Nullable ThrowableConsumer<? super OutputStream, IOException> writer,
+                                             @NotNull ThrowableComputable<T, IOException> reader) throws IOException {
+    if (!isAlive()) {
+      throw new IOException(getPresentableName() + " is terminated");
+    }
+    if (myPendingResponse != null) {
+      awaitResponse(myPendingResponse, myPendingResponseDeadline);
+      myPendingResponse = null;
+    }
+    if (writer != null) {
+      ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        try {
+          writer.consume(myOutputStream);
+          myOutputStream.flush();
+        }
+        catch (IOException e) {
+          LOG.warn("Error sending request to " + getPresentableName(), e);
+          close();
+        }
+      });
+    }
+    long deadline = System.currentTimeMillis() + getResponseTimeout();
+    Future<T> response = ApplicationManager.getApplication().executeOnPooledThread(reader::compute);
+    try {
+      return awaitResponse(response, deadline);
+    }
+    catch (ProcessCanceledException e) {
+      myPendingResponse = response;
+      myPendingResponseDeadline = deadline;
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for the {@code response}, checking for cancellation. Kills the daemon if {@code deadline} is passed or reading failed
+   */
+  private <T> T awaitResponse(@NotNull Future<T> response, long deadline) throws IOException {
+    try {
+      while (true) {
+        try {
+          return response.get(POLLING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+          if (System.currentTimeMillis() > deadline) {
+            throw new IOException(getPresentableName() + " has not responded in " + getResponseTimeout() + "ms");
+          }
+          ProgressManager.checkCanceled();
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new IOException(e);
+    }
+    catch (ExecutionException e) {
+      close();
+      Throwable cause = e.getCause();
+      throw cause instanceof IOException ? (IOException)cause : new IOException(cause);
+    }
+    catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return next line of the daemon output, decoded as UTF-8, without the line separator
+   */
+  @NotNull
+  protected final String readLine() throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    int b;
+    while ((b = myInputStream.read()) != '\n') {
+      if (b < 0) {
+        throw new IOException("Unexpected end of " + getPresentableName() + " output");
+      }
+      buffer.write(b);
+    }
+    return buffer.toString(StandardCharsets.UTF_8.name());
+  }
+
+  @NotNull
+  protected final byte[] readBytes(int length) throws IOException {
+    byte[] result = new byte[length];
+    int offset = 0;
+    while (offset < length) {
+      int read = myInputStream.read(result, offset, length - offset);
+      if (read < 0) {
+        throw new IOException("Unexpected end of " + getPresentableName() + " output");
+      }
+      offset += read;
+    }
+    return result;
+  }
+
+  private void drainErrors(@NotNull InputStream errorStream) {
+    try (BufferedReader errorReader = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = errorReader.readLine()) != null) {
+        LOG.warn(getPresentableName() + ": " + line);
+      }
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      myOutputStream.close();
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+    myProcess.destroy();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.perl5.lang.perl.idea.execution;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.util.ThrowableConvertor;
+import com.perl5.lang.perl.idea.sdk.host.PerlHostData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Holds a helper daemon for the project. Daemon is restarted when sdk, arguments or working directory change or when it fails to
+ * respond, and stopped with the project. If daemon failed to start, it is not restarted until the command line changes and callers
+ * should fall back to the one-shot script run.
+ */
+public abstract class PerlHelperDaemonManager<D extends PerlHelperDaemon> implements Disposable {
+  private static final Logger LOG = Logger.getInstance(PerlHelperDaemonManager.class);
+  @Nullable
+  private D myDaemon;
+  /**
+   * Key of the command line daemon failed to start with; we are not trying to start it again until settings are changed
+   */
+  @Nullable
+  private String myFailedKey;
+
+  @NotNull
+  protected abstract D createDaemon(@NotNull String key, @NotNull Process process);
+
+  /**
+   * @return result of the {@code request} to the daemon for the {@code commandLine} or null if daemon is not available or failed
+   */
+  @Nullable
+  protected final <T> T request(@NotNull PerlCommandLine commandLine, @NotNull ThrowableConvertor<? super D, T, IOException> request) {
+    D daemon = getDaemon(commandLine);
+    if (daemon == null) {
+      return null;
+    }
+    try {
+      return request.convert(daemon);
+    }
+    catch (IOException e) {
+      LOG.warn("Error communicating with " + daemon.getPresentableName() + ", restarting", e);
+      dropDaemon(daemon);
+    }
+    return null;
+  }
+
+  @Nullable
+  private synchronized D getDaemon(@NotNull PerlCommandLine commandLine) {
+    String key = computeKey(commandLine);
+    if (myDaemon != null) {
+      if (myDaemon.isAlive() && myDaemon.getKey().equals(key)) {
+        return myDaemon;
+      }
+      myDaemon.close();
+      myDaemon = null;
+    }
+    if (key.equals(myFailedKey)) {
+      return null;
+    }
+    try {
+      D daemon = createDaemon(key, PerlHostData.createProcessHandler(commandLine).getProcess());
+      try {
+        daemon.awaitReady();
+      }
+      catch (IOException | RuntimeException e) {
+        daemon.close();
+        throw e;
+      }
+      myDaemon = daemon;
+      myFailedKey = null;
+    }
+    catch (ExecutionException | IOException e) {
+      LOG.warn("Unable to start helper daemon: " + commandLine.getCommandLineString(), e);
+      myFailedKey = key;
+    }
+    return myDaemon;
+  }
+
+  private synchronized void dropDaemon(@NotNull D daemon) {
+    daemon.close();
+    if (myDaemon == daemon) {
+      myDaemon = null;
+    }
+  }
+
+  @NotNull
+  private static String computeKey(@NotNull PerlCommandLine commandLine) {
+    Sdk sdk = commandLine.getEffectiveSdk();
+    return (sdk == null ? "" : sdk.getName()) + "|" +
+           Objects.toString(commandLine.getWorkDirectory(), "") + "|" +
+           commandLine.getCommandLineString();
+  }
+
+  @Override
+  public synchronized void dispose() {
+    if (myDaemon != null) {
+      myDaemon.close();
+      myDaemon = null;
+    }
+  }
+}
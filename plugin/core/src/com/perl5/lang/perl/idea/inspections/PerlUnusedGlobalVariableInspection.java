@@ -18,7 +18,6 @@ package com.perl5.lang.perl.idea.inspections;
 
 import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.codeInspection.ProblemsHolder;
-import com.intellij.psi.search.searches.ReferencesSearch;
 import com.perl5.lang.perl.psi.PerlVariable;
 import com.perl5.lang.perl.psi.PerlVariableDeclarationElement;
 
@@ -44,7 +43,7 @@ public class PerlUnusedGlobalVariableInspection extends PerlVariableInspectionBa
         return;
       }
 
-      if (ReferencesSearch.search(variableDeclarationWrapper, variableDeclarationWrapper.getUseScope()).findFirst() == null) {
+      if (!PerlUnusedSymbolsSearch.hasReferences(variableDeclarationWrapper, variableDeclarationWrapper.getUseScope())) {
         PerlVariable variable = variableDeclarationWrapper.getVariable();
         holder.registerProblem(
           variable,
@@ -21,7 +21,6 @@ import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.searches.ReferencesSearch;
 import com.perl5.lang.perl.psi.PerlSubDeclarationElement;
 import com.perl5.lang.perl.psi.PerlSubDefinitionElement;
 import com.perl5.lang.perl.psi.PerlVisitor;
@@ -54,7 +53,7 @@ public class PerlUnusedSubInspection extends PerlInspection {
         PsiElement subNameElement = o.getNameIdentifier();
         if (subNameElement != null &&
             !EXCLUSIONS.contains(o.getName()) &&
-            ReferencesSearch.search(o, GlobalSearchScope.projectScope(o.getProject())).findFirst() == null) {
+            !PerlUnusedSymbolsSearch.hasReferences(o, GlobalSearchScope.projectScope(o.getProject()))) {
           holder.registerProblem(subNameElement, "Unused sub definition", ProblemHighlightType.LIKE_UNUSED_SYMBOL);
         }
       }
@@ -69,7 +68,7 @@ public class PerlUnusedSubInspection extends PerlInspection {
         PsiElement subNameElement = o.getNameIdentifier();
         if (subNameElement != null &&
             !EXCLUSIONS.contains(o.getName()) &&
-            ReferencesSearch.search(o, GlobalSearchScope.projectScope(o.getProject())).findFirst() == null) {
+            !PerlUnusedSymbolsSearch.hasReferences(o, GlobalSearchScope.projectScope(o.getProject()))) {
           holder.registerProblem(subNameElement, "Unused sub declaration", ProblemHighlightType.LIKE_UNUSED_SYMBOL);
         }
       }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.inspections;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.impl.light.LightElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.LocalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.SearchScope;
+import com.intellij.psi.search.UsageSearchContext;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiUtilCore;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * References search for the unused symbols inspections. Files containing a symbol name are looked up in the word index once per
+ * name and scope and cached until the next psi modification, so same names in different files and elements share the lookup during
+ * batch inspection. If the only file containing the name is the file of the element itself, references are searched in this file
+ * only, skipping the project-wide search with all the custom searchers.
+ */
+final class PerlUnusedSymbolsSearch {
+  private static final Key<CachedValue<Map<Pair<SearchScope, String>, Optional<VirtualFile>>>> WORD_FILES_KEY =
+    Key.create("perl.unused.symbols.word.files");
+
+  private PerlUnusedSymbolsSearch() {
+  }
+
+  /**
+   * @return true iff {@code element} has at least one reference in the {@code scope}
+   */
+  static boolean hasReferences(@NotNull PsiNamedElement element, @NotNull SearchScope scope) {
+    return ReferencesSearch.search(element, narrowScope(element, scope)).findFirst() != null;
+  }
+
+  @NotNull
+  private static SearchScope narrowScope(@NotNull PsiNamedElement element, @NotNull SearchScope scope) {
+    // light elements may be searched by words other than their names
+    if (!(scope instanceof GlobalSearchScope) || element instanceof LightElement) {
+      return scope;
+    }
+    String name = element.getName();
+    PsiFile psiFile = element.getContainingFile();
+    VirtualFile virtualFile = PsiUtilCore.getVirtualFile(psiFile);
+    if (StringUtil.isEmpty(name) || virtualFile == null) {
+      return scope;
+    }
+
+    Project project = element.getProject();
+    Map<Pair<SearchScope, String>, Optional<VirtualFile>> cache = CachedValuesManager.getManager(project).getCachedValue(
+      project, WORD_FILES_KEY,
+      () -> CachedValueProvider.Result.create(ContainerUtil.newConcurrentMap(), PsiModificationTracker.MODIFICATION_COUNT), false);
+    Pair<SearchScope, String> key = Pair.create(scope, name);
+    Optional<VirtualFile> singleFile = cache.get(key);
+    if (singleFile == null) {
+      singleFile = findSingleFileWithWord(project, (GlobalSearchScope)scope, name);
+      Optional<VirtualFile> existingValue = cache.putIfAbsent(key, singleFile);
+      if (existingValue != null) {
+        singleFile = existingValue;
+      }
+    }
+    return singleFile.isPresent() && virtualFile.equals(singleFile.get()) ? new LocalSearchScope(psiFile) : scope;
+  }
+
+  /**
+   * @return the file containing {@code word} in the {@code scope} if it is the only one
+   */
+  @NotNull
+  private static Optional<VirtualFile> findSingleFileWithWord(@NotNull Project project,
+                                                              @NotNull GlobalSearchScope scope,
+                                                              @NotNull String word) {
+    VirtualFile[] files = new VirtualFile[2];
+    int[] filesNumber = new int[1];
+    PsiSearchHelper.getInstance(project).processCandidateFilesForText(scope, UsageSearchContext.ANY, true, word, file -> {
+      files[filesNumber[0]++] = file;
+      return filesNumber[0] < files.length;
+    });
+    return filesNumber[0] == 1 ? Optional.of(files[0]) : Optional.empty();
+  }
+}
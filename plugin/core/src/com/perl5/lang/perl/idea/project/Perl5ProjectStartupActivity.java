@@ -40,6 +40,10 @@ public class Perl5ProjectStartupActivity implements StartupActivity {
     if (project.isDefault()) {
       return;
     }
+    PerlStartupTimings.measure(project, PerlStartupTimings.PROJECT_STARTUP_ACTIVITY, () -> doRunActivity(project));
+  }
+
+  private static void doRunActivity(@NotNull Project project) {
     PerlApplicationSettings settings = PerlApplicationSettings.getInstance();
     if (settings.shouldShowAnnounce()) {
       StartupManager.getInstance(project).runWhenProjectIsInitialized(() -> {
@@ -71,7 +75,7 @@ public class Perl5ProjectStartupActivity implements StartupActivity {
       return;
     }
     try {
-      PerlNamesCache.getInstance(project).forceCacheUpdate();
+      PerlStartupTimings.measure(project, PerlStartupTimings.NAMES_CACHE_INIT, PerlNamesCache.getInstance(project)::forceCacheUpdate);
       ApplicationManager.getApplication().invokeLater(FileContentUtil::reparseOpenedFiles);
     }
     catch (ServiceNotReadyException e) {
@@ -16,47 +16,82 @@
 
 package com.perl5.lang.perl.idea.project;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ProjectComponent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.startup.StartupManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.*;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import com.perl5.lang.perl.fileTypes.PerlPluginBaseFileType;
+import com.perl5.lang.perl.psi.PerlFile;
+import com.perl5.lang.perl.psi.stubs.globs.PerlGlobsStubIndex;
+import com.perl5.lang.perl.psi.stubs.namespaces.PerlLightNamespaceIndex;
+import com.perl5.lang.perl.psi.stubs.namespaces.PerlNamespaceIndex;
+import com.perl5.lang.perl.psi.stubs.subsdeclarations.PerlSubDeclarationIndex;
+import com.perl5.lang.perl.psi.stubs.subsdefinitions.PerlLightSubDefinitionsIndex;
+import com.perl5.lang.perl.psi.stubs.subsdefinitions.PerlSubDefinitionsIndex;
 import com.perl5.lang.perl.util.PerlGlobUtil;
 import com.perl5.lang.perl.util.PerlPackageUtil;
 import com.perl5.lang.perl.util.PerlSubUtil;
+import com.perl5.lang.perl.util.processors.PerlInternalIndexKeysProcessor;
+import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Project-wide sets of known subs and namespaces names, used by the lexer to disambiguate barewords.
+ * <p>
+ * Sets are built from stub indexes once and then updated incrementally: changed perl files are collected from PSI and VFS events and
+ * only their contributions are re-computed from their stub trees. Names vanished from a file are checked against the indexes one by one.
+ * Contributions are recorded for every file changed since the project opening, including changes collected before a full rebuild.
+ * Full rebuild happens on explicit request, when leaving dumb mode or when a file with unknown contributions is changed, moved or
+ * deleted.
+ * Nothing is computed while the project is idle.
+ */
 public class PerlNamesCache implements ProjectComponent {
-  private final NamesCacheUpdater myUpdaterRunner = new NamesCacheUpdater();
-  private final Thread myUpdaterThread = new Thread(myUpdaterRunner);
+  private static final Logger LOG = Logger.getInstance(PerlNamesCache.class);
+
+  private static final List<StubIndexKey<String, ? extends PsiElement>> SUBS_KEYS = Arrays.asList(
+    PerlSubDeclarationIndex.KEY, PerlSubDefinitionsIndex.KEY, PerlLightSubDefinitionsIndex.KEY, PerlGlobsStubIndex.KEY
+  );
+
+  private static final List<StubIndexKey<String, ? extends PsiElement>> NAMESPACES_KEYS = Arrays.asList(
+    PerlNamespaceIndex.KEY, PerlLightNamespaceIndex.KEY
+  );
+
+  private static final PerlInternalIndexKeysProcessor NAMES_FILTER = new PerlInternalIndexKeysProcessor();
+
   private final Project myProject;
-  private Set<String> myKnownSubs = Collections.emptySet();
-  private Set<String> myKnownNamespaces = Collections.emptySet();
-  private final Runnable myCacheUpdaterWorker = new Runnable() {
-    @Override
-    public void run() {
-      DumbService.getInstance(myProject).runReadActionInSmartMode(() -> {
-        Set<String> subsSet = new HashSet<>();
-        subsSet.addAll(PerlSubUtil.getDeclaredSubsNames(myProject));
-        subsSet.addAll(PerlSubUtil.getDefinedSubsNames(myProject));
-        subsSet.addAll(PerlGlobUtil.getDefinedGlobsNames(myProject));
-
-        Set<String> namespacesSet = new HashSet<>();
-        namespacesSet.addAll(PerlPackageUtil.CORE_PACKAGES_ALL);
-        namespacesSet.addAll(PerlPackageUtil.getKnownNamespaceNames(myProject));
-
-        myKnownSubs = Collections.unmodifiableSet(subsSet);
-        myKnownNamespaces = Collections.unmodifiableSet(namespacesSet);
-      });
-    }
-  };
-  //	long notifyCounter = 0;
-  private boolean isNotified = false;
+  /**
+   * Files changed since last update
+   */
+  private final Set<VirtualFile> myChangedFiles = ContainerUtil.newConcurrentSet();
+  /**
+   * Last known contributions of files changed or created during this session
+   */
+  private final Map<VirtualFile, FileNames> myFilesNames = new ConcurrentHashMap<>();
+  private final AtomicBoolean myUpdateScheduled = new AtomicBoolean(false);
+  private final AtomicLong myModificationStamp = new AtomicLong();
+  private volatile boolean myFullUpdateRequired = true;
+  private volatile Set<String> myKnownSubs = Collections.emptySet();
+  private volatile Set<String> myKnownNamespaces = Collections.emptySet();
 
   public PerlNamesCache(Project project) {
     this.myProject = project;
@@ -72,18 +107,22 @@ public class PerlNamesCache implements ProjectComponent {
 
   }
 
+  /**
+   * Synchronously rebuilds names sets from indexes
+   */
   public void forceCacheUpdate() {
-    myCacheUpdaterWorker.run();
+    DumbService.getInstance(myProject).runReadActionInSmartMode(this::rebuildAll);
   }
 
   @Override
   public void initComponent() {
-    StartupManager.getInstance(myProject).runWhenProjectIsInitialized(myUpdaterThread::start);
+    StartupManager.getInstance(myProject).runWhenProjectIsInitialized(this::subscribe);
   }
 
   @Override
   public void disposeComponent() {
-    myUpdaterRunner.stopUpdater();
+    myChangedFiles.clear();
+    myFilesNames.clear();
   }
 
   @NotNull
@@ -93,63 +132,363 @@ public class PerlNamesCache implements ProjectComponent {
   }
 
   public Set<String> getSubsNamesSet() {
-    myUpdaterRunner.update();
+    scheduleUpdateIfNeeded();
     return myKnownSubs;
   }
 
   public Set<String> getNamespacesNamesSet() {
-    myUpdaterRunner.update();
+    scheduleUpdateIfNeeded();
     return myKnownNamespaces;
   }
 
-  @NotNull
-  public static PerlNamesCache getInstance(@NotNull Project project) {
-    return project.getComponent(PerlNamesCache.class);
+  /**
+   * @return stamp, incremented on every change of the names sets
+   */
+  public long getModificationStamp() {
+    return myModificationStamp.get();
   }
 
-  protected class NamesCacheUpdater implements Runnable {
-    private static final long TTL = 1000;
-    private boolean stopThis = false;
-    private long lastUpdate = 0;
+  private void subscribe() {
+    if (myProject.isDisposed()) {
+      return;
+    }
+    PsiManager.getInstance(myProject).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+      @Override
+      public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
 
-    @Override
-    public void run() {
+      @Override
+      public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
 
-      while (!stopThis) {
-        try {
-          myCacheUpdaterWorker.run();
+      @Override
+      public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+
+      @Override
+      public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        fileChanged(event.getFile());
+      }
+    }, myProject);
+
+    MessageBusConnection connection = myProject.getMessageBus().connect(myProject);
+    connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          if (event instanceof VFileDeleteEvent) {
+            fileDeleted(event.getFile());
+          }
+          else if (event instanceof VFileMoveEvent) {
+            fileMoved(event.getFile(), false);
+          }
+          else if (event instanceof VFilePropertyChangeEvent) {
+            VFilePropertyChangeEvent propertyChangeEvent = (VFilePropertyChangeEvent)event;
+            if (propertyChangeEvent.isRename()) {
+              Object oldName = propertyChangeEvent.getOldValue();
+              fileMoved(event.getFile(), oldName instanceof String &&
+                                         FileTypeManager.getInstance().getFileTypeByFileName((String)oldName)
+                                           instanceof PerlPluginBaseFileType);
+            }
+          }
+          else if (event instanceof VFileCreateEvent) {
+            fileCreated(event.getFile());
+          }
+          else if (event instanceof VFileCopyEvent) {
+            VFileCopyEvent copyEvent = (VFileCopyEvent)event;
+            fileCreated(copyEvent.getNewParent().findChild(copyEvent.getNewChildName()));
+          }
+          else if (event instanceof VFileContentChangeEvent) {
+            VirtualFile file = event.getFile();
+            if (isPerlFile(file)) {
+              myChangedFiles.add(file);
+            }
+          }
         }
-        catch (ProcessCanceledException ignore) {
+      }
+    });
+    connection.subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+      @Override
+      public void exitDumbMode() {
+        myFullUpdateRequired = true;
+      }
+    });
+  }
+
+  private void fileChanged(@Nullable PsiFile psiFile) {
+    if (psiFile == null) {
+      return;
+    }
+    FileViewProvider viewProvider = psiFile.getViewProvider();
+    if (ContainerUtil.exists(viewProvider.getAllFiles(), it -> it instanceof PerlFile)) {
+      myChangedFiles.add(viewProvider.getVirtualFile());
+    }
+  }
+
+  /**
+   * New files contributed nothing before, so their contributions are known to be empty
+   */
+  private void fileCreated(@Nullable VirtualFile file) {
+    if (file == null) {
+      return;
+    }
+    if (file.isDirectory()) {
+      LOG.debug("Created directory: ", file);
+      myFullUpdateRequired = true;
+    }
+    else if (isPerlFile(file)) {
+      myFilesNames.putIfAbsent(file, new FileNames());
+      myChangedFiles.add(file);
+    }
+  }
+
+  /**
+   * Moved or renamed file keeps its contents, but may change its type or leave indexed scope
+   *
+   * @param wasPerlFile true iff file had a perl file type before the rename
+   */
+  private void fileMoved(@Nullable VirtualFile file, boolean wasPerlFile) {
+    if (file == null) {
+      return;
+    }
+    if (myFilesNames.containsKey(file)) {
+      myChangedFiles.add(file);
+    }
+    else if (file.isDirectory() || wasPerlFile || isPerlFile(file)) {
+      LOG.debug("Moved file with unknown names: ", file);
+      myFullUpdateRequired = true;
+    }
+  }
+
+  private void fileDeleted(@Nullable VirtualFile file) {
+    if (file == null) {
+      return;
+    }
+    if (myFilesNames.containsKey(file)) {
+      myChangedFiles.add(file);
+    }
+    else if (file.isDirectory() || isPerlFile(file)) {
+      LOG.debug("Deleted file with unknown names: ", file);
+      myFullUpdateRequired = true;
+    }
+  }
+
+  private void scheduleUpdateIfNeeded() {
+    if ((!myFullUpdateRequired && myChangedFiles.isEmpty()) || !myUpdateScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      try {
+        if (!myProject.isDisposed()) {
+          DumbService.getInstance(myProject).runReadActionInSmartMode(this::doUpdate);
         }
+      }
+      catch (ProcessCanceledException ignore) {
+      }
+      finally {
+        myUpdateScheduled.set(false);
+      }
+    });
+  }
+
+  private void doUpdate() {
+    if (myProject.isDisposed()) {
+      return;
+    }
+    if (myFullUpdateRequired) {
+      rebuildAll();
+    }
+    else {
+      applyChanges();
+    }
+  }
+
+  private void rebuildAll() {
+    PerlStartupTimings.measure(myProject, PerlStartupTimings.NAMES_CACHE_REBUILD, this::doRebuildAll);
+  }
+
+  private void doRebuildAll() {
+    myFullUpdateRequired = false;
+    List<VirtualFile> changedFiles = new ArrayList<>(myChangedFiles);
+    myChangedFiles.removeAll(changedFiles);
+
+    Set<String> subsSet = new THashSet<>();
+    subsSet.addAll(PerlSubUtil.getDeclaredSubsNames(myProject));
+    subsSet.addAll(PerlSubUtil.getDefinedSubsNames(myProject));
+    subsSet.addAll(PerlGlobUtil.getDefinedGlobsNames(myProject));
+
+    Set<String> namespacesSet = new THashSet<>();
+    namespacesSet.addAll(PerlPackageUtil.CORE_PACKAGES_ALL);
+    namespacesSet.addAll(PerlPackageUtil.getKnownNamespaceNames(myProject));
+
+    myKnownSubs = Collections.unmodifiableSet(subsSet);
+    myKnownNamespaces = Collections.unmodifiableSet(namespacesSet);
+    myModificationStamp.incrementAndGet();
 
-        lastUpdate = System.currentTimeMillis();
-        isNotified = false;
+    // recorded contributions of other files are still actual, they would be in changed files otherwise
+    for (VirtualFile virtualFile : changedFiles) {
+      FileNames fileNames = computeFileNames(virtualFile);
+      if (fileNames == null) {
+        myFilesNames.remove(virtualFile);
+      }
+      else {
+        myFilesNames.put(virtualFile, fileNames);
+      }
+    }
+  }
+
+  /**
+   * Re-computes contributions of changed files and merges the difference into the names sets
+   */
+  private void applyChanges() {
+    if (ContainerUtil.exists(myChangedFiles, it -> !myFilesNames.containsKey(it))) {
+      // names removed from the file with unknown contributions can't be detected without full rebuild
+      LOG.debug("Changed file with unknown names");
+      rebuildAll();
+      return;
+    }
+    List<VirtualFile> changedFiles = new ArrayList<>(myChangedFiles);
+    myChangedFiles.removeAll(changedFiles);
+
+    Set<String> subsSet = myKnownSubs;
+    Set<String> namespacesSet = myKnownNamespaces;
+    for (VirtualFile virtualFile : changedFiles) {
+      FileNames oldNames = myFilesNames.remove(virtualFile);
+      FileNames newNames = computeFileNames(virtualFile);
+      if (newNames != null) {
+        myFilesNames.put(virtualFile, newNames);
+      }
+      subsSet = mergeNames(subsSet, oldNames == null ? null : oldNames.mySubs, newNames == null ? null : newNames.mySubs, SUBS_KEYS);
+      namespacesSet = mergeNames(namespacesSet,
+                                 oldNames == null ? null : oldNames.myNamespaces,
+                                 newNames == null ? null : newNames.myNamespaces,
+                                 NAMESPACES_KEYS);
+    }
+
+    if (subsSet != myKnownSubs || namespacesSet != myKnownNamespaces) {
+      myKnownSubs = subsSet;
+      myKnownNamespaces = namespacesSet;
+      myModificationStamp.incrementAndGet();
+    }
+  }
 
-        synchronized (this) {
-          try {
-            wait();
+  /**
+   * @return {@code knownNames} if nothing changed, or a new set with added names and without names vanished from the indexes
+   */
+  @NotNull
+  private Set<String> mergeNames(@NotNull Set<String> knownNames,
+                                 @Nullable Set<String> oldNames,
+                                 @Nullable Set<String> newNames,
+                                 @NotNull List<StubIndexKey<String, ? extends PsiElement>> keys) {
+    Set<String> result = null;
+    if (newNames != null) {
+      for (String name : newNames) {
+        if (!knownNames.contains(name)) {
+          if (result == null) {
+            result = new THashSet<>(knownNames);
           }
-          catch (Exception e) {
-            break;
+          result.add(name);
+        }
+      }
+    }
+    if (oldNames != null) {
+      for (String name : oldNames) {
+        if ((newNames == null || !newNames.contains(name)) &&
+            knownNames.contains(name) &&
+            !PerlPackageUtil.CORE_PACKAGES_ALL.contains(name) &&
+            !isIndexed(name, keys)) {
+          if (result == null) {
+            result = new THashSet<>(knownNames);
           }
+          result.remove(name);
         }
       }
     }
+    return result == null ? knownNames : Collections.unmodifiableSet(result);
+  }
 
-    public void update() {
-      if (!isNotified && lastUpdate + TTL < System.currentTimeMillis()) {
-        synchronized (this) {
-          isNotified = true;
-          notify();
-        }
+  private boolean isIndexed(@NotNull String name, @NotNull List<StubIndexKey<String, ? extends PsiElement>> keys) {
+    GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+    for (StubIndexKey<String, ? extends PsiElement> key : keys) {
+      //noinspection unchecked
+      StubIndexKey<String, PsiElement> indexKey = (StubIndexKey<String, PsiElement>)key;
+      if (!StubIndex.getInstance().processElements(indexKey, name, myProject, scope, PsiElement.class, it -> false)) {
+        return true;
       }
     }
+    return false;
+  }
 
-    public void stopUpdater() {
-      stopThis = true;
-      synchronized (this) {
-        notify();
+  /**
+   * Collects names this file contributes to the indexes, by indexing its stub tree into the collecting sink
+   *
+   * @return names or null if file is not valid or has no perl stubs
+   */
+  @Nullable
+  private FileNames computeFileNames(@NotNull VirtualFile virtualFile) {
+    if (!virtualFile.isValid() || !GlobalSearchScope.allScope(myProject).contains(virtualFile)) {
+      return null;
+    }
+    PsiFile psiFile = PsiManager.getInstance(myProject).findFile(virtualFile);
+    if (psiFile == null) {
+      return null;
+    }
+    ObjectStubTree stubTree = StubTreeLoader.getInstance().readOrBuild(myProject, virtualFile, psiFile);
+    if (stubTree == null) {
+      return null;
+    }
+    FileNames fileNames = new FileNames();
+    IndexSink sink = new IndexSink() {
+      @Override
+      public <Psi extends PsiElement, K> void occurrence(@NotNull StubIndexKey<K, Psi> indexKey, @NotNull K value) {
+        if (!(value instanceof String) || !NAMES_FILTER.process((String)value)) {
+          return;
+        }
+        if (SUBS_KEYS.contains(indexKey)) {
+          fileNames.mySubs.add((String)value);
+        }
+        else if (NAMESPACES_KEYS.contains(indexKey)) {
+          fileNames.myNamespaces.add((String)value);
+        }
+      }
+    };
+    //noinspection unchecked
+    for (Stub stub : (List<Stub>)stubTree.getPlainList()) {
+      if (stub instanceof StubElement) {
+        //noinspection unchecked
+        ((StubElement)stub).getStubType().indexStub(stub, sink);
       }
     }
+    return fileNames;
+  }
+
+  private static boolean isPerlFile(@Nullable VirtualFile file) {
+    return file != null && !file.isDirectory() && file.getFileType() instanceof PerlPluginBaseFileType;
+  }
+
+  /**
+   * Synchronously applies collected changes
+   */
+  @TestOnly
+  public void flushChanges() {
+    ApplicationManager.getApplication().runReadAction(this::doUpdate);
+  }
+
+  @NotNull
+  public static PerlNamesCache getInstance(@NotNull Project project) {
+    return project.getComponent(PerlNamesCache.class);
+  }
+
+  private static class FileNames {
+    private final Set<String> mySubs = new THashSet<>();
+    private final Set<String> myNamespaces = new THashSet<>();
   }
-}
\ No newline at end of file
+}
@@ -149,14 +149,15 @@ public class PerlProjectManager {
       }
       return result;
     });
-    mySdkLibraryRootsProvider = AtomicNotNullLazyValue.createValue(() -> {
-      List<VirtualFile> result = new ArrayList<>(getExternalLibraryRoots());
-      Sdk projectSdk = getProjectSdk();
-      if (projectSdk != null) {
-        result.addAll(Arrays.asList(projectSdk.getRootProvider().getFiles(OrderRootType.CLASSES)));
-      }
-      return result;
-    });
+    mySdkLibraryRootsProvider = AtomicNotNullLazyValue.createValue(
+      () -> PerlStartupTimings.measure(myProject, PerlStartupTimings.SDK_LIBRARY_ROOTS, () -> {
+        List<VirtualFile> result = new ArrayList<>(getExternalLibraryRoots());
+        Sdk projectSdk = getProjectSdk();
+        if (projectSdk != null) {
+          result.addAll(Arrays.asList(projectSdk.getRootProvider().getFiles(OrderRootType.CLASSES)));
+        }
+        return result;
+      }));
     myLibraryRootsProvider = AtomicNotNullLazyValue.createValue(() -> {
       ArrayList<VirtualFile> result = new ArrayList<>(getModulesLibraryRoots());
       result.addAll(getProjectSdkLibraryRoots());
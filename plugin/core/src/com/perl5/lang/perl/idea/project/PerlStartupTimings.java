@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.project;
+
+import com.google.gson.GsonBuilder;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.perl5.lang.perl.util.PerlPluginUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Collects wall-clock durations of the plugin startup phases and other heavy activities: project startup activity, names cache
+ * initialization, sdk library roots computation, implicit declarations loading. Only the latest {@link #MAX_RECORDS} records are kept.
+ *
+ * @see com.perl5.lang.perl.idea.actions.PerlStartupTimingsAction
+ */
+public class PerlStartupTimings {
+  private static final Logger LOG = Logger.getInstance(PerlStartupTimings.class);
+  private static final int MAX_RECORDS = 1000;
+  public static final String PROJECT_STARTUP_ACTIVITY = "project startup activity";
+  public static final String NAMES_CACHE_INIT = "names cache initialization";
+  public static final String NAMES_CACHE_REBUILD = "names cache rebuild";
+  public static final String SDK_LIBRARY_ROOTS = "sdk library roots";
+  public static final String IMPLICIT_DECLARATIONS = "implicit declarations loading";
+
+  private final long myStartTime = System.currentTimeMillis();
+  private final Deque<Record> myRecords = new ArrayDeque<>();
+
+  /**
+   * Runs {@code computable} and records its duration as {@code phase} of the {@code project} or application if project is null
+   */
+  public static <T, E extends Throwable> T measure(@Nullable Project project,
+                                                   @NotNull String phase,
+                                                   @NotNull ThrowableComputable<T, E> computable) throws E {
+    long startTime = System.currentTimeMillis();
+    try {
+      return computable.compute();
+    }
+    finally {
+      getInstance().addRecord(project, phase, startTime, System.currentTimeMillis() - startTime);
+    }
+  }
+
+  /**
+   * @see #measure(Project, String, ThrowableComputable)
+   */
+  public static void measure(@Nullable Project project, @NotNull String phase, @NotNull Runnable runnable) {
+    measure(project, phase, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  private synchronized void addRecord(@Nullable Project project, @NotNull String phase, long startTime, long duration) {
+    Record record = new Record(project == null ? null : project.getName(), phase, startTime - myStartTime, duration,
+                               Thread.currentThread().getName());
+    LOG.debug(record);
+    myRecords.addLast(record);
+    if (myRecords.size() > MAX_RECORDS) {
+      myRecords.removeFirst();
+    }
+  }
+
+  /**
+   * @return records in the order of completion
+   */
+  @NotNull
+  public synchronized List<Record> getRecords() {
+    return new ArrayList<>(myRecords);
+  }
+
+  /**
+   * @return per-phase statistics, ordered by total duration, longest first
+   */
+  @NotNull
+  public synchronized List<PhaseStatistics> getPhasesStatistics() {
+    Map<String, PhaseStatistics> result = new LinkedHashMap<>();
+    for (Record record : myRecords) {
+      result.computeIfAbsent(record.phase, PhaseStatistics::new).add(record.duration);
+    }
+    List<PhaseStatistics> statistics = new ArrayList<>(result.values());
+    statistics.sort(Comparator.comparingLong((PhaseStatistics it) -> it.total).reversed());
+    return statistics;
+  }
+
+  public synchronized void reset() {
+    myRecords.clear();
+  }
+
+  /**
+   * @return json with plugin version, per-phase statistics and all the records, suitable for comparing between releases
+   */
+  @NotNull
+  public String toJson() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("pluginVersion", PerlPluginUtil.getPluginVersion());
+    result.put("phases", getPhasesStatistics());
+    result.put("records", getRecords());
+    return new GsonBuilder().setPrettyPrinting().create().toJson(result);
+  }
+
+  @NotNull
+  public static PerlStartupTimings getInstance() {
+    return ServiceManager.getService(PerlStartupTimings.class);
+  }
+
+  public static final class Record {
+    @Nullable
+    private final String project;
+    @NotNull
+    private final String phase;
+    /**
+     * Start time in ms since the service creation
+     */
+    private final long start;
+    private final long duration;
+    @NotNull
+    private final String thread;
+
+    private Record(@Nullable String project, @NotNull String phase, long start, long duration, @NotNull String thread) {
+      this.project = project;
+      this.phase = phase;
+      this.start = start;
+      this.duration = duration;
+      this.thread = thread;
+    }
+
+    @Override
+    public String toString() {
+      return phase + (project == null ? "" : " of " + project) + ": " + duration + " ms";
+    }
+  }
+
+  public static final class PhaseStatistics {
+    @NotNull
+    private final String phase;
+    private int count;
+    private long total;
+    private long max;
+
+    private PhaseStatistics(@NotNull String phase) {
+      this.phase = phase;
+    }
+
+    private void add(long duration) {
+      count++;
+      total += duration;
+      max = Math.max(max, duration);
+    }
+
+    @NotNull
+    public String getPhase() {
+      return phase;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public long getMax() {
+      return max;
+    }
+  }
+}
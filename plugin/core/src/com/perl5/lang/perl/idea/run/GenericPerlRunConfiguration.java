@@ -356,6 +356,13 @@ public abstract class GenericPerlRunConfiguration extends LocatableConfiguration
     return true;
   }
 
+  /**
+   * @return number of perl processes this configuration may run simultaneously if {@link PerlRunProfileState#isParallelRunAllowed()}
+   */
+  public int getParallelProcessesNumber() {
+    return 1;
+  }
+
   @NotNull
   protected Charset computeCharset() throws ExecutionException {
     String charsetName = getConsoleCharset();
@@ -20,6 +20,9 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.ExecutionResult;
 import com.intellij.execution.actions.StopProcessAction;
@@ -31,8 +34,8 @@ import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.concurrency.Semaphore;
 import com.intellij.xdebugger.XDebugSession;
 import com.perl5.PerlBundle;
@@ -42,14 +45,11 @@ import com.perl5.lang.perl.idea.run.debugger.protocol.*;
 import com.perl5.lang.perl.idea.run.debugger.ui.PerlScriptsPanel;
 import com.perl5.lang.perl.idea.run.remote.PerlRemoteDebuggingConfiguration;
 import com.perl5.lang.perl.util.PerlRunUtil;
-import gnu.trove.TByteArrayList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.PropertyKey;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.lang.reflect.Modifier;
 import java.net.ConnectException;
 import java.net.InetAddress;
@@ -61,8 +61,8 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static com.perl5.PerlBundle.PATH_TO_BUNDLE;
@@ -73,21 +73,25 @@ import static com.perl5.lang.perl.idea.run.debugger.protocol.PerlDebuggingEventR
 public class PerlDebugThread extends Thread {
   static final boolean DEV_MODE = false;
   private static final Logger LOG = Logger.getInstance(PerlDebugThread.class);
-  private static Executor ourExecutor = Executors.newSingleThreadExecutor();
+  private static final int BUFFER_SIZE = 64 * 1024;
   private final ExecutionResult myExecutionResult;
   private final Gson myGson;
   private final PerlDebugProfileStateBase myDebugProfileState;
   private final PerlScriptsPanel myScriptListPanel;
   private final PerlScriptsPanel myEvalsListPanel;
+  /**
+   * Events are handled in the order they came, one at a time; responses are dispatched right from the reading thread
+   */
+  private final ExecutorService myEventsExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("PerlDebugThread events", 1);
   private XDebugSession mySession;
   private Socket mySocket;
   private ServerSocket myServerSocket;
-  private OutputStream myOutputStream;
-  private InputStream myInputStream;
+  private Writer myOutputWriter;
+  private JsonReader myJsonReader;
   private volatile boolean myStop = false;
   private List<PerlLineBreakPointDescriptor> breakpointsDescriptorsQueue = new CopyOnWriteArrayList<>();
   private boolean isReady = false;
-  private int transactionId = 0;
+  private final AtomicInteger transactionId = new AtomicInteger();
   private ConcurrentHashMap<Integer, PerlDebuggingTransactionHandler> transactionsMap =
     new ConcurrentHashMap<>();
   private ReentrantLock lock = new ReentrantLock();
@@ -185,41 +189,30 @@ public class PerlDebugThread extends Thread {
       }
       print("perl.debug.connected");
 
-      myOutputStream = mySocket.getOutputStream();
-      myInputStream = mySocket.getInputStream();
-
-      TByteArrayList response = new TByteArrayList();
+      myOutputWriter = new BufferedWriter(new OutputStreamWriter(mySocket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+      // debugger sends new line separated json objects, reading them one by one as a stream of top-level values
+      myJsonReader = new JsonReader(new BufferedReader(new InputStreamReader(mySocket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE));
+      myJsonReader.setLenient(true);
 
       while (!myStop) {
-        response.clear();
-
         if (DEV_MODE) {
           LOG.debug("Reading data");
         }
 
-        // reading bytes
-        while (myInputStream != null) {
-          int dataByte = myInputStream.read();
-          if (dataByte == '\n') {
-            break;
-          }
-          else if (dataByte == -1) {
-            return true;
-          }
-          else {
-            response.add((byte)dataByte);
-          }
-        }
-
-        if (DEV_MODE) {
-          LOG.debug("Got response " + response.size() + "\n" + new String(response.toNativeArray(), CharsetToolkit.UTF8_CHARSET));
+        JsonReader jsonReader = myJsonReader;
+        if (jsonReader == null || jsonReader.peek() == JsonToken.END_DOCUMENT) {
+          return true;
         }
-
-        processResponse(response);
+        processEvent(myGson.fromJson(jsonReader, PerlDebuggingEvent.class));
       }
     }
+    catch (EOFException e) {
+      return true;
+    }
     catch (Exception e) {
-      LOG.warn(e);
+      if (!myStop) {
+        LOG.warn(e);
+      }
     }
     return false;
   }
@@ -237,9 +230,10 @@ public class PerlDebugThread extends Thread {
     }
   }
 
-  private void processResponse(TByteArrayList responseBytes) {
-    final String response = new String(responseBytes.toNativeArray(), CharsetToolkit.UTF8_CHARSET);
-    final PerlDebuggingEvent newEvent = myGson.fromJson(response, PerlDebuggingEvent.class);
+  private void processEvent(@Nullable PerlDebuggingEvent newEvent) {
+    if (DEV_MODE) {
+      LOG.debug("Got event " + newEvent);
+    }
 
     if (newEvent != null) {
       if (newEvent instanceof PerlDebuggingEventReady) {
@@ -271,33 +265,43 @@ public class PerlDebugThread extends Thread {
       else {
         newEvent.setDebugSession(mySession);
         newEvent.setDebugThread(this);
-        ourExecutor.execute(newEvent);
+        myEventsExecutor.execute(newEvent);
       }
     }
   }
 
   public void sendString(String string) {
+    sendCommand(string, null);
+  }
+
+  /**
+   * Sends a {@code command} with optional {@code data} serialized right into the socket. Lock is held only while a line is written, so
+   * commands from different threads don't wait for each other's responses.
+   */
+  public void sendCommand(@NotNull String command, @Nullable Object data) {
     if (mySocket == null) {
       return;
     }
 
-    string = string + "\n";
+    if (DEV_MODE) {
+      LOG.debug("Going to send command " + command);
+    }
 
+    lock.lock();
     try {
-      if (DEV_MODE) {
-        LOG.debug("Going to send string " + string);
+      Writer writer = myOutputWriter;
+      if (writer == null) {
+        return;
       }
-
-      lock.lock();
-
-      if (DEV_MODE) {
-        LOG.debug("Sent string " + string);
+      writer.write(command);
+      if (data != null) {
+        writer.write(' ');
+        myGson.toJson(data, writer);
       }
-
-
-      myOutputStream.write(string.getBytes(StandardCharsets.UTF_8));
+      writer.write('\n');
+      writer.flush();
     }
-    catch (IOException e) {
+    catch (IOException | JsonParseException e) {
       LOG.warn(e);
     }
     finally {
@@ -305,24 +309,18 @@ public class PerlDebugThread extends Thread {
     }
   }
 
-  public void sendCommand(String command, Object data) {
-    sendString(command + " " + myGson.toJson(data));
-  }
-
+  /**
+   * Sends a command and registers a handler for its response. Any number of transactions may be in flight, responses are matched by
+   * transaction id in the order debugger sends them.
+   */
   public void sendCommandAndGetResponse(String command, Object data, PerlDebuggingTransactionHandler transactionHandler) {
     if (mySocket == null) {
       return;
     }
 
-    try {
-      lock.lock();
-      PerlDebuggingTransactionWrapper transaction = new PerlDebuggingTransactionWrapper(transactionId++, data);
-      transactionsMap.put(transaction.getTransactionId(), transactionHandler);
-      sendCommand(command, transaction);
-    }
-    finally {
-      lock.unlock();
-    }
+    PerlDebuggingTransactionWrapper transaction = new PerlDebuggingTransactionWrapper(transactionId.getAndIncrement(), data);
+    transactionsMap.put(transaction.getTransactionId(), transactionHandler);
+    sendCommand(command, transaction);
   }
 
   public Socket getSocket() {
@@ -336,17 +334,20 @@ public class PerlDebugThread extends Thread {
 
     myStop = true;
     closeStreamsAndSockets();
+    myEventsExecutor.shutdown();
     StopProcessAction.stopProcess(myExecutionResult.getProcessHandler());
 
     print("perl.debug.disconnected");
   }
 
   private void closeStreamsAndSockets() {
+    transactionsMap.clear();
+
     //noinspection Duplicates
     try {
-      if (myInputStream != null) {
-        myInputStream.close();
-        myInputStream = null;
+      if (myJsonReader != null) {
+        myJsonReader.close();
+        myJsonReader = null;
       }
     }
     catch (IOException e) {
@@ -354,15 +355,19 @@ public class PerlDebugThread extends Thread {
     }
 
     //noinspection Duplicates
+    lock.lock();
     try {
-      if (myOutputStream != null) {
-        myOutputStream.close();
-        myOutputStream = null;
+      if (myOutputWriter != null) {
+        myOutputWriter.close();
+        myOutputWriter = null;
       }
     }
     catch (IOException e) {
       LOG.warn(e);
     }
+    finally {
+      lock.unlock();
+    }
 
     //noinspection Duplicates
     try {
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.run.prove;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.ObjectStubTree;
+import com.intellij.psi.stubs.Stub;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubTreeLoader;
+import com.intellij.psi.util.PsiUtilCore;
+import com.perl5.lang.perl.fileTypes.PerlPluginBaseFileType;
+import com.perl5.lang.perl.psi.stubs.imports.PerlUseStatementsIndex;
+import com.perl5.lang.perl.psi.stubs.imports.runtime.PerlRuntimeImportsIndex;
+import com.perl5.lang.perl.psi.stubs.namespaces.PerlNamespaceDefinitionStub;
+import com.perl5.lang.perl.util.PerlPackageUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Reverse dependency graph from modules to test files. Files depend on namespaces they {@code use} or inherit, e.g. with
+ * {@code use parent}, {@code use base}, {@code @ISA} or Moose {@code extends}, and files they {@code require} or {@code do}; affected
+ * tests are the tests transitively depending on changed files.
+ *
+ * @see PerlUseStatementsIndex
+ * @see PerlRuntimeImportsIndex
+ * @see PerlPackageUtil#processChildNamespaces
+ * @apiNote should be used under read action in smart mode
+ */
+class PerlAffectedTestsFinder {
+  @NotNull
+  private final Project myProject;
+  @NotNull
+  private final GlobalSearchScope myScope;
+  /**
+   * Namespace name to files using it, built lazily on first request
+   */
+  private Map<String, Set<VirtualFile>> myNamespaceUsers;
+
+  PerlAffectedTestsFinder(@NotNull Project project) {
+    myProject = project;
+    myScope = GlobalSearchScope.projectScope(project);
+  }
+
+  /**
+   * @return test files, satisfying {@code isTest} and depending on any of the {@code changedFiles} directly or transitively. Changed
+   * tests are returned as well.
+   */
+  @NotNull
+  Set<VirtualFile> findAffectedTests(@NotNull Collection<VirtualFile> changedFiles, @NotNull Predicate<VirtualFile> isTest) {
+    Set<VirtualFile> result = new LinkedHashSet<>();
+    Set<VirtualFile> visited = new HashSet<>();
+    Deque<VirtualFile> queue = new ArrayDeque<>();
+    for (VirtualFile changedFile : changedFiles) {
+      if (changedFile.isValid() && !changedFile.isDirectory() && changedFile.getFileType() instanceof PerlPluginBaseFileType &&
+          visited.add(changedFile)) {
+        queue.add(changedFile);
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      ProgressManager.checkCanceled();
+      VirtualFile file = queue.poll();
+      if (isTest.test(file)) {
+        result.add(file);
+      }
+      for (VirtualFile dependentFile : getDependentFiles(file)) {
+        if (visited.add(dependentFile)) {
+          queue.add(dependentFile);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return files directly depending on the {@code file}
+   */
+  @NotNull
+  private Set<VirtualFile> getDependentFiles(@NotNull VirtualFile file) {
+    Set<VirtualFile> result = new HashSet<>();
+    PsiFile psiFile = PsiManager.getInstance(myProject).findFile(file);
+    if (psiFile == null) {
+      return result;
+    }
+
+    ObjectStubTree<?> stubTree = StubTreeLoader.getInstance().readOrBuild(myProject, file, psiFile);
+    if (stubTree != null) {
+      Map<String, Set<VirtualFile>> namespaceUsers = getNamespaceUsers();
+      for (Stub stub : stubTree.getPlainList()) {
+        if (stub instanceof PerlNamespaceDefinitionStub) {
+          String namespaceName = ((PerlNamespaceDefinitionStub)stub).getNamespaceName();
+          result.addAll(namespaceUsers.getOrDefault(namespaceName, Collections.emptySet()));
+          PerlPackageUtil.processChildNamespaces(namespaceName, myProject, myScope, childNamespace -> {
+            result.add(PsiUtilCore.getVirtualFile(childNamespace));
+            return true;
+          });
+        }
+      }
+    }
+
+    PerlRuntimeImportsIndex.processImports(myProject, myScope, file.getName(), importExpression -> {
+      PsiFile importingFile = importExpression.getContainingFile();
+      String importPath = importExpression.getImportPath();
+      if (importPath != null && importingFile != null &&
+          file.equals(PerlPackageUtil.resolveRelativePathToVirtualFile(importingFile, importPath))) {
+        result.add(PsiUtilCore.getVirtualFile(importingFile));
+      }
+      return true;
+    });
+    result.remove(null);
+    result.remove(file);
+    return result;
+  }
+
+  @NotNull
+  private Map<String, Set<VirtualFile>> getNamespaceUsers() {
+    if (myNamespaceUsers != null) {
+      return myNamespaceUsers;
+    }
+    Map<String, Set<VirtualFile>> namespaceUsers = new HashMap<>();
+    for (String contextNamespace : StubIndex.getInstance().getAllKeys(PerlUseStatementsIndex.KEY, myProject)) {
+      PerlUseStatementsIndex.processElements(myProject, myScope, contextNamespace, useStatement -> {
+        ProgressManager.checkCanceled();
+        String packageName = useStatement.getPackageName();
+        VirtualFile usingFile = PsiUtilCore.getVirtualFile(useStatement);
+        if (packageName != null && usingFile != null) {
+          namespaceUsers.computeIfAbsent(packageName, it -> new HashSet<>()).add(usingFile);
+        }
+        return true;
+      });
+    }
+    return myNamespaceUsers = namespaceUsers;
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.run.prove;
+
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.text.StringUtil;
+import com.perl5.lang.perl.idea.sdk.host.PerlHostData;
+import jetbrains.buildServer.messages.serviceMessages.ServiceMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Measures wall-clock durations and results of test files from the {@code TAP::Formatter::Camelcade} service messages and stores
+ * them into the {@link PerlTestDurationsStorage}
+ */
+class PerlTestDurationsCollector extends ProcessAdapter {
+  private static final Logger LOG = Logger.getInstance(PerlTestDurationsCollector.class);
+  private static final String SUITE_STARTED = "testSuiteStarted";
+  private static final String SUITE_FINISHED = "testSuiteFinished";
+  private static final String TEST_STARTED = "testStarted";
+  private static final String TEST_FAILED = "testFailed";
+  private static final String LOCATION_HINT = "locationHint";
+  private static final String NODE_ID = "nodeId";
+  private static final String PARENT_NODE_ID = "parentNodeId";
+  private static final String ROOT_NODE_ID = "0";
+  private static final String FILE_LOCATION_PREFIX = "myfile://";
+
+  @NotNull
+  private final PerlTestDurationsStorage myStorage;
+  @NotNull
+  private final PerlHostData<?, ?> myHostData;
+  private final StringBuilder myBuffer = new StringBuilder();
+  /**
+   * Node id to the remote test file path and start time
+   */
+  private final Map<String, Suite> myRunningSuites = new HashMap<>();
+  /**
+   * Node id to the parent node id for nested suites and tests
+   */
+  private final Map<String, String> myParents = new HashMap<>();
+
+  PerlTestDurationsCollector(@NotNull PerlTestDurationsStorage storage, @NotNull PerlHostData<?, ?> hostData) {
+    myStorage = storage;
+    myHostData = hostData;
+  }
+
+  @Override
+  public synchronized void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+    if (outputType == ProcessOutputTypes.SYSTEM) {
+      return;
+    }
+    myBuffer.append(event.getText());
+    int lineEnd;
+    while ((lineEnd = myBuffer.indexOf("\n")) >= 0) {
+      String line = myBuffer.substring(0, lineEnd);
+      myBuffer.delete(0, lineEnd + 1);
+      processLine(line);
+    }
+  }
+
+  private void processLine(@NotNull String line) {
+    int messageStart = line.indexOf(ServiceMessage.SERVICE_MESSAGE_START);
+    if (messageStart < 0) {
+      return;
+    }
+    ServiceMessage message;
+    try {
+      message = ServiceMessage.parse(line.substring(messageStart).trim());
+    }
+    catch (ParseException e) {
+      LOG.debug(e);
+      return;
+    }
+    if (message == null) {
+      return;
+    }
+    Map<String, String> attributes = message.getAttributes();
+    String nodeId = attributes.get(NODE_ID);
+    if (nodeId == null) {
+      return;
+    }
+    String messageName = message.getMessageName();
+    String parentNodeId = StringUtil.notNullize(attributes.get(PARENT_NODE_ID), ROOT_NODE_ID);
+    if (SUITE_STARTED.equals(messageName) && ROOT_NODE_ID.equals(parentNodeId)) {
+      String location = attributes.get(LOCATION_HINT);
+      if (StringUtil.startsWith(location, FILE_LOCATION_PREFIX)) {
+        myRunningSuites.put(nodeId, new Suite(location.substring(FILE_LOCATION_PREFIX.length()), System.currentTimeMillis()));
+      }
+    }
+    else if (SUITE_STARTED.equals(messageName) || TEST_STARTED.equals(messageName)) {
+      myParents.put(nodeId, parentNodeId);
+    }
+    else if (TEST_FAILED.equals(messageName)) {
+      Suite suite = findFileSuite(nodeId);
+      if (suite != null) {
+        suite.myFailed = true;
+      }
+    }
+    else if (SUITE_FINISHED.equals(messageName)) {
+      Suite suite = myRunningSuites.remove(nodeId);
+      if (suite == null) {
+        return;
+      }
+      String localPath = myHostData.getLocalPath(suite.myRemotePath);
+      if (localPath != null) {
+        myStorage.setDuration(localPath, System.currentTimeMillis() - suite.myStartTime);
+        myStorage.setFailed(localPath, suite.myFailed);
+      }
+    }
+  }
+
+  /**
+   * @return running top-level suite of the test file containing node with {@code nodeId}
+   */
+  @Nullable
+  private Suite findFileSuite(@NotNull String startNodeId) {
+    Set<String> visited = new HashSet<>();
+    String nodeId = startNodeId;
+    while (nodeId != null && visited.add(nodeId)) {
+      Suite suite = myRunningSuites.get(nodeId);
+      if (suite != null) {
+        return suite;
+      }
+      nodeId = myParents.get(nodeId);
+    }
+    return null;
+  }
+
+  private static final class Suite {
+    @NotNull
+    private final String myRemotePath;
+    private final long myStartTime;
+    private boolean myFailed;
+
+    private Suite(@NotNull String remotePath, long startTime) {
+      myRemotePath = remotePath;
+      myStartTime = startTime;
+    }
+  }
+}
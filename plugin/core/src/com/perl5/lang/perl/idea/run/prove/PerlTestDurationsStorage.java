@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.run.prove;
+
+import com.intellij.openapi.components.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Durations and results of test files from previous runs, used to start the longest and previously failed tests first
+ */
+@State(
+  name = "Perl5TestDurations",
+  storages = @Storage(StoragePathMacros.WORKSPACE_FILE)
+)
+public class PerlTestDurationsStorage implements PersistentStateComponent<PerlTestDurationsStorage.DurationsState> {
+  private DurationsState myState = new DurationsState();
+
+  /**
+   * @return duration of the test file with {@code localPath} in ms or null if unknown
+   */
+  @Nullable
+  public synchronized Long getDuration(@NotNull String localPath) {
+    return myState.durations.get(FileUtil.toSystemIndependentName(localPath));
+  }
+
+  public synchronized void setDuration(@NotNull String localPath, long duration) {
+    myState.durations.put(FileUtil.toSystemIndependentName(localPath), duration);
+  }
+
+  public synchronized boolean isFailed(@NotNull String localPath) {
+    return myState.failed.contains(FileUtil.toSystemIndependentName(localPath));
+  }
+
+  public synchronized void setFailed(@NotNull String localPath, boolean failed) {
+    if (failed) {
+      myState.failed.add(FileUtil.toSystemIndependentName(localPath));
+    }
+    else {
+      myState.failed.remove(FileUtil.toSystemIndependentName(localPath));
+    }
+  }
+
+  /**
+   * @return new list with {@code testFiles} failed in the previous run going first, keeping the order otherwise
+   */
+  @NotNull
+  public synchronized List<VirtualFile> sortFailedFirst(@NotNull List<VirtualFile> testFiles) {
+    List<VirtualFile> result = new ArrayList<>(testFiles);
+    result.sort(Comparator.comparing(it -> !myState.failed.contains(it.getPath())));
+    return result;
+  }
+
+  /**
+   * Orders {@code testFiles} for running in parallel: tests without known duration are going first, because they may be long,
+   * the rest are going longest first, so the longest ones are not left for the end of the run
+   *
+   * @return new ordered list
+   */
+  @NotNull
+  public synchronized List<VirtualFile> sortLongestFirst(@NotNull List<VirtualFile> testFiles) {
+    List<VirtualFile> result = new ArrayList<>(testFiles);
+    result.sort(Comparator.comparingLong(it -> {
+      Long duration = myState.durations.get(it.getPath());
+      return duration == null ? Long.MIN_VALUE : -duration;
+    }));
+    return result;
+  }
+
+  @Override
+  public synchronized DurationsState getState() {
+    prune();
+    return myState;
+  }
+
+  /**
+   * Removes data of test files deleted since the run
+   */
+  private void prune() {
+    LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+    myState.durations.keySet().removeIf(it -> fileSystem.findFileByPath(it) == null);
+    myState.failed.removeIf(it -> fileSystem.findFileByPath(it) == null);
+  }
+
+  @Override
+  public synchronized void loadState(@NotNull DurationsState state) {
+    myState = state;
+  }
+
+  @NotNull
+  public static PerlTestDurationsStorage getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, PerlTestDurationsStorage.class);
+  }
+
+  public static class DurationsState {
+    /**
+     * Local test file path to the duration in ms
+     */
+    public Map<String, Long> durations = new HashMap<>();
+    /**
+     * Local paths of test files failed in the last run
+     */
+    public Set<String> failed = new HashSet<>();
+  }
+}
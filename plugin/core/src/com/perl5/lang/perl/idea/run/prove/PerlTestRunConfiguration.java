@@ -27,14 +27,24 @@ import com.intellij.execution.runners.ExecutionEnvironment;
 import com.intellij.execution.testframework.sm.SMTestRunnerConnectionUtil;
 import com.intellij.execution.testframework.sm.runner.ui.SMTRunnerConsoleView;
 import com.intellij.execution.ui.ConsoleView;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.options.SettingsEditor;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.projectRoots.Sdk;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.ThrowableComputable;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
 import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.xmlb.annotations.Tag;
 import com.perl5.PerlBundle;
 import com.perl5.lang.perl.idea.execution.PerlCommandLine;
@@ -45,8 +55,13 @@ import com.perl5.lang.perl.idea.sdk.host.PerlHostData;
 import com.perl5.lang.perl.util.PerlPackageUtil;
 import com.perl5.lang.perl.util.PerlRunUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.CancellablePromise;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -67,9 +82,18 @@ class PerlTestRunConfiguration extends GenericPerlRunConfiguration {
     "-PPassEnv", PROVE_FORMAT_PARAMETER, "TAP::Formatter::Camelcade", "--merge", "--recurse");
   private static final String PROVE_JOBS_SHORT_PREFIX = "-j";
   private static final String PROVE_JOBS_PARAMETER = "--jobs";
+  private static final String PROVE_EXTENSION_PARAMETER = "--ext";
+  private static final String TEST_FILE_EXTENSION = "t";
+  private static final int POLLING_INTERVAL_MS = 50;
+  /**
+   * Maximum total length of test paths passed to prove; Windows limits the whole command line with 32767 characters
+   */
+  private static final int MAX_TESTS_PATHS_LENGTH = SystemInfo.isWindows ? 30_000 : 200_000;
   private static final Logger LOG = Logger.getInstance(PerlTestRunConfiguration.class);
   @Tag("JOBS_NUMBER")
   private int myJobsNumber = DEFAULT_JOBS_NUMBER;
+  @Tag("AFFECTED_TESTS_ONLY")
+  private boolean myAffectedTestsOnly = false;
 
   public PerlTestRunConfiguration(Project project,
                                   @NotNull ConfigurationFactory factory,
@@ -85,6 +109,19 @@ class PerlTestRunConfiguration extends GenericPerlRunConfiguration {
     myJobsNumber = jobsNumber;
   }
 
+  @Override
+  public int getParallelProcessesNumber() {
+    return getJobsNumber();
+  }
+
+  boolean isAffectedTestsOnly() {
+    return myAffectedTestsOnly;
+  }
+
+  void setAffectedTestsOnly(boolean affectedTestsOnly) {
+    myAffectedTestsOnly = affectedTestsOnly;
+  }
+
   @NotNull
   @Override
   public SettingsEditor<? extends RunConfiguration> getConfigurationEditor() {
@@ -120,24 +157,30 @@ class PerlTestRunConfiguration extends GenericPerlRunConfiguration {
 
     PerlHostData<?, ?> perlHostData = PerlHostData.notNullFrom(perlSdk);
 
+    List<String> scriptParameters = getScriptParameters();
     Set<String> proveParameters = new LinkedHashSet<>(PROVE_DEFAULT_PARAMETERS);
-    proveParameters.addAll(getScriptParameters());
+    proveParameters.addAll(scriptParameters);
+    int jobsNumber = perlRunProfileState.isParallelRunAllowed() ? getJobsNumber() : 1;
     proveParameters.add(PROVE_JOBS_PARAMETER);
-    proveParameters.add(Integer.toString(perlRunProfileState.isParallelRunAllowed() ? getJobsNumber() : 1));
+    proveParameters.add(Integer.toString(jobsNumber));
     VirtualFile workingDirectory = computeExplicitWorkingDirectory();
 
-    List<String> testsPaths = new ArrayList<>();
-    for (VirtualFile testVirtualFile : computeTargetFiles()) {
-      if (testVirtualFile == null) {
-        continue;
-      }
-      String virtualFilePath = testVirtualFile.getPath();
-      if (workingDirectory != null && VfsUtil.isAncestor(workingDirectory, testVirtualFile, true)) {
-        testsPaths.add(VfsUtil.getRelativePath(testVirtualFile, workingDirectory));
-      }
-      else {
-        testsPaths.add(perlHostData.getRemotePath(virtualFilePath));
+    List<VirtualFile> targetFiles = computeTargetFiles();
+    Set<String> testExtensions = computeTestExtensions(scriptParameters);
+    List<VirtualFile> testVirtualFiles = targetFiles;
+    if (isAffectedTestsOnly()) {
+      testVirtualFiles = computeAffectedTestFiles(targetFiles, testExtensions, jobsNumber);
+    }
+    else if (jobsNumber > 1) {
+      testVirtualFiles = computeBalancedTestFiles(targetFiles, testExtensions);
+    }
+    List<String> testsPaths = computeTestsPaths(testVirtualFiles, workingDirectory, perlHostData);
+    if (testVirtualFiles != targetFiles && testsPaths.stream().mapToInt(it -> it.length() + 1).sum() > MAX_TESTS_PATHS_LENGTH) {
+      if (isAffectedTestsOnly()) {
+        throw new ExecutionException(PerlBundle.message("perl.run.error.too.many.affected.tests", testsPaths.size()));
       }
+      LOG.info("Too many test files to pass them to prove one by one, passing specified targets as is");
+      testsPaths = computeTestsPaths(targetFiles, workingDirectory, perlHostData);
     }
 
     PerlCommandLine commandLine = new PerlCommandLine(getEffectiveInterpreterPath())
@@ -169,6 +212,183 @@ class PerlTestRunConfiguration extends GenericPerlRunConfiguration {
     return commandLine;
   }
 
+  /**
+   * @return paths of {@code testVirtualFiles} for the prove command line, relative to the {@code workingDirectory} if possible
+   */
+  @NotNull
+  private static List<String> computeTestsPaths(@NotNull List<VirtualFile> testVirtualFiles,
+                                                @Nullable VirtualFile workingDirectory,
+                                                @NotNull PerlHostData<?, ?> perlHostData) {
+    List<String> testsPaths = new ArrayList<>();
+    for (VirtualFile testVirtualFile : testVirtualFiles) {
+      if (testVirtualFile == null) {
+        continue;
+      }
+      String virtualFilePath = testVirtualFile.getPath();
+      if (workingDirectory != null && VfsUtil.isAncestor(workingDirectory, testVirtualFile, true)) {
+        testsPaths.add(VfsUtil.getRelativePath(testVirtualFile, workingDirectory));
+      }
+      else {
+        testsPaths.add(perlHostData.getRemotePath(virtualFilePath));
+      }
+    }
+    return testsPaths;
+  }
+
+  /**
+   * Prove runs tests in the order of arguments, giving a next test to the first free job. So we are expanding directories into
+   * test files and passing them longest first by durations from previous runs, to avoid long tests being started at the end of the run.
+   *
+   * @see PerlTestDurationsStorage
+   */
+  @NotNull
+  private List<VirtualFile> computeBalancedTestFiles(@NotNull List<VirtualFile> targetFiles, @NotNull Set<String> testExtensions)
+    throws ExecutionException {
+    return PerlTestDurationsStorage.getInstance(getProject()).sortLongestFirst(
+      computeUnderProgress(() -> expandTestFiles(targetFiles, testExtensions)));
+  }
+
+  /**
+   * @return extensions of test files, prove is going to pick from directories: specified with {@code --ext} options or default one
+   */
+  @NotNull
+  static Set<String> computeTestExtensions(@NotNull List<String> proveParameters) {
+    Set<String> result = new LinkedHashSet<>();
+    for (Iterator<String> iterator = proveParameters.iterator(); iterator.hasNext(); ) {
+      String parameter = iterator.next();
+      String extension = null;
+      if (PROVE_EXTENSION_PARAMETER.equals(parameter)) {
+        extension = iterator.hasNext() ? iterator.next() : null;
+      }
+      else if (parameter.startsWith(PROVE_EXTENSION_PARAMETER + "=")) {
+        extension = parameter.substring(PROVE_EXTENSION_PARAMETER.length() + 1);
+      }
+      extension = StringUtil.trimStart(StringUtil.notNullize(extension), ".");
+      if (!extension.isEmpty()) {
+        result.add(extension);
+      }
+    }
+    if (result.isEmpty()) {
+      result.add(TEST_FILE_EXTENSION);
+    }
+    return result;
+  }
+
+  /**
+   * Runs {@code computable} with modal progress if invoked from EDT, test directories may be large
+   *
+   * @throws ExecutionException if computation has been cancelled
+   */
+  private <T> T computeUnderProgress(@NotNull ThrowableComputable<T, ExecutionException> computable) throws ExecutionException {
+    try {
+      if (!ApplicationManager.getApplication().isDispatchThread()) {
+        return computable.compute();
+      }
+      return ProgressManager.getInstance().runProcessWithProgressSynchronously(
+        computable, PerlBundle.message("perl.run.prove.collecting.tests"), true, getProject());
+    }
+    catch (ProcessCanceledException e) {
+      throw new ExecutionException(PerlBundle.message("perl.run.error.tests.collecting.cancelled"));
+    }
+  }
+
+  /**
+   * @return tests from {@code targetFiles}, affected by the changed files or failed in the previous run. Failed tests are going first.
+   * @throws ExecutionException if there are no such tests
+   * @see PerlAffectedTestsFinder
+   */
+  @NotNull
+  private List<VirtualFile> computeAffectedTestFiles(@NotNull List<VirtualFile> targetFiles,
+                                                     @NotNull Set<String> testExtensions,
+                                                     int jobsNumber) throws ExecutionException {
+    Project project = getProject();
+    List<VirtualFile> testFiles = computeUnderProgress(() -> expandTestFiles(targetFiles, testExtensions));
+    Set<VirtualFile> testFilesSet = new HashSet<>(testFiles);
+    Collection<VirtualFile> changedFiles = ChangeListManager.getInstance(project).getAffectedFiles();
+    Set<VirtualFile> affectedTests = DumbService.isDumb(project) ? null : computeUnderProgress(
+      () -> findAffectedTests(project, changedFiles, testFilesSet));
+    if (affectedTests == null) {
+      LOG.info("Indexes are not ready, running all tests");
+      affectedTests = testFilesSet;
+    }
+
+    PerlTestDurationsStorage storage = PerlTestDurationsStorage.getInstance(project);
+    List<VirtualFile> result = new ArrayList<>();
+    for (VirtualFile testFile : testFiles) {
+      if (affectedTests.contains(testFile) || storage.isFailed(testFile.getPath())) {
+        result.add(testFile);
+      }
+    }
+    if (result.isEmpty()) {
+      throw new ExecutionException(PerlBundle.message("perl.run.error.no.affected.tests"));
+    }
+    if (jobsNumber > 1) {
+      result = storage.sortLongestFirst(result);
+    }
+    return storage.sortFailedFirst(result);
+  }
+
+  /**
+   * Searches for affected tests in the non-blocking read action, restarted on write actions and waiting for indexes if needed.
+   *
+   * @return tests from {@code testFiles} affected by {@code changedFiles} or null if search has been aborted
+   */
+  @Nullable
+  private static Set<VirtualFile> findAffectedTests(@NotNull Project project,
+                                                    @NotNull Collection<VirtualFile> changedFiles,
+                                                    @NotNull Set<VirtualFile> testFiles) throws ExecutionException {
+    CancellablePromise<Set<VirtualFile>> promise = ReadAction
+      .nonBlocking(() -> new PerlAffectedTestsFinder(project).findAffectedTests(changedFiles, testFiles::contains))
+      .inSmartMode(project)
+      .expireWith(project)
+      .submit(AppExecutorUtil.getAppExecutorService());
+    try {
+      while (true) {
+        ProgressManager.checkCanceled();
+        try {
+          return promise.blockingGet(POLLING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException ignore) {
+        }
+      }
+    }
+    catch (ProcessCanceledException e) {
+      promise.cancel();
+      throw e;
+    }
+    catch (CancellationException e) {
+      return null;
+    }
+    catch (java.util.concurrent.ExecutionException e) {
+      throw new ExecutionException(e.getCause());
+    }
+  }
+
+  /**
+   * @return {@code targetFiles} with directories replaced by test files from them, having one of the {@code testExtensions}
+   */
+  @NotNull
+  private static List<VirtualFile> expandTestFiles(@NotNull List<VirtualFile> targetFiles, @NotNull Set<String> testExtensions) {
+    Set<VirtualFile> testFiles = new LinkedHashSet<>();
+    for (VirtualFile targetFile : targetFiles) {
+      if (targetFile == null) {
+        continue;
+      }
+      if (!targetFile.isDirectory()) {
+        testFiles.add(targetFile);
+        continue;
+      }
+      VfsUtilCore.iterateChildrenRecursively(targetFile, null, it -> {
+        ProgressManager.checkCanceled();
+        if (!it.isDirectory() && testExtensions.contains(it.getExtension())) {
+          testFiles.add(it);
+        }
+        return true;
+      });
+    }
+    return new ArrayList<>(testFiles);
+  }
+
   @NotNull
   @Override
   protected List<String> getScriptParameters() {
@@ -217,6 +437,8 @@ class PerlTestRunConfiguration extends GenericPerlRunConfiguration {
   protected ProcessHandler doPatchProcessHandler(@NotNull ProcessHandler processHandler, @NotNull PerlRunProfileState runProfileState) {
     try {
       Sdk effectiveSdk = getEffectiveSdk();
+      processHandler.addProcessListener(
+        new PerlTestDurationsCollector(PerlTestDurationsStorage.getInstance(getProject()), PerlHostData.notNullFrom(effectiveSdk)));
       processHandler.addProcessListener(new ProcessAdapter() {
         @Override
         public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
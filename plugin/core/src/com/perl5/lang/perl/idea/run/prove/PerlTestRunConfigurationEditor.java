@@ -24,6 +24,7 @@ import com.intellij.openapi.ui.LabeledComponent;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.components.JBCheckBox;
 import com.intellij.ui.components.fields.ExpandableTextField;
 import com.intellij.util.containers.ContainerUtil;
 import com.perl5.PerlBundle;
@@ -55,6 +56,7 @@ class PerlTestRunConfigurationEditor extends GenericPerlRunConfigurationEditor<P
   private class ParametersPanel extends GenericPerlRunConfigurationEditorPanel<PerlTestRunConfiguration> {
     private JComboBox<Integer> myJobsCombobox;
     private LabeledComponent<JComboBox<Integer>> myLabeledJobsCombobox;
+    private LabeledComponent<JBCheckBox> myLabeledAffectedTestsCheckbox;
 
     public ParametersPanel(@NotNull Project project) {
       super(project);
@@ -78,12 +80,18 @@ class PerlTestRunConfigurationEditor extends GenericPerlRunConfigurationEditor<P
       myJobsCombobox = new JComboBox<>(jobs.toArray(new Integer[0]));
       myLabeledJobsCombobox = LabeledComponent.create(myJobsCombobox, "Parallel jobs number:");
       myLabeledJobsCombobox.setLabelLocation(BorderLayout.WEST);
+
+      myLabeledAffectedTestsCheckbox = LabeledComponent.create(
+        new JBCheckBox(PerlBundle.message("perl.run.prove.option.affected.tests.checkbox")),
+        PerlBundle.message("perl.run.prove.option.affected.tests.label"));
+      myLabeledAffectedTestsCheckbox.setLabelLocation(BorderLayout.WEST);
     }
 
     @Override
     protected void reset(PerlTestRunConfiguration runConfiguration) {
       super.reset(runConfiguration);
       myJobsCombobox.setSelectedItem(Integer.valueOf(runConfiguration.getJobsNumber()));
+      myLabeledAffectedTestsCheckbox.getComponent().setSelected(runConfiguration.isAffectedTestsOnly());
     }
 
     @Override
@@ -91,6 +99,7 @@ class PerlTestRunConfigurationEditor extends GenericPerlRunConfigurationEditor<P
       super.applyTo(runConfiguration);
       Object item = myJobsCombobox.getSelectedItem();
       runConfiguration.setJobsNumber(item instanceof Integer ? ((Integer)item).intValue() : PerlTestRunConfiguration.DEFAULT_JOBS_NUMBER);
+      runConfiguration.setAffectedTestsOnly(myLabeledAffectedTestsCheckbox.getComponent().isSelected());
     }
 
     @NotNull
@@ -98,6 +107,7 @@ class PerlTestRunConfigurationEditor extends GenericPerlRunConfigurationEditor<P
     protected List<LabeledComponent<?>> getLabeledComponents() {
       List<LabeledComponent<?>> parentComponents = new ArrayList<>(super.getLabeledComponents());
       parentComponents.add(myLabeledJobsCombobox);
+      parentComponents.add(myLabeledAffectedTestsCheckbox);
       return parentComponents;
     }
 
@@ -95,17 +95,25 @@ public class PerlSdkType extends SdkType {
     List<Exception> exceptions = new ArrayList<>();
 
     try (PerlHostFileTransfer fileTransfer = hostData.getFileTransfer()) {
-      Consumer<File> downloader = it -> syncAndCollectException(fileTransfer, it, pathsToRefresh, exceptions);
+      List<File> filesToSync = new ArrayList<>();
       for (String hostPath : incPaths) {
-        downloader.accept(new File(hostPath));
-        downloader.accept(PerlRunUtil.findLibsBin(new File(hostPath)));
+        filesToSync.add(new File(hostPath));
+        ContainerUtil.addIfNotNull(filesToSync, PerlRunUtil.findLibsBin(new File(hostPath)));
       }
       // additional bin dirs from version manager
-      PerlVersionManagerData.notNullFrom(sdk).getBinDirsPath().forEach(downloader);
+      filesToSync.addAll(PerlVersionManagerData.notNullFrom(sdk).getBinDirsPath());
 
       // sdk home path
       File interpreterPath = new File(Objects.requireNonNull(PerlProjectManager.getInterpreterPath(sdk)));
-      downloader.accept(interpreterPath.getParentFile());
+      ContainerUtil.addIfNotNull(filesToSync, interpreterPath.getParentFile());
+
+      try {
+        fileTransfer.syncFiles(filesToSync).forEach(it -> pathsToRefresh.add(it.getPath()));
+      }
+      catch (IOException e) {
+        LOG.warn("Batch syncing failed for " + sdk + ", syncing paths one by one", e);
+        filesToSync.forEach(it -> syncAndCollectException(fileTransfer, it, pathsToRefresh, exceptions));
+      }
 
       List<VirtualFile> filesToRefresh = pathsToRefresh.stream()
         .map(it -> VfsUtil.findFileByIoFile(new File(it), true))
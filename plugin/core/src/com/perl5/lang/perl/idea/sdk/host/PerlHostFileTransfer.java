@@ -19,6 +19,8 @@ package com.perl5.lang.perl.idea.sdk.host;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.containers.ContainerUtil;
 import com.perl5.PerlBundle;
 import com.perl5.lang.perl.util.PerlPluginUtil;
 import com.perl5.lang.perl.util.PerlRunUtil;
@@ -29,6 +31,10 @@ import org.jetbrains.annotations.Nullable;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public abstract class PerlHostFileTransfer<HostData extends PerlHostData<?, ?>> implements Closeable {
   private static final Logger LOG = Logger.getInstance(PerlHostFileTransfer.class);
@@ -78,6 +84,41 @@ public abstract class PerlHostFileTransfer<HostData extends PerlHostData<?, ?>>
     return localPath;
   }
 
+  /**
+   * Downloads {@code remoteFiles} to the local cache, at once if host supports batch transfer
+   *
+   * @return local files, corresponding to the {@code remoteFiles}
+   */
+  @NotNull
+  public final List<File> syncFiles(@NotNull List<File> remoteFiles) throws IOException {
+    if (ApplicationManager.getApplication().isDispatchThread()) {
+      throw new RuntimeException("Should not be invoked from EDT");
+    }
+    Map<String, String> pathsMap = new LinkedHashMap<>();
+    for (File remoteFile : remoteFiles) {
+      String remotePath = FileUtil.toSystemIndependentName(remoteFile.getPath());
+      String localPath = myHostData.getLocalPath(remotePath);
+      if (localPath == null) {
+        throw new RuntimeException("Unable to compute local path for " + remotePath);
+      }
+      pathsMap.put(remotePath, localPath);
+    }
+    if (pathsMap.isEmpty()) {
+      return Collections.emptyList();
+    }
+    String remotePaths = StringUtil.join(pathsMap.keySet(), ", ");
+    PerlRunUtil.setProgressText(PerlBundle.message("perl.host.progress.syncing", remotePaths));
+    try {
+      LOG.info("Syncing " + myHostData + ": " + remotePaths);
+      doSyncPaths(pathsMap);
+    }
+    catch (IOException e) {
+      throw new IOException(
+        PerlBundle.message("perl.sync.error.copying", remotePaths, myHostData.getLocalCacheRoot(), myHostData.getShortName()), e);
+    }
+    return ContainerUtil.map(pathsMap.values(), File::new);
+  }
+
   /**
    * Synchronizes local helpers from {@link PerlPluginUtil#getPluginHelpersRoot() helpers root} with remote machine
    */
@@ -96,6 +137,18 @@ public abstract class PerlHostFileTransfer<HostData extends PerlHostData<?, ?>>
    */
   protected abstract void doSyncPath(@NotNull String remotePath, String localPath) throws IOException;
 
+  /**
+   * synchronizes remote paths from {@code remoteToLocalPaths} keys with local paths from values. Default implementation syncs them one by
+   * one, hosts with a cheaper batch transfer should override it.
+   *
+   * @implNote always invoked on pooled thread
+   */
+  protected void doSyncPaths(@NotNull Map<String, String> remoteToLocalPaths) throws IOException {
+    for (Map.Entry<String, String> entry : remoteToLocalPaths.entrySet()) {
+      doSyncPath(entry.getKey(), entry.getValue());
+    }
+  }
+
 
   /**
    * Uploads local helpers to the remote machine
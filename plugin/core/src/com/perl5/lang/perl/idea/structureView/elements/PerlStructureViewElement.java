@@ -23,19 +23,23 @@ import com.intellij.lang.Language;
 import com.intellij.navigation.ItemPresentation;
 import com.intellij.navigation.NavigationItem;
 import com.intellij.openapi.editor.colors.CodeInsightColors;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.FileViewProvider;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiNamedElement;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.containers.ContainerUtil;
 import com.perl5.lang.perl.PerlLanguage;
 import com.perl5.lang.perl.extensions.packageprocessor.PerlExportDescriptor;
 import com.perl5.lang.perl.idea.highlighter.PerlSyntaxHighlighter;
 import com.perl5.lang.perl.idea.presentations.PerlItemPresentationBase;
 import com.perl5.lang.perl.idea.presentations.PerlItemPresentationSimple;
-import com.perl5.lang.perl.parser.constant.psi.light.PerlLightConstantDefinitionElement;
 import com.perl5.lang.perl.psi.*;
 import com.perl5.lang.perl.psi.mro.PerlMro;
 import com.perl5.lang.perl.psi.properties.PerlIdentifierOwner;
@@ -150,8 +154,6 @@ public abstract class PerlStructureViewElement extends PsiTreeElementBase<PsiEle
 
     List<StructureViewTreeElement> result = new ArrayList<>();
 
-    Set<String> implementedMethods = new HashSet<>();
-
     if (psiElement instanceof PerlFile) {
       FileViewProvider viewProvider = ((PerlFile)psiElement).getViewProvider();
       PsiFile podFile = viewProvider.getPsi(PodLanguage.INSTANCE);
@@ -159,6 +161,44 @@ public abstract class PerlStructureViewElement extends PsiTreeElementBase<PsiEle
         result.add(new PodStructureViewElement(podFile));
       }
 
+      for (PerlNamespaceDefinitionElement namespaceDefinition : getNamespaceDefinitions((PerlFile)psiElement)) {
+        result.add(new PerlNamespaceStructureViewElement(namespaceDefinition));
+      }
+    }
+
+    if (psiElement instanceof PerlNamespaceDefinitionElement) {
+      PerlNamespaceDefinitionElement namespaceDefinition = (PerlNamespaceDefinitionElement)psiElement;
+      LocalChildren localChildren = getLocalChildren(namespaceDefinition);
+      addTreeElements(result, localChildren.myVariables);
+      addTreeElements(result, getImportedChildren(namespaceDefinition));
+      addTreeElements(result, localChildren.myMembers);
+
+      // inherited elements
+      if (psiElement instanceof PerlNamespaceDefinitionWithIdentifier) {
+        List<StructureViewTreeElement> inheritedResult = new ArrayList<>();
+        addTreeElements(inheritedResult, getInheritedChildren(namespaceDefinition));
+        result.addAll(0, inheritedResult);
+      }
+    }
+
+    return result;
+  }
+
+  private static void addTreeElements(@NotNull List<StructureViewTreeElement> result, @NotNull List<ChildInfo> children) {
+    for (ChildInfo child : children) {
+      ProgressManager.checkCanceled();
+      ContainerUtil.addIfNotNull(result, child.createTreeElement());
+    }
+  }
+
+  /**
+   * @return namespaces defined in the {@code perlFile}, cached until file modification
+   */
+  @NotNull
+  private static List<PerlNamespaceDefinitionElement> getNamespaceDefinitions(@NotNull PerlFile perlFile) {
+    return CachedValuesManager.getCachedValue(perlFile, () -> {
+      List<PerlNamespaceDefinitionElement> result = new ArrayList<>();
+      FileViewProvider viewProvider = perlFile.getViewProvider();
       Language targetLanguage = null;
       for (Language language : viewProvider.getLanguages()) {
         if (language == PerlLanguage.INSTANCE) {
@@ -174,7 +214,8 @@ public abstract class PerlStructureViewElement extends PsiTreeElementBase<PsiEle
         viewProvider.getPsi(targetLanguage).accept(new PerlRecursiveVisitor() {
           @Override
           public void visitNamespaceDefinitionElement(@NotNull PerlNamespaceDefinitionElement o) {
-            result.add(new PerlNamespaceStructureViewElement(o));
+            ProgressManager.checkCanceled();
+            result.add(o);
             super.visitNamespaceDefinitionElement(o);
           }
 
@@ -184,83 +225,120 @@ public abstract class PerlStructureViewElement extends PsiTreeElementBase<PsiEle
           }
         });
       }
-    }
-    if (psiElement instanceof PerlNamespaceDefinitionElement) {
+      return CachedValueProvider.Result.create(result, perlFile);
+    });
+  }
+
+  /**
+   * @return global variables, subs and globs defined in the {@code namespaceDefinition}, cached until file modification
+   */
+  @NotNull
+  private static LocalChildren getLocalChildren(@NotNull PerlNamespaceDefinitionElement namespaceDefinition) {
+    return CachedValuesManager.getCachedValue(namespaceDefinition, () -> {
+      LocalChildren result = new LocalChildren();
       // global variables
-      for (PerlVariableDeclarationElement child : PsiTreeUtil.findChildrenOfType(psiElement, PerlVariableDeclarationElement.class)) {
-        if (child.isGlobalDeclaration() && psiElement.isEquivalentTo(PerlPackageUtil.getNamespaceContainerForElement(child))) {
-          result.add(new PerlVariableDeclarationStructureViewElement(child));
+      for (PerlVariableDeclarationElement child : PsiTreeUtil.findChildrenOfType(namespaceDefinition, PerlVariableDeclarationElement.class)) {
+        ProgressManager.checkCanceled();
+        if (child.isGlobalDeclaration() && namespaceDefinition.isEquivalentTo(PerlPackageUtil.getNamespaceContainerForElement(child))) {
+          result.myVariables.add(new ChildInfo(child));
         }
       }
 
-      Project project = psiElement.getProject();
+      namespaceDefinition.accept(new PerlRecursiveVisitor() {
+        @Override
+        public void visitPerlSubDefinitionElement(@NotNull PerlSubDefinitionElement child) {
+          ProgressManager.checkCanceled();
+          if (namespaceDefinition.isEquivalentTo(PerlPackageUtil.getNamespaceContainerForElement(child))) {
+            result.myImplementedNames.add(child.getName());
+            result.myMembers.add(new ChildInfo(child));
+          }
+          super.visitPerlSubDefinitionElement(child);
+        }
+
+        @Override
+        public void visitSubDeclarationElement(@NotNull PerlSubDeclarationElement child) {
+          ProgressManager.checkCanceled();
+          if (namespaceDefinition.isEquivalentTo(PerlPackageUtil.getNamespaceContainerForElement(child))) {
+            result.myMembers.add(new ChildInfo(child));
+          }
+          super.visitSubDeclarationElement(child);
+        }
+
+        @Override
+        protected boolean shouldVisitLightElements() {
+          return true;
+        }
+
+        @Override
+        public void visitGlobVariable(@NotNull PsiPerlGlobVariable child) {
+          ProgressManager.checkCanceled();
+          if (child.isLeftSideOfAssignment() && namespaceDefinition.isEquivalentTo(PerlPackageUtil.getNamespaceContainerForElement(child))) {
+            result.myImplementedNames.add(child.getName());
+            result.myMembers.add(new ChildInfo(child));
+          }
+          super.visitGlobVariable(child);
+        }
+      });
+      return CachedValueProvider.Result.create(result, namespaceDefinition.getContainingFile());
+    });
+  }
+
+  /**
+   * @return variables, subs and globs imported into the {@code namespaceDefinition}, cached until any psi modification, because
+   * they are resolved with indexes
+   */
+  @NotNull
+  private static List<ChildInfo> getImportedChildren(@NotNull PerlNamespaceDefinitionElement namespaceDefinition) {
+    return CachedValuesManager.getCachedValue(namespaceDefinition, () -> {
+      List<ChildInfo> result = new ArrayList<>();
+      Project project = namespaceDefinition.getProject();
       GlobalSearchScope projectScope = GlobalSearchScope.projectScope(project);
 
       // imported scalars
-      for (PerlExportDescriptor exportDescritptor : ((PerlNamespaceDefinitionElement)psiElement).getImportedScalarDescriptors()) {
+      for (PerlExportDescriptor exportDescritptor : namespaceDefinition.getImportedScalarDescriptors()) {
+        ProgressManager.checkCanceled();
         String canonicalName = exportDescritptor.getTargetCanonicalName();
 
         Collection<PerlVariableDeclarationElement> variables = PerlScalarUtil.getGlobalScalarDefinitions(project, canonicalName);
 
         for (PerlVariableDeclarationElement variable : variables) {
-          result.add(new PerlVariableDeclarationStructureViewElement(variable).setImported(exportDescritptor));
+          result.add(new ChildInfo(variable, exportDescritptor));
         }
 
-        // globs
-        Collection<PsiPerlGlobVariable> items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName, projectScope);
-        if (items.isEmpty()) {
-          items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName);
-        }
-
-        for (PerlGlobVariable item : items) {
-          result.add(new PerlGlobStructureViewElement(item).setImported(exportDescritptor));
-        }
+        addImportedGlobs(result, project, projectScope, exportDescritptor);
       }
 
       // imported arrays
-      for (PerlExportDescriptor exportDescritptor : ((PerlNamespaceDefinitionElement)psiElement).getImportedArrayDescriptors()) {
+      for (PerlExportDescriptor exportDescritptor : namespaceDefinition.getImportedArrayDescriptors()) {
+        ProgressManager.checkCanceled();
         String canonicalName = exportDescritptor.getTargetCanonicalName();
 
         Collection<PerlVariableDeclarationElement> variables = PerlArrayUtil.getGlobalArrayDefinitions(project, canonicalName);
 
         for (PerlVariableDeclarationElement variable : variables) {
-          result.add(new PerlVariableDeclarationStructureViewElement(variable).setImported(exportDescritptor));
-        }
-
-        // globs
-        Collection<PsiPerlGlobVariable> items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName, projectScope);
-        if (items.isEmpty()) {
-          items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName);
+          result.add(new ChildInfo(variable, exportDescritptor));
         }
 
-        for (PerlGlobVariable item : items) {
-          result.add(new PerlGlobStructureViewElement(item).setImported(exportDescritptor));
-        }
+        addImportedGlobs(result, project, projectScope, exportDescritptor);
       }
 
       // imported hashes
-      for (PerlExportDescriptor exportDescritptor : ((PerlNamespaceDefinitionElement)psiElement).getImportedHashDescriptors()) {
+      for (PerlExportDescriptor exportDescritptor : namespaceDefinition.getImportedHashDescriptors()) {
+        ProgressManager.checkCanceled();
         String canonicalName = exportDescritptor.getTargetCanonicalName();
 
         Collection<PerlVariableDeclarationElement> variables = PerlHashUtil.getGlobalHashDefinitions(project, canonicalName);
 
         for (PerlVariableDeclarationElement variable : variables) {
-          result.add(new PerlVariableDeclarationStructureViewElement(variable).setImported(exportDescritptor));
-        }
-
-        // globs
-        Collection<PsiPerlGlobVariable> items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName, projectScope);
-        if (items.isEmpty()) {
-          items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName);
+          result.add(new ChildInfo(variable, exportDescritptor));
         }
 
-        for (PerlGlobVariable item : items) {
-          result.add(new PerlGlobStructureViewElement(item).setImported(exportDescritptor));
-        }
+        addImportedGlobs(result, project, projectScope, exportDescritptor);
       }
 
       // Imported subs
-      for (PerlExportDescriptor exportDescritptor : ((PerlNamespaceDefinitionElement)psiElement).getImportedSubsDescriptors()) {
+      for (PerlExportDescriptor exportDescritptor : namespaceDefinition.getImportedSubsDescriptors()) {
+        ProgressManager.checkCanceled();
         String canonicalName = exportDescritptor.getTargetCanonicalName();
 
         // declarations
@@ -270,7 +348,7 @@ public abstract class PerlStructureViewElement extends PsiTreeElementBase<PsiEle
         }
 
         for (PerlSubDeclarationElement item : subDeclarations) {
-          result.add(new PerlSubStructureViewElement(item).setImported(exportDescritptor));
+          result.add(new ChildInfo(item, exportDescritptor));
         }
 
         // definitions
@@ -280,87 +358,117 @@ public abstract class PerlStructureViewElement extends PsiTreeElementBase<PsiEle
         }
 
         for (PerlSubDefinitionElement item : subDefinitions) {
-          result.add(new PerlSubStructureViewElement(item).setImported(exportDescritptor));
-        }
-
-        // globs
-        Collection<PsiPerlGlobVariable> items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName, projectScope);
-        if (items.isEmpty()) {
-          items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName);
+          result.add(new ChildInfo(item, exportDescritptor));
         }
 
-        for (PerlGlobVariable item : items) {
-          result.add(new PerlGlobStructureViewElement(item).setImported(exportDescritptor));
-        }
+        addImportedGlobs(result, project, projectScope, exportDescritptor);
       }
+      return CachedValueProvider.Result.create(result, PsiModificationTracker.MODIFICATION_COUNT);
+    });
+  }
 
-      psiElement.accept(new PerlRecursiveVisitor() {
-        @Override
-        public void visitPerlSubDefinitionElement(@NotNull PerlSubDefinitionElement child) {
-          if (psiElement.isEquivalentTo(PerlPackageUtil.getNamespaceContainerForElement(child))) {
-            implementedMethods.add(child.getName());
-
-            result.add(new PerlSubStructureViewElement(child));
-          }
-          super.visitPerlSubDefinitionElement(child);
-        }
-
-        @Override
-        public void visitSubDeclarationElement(@NotNull PerlSubDeclarationElement child) {
-          if (psiElement.isEquivalentTo(PerlPackageUtil.getNamespaceContainerForElement(child))) {
-            result.add(new PerlSubStructureViewElement(child));
-          }
-          super.visitSubDeclarationElement(child);
-        }
-
-        @Override
-        protected boolean shouldVisitLightElements() {
-          return true;
-        }
-
-        @Override
-        public void visitGlobVariable(@NotNull PsiPerlGlobVariable child) {
-          if (child.isLeftSideOfAssignment() && psiElement.isEquivalentTo(PerlPackageUtil.getNamespaceContainerForElement(child))) {
-            implementedMethods.add(child.getName());
-            result.add(new PerlGlobStructureViewElement(child));
-          }
-          super.visitGlobVariable(child);
-        }
-      });
+  private static void addImportedGlobs(@NotNull List<ChildInfo> result,
+                                       @NotNull Project project,
+                                       @NotNull GlobalSearchScope projectScope,
+                                       @NotNull PerlExportDescriptor exportDescritptor) {
+    String canonicalName = exportDescritptor.getTargetCanonicalName();
+    Collection<PsiPerlGlobVariable> items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName, projectScope);
+    if (items.isEmpty()) {
+      items = PerlGlobUtil.getGlobsDefinitions(project, canonicalName);
     }
 
-    // inherited elements
-    if (psiElement instanceof PerlNamespaceDefinitionWithIdentifier) {
-      List<StructureViewTreeElement> inheritedResult = new ArrayList<>();
+    for (PerlGlobVariable item : items) {
+      result.add(new ChildInfo(item, exportDescritptor));
+    }
+  }
 
-      String packageName = ((PerlNamespaceDefinitionElement)psiElement).getNamespaceName();
+  /**
+   * @return subs and globs inherited by the {@code namespaceDefinition} and not implemented in it, cached until any psi modification,
+   * because they are resolved with indexes
+   */
+  @NotNull
+  private static List<ChildInfo> getInheritedChildren(@NotNull PerlNamespaceDefinitionElement namespaceDefinition) {
+    return CachedValuesManager.getCachedValue(namespaceDefinition, () -> {
+      List<ChildInfo> result = new ArrayList<>();
+      String packageName = namespaceDefinition.getNamespaceName();
 
       if (packageName != null) {
-        for (PsiElement element : PerlMro.getVariants(psiElement, packageName, true)) {
-          if (element instanceof PerlIdentifierOwner && !implementedMethods.contains(((PerlIdentifierOwner)element).getName())) {
-            if (element instanceof PerlLightConstantDefinitionElement) {
-              inheritedResult.add(new PerlSubStructureViewElement((PerlSubDefinitionElement)element).setInherited());
-            }
-            else if (element instanceof PerlSubDefinitionElement) {
-              inheritedResult.add(new PerlSubStructureViewElement((PerlSubDefinitionElement)element).setInherited());
-            }
-            else if (element instanceof PerlSubDeclarationElement) {
-              inheritedResult.add(new PerlSubStructureViewElement((PerlSubDeclarationElement)element).setInherited());
+        Set<String> implementedNames = getLocalChildren(namespaceDefinition).myImplementedNames;
+        for (PsiElement element : PerlMro.getVariants(namespaceDefinition, packageName, true)) {
+          ProgressManager.checkCanceled();
+          if (element instanceof PerlIdentifierOwner && !implementedNames.contains(((PerlIdentifierOwner)element).getName())) {
+            if (element instanceof PerlSubDefinitionElement || element instanceof PerlSubDeclarationElement) {
+              result.add(new ChildInfo(element).setInherited());
             }
             else if (element instanceof PerlGlobVariable &&
                      ((PerlGlobVariable)element).isLeftSideOfAssignment() &&
                      ((PerlGlobVariable)element).getName() != null) {
-              inheritedResult.add(new PerlGlobStructureViewElement((PerlGlobVariable)element).setInherited());
+              result.add(new ChildInfo(element).setInherited());
             }
           }
         }
       }
+      return CachedValueProvider.Result.create(result, PsiModificationTracker.MODIFICATION_COUNT);
+    });
+  }
 
-      if (!inheritedResult.isEmpty()) {
-        result.addAll(0, inheritedResult);
-      }
+  private static final class LocalChildren {
+    private final List<ChildInfo> myVariables = new ArrayList<>();
+    private final List<ChildInfo> myMembers = new ArrayList<>();
+    private final Set<String> myImplementedNames = new HashSet<>();
+  }
+
+  /**
+   * Cached information about child element. Tree elements are created for each request, because they are mutable and bound to the
+   * particular structure view
+   */
+  private static final class ChildInfo {
+    @NotNull
+    private final PsiElement myElement;
+    @Nullable
+    private final PerlExportDescriptor myExportDescriptor;
+    private boolean myIsInherited;
+
+    ChildInfo(@NotNull PsiElement element) {
+      this(element, null);
     }
 
-    return result;
+    ChildInfo(@NotNull PsiElement element, @Nullable PerlExportDescriptor exportDescriptor) {
+      myElement = element;
+      myExportDescriptor = exportDescriptor;
+    }
+
+    @NotNull
+    ChildInfo setInherited() {
+      myIsInherited = true;
+      return this;
+    }
+
+    @Nullable
+    PerlStructureViewElement createTreeElement() {
+      if (!myElement.isValid()) {
+        return null;
+      }
+      PerlStructureViewElement result;
+      if (myElement instanceof PerlVariableDeclarationElement) {
+        result = new PerlVariableDeclarationStructureViewElement((PerlVariableDeclarationElement)myElement);
+      }
+      else if (myElement instanceof PerlSubDefinitionElement) {
+        result = new PerlSubStructureViewElement((PerlSubDefinitionElement)myElement);
+      }
+      else if (myElement instanceof PerlSubDeclarationElement) {
+        result = new PerlSubStructureViewElement((PerlSubDeclarationElement)myElement);
+      }
+      else if (myElement instanceof PerlGlobVariable) {
+        result = new PerlGlobStructureViewElement((PerlGlobVariable)myElement);
+      }
+      else {
+        return null;
+      }
+      if (myExportDescriptor != null) {
+        result.setImported(myExportDescriptor);
+      }
+      return myIsInherited ? result.setInherited() : result;
+    }
   }
 }
@@ -53,6 +53,10 @@ public abstract class PerlBaseLexer extends PerlProtoLexer implements PerlElemen
   public static final String STRING_UNDEF = "undef";
 
   private static final Pattern USE_TRYCATCH_PATTERN = Pattern.compile("use\\s+TryCatch");
+  /**
+   * Flag, added by {@link #getRestartableState()} to the lexical state if lexer has a state not representable with a lexical one
+   */
+  public static final int HIDDEN_STATE_FLAG = 0x10000;
   private Boolean myHasTryCatch = null;
 
   public static final Map<IElementType, String> ALLOWED_REGEXP_MODIFIERS = new THashMap<>();
@@ -170,6 +174,17 @@ public abstract class PerlBaseLexer extends PerlProtoLexer implements PerlElemen
            myParensStack.isEmpty();
   }
 
+  /**
+   * @return current lexical state, if lexing may be restarted from it, e.g. by the editor highlighter after a change. If lexer has
+   * pending heredocs, non-empty braces or states stacks, preparsed tokens or waits for a format, lexical state is returned with
+   * {@link #HIDDEN_STATE_FLAG}, so such position is never equal to the initial state and never used as a restart point.
+   * Restarting with flagged state starts lexer in the corresponding lexical state.
+   */
+  public int getRestartableState() {
+    int lexicalState = yystate();
+    return isInitialState() ? lexicalState : lexicalState | HIDDEN_STATE_FLAG;
+  }
+
   /**
    * We've met any sigil
    */
@@ -411,6 +426,11 @@ public abstract class PerlBaseLexer extends PerlProtoLexer implements PerlElemen
     });
     myLocalPackages.clear();
 
+    int initialState = yystate();
+    if (initialState > 0 && (initialState & HIDDEN_STATE_FLAG) != 0) {
+      yybegin(initialState & ~HIDDEN_STATE_FLAG);
+    }
+
     /**
      * This is a hack for {@link com.perl5.lang.perl.parser.elementTypes.PerlLazyCodeBlockElementTypeWithTryCatch}
      */
@@ -499,7 +519,7 @@ public abstract class PerlBaseLexer extends PerlProtoLexer implements PerlElemen
         else if (StringUtil.equals(canonicalName, "UNIVERSAL::can")) {
           tokenType = QUALIFYING_PACKAGE;
         }
-        else if (myImplicitSubsService.getSub(canonicalName) != null) {
+        else if (myImplicitSubsService.hasSub(canonicalName)) {
           tokenType = QUALIFYING_PACKAGE;
         }
         else if (mySubNamesProvider.getValue().contains(canonicalName)) {
@@ -31,7 +31,7 @@ import java.util.List;
 public abstract class PerlProtoLexer implements FlexLexer {
   protected final LinkedList<CustomToken> preparsedTokensList = new LinkedList<>();
   protected final IntStack stateStack = new IntStack();
-  protected final PerlTokenHistory myTokenHistory = new PerlTokenHistory();
+  protected final PerlTokenHistory myTokenHistory = new PerlTokenHistory(this);
 
   public abstract void setTokenStart(int position);
 
@@ -77,7 +77,7 @@ public abstract class PerlProtoLexer implements FlexLexer {
     }
 
     if (tokenType != null) {
-      registerToken(tokenType, yytext());
+      registerToken(tokenType, getTokenStart(), getTokenEnd());
     }
 
     return tokenType;
@@ -123,8 +123,8 @@ public abstract class PerlProtoLexer implements FlexLexer {
     yybegin(stateStack.pop());
   }
 
-  public void registerToken(IElementType tokenType, CharSequence tokenText) {
-    getTokenHistory().addToken(tokenType, tokenText);
+  public void registerToken(IElementType tokenType, int tokenStart, int tokenEnd) {
+    getTokenHistory().addToken(tokenType, tokenStart, tokenEnd);
   }
 
   public PerlTokenHistory getTokenHistory() {
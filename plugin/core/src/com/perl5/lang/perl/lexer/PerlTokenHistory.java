@@ -21,154 +21,162 @@ import com.perl5.lang.perl.PerlParserDefinition;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
+/**
+ * Lookbehind for the lexers. Keeps a bounded window of recent tokens in a ring of token types and offsets into the lexer buffer,
+ * so registering a token allocates nothing. Last significant, unbraced and unparen tokens are tracked separately and are available
+ * regardless of the window size. Texts are computed from the lexer buffer on demand.
+ */
+public class PerlTokenHistory implements PerlElementTypes {
+  /**
+   * Window size, must be a power of two
+   */
+  static final int WINDOW_SIZE = 16;
+  private static final int WINDOW_MASK = WINDOW_SIZE - 1;
 
+  @NotNull
+  private final PerlProtoLexer myLexer;
 
-public class PerlTokenHistory implements PerlElementTypes {
-  private final List<PerlTokenHistoryElement> myHistory = new ArrayList<>();
+  private final IElementType[] myTypes = new IElementType[WINDOW_SIZE];
+  private final int[] myStarts = new int[WINDOW_SIZE];
+  private final int[] myEnds = new int[WINDOW_SIZE];
+  /**
+   * Total number of tokens registered since reset
+   */
+  private int mySize;
 
-  private PerlTokenHistoryElement myLastToken;
-  private PerlTokenHistoryElement myLastSignificantToken;
-  private PerlTokenHistoryElement myLastUnbracedToken;
-  private PerlTokenHistoryElement myLastUnparenToken;
+  private final Token myLastSignificantToken = new Token();
+  private final Token myLastUnbracedToken = new Token();
+  private final Token myLastUnparenToken = new Token();
 
-  public void addToken(IElementType tokenType, CharSequence tokenText) {
-    myHistory.add(myLastToken = new PerlTokenHistoryElement(tokenType, tokenText));
-    if (myLastToken.isSignificant()) {
-      myLastSignificantToken = myLastToken;
+  public PerlTokenHistory(@NotNull PerlProtoLexer lexer) {
+    myLexer = lexer;
+  }
 
-      if (myLastToken.getTokenType() != LEFT_BRACE) {
-        myLastUnbracedToken = myLastToken;
+  public void addToken(@NotNull IElementType tokenType, int tokenStart, int tokenEnd) {
+    int index = mySize++ & WINDOW_MASK;
+    myTypes[index] = tokenType;
+    myStarts[index] = tokenStart;
+    myEnds[index] = tokenEnd;
+
+    if (!PerlParserDefinition.WHITE_SPACE_AND_COMMENTS.contains(tokenType)) {
+      myLastSignificantToken.set(tokenType, tokenStart, tokenEnd);
+
+      if (tokenType != LEFT_BRACE) {
+        myLastUnbracedToken.set(tokenType, tokenStart, tokenEnd);
       }
 
-      if (myLastToken.getTokenType() != LEFT_PAREN) {
-        myLastUnparenToken = myLastToken;
+      if (tokenType != LEFT_PAREN) {
+        myLastUnparenToken.set(tokenType, tokenStart, tokenEnd);
       }
     }
   }
 
+  /**
+   * @param distance 0 for the last token, 1 for the previous one and so on, should be less than {@link #WINDOW_SIZE}
+   * @return type of the token or null if there is no such token in the window
+   */
   @Nullable
-  public PerlTokenHistoryElement getLastToken() {
-    return myLastToken;
+  public IElementType getTokenType(int distance) {
+    return isInWindow(distance) ? myTypes[(mySize - 1 - distance) & WINDOW_MASK] : null;
   }
 
+  /**
+   * @return text of the token or null if there is no such token in the window
+   * @see #getTokenType(int)
+   */
   @Nullable
-  public IElementType getLastTokenType() {
-    return myLastToken == null ? null : myLastToken.getTokenType();
+  public CharSequence getTokenText(int distance) {
+    if (!isInWindow(distance)) {
+      return null;
+    }
+    int index = (mySize - 1 - distance) & WINDOW_MASK;
+    return getText(myStarts[index], myEnds[index]);
   }
 
-  @Nullable
-  public CharSequence getLastTokenText() {
-    return myLastToken == null ? null : myLastToken.getTokenText();
+  private boolean isInWindow(int distance) {
+    return distance >= 0 && distance < WINDOW_SIZE && distance < mySize;
   }
 
   @Nullable
-  public PerlTokenHistoryElement getLastSignificantToken() {
-    return myLastSignificantToken;
+  public IElementType getLastTokenType() {
+    return getTokenType(0);
   }
 
   @Nullable
-  public IElementType getLastSignificantTokenType() {
-    return myLastSignificantToken == null ? null : myLastSignificantToken.getTokenType();
+  public CharSequence getLastTokenText() {
+    return getTokenText(0);
   }
 
   @Nullable
-  public CharSequence getLastSignificantTokenText() {
-    return myLastSignificantToken == null ? null : myLastSignificantToken.getTokenText();
+  public IElementType getLastSignificantTokenType() {
+    return myLastSignificantToken.myType;
   }
 
   @Nullable
-  public PerlTokenHistoryElement getLastUnbracedToken() {
-    return myLastUnbracedToken;
+  public CharSequence getLastSignificantTokenText() {
+    return getText(myLastSignificantToken);
   }
 
   @Nullable
   public IElementType getLastUnbracedTokenType() {
-    return myLastUnbracedToken == null ? null : myLastUnbracedToken.getTokenType();
+    return myLastUnbracedToken.myType;
   }
 
   @Nullable
   public CharSequence getLastUnbracedTokenText() {
-    return myLastUnbracedToken == null ? null : myLastUnbracedToken.getTokenText();
-  }
-
-  @Nullable
-  public PerlTokenHistoryElement getLastUnparenToken() {
-    return myLastUnparenToken;
+    return getText(myLastUnbracedToken);
   }
 
   @Nullable
   public IElementType getLastUnparenTokenType() {
-    return myLastUnparenToken == null ? null : myLastUnparenToken.getTokenType();
+    return myLastUnparenToken.myType;
   }
 
   @Nullable
   public CharSequence getLastUnparenTokenText() {
-    return myLastUnparenToken == null ? null : myLastUnparenToken.getTokenText();
+    return getText(myLastUnparenToken);
   }
 
   @Nullable
   public String getLastUnparenTokenTextAsString() {
-    return myLastUnparenToken == null ? null : myLastUnparenToken.getTokenTextAsString();
+    CharSequence tokenText = getLastUnparenTokenText();
+    return tokenText == null ? null : tokenText.toString();
   }
 
-  @NotNull
-  public List<PerlTokenHistoryElement> getHistory() {
-    return myHistory;
+  @Nullable
+  private CharSequence getText(@NotNull Token token) {
+    return token.myType == null ? null : getText(token.myStart, token.myEnd);
   }
 
-  @Nullable
-  public PerlTokenHistoryElement getPreviousToken(PerlTokenHistoryElement token) {
-    int index = getHistory().lastIndexOf(token);
-    if (index > 0) {
-      return getHistory().get(index - 1);
-    }
-    return null;
+  @NotNull
+  private CharSequence getText(int start, int end) {
+    return myLexer.getBuffer().subSequence(start, end);
   }
 
   public void reset() {
-    myHistory.clear();
-    myLastToken = null;
-    myLastSignificantToken = null;
-    myLastUnbracedToken = null;
-    myLastUnparenToken = null;
+    mySize = 0;
+    myLastSignificantToken.set(null, 0, 0);
+    myLastUnbracedToken.set(null, 0, 0);
+    myLastUnparenToken.set(null, 0, 0);
   }
 
-
+  /**
+   * @return number of tokens registered since last reset
+   */
   public int size() {
-    return myHistory.size();
+    return mySize;
   }
 
-  public static class PerlTokenHistoryElement {
-    private final IElementType myTokenType;
-    private final CharSequence myTokenText;
-    private final boolean myIsSignificant;
-    private String myTokenString;
-
-    public PerlTokenHistoryElement(IElementType tokenType, CharSequence tokenText) {
-      myTokenText = tokenText;
-      myTokenType = tokenType;
-      myIsSignificant = !PerlParserDefinition.WHITE_SPACE_AND_COMMENTS.contains(tokenType);
-    }
-
-    public CharSequence getTokenText() {
-      return myTokenText;
-    }
-
-    public String getTokenTextAsString() {
-      if (myTokenString == null) {
-        myTokenString = getTokenText().toString();
-      }
-      return myTokenString;
-    }
-
-    public IElementType getTokenType() {
-      return myTokenType;
-    }
+  private static class Token {
+    @Nullable
+    private IElementType myType;
+    private int myStart;
+    private int myEnd;
 
-    public boolean isSignificant() {
-      return myIsSignificant;
+    private void set(@Nullable IElementType type, int start, int end) {
+      myType = type;
+      myStart = start;
+      myEnd = end;
     }
   }
 }
@@ -111,7 +111,7 @@ public class PerlCodeMergingLexerAdapter extends LexerBase implements PerlElemen
 
     try {
       myTokenStart = myPerlLexer.getTokenEnd();
-      myState = myPerlLexer.yystate();
+      myState = myPerlLexer.getRestartableState();
       myTokenType = myPerlLexer.advance();
       myTokenEnd = myPerlLexer.getTokenEnd();
       mergeCode();
@@ -25,7 +25,13 @@ import com.perl5.lang.pod.lexer.PodLexerAdapter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-
+/**
+ * Highlighting lexer with heredocs, pod and annotations sublexed by layers. Editor highlighter restarts lexing only from tokens in
+ * initial state; base lexer reports positions with pending heredocs and other state, not representable with a lexical state, as
+ * non-initial ones.
+ *
+ * @see com.perl5.lang.perl.lexer.PerlBaseLexer#getRestartableState()
+ */
 public class PerlHighlightingLexerAdapter extends LayeredLexer implements PerlElementTypes {
   public PerlHighlightingLexerAdapter(@Nullable Project project) {
     this(project, new PerlMergingLexerAdapter(project, false, true));
@@ -86,6 +86,10 @@ public interface PerlNamespaceDefinitionElement extends PerlNamespaceDefinition,
     getMro().getLinearISA(getProject(), getParentNamespaceDefinitions(), recursionMap, result);
   }
 
+  default void getLinearParents(@NotNull Set<String> recursionMap, @NotNull List<PerlNamespaceDefinitionElement> result) {
+    getMro().getLinearParents(getProject(), getParentNamespaceDefinitions(), recursionMap, result);
+  }
+
   @NotNull
   static Set<PerlExportDescriptor> getExportDescriptors(@NotNull Project project,
                                                         @NotNull GlobalSearchScope searchScope,
@@ -17,11 +17,17 @@
 package com.perl5.lang.perl.psi.mro;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Ref;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
 import com.perl5.lang.perl.psi.PerlGlobVariable;
 import com.perl5.lang.perl.psi.PerlNamespaceDefinitionElement;
 import com.perl5.lang.perl.util.PerlGlobUtil;
@@ -36,6 +42,8 @@ import static com.perl5.lang.perl.util.PerlSubUtil.SUB_AUTOLOAD;
 
 
 public abstract class PerlMro {
+  private static final Key<CachedValue<Map<MroKey, MroData>>> MRO_CACHE_KEY = Key.create("perl.mro.cache");
+
   protected PerlMro() {
   }
 
@@ -48,10 +56,25 @@ public abstract class PerlMro {
    * @param recursionMap map for controlling recursive inheritance
    * @param result       list of package names to populate
    */
-  public abstract void getLinearISA(@NotNull Project project,
-                                    @NotNull List<PerlNamespaceDefinitionElement> namespaceDefinitions,
-                                    @NotNull Set<String> recursionMap,
-                                    @NotNull List<String> result);
+  public final void getLinearISA(@NotNull Project project,
+                                 @NotNull List<PerlNamespaceDefinitionElement> namespaceDefinitions,
+                                 @NotNull Set<String> recursionMap,
+                                 @NotNull List<String> result) {
+    List<PerlNamespaceDefinitionElement> parents = new ArrayList<>();
+    getLinearParents(project, namespaceDefinitions, recursionMap, parents);
+    for (PerlNamespaceDefinitionElement parent : parents) {
+      result.add(parent.getNamespaceName());
+    }
+  }
+
+  /**
+   * Same as {@link #getLinearISA(Project, List, Set, List)}, but populates {@code result} with first encountered definitions of
+   * the namespaces
+   */
+  public abstract void getLinearParents(@NotNull Project project,
+                                        @NotNull List<PerlNamespaceDefinitionElement> namespaceDefinitions,
+                                        @NotNull Set<String> recursionMap,
+                                        @NotNull List<PerlNamespaceDefinitionElement> result);
 
   /**
    * Resolving method with current MRO;
@@ -82,20 +105,30 @@ public abstract class PerlMro {
                                        @NotNull Set<String> subNames,
                                        boolean isSuper,
                                        @NotNull Processor<? super PsiNamedElement> processor) {
-    Collection<String> linearISA = getLinearISA(project, searchScope, baseNamespaceName, isSuper);
+    MroData mroData = getMroData(project, searchScope, baseNamespaceName, isSuper);
+    List<String> linearISA = mroData.myLinearISA;
 
-    Ref<String> stopFlag = Ref.create();
-    for (String currentNamespaceName : linearISA) {
-      for (String subName : subNames) {
-        if (!PerlSubUtil.processRelatedItems(project, searchScope, PerlPackageUtil.join(currentNamespaceName, subName), it -> {
-          stopFlag.set("");
-          return processor.process(it);
-        })) {
-          return false;
-        }
+    if (subNames.size() == 1) {
+      String subName = subNames.iterator().next();
+      String targetNamespaceName = mroData.getMethodNamespaceName(project, searchScope, subName);
+      if (targetNamespaceName != null) {
+        return PerlSubUtil.processRelatedItems(project, searchScope, PerlPackageUtil.join(targetNamespaceName, subName), processor);
       }
-      if (!stopFlag.isNull()) {
-        return true;
+    }
+    else {
+      Ref<String> stopFlag = Ref.create();
+      for (String currentNamespaceName : linearISA) {
+        for (String subName : subNames) {
+          if (!PerlSubUtil.processRelatedItems(project, searchScope, PerlPackageUtil.join(currentNamespaceName, subName), it -> {
+            stopFlag.set("");
+            return processor.process(it);
+          })) {
+            return false;
+          }
+        }
+        if (!stopFlag.isNull()) {
+          return true;
+        }
       }
     }
 
@@ -148,13 +181,22 @@ public abstract class PerlMro {
   }
 
   /**
-   * Building linear @ISA list
+   * Building linear @ISA list. Lists are cached until any psi modification
    *
    * @param packageName current package name
    * @param isSuper     if false - we include current package into the list, true - otherwise
-   * @return list of linear @ISA
+   * @return list of linear @ISA, a copy of the cached one
    */
-  public static ArrayList<String> getLinearISA(@NotNull Project project,
+  @NotNull
+  public static List<String> getLinearISA(@NotNull Project project,
+                                          @NotNull GlobalSearchScope searchScope,
+                                          @NotNull String packageName,
+                                          boolean isSuper) {
+    return new ArrayList<>(getMroData(project, searchScope, packageName, isSuper).myLinearISA);
+  }
+
+  @NotNull
+  private static List<String> computeLinearISA(@NotNull Project project,
                                                @NotNull GlobalSearchScope searchScope,
                                                @NotNull String packageName,
                                                boolean isSuper) {
@@ -172,7 +214,27 @@ public abstract class PerlMro {
       result.add(PerlPackageUtil.UNIVERSAL_NAMESPACE);
     }
 
-    return result;
+    return Collections.unmodifiableList(result);
+  }
+
+  @NotNull
+  private static MroData getMroData(@NotNull Project project,
+                                    @NotNull GlobalSearchScope searchScope,
+                                    @NotNull String packageName,
+                                    boolean isSuper) {
+    Map<MroKey, MroData> cache = CachedValuesManager.getManager(project).getCachedValue(
+      project, MRO_CACHE_KEY,
+      () -> CachedValueProvider.Result.create(ContainerUtil.newConcurrentMap(), PsiModificationTracker.MODIFICATION_COUNT), false);
+    MroKey key = new MroKey(searchScope, packageName, isSuper);
+    MroData mroData = cache.get(key);
+    if (mroData == null) {
+      mroData = new MroData(computeLinearISA(project, searchScope, packageName, isSuper));
+      MroData existingData = cache.putIfAbsent(key, mroData);
+      if (existingData != null) {
+        mroData = existingData;
+      }
+    }
+    return mroData;
   }
 
   public static void getPackageParents(@NotNull Project project,
@@ -186,4 +248,74 @@ public abstract class PerlMro {
       namespaceDefinition.getLinearISA(recursionMap, result);
     }
   }
+
+  private static final class MroKey {
+    @NotNull
+    private final GlobalSearchScope mySearchScope;
+    @NotNull
+    private final String myNamespaceName;
+    private final boolean myIsSuper;
+
+    private MroKey(@NotNull GlobalSearchScope searchScope, @NotNull String namespaceName, boolean isSuper) {
+      mySearchScope = searchScope;
+      myNamespaceName = namespaceName;
+      myIsSuper = isSuper;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      MroKey key = (MroKey)o;
+
+      return myIsSuper == key.myIsSuper && mySearchScope.equals(key.mySearchScope) && myNamespaceName.equals(key.myNamespaceName);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = mySearchScope.hashCode();
+      result = 31 * result + myNamespaceName.hashCode();
+      result = 31 * result + (myIsSuper ? 1 : 0);
+      return result;
+    }
+  }
+
+  /**
+   * Linearized @ISA of the namespace and lazily populated methods table: sub name to the first namespace in the @ISA defining it
+   */
+  private static final class MroData {
+    private static final String NO_NAMESPACE = "";
+    @NotNull
+    private final List<String> myLinearISA;
+    @NotNull
+    private final Map<String, String> myMethodsNamespaces = ContainerUtil.newConcurrentMap();
+
+    private MroData(@NotNull List<String> linearISA) {
+      myLinearISA = linearISA;
+    }
+
+    /**
+     * @return name of the first namespace in the @ISA containing {@code subName} or null if there is no such namespace
+     */
+    @Nullable
+    private String getMethodNamespaceName(@NotNull Project project, @NotNull GlobalSearchScope searchScope, @NotNull String subName) {
+      String namespaceName = myMethodsNamespaces.get(subName);
+      if (namespaceName == null) {
+        namespaceName = NO_NAMESPACE;
+        for (String currentNamespaceName : myLinearISA) {
+          if (!PerlSubUtil.processRelatedItems(project, searchScope, PerlPackageUtil.join(currentNamespaceName, subName), it -> false)) {
+            namespaceName = currentNamespaceName;
+            break;
+          }
+        }
+        myMethodsNamespaces.put(subName, namespaceName);
+      }
+      return NO_NAMESPACE.equals(namespaceName) ? null : namespaceName;
+    }
+  }
 }
@@ -39,23 +39,23 @@ public class PerlMroC3 extends PerlMro {
    * @param result               list to populate
    */
   @Override
-  public void getLinearISA(@NotNull Project project,
-                           @NotNull List<PerlNamespaceDefinitionElement> namespaceDefinitions,
-                           @NotNull Set<String> recursionMap,
-                           @NotNull List<String> result) {
+  public void getLinearParents(@NotNull Project project,
+                               @NotNull List<PerlNamespaceDefinitionElement> namespaceDefinitions,
+                               @NotNull Set<String> recursionMap,
+                               @NotNull List<PerlNamespaceDefinitionElement> result) {
     ProgressManager.checkCanceled();
     Collection<PerlNamespaceDefinitionElement> nextIterationDefinitions = new ArrayList<>();
     for (PerlNamespaceDefinitionElement namespaceDefinition : namespaceDefinitions) {
       String packageName = namespaceDefinition.getNamespaceName();
       if (!recursionMap.contains(packageName)) {
         recursionMap.add(packageName);
-        result.add(packageName);
+        result.add(namespaceDefinition);
         nextIterationDefinitions.add(namespaceDefinition);
       }
     }
 
     for (PerlNamespaceDefinitionElement namespaceDefinition : nextIterationDefinitions) {
-      namespaceDefinition.getLinearISA(recursionMap, result);
+      namespaceDefinition.getLinearParents(recursionMap, result);
     }
   }
 }
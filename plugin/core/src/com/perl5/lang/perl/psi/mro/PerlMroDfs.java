@@ -40,17 +40,17 @@ public class PerlMroDfs extends PerlMro {
    * @param result               list to populate
    */
   @Override
-  public void getLinearISA(@NotNull Project project,
-                           @NotNull List<PerlNamespaceDefinitionElement> namespaceDefinitions,
-                           @NotNull Set<String> recursionMap,
-                           @NotNull List<String> result) {
+  public void getLinearParents(@NotNull Project project,
+                               @NotNull List<PerlNamespaceDefinitionElement> namespaceDefinitions,
+                               @NotNull Set<String> recursionMap,
+                               @NotNull List<PerlNamespaceDefinitionElement> result) {
     ProgressManager.checkCanceled();
     for (PerlNamespaceDefinitionElement namespaceDefinition : namespaceDefinitions) {
       String packageName = namespaceDefinition.getNamespaceName();
       if (!recursionMap.contains(packageName)) {
         recursionMap.add(packageName);
-        result.add(packageName);
-        namespaceDefinition.getLinearISA(recursionMap, result);
+        result.add(namespaceDefinition);
+        namespaceDefinition.getLinearParents(recursionMap, result);
       }
     }
   }
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.psi.references;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.AtomicNotNullLazyValue;
+import com.intellij.psi.PsiManager;
+import com.perl5.lang.perl.idea.project.PerlStartupTimings;
+import com.perl5.lang.perl.psi.impl.PerlBuiltInSubDefinition;
+import com.perl5.lang.perl.psi.impl.PerlImplicitSubDefinition;
+import com.perl5.lang.perl.psi.impl.PerlImplicitVariableDeclaration;
+import com.perl5.lang.perl.psi.utils.PerlSubArgument;
+import com.perl5.lang.perl.psi.utils.PerlVariableType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+import static com.perl5.lang.perl.util.PerlPackageUtil.NAMESPACE_SEPARATOR;
+
+/**
+ * Application-level store of implicit declarations, provided by {@link PerlImplicitDeclarationsProvider}s. Declarations are read
+ * from the providers once, on first request, and kept as compact descriptors shared by all projects; project-level
+ * {@link PerlImplicitDeclarationsService} creates psi elements from them on demand.
+ */
+public class PerlImplicitDeclarationsData {
+  private static final Logger LOG = Logger.getInstance(PerlImplicitDeclarationsData.class);
+  private final AtomicNotNullLazyValue<Declarations> myDeclarations = AtomicNotNullLazyValue.createValue(
+    () -> PerlStartupTimings.measure(null, PerlStartupTimings.IMPLICIT_DECLARATIONS, this::loadDeclarations));
+
+  /**
+   * Declarations being loaded, available to providers only while {@link #loadDeclarations()} is running
+   */
+  private Declarations myLoadingDeclarations;
+
+  @NotNull
+  private Declarations loadDeclarations() {
+    long startTime = System.currentTimeMillis();
+    myLoadingDeclarations = new Declarations();
+    try {
+      PerlImplicitDeclarationsProvider.EP_NAME.extensions().forEach(it -> it.registerDeclarations(this));
+      return myLoadingDeclarations;
+    }
+    finally {
+      LOG.debug("Loaded ", myLoadingDeclarations.mySubs.size(), " implicit subs and ",
+                myLoadingDeclarations.myScalars.size() + myLoadingDeclarations.myArrays.size() + myLoadingDeclarations.myHashes.size(),
+                " variables in ", System.currentTimeMillis() - startTime, " ms");
+      myLoadingDeclarations = null;
+    }
+  }
+
+  void registerSub(@NotNull String namespaceName,
+                   @NotNull String subName,
+                   @NotNull List<PerlSubArgument> arguments,
+                   boolean isBuiltIn) {
+    doRegister(getLoadingDeclarations().mySubs, new SubDescriptor(namespaceName, subName, arguments, isBuiltIn));
+  }
+
+  void registerVariable(@NotNull String namespaceName, @NotNull String variableNameWithSigil) {
+    Declarations declarations = getLoadingDeclarations();
+    VariableDescriptor descriptor = new VariableDescriptor(namespaceName, variableNameWithSigil);
+    PerlVariableType variableType = descriptor.getVariableType();
+    if (variableType == null) {
+      LOG.warn("Unknown variable type: " + variableNameWithSigil);
+      return;
+    }
+    switch (variableType) {
+      case SCALAR:
+        doRegister(declarations.myScalars, descriptor);
+        break;
+      case ARRAY:
+        doRegister(declarations.myArrays, descriptor);
+        break;
+      case HASH:
+        doRegister(declarations.myHashes, descriptor);
+        break;
+      default:
+        LOG.warn("Can handle only SCALAR, ARRAY or HASH at the moment, got: " + variableNameWithSigil);
+    }
+  }
+
+  @NotNull
+  private Declarations getLoadingDeclarations() {
+    Declarations declarations = myLoadingDeclarations;
+    if (declarations == null) {
+      throw new IllegalStateException("Implicit declarations may be registered only while loading");
+    }
+    return declarations;
+  }
+
+  private static <T extends Descriptor> void doRegister(@NotNull Map<String, T> targetMap, @NotNull T descriptor) {
+    String canonicalName = descriptor.getCanonicalName();
+    LOG.assertTrue(!targetMap.containsKey(canonicalName), "Multiple registrations for: " + canonicalName);
+    targetMap.put(canonicalName, descriptor);
+  }
+
+  @NotNull
+  Map<String, SubDescriptor> getSubs() {
+    return myDeclarations.getValue().mySubs;
+  }
+
+  @NotNull
+  Map<String, VariableDescriptor> getScalars() {
+    return myDeclarations.getValue().myScalars;
+  }
+
+  @NotNull
+  Map<String, VariableDescriptor> getArrays() {
+    return myDeclarations.getValue().myArrays;
+  }
+
+  @NotNull
+  Map<String, VariableDescriptor> getHashes() {
+    return myDeclarations.getValue().myHashes;
+  }
+
+  @NotNull
+  public static PerlImplicitDeclarationsData getInstance() {
+    return ServiceManager.getService(PerlImplicitDeclarationsData.class);
+  }
+
+  private static final class Declarations {
+    private final Map<String, SubDescriptor> mySubs = new LinkedHashMap<>();
+    private final Map<String, VariableDescriptor> myScalars = new LinkedHashMap<>();
+    private final Map<String, VariableDescriptor> myArrays = new LinkedHashMap<>();
+    private final Map<String, VariableDescriptor> myHashes = new LinkedHashMap<>();
+  }
+
+  abstract static class Descriptor {
+    @NotNull
+    private final String myNamespaceName;
+
+    Descriptor(@NotNull String namespaceName) {
+      myNamespaceName = namespaceName;
+    }
+
+    @NotNull
+    String getNamespaceName() {
+      return myNamespaceName;
+    }
+
+    @NotNull
+    abstract String getName();
+
+    @NotNull
+    String getCanonicalName() {
+      return myNamespaceName + NAMESPACE_SEPARATOR + getName();
+    }
+  }
+
+  static final class SubDescriptor extends Descriptor {
+    @NotNull
+    private final String mySubName;
+    @NotNull
+    private final List<PerlSubArgument> myArguments;
+    private final boolean myIsBuiltIn;
+
+    private SubDescriptor(@NotNull String namespaceName,
+                          @NotNull String subName,
+                          @NotNull List<PerlSubArgument> arguments,
+                          boolean isBuiltIn) {
+      super(namespaceName);
+      mySubName = subName;
+      myArguments = arguments.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(arguments));
+      myIsBuiltIn = isBuiltIn;
+    }
+
+    @NotNull
+    @Override
+    String getName() {
+      return mySubName;
+    }
+
+    @NotNull
+    PerlImplicitSubDefinition createSubDefinition(@NotNull PsiManager psiManager) {
+      return myIsBuiltIn ?
+             new PerlBuiltInSubDefinition(psiManager, mySubName, getNamespaceName(), myArguments) :
+             new PerlImplicitSubDefinition(psiManager, mySubName, getNamespaceName(), myArguments);
+    }
+  }
+
+  static final class VariableDescriptor extends Descriptor {
+    @NotNull
+    private final String myVariableNameWithSigil;
+
+    private VariableDescriptor(@NotNull String namespaceName, @NotNull String variableNameWithSigil) {
+      super(namespaceName);
+      myVariableNameWithSigil = variableNameWithSigil;
+    }
+
+    @NotNull
+    @Override
+    String getName() {
+      return myVariableNameWithSigil.substring(1);
+    }
+
+    @Nullable
+    PerlVariableType getVariableType() {
+      return myVariableNameWithSigil.isEmpty() ? null : PerlVariableType.bySigil(myVariableNameWithSigil.charAt(0));
+    }
+
+    @NotNull
+    PerlImplicitVariableDeclaration createVariableDeclaration(@NotNull PsiManager psiManager) {
+      return PerlImplicitVariableDeclaration.createGlobal(psiManager, myVariableNameWithSigil, getNamespaceName());
+    }
+  }
+}
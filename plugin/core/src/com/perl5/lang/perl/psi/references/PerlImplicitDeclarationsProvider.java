@@ -20,9 +20,6 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.util.JDOMUtil;
 import com.intellij.openapi.util.text.StringUtil;
-import com.perl5.lang.perl.psi.impl.PerlBuiltInSubDefinition;
-import com.perl5.lang.perl.psi.impl.PerlImplicitSubDefinition;
-import com.perl5.lang.perl.psi.impl.PerlImplicitVariableDeclaration;
 import com.perl5.lang.perl.psi.utils.PerlSubArgument;
 import com.perl5.lang.perl.psi.utils.PerlVariableType;
 import com.perl5.lang.perl.util.PerlPackageUtil;
@@ -59,9 +56,19 @@ public abstract class PerlImplicitDeclarationsProvider {
   /**
    * Registers implicit entities with project-level {@link PerlImplicitDeclarationsService}
    *
-   * @apiNote default implementation reads definitions from the xml file, provided by {@link #getDataFileName()}
+   * @deprecated implement {@link #registerDeclarations(PerlImplicitDeclarationsData)} to register entities once per application.
+   * This method is still invoked for each project, so existing providers keep working.
    */
+  @Deprecated
   protected void registerDeclarations(@NotNull PerlImplicitDeclarationsService declarationsService) {
+  }
+
+  /**
+   * Registers implicit entities with application-level {@link PerlImplicitDeclarationsData}
+   *
+   * @apiNote default implementation reads definitions from the xml file, provided by {@link #getDataFileName()}
+   */
+  protected void registerDeclarations(@NotNull PerlImplicitDeclarationsData declarationsData) {
     String fileName = getDataFileName();
     if (StringUtil.isEmpty(fileName)) {
       return;
@@ -89,10 +96,10 @@ public abstract class PerlImplicitDeclarationsProvider {
       for (Element element : namespaceElement.getChildren()) {
         switch (element.getName()) {
           case SUB_ELEMENT:
-            readSub(declarationsService, namespaceName, element);
+            readSub(declarationsData, namespaceName, element);
             break;
           case VARIABLE:
-            readVariable(declarationsService, namespaceName, element);
+            readVariable(declarationsData, namespaceName, element);
             break;
           default:
             LOG.warn("Don't know what to do with: " + element.getName());
@@ -101,7 +108,7 @@ public abstract class PerlImplicitDeclarationsProvider {
     }
   }
 
-  private void readVariable(@NotNull PerlImplicitDeclarationsService declarationsService,
+  private void readVariable(@NotNull PerlImplicitDeclarationsData declarationsData,
                             @NotNull String namespaceName,
                             @NotNull Element element) {
     String varName = element.getAttributeValue(NAME);
@@ -109,11 +116,10 @@ public abstract class PerlImplicitDeclarationsProvider {
       LOG.warn("Missing or empty variable name");
       return;
     }
-    declarationsService.registerVariable(
-      PerlImplicitVariableDeclaration.createGlobal(declarationsService.getPsiManager(), varName, namespaceName));
+    declarationsData.registerVariable(namespaceName, varName);
   }
 
-  private void readSub(@NotNull PerlImplicitDeclarationsService declarationsService,
+  private void readSub(@NotNull PerlImplicitDeclarationsData declarationsData,
                        @NotNull String namespaceName,
                        @NotNull Element element) {
     String subName = element.getAttributeValue(NAME);
@@ -121,24 +127,12 @@ public abstract class PerlImplicitDeclarationsProvider {
       LOG.warn("Missing or empty name attribute for sub");
       return;
     }
-    PerlImplicitSubDefinition subDefinition;
-    if (PerlPackageUtil.CORE_NAMESPACE.equals(namespaceName)) {
-      subDefinition = new PerlBuiltInSubDefinition(
-        declarationsService.getPsiManager(),
-        subName,
-        PerlPackageUtil.CORE_NAMESPACE,
-        readArguments(element.getChild(ARGUMENTS_ELEMENT), subName)
-      );
-    }
-    else {
-      subDefinition = new PerlImplicitSubDefinition(
-        declarationsService.getPsiManager(),
-        subName,
-        namespaceName,
-        readArguments(element.getChild(ARGUMENTS_ELEMENT), subName)
-      );
-    }
-    declarationsService.registerSub(subDefinition);
+    declarationsData.registerSub(
+      namespaceName,
+      subName,
+      readArguments(element.getChild(ARGUMENTS_ELEMENT), subName),
+      PerlPackageUtil.CORE_NAMESPACE.equals(namespaceName)
+    );
   }
 
   @NotNull
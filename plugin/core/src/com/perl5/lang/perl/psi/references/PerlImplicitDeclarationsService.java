@@ -21,20 +21,25 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiManager;
+import com.intellij.util.ConcurrencyUtil;
 import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
 import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValue;
 import com.perl5.lang.perl.psi.PerlSubDefinitionElement;
 import com.perl5.lang.perl.psi.PerlVariableDeclarationElement;
 import com.perl5.lang.perl.psi.impl.PerlImplicitSubDefinition;
 import com.perl5.lang.perl.psi.impl.PerlImplicitVariableDeclaration;
 import com.perl5.lang.perl.psi.properties.PerlPackageMember;
+import com.perl5.lang.perl.psi.references.PerlImplicitDeclarationsData.SubDescriptor;
+import com.perl5.lang.perl.psi.references.PerlImplicitDeclarationsData.VariableDescriptor;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static com.perl5.lang.perl.util.PerlPackageUtil.CORE_NAMESPACE;
 import static com.perl5.lang.perl.util.PerlPackageUtil.NAMESPACE_SEPARATOR;
@@ -45,18 +50,29 @@ import static com.perl5.lang.perl.util.PerlPackageUtil.NAMESPACE_SEPARATOR;
  * <li>Subs from extensions</li>
  * <li>Global scalars, arrays and hashes defined by modules code</li>
  * </ul>
+ * Entities provided by extensions are shared between projects by {@link PerlImplicitDeclarationsData}; this service creates psi
+ * elements for them lazily, on first request.
  */
 public class PerlImplicitDeclarationsService {
   private static final Logger LOG = Logger.getInstance(PerlImplicitDeclarationsService.class);
-  private final Map<String, PerlImplicitSubDefinition> mySubsMap = new HashMap<>();
-  private final Map<String, PerlImplicitVariableDeclaration> myScalarsMap = new HashMap<>();
-  private final Map<String, PerlImplicitVariableDeclaration> myArraysMap = new HashMap<>();
-  private final Map<String, PerlImplicitVariableDeclaration> myHashesMap = new HashMap<>();
   @NotNull
   private final PsiManager myPsiManager;
+  private final ImplicitElements<SubDescriptor, PerlImplicitSubDefinition> mySubs;
+  private final ImplicitElements<VariableDescriptor, PerlImplicitVariableDeclaration> myScalars;
+  private final ImplicitElements<VariableDescriptor, PerlImplicitVariableDeclaration> myArrays;
+  private final ImplicitElements<VariableDescriptor, PerlImplicitVariableDeclaration> myHashes;
 
   public PerlImplicitDeclarationsService(@NotNull Project project) {
+    this(project, PerlImplicitDeclarationsData.getInstance());
+  }
+
+  @SuppressWarnings("deprecation")
+  PerlImplicitDeclarationsService(@NotNull Project project, @NotNull PerlImplicitDeclarationsData declarationsData) {
     myPsiManager = PsiManager.getInstance(project);
+    mySubs = new ImplicitElements<>(declarationsData::getSubs, it -> it.createSubDefinition(myPsiManager));
+    myScalars = new ImplicitElements<>(declarationsData::getScalars, it -> it.createVariableDeclaration(myPsiManager));
+    myArrays = new ImplicitElements<>(declarationsData::getArrays, it -> it.createVariableDeclaration(myPsiManager));
+    myHashes = new ImplicitElements<>(declarationsData::getHashes, it -> it.createVariableDeclaration(myPsiManager));
     PerlImplicitDeclarationsProvider.EP_NAME.extensions().forEach(it -> it.registerDeclarations(this));
   }
 
@@ -68,13 +84,13 @@ public class PerlImplicitDeclarationsService {
   public void registerVariable(@NotNull PerlImplicitVariableDeclaration implicitVariable) {
     switch (implicitVariable.getVariableType()) {
       case SCALAR:
-        doRegister(myScalarsMap, implicitVariable);
+        myScalars.register(implicitVariable);
         break;
       case ARRAY:
-        doRegister(myArraysMap, implicitVariable);
+        myArrays.register(implicitVariable);
         break;
       case HASH:
-        doRegister(myHashesMap, implicitVariable);
+        myHashes.register(implicitVariable);
         break;
       default:
         LOG.warn("Can handle only SCALAR, ARRAY or HASH at the moment, got: " + implicitVariable);
@@ -82,7 +98,7 @@ public class PerlImplicitDeclarationsService {
   }
 
   public void registerSub(@NotNull PerlImplicitSubDefinition subDefinition) {
-    doRegister(mySubsMap, subDefinition);
+    mySubs.register(subDefinition);
   }
 
   @NotNull
@@ -91,16 +107,10 @@ public class PerlImplicitDeclarationsService {
                                                    @Nullable PerlValue returnValue) {
     PerlImplicitSubDefinition subDefinition = new PerlImplicitSubDefinition(
       myPsiManager, baseName, namespaceName, Collections.emptyList(), returnValue, true);
-    doRegister(mySubsMap, subDefinition);
+    mySubs.register(subDefinition);
     return subDefinition;
   }
 
-  private static <T extends PerlPackageMember> void doRegister(@NotNull Map<String, T> targetMap, @NotNull T entity) {
-    String canonicalName = entity.getCanonicalName();
-    LOG.assertTrue(!targetMap.containsKey(canonicalName), "Multiple registrations for: " + entity);
-    targetMap.put(canonicalName, entity);
-  }
-
   @Nullable
   public PerlSubDefinitionElement getCoreSub(@Nullable String subName) {
     return getSub(CORE_NAMESPACE, subName);
@@ -114,7 +124,14 @@ public class PerlImplicitDeclarationsService {
   @Contract("null->null")
   @Nullable
   public PerlSubDefinitionElement getSub(@Nullable String canonicalName) {
-    return mySubsMap.get(canonicalName);
+    return mySubs.get(canonicalName);
+  }
+
+  /**
+   * @return true iff there is a sub with {@code canonicalName}. Unlike {@link #getSub(String)}, does not create a psi element for it
+   */
+  public boolean hasSub(@Nullable String canonicalName) {
+    return mySubs.contains(canonicalName);
   }
 
   public boolean processSubsInPackage(@NotNull String packageName, @NotNull Processor<? super PerlSubDefinitionElement> processor) {
@@ -127,31 +144,25 @@ public class PerlImplicitDeclarationsService {
   }
 
   public boolean processSubs(@NotNull Processor<? super PerlSubDefinitionElement> processor) {
-    for (PerlImplicitSubDefinition subDefinition : mySubsMap.values()) {
-      ProgressManager.checkCanceled();
-      if (!processor.process(subDefinition)) {
-        return false;
-      }
-    }
-    return true;
+    return mySubs.process(processor);
   }
 
   @Contract("null->null")
   @Nullable
   public PerlVariableDeclarationElement getScalar(@Nullable String canonicalName) {
-    return myScalarsMap.get(canonicalName);
+    return myScalars.get(canonicalName);
   }
 
   @Contract("null->null")
   @Nullable
   public PerlVariableDeclarationElement getArray(@Nullable String canonicalName) {
-    return myArraysMap.get(canonicalName);
+    return myArrays.get(canonicalName);
   }
 
   @Contract("null->null")
   @Nullable
   public PerlVariableDeclarationElement getHash(@Nullable String canonicalName) {
-    return myHashesMap.get(canonicalName);
+    return myHashes.get(canonicalName);
   }
 
   public boolean processScalars(@NotNull String canonicalName, @NotNull Processor<? super PerlVariableDeclarationElement> processor) {
@@ -185,30 +196,84 @@ public class PerlImplicitDeclarationsService {
   }
 
   public boolean processScalars(@NotNull Processor<? super PerlVariableDeclarationElement> processor) {
-    return processVariables(myScalarsMap, processor);
+    return myScalars.process(processor);
   }
 
   public boolean processArrays(@NotNull Processor<? super PerlVariableDeclarationElement> processor) {
-    return processVariables(myArraysMap, processor);
+    return myArrays.process(processor);
   }
 
   public boolean processHashes(@NotNull Processor<? super PerlVariableDeclarationElement> processor) {
-    return processVariables(myHashesMap, processor);
-  }
-
-  private static boolean processVariables(@NotNull Map<String, PerlImplicitVariableDeclaration> variablesMap,
-                                          @NotNull Processor<? super PerlVariableDeclarationElement> processor) {
-    for (PerlImplicitVariableDeclaration variableDeclaration : variablesMap.values()) {
-      ProgressManager.checkCanceled();
-      if (!processor.process(variableDeclaration)) {
-        return false;
-      }
-    }
-    return true;
+    return myHashes.process(processor);
   }
 
   @NotNull
   public static PerlImplicitDeclarationsService getInstance(@NotNull Project project) {
     return ServiceManager.getService(project, PerlImplicitDeclarationsService.class);
   }
+
+  /**
+   * Project view of the shared descriptors of one kind: elements are created from descriptors on first request, elements registered
+   * with the project are kept separately
+   */
+  private static final class ImplicitElements<D extends PerlImplicitDeclarationsData.Descriptor, E extends PerlPackageMember> {
+    @NotNull
+    private final Supplier<Map<String, D>> myDescriptorsProvider;
+    @NotNull
+    private final Function<D, E> myElementFactory;
+    private final Map<String, E> myCreatedElements = ContainerUtil.newConcurrentMap();
+    private final Map<String, E> myRegisteredElements = ContainerUtil.newConcurrentMap();
+
+    private ImplicitElements(@NotNull Supplier<Map<String, D>> descriptorsProvider, @NotNull Function<D, E> elementFactory) {
+      myDescriptorsProvider = descriptorsProvider;
+      myElementFactory = elementFactory;
+    }
+
+    void register(@NotNull E element) {
+      String canonicalName = element.getCanonicalName();
+      LOG.assertTrue(!contains(canonicalName), "Multiple registrations for: " + element);
+      if (canonicalName != null) {
+        myRegisteredElements.put(canonicalName, element);
+      }
+    }
+
+    boolean contains(@Nullable String canonicalName) {
+      return canonicalName != null &&
+             (myDescriptorsProvider.get().containsKey(canonicalName) || myRegisteredElements.containsKey(canonicalName));
+    }
+
+    @Contract("null->null")
+    @Nullable
+    E get(@Nullable String canonicalName) {
+      if (canonicalName == null) {
+        return null;
+      }
+      E element = myCreatedElements.get(canonicalName);
+      if (element != null) {
+        return element;
+      }
+      D descriptor = myDescriptorsProvider.get().get(canonicalName);
+      if (descriptor == null) {
+        return myRegisteredElements.get(canonicalName);
+      }
+      return ConcurrencyUtil.cacheOrGet(myCreatedElements, canonicalName, myElementFactory.apply(descriptor));
+    }
+
+    boolean process(@NotNull Processor<? super E> processor) {
+      for (String canonicalName : myDescriptorsProvider.get().keySet()) {
+        ProgressManager.checkCanceled();
+        E element = get(canonicalName);
+        if (element != null && !processor.process(element)) {
+          return false;
+        }
+      }
+      for (E element : myRegisteredElements.values()) {
+        ProgressManager.checkCanceled();
+        if (!processor.process(element)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
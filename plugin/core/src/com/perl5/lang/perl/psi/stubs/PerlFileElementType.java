@@ -35,7 +35,7 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 
 public class PerlFileElementType extends IStubFileElementType<PerlFileStub> {
-  private static final int VERSION = 11;
+  private static final int VERSION = 12;
 
   public PerlFileElementType(String debugName, Language language) {
     super(debugName, language);
@@ -84,6 +84,9 @@ public class PerlDoExprElementType extends IStubElementType<PerlRuntimeImportStu
 
   @Override
   public void indexStub(@NotNull PerlRuntimeImportStub stub, @NotNull IndexSink sink) {
-
+    String importPath = stub.getImportPath();
+    if (StringUtil.isNotEmpty(importPath)) {
+      sink.occurrence(PerlRuntimeImportsIndex.KEY, PerlRuntimeImportsIndex.getIndexKey(importPath));
+    }
   }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.psi.stubs.imports.runtime;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.util.Processor;
+import com.perl5.lang.perl.psi.PerlDoExpr;
+import com.perl5.lang.perl.psi.stubs.PerlStubIndexBase;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Indexes runtime imports, {@code require} and {@code do} expressions, by the file name of the import path: {@code Foo/Bar.pm} =>
+ * {@code Bar.pm}
+ */
+public class PerlRuntimeImportsIndex extends PerlStubIndexBase<PerlDoExpr> {
+  public static final int VERSION = 1;
+  public static final StubIndexKey<String, PerlDoExpr> KEY = StubIndexKey.createIndexKey("perl.runtime.imports");
+
+  @Override
+  public int getVersion() {
+    return super.getVersion() + VERSION;
+  }
+
+  @NotNull
+  @Override
+  public StubIndexKey<String, PerlDoExpr> getKey() {
+    return KEY;
+  }
+
+  /**
+   * @return index key for the {@code importPath}
+   */
+  @NotNull
+  public static String getIndexKey(@NotNull String importPath) {
+    String path = importPath.replace('\\', '/');
+    return path.substring(path.lastIndexOf('/') + 1);
+  }
+
+  /**
+   * Processes runtime imports of files named {@code fileName}
+   */
+  public static boolean processImports(@NotNull Project project,
+                                       @NotNull GlobalSearchScope scope,
+                                       @NotNull String fileName,
+                                       @NotNull Processor<? super PerlDoExpr> processor) {
+    return StubIndex.getInstance().processElements(KEY, fileName, project, scope, PerlDoExpr.class, processor);
+  }
+}
@@ -33,6 +33,7 @@ import com.intellij.util.PairProcessor;
 import com.perl5.lang.perl.extensions.PerlImplicitVariablesProvider;
 import com.perl5.lang.perl.idea.codeInsight.controlFlow.PerlControlFlowBuilder;
 import com.perl5.lang.perl.idea.codeInsight.controlFlow.PerlMutationInstruction;
+import com.perl5.lang.perl.idea.codeInsight.controlFlow.PerlReachingDefinitions;
 import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlOneOfValue;
 import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValue;
 import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValues;
@@ -276,49 +277,24 @@ public class PerlResolveUtil {
                PerlUtil.getParentsChain(element));
       return UNKNOWN_VALUE;
     }
-    int currentInstructionIndex = elementInstructionIndex;
     PerlOneOfValue.Builder valueBuilder = PerlOneOfValue.builder();
-    ControlFlowUtil.iteratePrev(currentInstructionIndex, instructions, currentInstruction -> {
-      if (!(currentInstruction instanceof PerlMutationInstruction)) {
-        PsiElement instructionElement = currentInstruction.getElement();
-        if ((instructionElement instanceof PerlSubDefinitionElement || instructionElement instanceof PerlSubExpr) &&
-            lexicalDeclaration instanceof PerlBuiltInVariable && "_".equals(variableName) && actualType == PerlVariableType.ARRAY) {
+    for (PerlReachingDefinitions.Definition definition : PerlReachingDefinitions.getFor(controlFlowScope).getReachingDefinitions(
+      elementInstructionIndex, namespaceName, variableName, actualType, lexicalDeclaration, stopElement)) {
+      Instruction instruction = definition.getInstruction();
+      switch (definition.getKind()) {
+        case VALUE:
+          valueBuilder.addVariant(((PerlMutationInstruction)instruction).createValue());
+          break;
+        case ARGUMENTS:
           valueBuilder.addVariant(PerlValues.ARGUMENTS_VALUE);
-          return CONTINUE;
-        }
-        if (Objects.equals(stopElement, instructionElement)) {
-          return CONTINUE;
-        }
-        if (currentInstruction.num() == 1 && instructionElement != null && instructionElement.getContext() != null) {
+          break;
+        case ENTRY:
+          PsiElement instructionElement = Objects.requireNonNull(instruction.getElement());
           valueBuilder.addVariant(
             getValueFromControlFlow(instructionElement, namespaceName, variableName, actualType, lexicalDeclaration, stopElement));
-        }
-        return NEXT;
+          break;
       }
-      if (currentInstruction.num() >= currentInstructionIndex) {
-        return NEXT;
-      }
-      PsiElement assignee = ((PerlMutationInstruction)currentInstruction).getLeftSide();
-      if (!(assignee instanceof PerlVariable) || ((PerlVariable)assignee).getActualType() != actualType) {
-        return NEXT;
-      }
-      if (!Objects.equals(variableName, ((PerlVariable)assignee).getName())) {
-        return NEXT;
-      }
-      String explicitNamespaceName = ((PerlVariable)assignee).getExplicitNamespaceName();
-      if ((explicitNamespaceName != null || namespaceName != null) && !Objects.equals(namespaceName, explicitNamespaceName)) {
-        return NEXT;
-      }
-      PerlVariableDeclarationElement assigneeDeclaration = getLexicalDeclaration((PerlVariable)assignee);
-      if (lexicalDeclaration == null && assigneeDeclaration == null && !(assignee.getParent() instanceof PerlVariableDeclarationElement) ||
-          lexicalDeclaration != null &&
-          (Objects.equals(lexicalDeclaration, assigneeDeclaration) || Objects.equals(lexicalDeclaration, assignee.getParent()))
-      ) {
-        valueBuilder.addVariant(((PerlMutationInstruction)currentInstruction).createValue());
-      }
-      return CONTINUE;
-    });
-
+    }
 
     if (lexicalDeclaration != null) {
       PerlValue declaredValue = lexicalDeclaration.getDeclaredValue();
@@ -35,10 +35,13 @@ import com.intellij.psi.search.searches.ReferencesSearch;
 import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.util.CachedValueProvider;
 import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.PairProcessor;
 import com.intellij.util.Processor;
 import com.intellij.util.SmartList;
+import com.intellij.util.containers.ContainerUtil;
+import com.perl5.lang.perl.extensions.namespaces.PerlNamespacesProvider;
 import com.perl5.lang.perl.extensions.packageprocessor.PerlLibProvider;
 import com.perl5.lang.perl.extensions.packageprocessor.PerlPackageParentsProvider;
 import com.perl5.lang.perl.extensions.packageprocessor.PerlPackageProcessor;
@@ -342,6 +345,7 @@ public class PerlPackageUtil implements PerlElementTypes, PerlCorePackages {
   public static Collection<String> getKnownNamespaceNames(Project project) {
     Collection<String> keys = StubIndex.getInstance().getAllKeys(PerlNamespaceIndex.KEY, project);
     keys.addAll(StubIndex.getInstance().getAllKeys(PerlLightNamespaceIndex.KEY, project));
+    PerlNamespacesProvider.collectAllNamespacesNames(project, keys);
     return keys;
   }
 
@@ -358,7 +362,8 @@ public class PerlPackageUtil implements PerlElementTypes, PerlCorePackages {
                                           @NotNull GlobalSearchScope scope,
                                           @NotNull Processor<? super PerlNamespaceDefinitionElement> processor) {
     return PerlNamespaceIndex.processNamespaces(project, packageName, scope, processor) &&
-           PerlLightNamespaceIndex.processNamespaces(project, packageName, scope, processor);
+           PerlLightNamespaceIndex.processNamespaces(project, packageName, scope, processor) &&
+           PerlNamespacesProvider.processAllNamespaces(project, packageName, scope, processor);
   }
 
   @SuppressWarnings("UnusedReturnValue")
@@ -577,44 +582,75 @@ public class PerlPackageUtil implements PerlElementTypes, PerlCorePackages {
         }
       }
 
-      processParentClassesSubs(
-        namespaceDefinition,
-        namesSet,
-        new THashSet<>(),
-        processor
-      );
+      for (PerlSubElement subElement : getInheritedMethods(namespaceDefinition)) {
+        ProgressManager.checkCanceled();
+        if (subElement.isValid() && !namesSet.contains(subElement.getSubName())) {
+          processor.process(subElement);
+        }
+      }
     }
   }
 
+  /**
+   * @deprecated use {@link #getInheritedMethods(PerlNamespaceDefinitionElement)}
+   */
+  @Deprecated
   public static void processParentClassesSubs(PerlNamespaceDefinitionElement childClass,
                                               Set<String> processedSubsNames,
                                               Set<PerlNamespaceDefinitionElement> recursionMap,
                                               Processor<PerlSubElement> processor
   ) {
-    if (childClass == null || recursionMap.contains(childClass)) {
+    if (childClass == null || !recursionMap.add(childClass)) {
       return;
     }
-    recursionMap.add(childClass);
+    for (PerlSubElement subElement : getInheritedMethods(childClass)) {
+      ProgressManager.checkCanceled();
+      if (subElement.isValid() && processedSubsNames.add(subElement.getSubName())) {
+        processor.process(subElement);
+      }
+    }
+  }
 
-    for (PerlNamespaceDefinitionElement parentNamespace : childClass.getParentNamespaceDefinitions()) {
-      for (PsiElement subDefinitionBase : collectNamespaceSubs(parentNamespace)) {
-        ProgressManager.checkCanceled();
-        String subName = ((PerlSubElement)subDefinitionBase).getSubName();
-        if (subDefinitionBase.isValid() &&
-            ((PerlSubElement)subDefinitionBase).isMethod() &&
-            !processedSubsNames.contains(subName)
-          ) {
-          processedSubsNames.add(subName);
-          processor.process(((PerlSubElement)subDefinitionBase));
+  /**
+   * @return methods table of the namespace: methods of the parent namespaces, linearized with namespace's MRO. Subs are collected from
+   * all definitions of each parent namespace, method from the first namespace wins. Cached until any psi modification
+   */
+  @NotNull
+  public static List<PerlSubElement> getInheritedMethods(@NotNull PerlNamespaceDefinitionElement namespaceDefinition) {
+    return CachedValuesManager.getCachedValue(
+      namespaceDefinition,
+      () -> CachedValueProvider.Result.create(computeInheritedMethods(namespaceDefinition), PsiModificationTracker.MODIFICATION_COUNT));
+  }
+
+  @NotNull
+  private static List<PerlSubElement> computeInheritedMethods(@NotNull PerlNamespaceDefinitionElement namespaceDefinition) {
+    Set<String> recursionMap = new THashSet<>();
+    ContainerUtil.addIfNotNull(recursionMap, namespaceDefinition.getNamespaceName());
+    List<PerlNamespaceDefinitionElement> parentNamespaces = new ArrayList<>();
+    namespaceDefinition.getLinearParents(recursionMap, parentNamespaces);
+
+    Project project = namespaceDefinition.getProject();
+    GlobalSearchScope searchScope = namespaceDefinition.getResolveScope();
+    Map<String, PerlSubElement> methods = new LinkedHashMap<>();
+    for (PerlNamespaceDefinitionElement parentNamespace : parentNamespaces) {
+      String parentNamespaceName = parentNamespace.getNamespaceName();
+      Set<PerlNamespaceDefinitionElement> parentDefinitions = new LinkedHashSet<>();
+      parentDefinitions.add(parentNamespace);
+      if (parentNamespaceName != null) {
+        parentDefinitions.addAll(getNamespaceDefinitions(project, searchScope, parentNamespaceName));
+      }
+      for (PerlNamespaceDefinitionElement parentDefinition : parentDefinitions) {
+        for (PsiElement subDefinitionBase : collectNamespaceSubs(parentDefinition)) {
+          ProgressManager.checkCanceled();
+          PerlSubElement subElement = (PerlSubElement)subDefinitionBase;
+          String subName = subElement.getSubName();
+          if (subName != null && subElement.isValid() && subElement.isMethod()) {
+            methods.putIfAbsent(subName, subElement);
+          }
         }
       }
-      processParentClassesSubs(
-        parentNamespace,
-        processedSubsNames,
-        recursionMap,
-        processor
-      );
     }
+    return methods.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(methods.values()));
   }
 
   public static List<PsiElement> collectNamespaceSubs(@NotNull final PsiElement namespace) {
@@ -17,9 +17,11 @@
 package com.perl5.lang.pod.elementTypes;
 
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.stubs.IndexSink;
 import com.intellij.psi.stubs.StubElement;
 import com.perl5.lang.pod.parser.psi.mixin.PodStubBasedTitledSection;
 import com.perl5.lang.pod.parser.psi.stubs.PodSectionStub;
+import com.perl5.lang.pod.parser.psi.stubs.PodTitlesStubIndex;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
@@ -36,6 +38,24 @@ public abstract class PodStubBasedTitledSectionElementType<Psi extends PodStubBa
     return new PodSectionStub(parentStub, this, Objects.requireNonNull(psi.getTitleText()));
   }
 
+  @Override
+  public void indexStub(@NotNull PodSectionStub stub, @NotNull IndexSink sink) {
+    String titleText = getTitleText(stub);
+    if (StringUtil.isNotEmpty(titleText)) {
+      for (String key : PodTitlesStubIndex.getIndexKeys(titleText)) {
+        sink.occurrence(PodTitlesStubIndex.KEY, key);
+      }
+    }
+  }
+
+  /**
+   * @return title text of the section, stored in the {@code stub}
+   */
+  @NotNull
+  protected String getTitleText(@NotNull PodSectionStub stub) {
+    return stub.getContent();
+  }
+
   @Override
   protected boolean shouldCreateStub(@NotNull Psi psi) {
     return StringUtil.isNotEmpty(psi.getTitleText());
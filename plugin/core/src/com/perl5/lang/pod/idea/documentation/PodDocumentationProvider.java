@@ -36,6 +36,7 @@ import com.perl5.lang.pod.lexer.PodTokenSets;
 import com.perl5.lang.pod.parser.psi.*;
 import com.perl5.lang.pod.parser.psi.impl.PodFileImpl;
 import com.perl5.lang.pod.parser.psi.mixin.PodFormatterX;
+import com.perl5.lang.pod.parser.psi.stubs.PodTitlesStubIndex;
 import com.perl5.lang.pod.psi.PsiPodFormatIndex;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -129,7 +130,23 @@ public class PodDocumentationProvider extends PerlDocumentationProviderBase impl
   private static String generateDocByIndex(@NotNull PodFormatterX element) {
     String indexText = element.getPresentableText();
     List<PsiElement> targets = new ArrayList<>();
-    element.getContainingFile().accept(new PodStubsAwareRecursiveVisitor() {
+    PsiFile podFile = element.getContainingFile();
+    if (StringUtil.isNotEmpty(indexText) && PodTitlesStubIndex.isAvailable(podFile)) {
+      List<PodFormatterX> indexEntries = new ArrayList<>();
+      PodTitlesStubIndex.processElements(podFile, indexText, it -> {
+        if (it instanceof PodFormatterX && StringUtil.equals(indexText, it.getPresentableText())) {
+          indexEntries.add((PodFormatterX)it);
+        }
+        return true;
+      });
+      // entries without stubs are not indexed
+      if (indexEntries.contains(element)) {
+        indexEntries.forEach(it -> ContainerUtil.addIfNotNull(targets, it.getIndexTarget()));
+        return targets.stream().map(PodDocumentationProvider::doGenerateDoc).collect(Collectors.joining("<hr>"));
+      }
+    }
+
+    podFile.accept(new PodStubsAwareRecursiveVisitor() {
       @Override
       public void visitPodFormatIndex(@NotNull PsiPodFormatIndex o) {
         assert o instanceof PodFormatterX;
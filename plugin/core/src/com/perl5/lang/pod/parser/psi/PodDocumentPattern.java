@@ -109,6 +109,24 @@ public class PodDocumentPattern {
     return this;
   }
 
+  /**
+   * @return text this pattern is looking for, if it is the same for items, headings and index entries; null otherwise
+   */
+  @Nullable
+  public String getSearchText() {
+    String result = null;
+    for (String text : new String[]{myItemPattern, myHeadingPattern, myIndexKey}) {
+      if (text == null) {
+        continue;
+      }
+      if (result != null && !result.equals(text)) {
+        return null;
+      }
+      result = text;
+    }
+    return result;
+  }
+
   private static boolean matches(@NotNull String text, @NotNull String pattern, boolean exactMatch) {
     if (!StringUtil.startsWith(text, pattern)) {
       return false;
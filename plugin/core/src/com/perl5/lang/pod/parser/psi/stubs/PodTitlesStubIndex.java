@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.pod.parser.psi.stubs;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.util.Processor;
+import com.perl5.lang.pod.parser.psi.mixin.PodStubBasedTitledSection;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Index of the POD headings, items and {@code X<>} entries titles. Each title is indexed by itself and by every prefix ending on
+ * the word boundary, the same way {@link com.perl5.lang.pod.parser.psi.PodDocumentPattern} matches them, so any pattern may be
+ * looked up as a key.
+ */
+public class PodTitlesStubIndex extends StringStubIndexExtension<PodStubBasedTitledSection> {
+  public static final int VERSION = 1;
+  public static final StubIndexKey<String, PodStubBasedTitledSection> KEY = StubIndexKey.createIndexKey("pod.titles");
+
+  @Override
+  public int getVersion() {
+    return super.getVersion() + VERSION;
+  }
+
+  @NotNull
+  @Override
+  public StubIndexKey<String, PodStubBasedTitledSection> getKey() {
+    return KEY;
+  }
+
+  /**
+   * @return keys for the section with {@code title}
+   */
+  @NotNull
+  public static Set<String> getIndexKeys(@NotNull String title) {
+    Set<String> result = new LinkedHashSet<>();
+    for (int i = 1; i < title.length(); i++) {
+      if (Character.isUnicodeIdentifierPart(title.charAt(i - 1)) != Character.isUnicodeIdentifierPart(title.charAt(i))) {
+        result.add(title.substring(0, i));
+      }
+    }
+    result.add(title);
+    String trimmedTitle = title.trim();
+    if (!trimmedTitle.isEmpty()) {
+      result.add(trimmedTitle);
+    }
+    return result;
+  }
+
+  /**
+   * @return true iff sections of the {@code podFile} may be looked up in this index
+   */
+  public static boolean isAvailable(@NotNull PsiFile podFile) {
+    Project project = podFile.getProject();
+    VirtualFile virtualFile = podFile.getVirtualFile();
+    return virtualFile != null && !DumbService.isDumb(project) && GlobalSearchScope.allScope(project).contains(virtualFile);
+  }
+
+  /**
+   * Processes sections of the {@code podFile} indexed with {@code key} in the order of appearance
+   */
+  public static boolean processElements(@NotNull PsiFile podFile,
+                                        @NotNull String key,
+                                        @NotNull Processor<? super PodStubBasedTitledSection> processor) {
+    Project project = podFile.getProject();
+    VirtualFile virtualFile = podFile.getVirtualFile();
+    if (virtualFile == null) {
+      return true;
+    }
+    return StubIndex.getInstance().processElements(
+      KEY, key, project, GlobalSearchScope.fileScope(project, virtualFile), PodStubBasedTitledSection.class, element -> {
+        ProgressManager.checkCanceled();
+        return processor.process(element);
+      });
+  }
+}
@@ -24,13 +24,18 @@ import com.intellij.openapi.projectRoots.Sdk;
 import com.perl5.lang.perl.idea.run.GenericPerlRunConfiguration;
 import com.perl5.lang.perl.idea.run.PerlRunProfileState;
 import com.perl5.lang.perl.idea.sdk.host.PerlHostData;
+import com.perl5.lang.perl.util.PerlPluginUtil;
+import com.perl5.lang.perl.util.PerlRunUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class PerlCoverageProfileState extends PerlRunProfileState {
   private static final Logger LOG = Logger.getInstance(PerlCoverageProfileState.class);
+  private static final String WORKER_MODULE = "Devel::Cover::Camelcade::Worker";
+
   public PerlCoverageProfileState(ExecutionEnvironment environment) {
     super(environment);
   }
@@ -44,11 +49,14 @@ public class PerlCoverageProfileState extends PerlRunProfileState {
     Sdk effectiveSdk = perlRunConfiguration.getEffectiveSdk();
     PerlHostData hostData = PerlHostData.notNullFrom(effectiveSdk);
 
-    return Collections.singletonList("-MDevel::Cover=-silent,1,-db," + hostData.getRemotePath(coverageBasePath) + ",-dir,.");
-  }
-
-  @Override
-  public boolean isParallelRunAllowed() {
-    return false;
+    int workersNumber = perlRunConfiguration.getParallelProcessesNumber();
+    if (workersNumber < 2) {
+      return Collections.singletonList("-MDevel::Cover=-silent,1,-db," + hostData.getRemotePath(coverageBasePath) + ",-dir,.");
+    }
+    // each running process writes into the database of a free worker slot, databases are merged on loading by PerlCoverageRunner
+    return Arrays.asList(
+      PerlRunUtil.PERL_I + hostData.getRemotePath(PerlPluginUtil.getHelpersLibPath()),
+      "-M" + WORKER_MODULE + "=" + hostData.getRemotePath(coverageBasePath) + "," + workersNumber + "," +
+      PerlCoverageRunner.WORKER_DATABASE_PREFIX);
   }
 }
@@ -24,6 +24,7 @@ import com.intellij.execution.configurations.ConfigurationInfoProvider;
 import com.intellij.execution.configurations.RunProfile;
 import com.intellij.execution.configurations.RunProfileState;
 import com.intellij.execution.configurations.RunnerSettings;
+import com.intellij.execution.configurations.coverage.CoverageEnabledConfiguration;
 import com.intellij.execution.process.ProcessHandler;
 import com.intellij.execution.runners.DefaultProgramRunner;
 import com.intellij.execution.runners.ExecutionEnvironment;
@@ -31,6 +32,8 @@ import com.perl5.lang.perl.idea.run.GenericPerlRunConfiguration;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+
 public class PerlCoverageProgramRunner extends DefaultProgramRunner {
   @NotNull
   @Override
@@ -52,6 +55,11 @@ public class PerlCoverageProgramRunner extends DefaultProgramRunner {
   @Override
   protected void execute(@NotNull ExecutionEnvironment environment, Callback callback, @NotNull RunProfileState state)
     throws ExecutionException {
+    String coverageFilePath =
+      CoverageEnabledConfiguration.getOrCreate((GenericPerlRunConfiguration)environment.getRunProfile()).getCoverageFilePath();
+    if (coverageFilePath != null) {
+      PerlCoverageRunner.deleteWorkersDatabases(new File(coverageFilePath));
+    }
     super.execute(environment, descriptor -> {
       ProcessHandler processHandler = descriptor.getProcessHandler();
       if (processHandler != null) {
@@ -18,17 +18,20 @@ package com.perl5.lang.perl.idea.coverage;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.coverage.CoverageEngine;
 import com.intellij.coverage.CoverageRunner;
 import com.intellij.coverage.CoverageSuite;
 import com.intellij.execution.ExecutionException;
-import com.intellij.execution.process.ProcessOutput;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.projectRoots.Sdk;
@@ -37,6 +40,7 @@ import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.rt.coverage.data.ClassData;
+import com.intellij.rt.coverage.data.JumpData;
 import com.intellij.rt.coverage.data.LineCoverage;
 import com.intellij.rt.coverage.data.LineData;
 import com.intellij.rt.coverage.data.ProjectData;
@@ -48,15 +52,24 @@ import com.perl5.lang.perl.util.PerlRunUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.util.Collections;
-import java.util.Map;
-import java.util.Set;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class PerlCoverageRunner extends CoverageRunner {
   private static final String COVER = "cover";
   private static final String COVER_LIB = "Devel::Cover";
   private static final Logger LOG = Logger.getInstance(PerlCoverageRunner.class);
+  private static final int MAX_ERROR_LENGTH = 64 * 1024;
+  /**
+   * Prefix of databases and their locks, collected by parallel worker processes inside the coverage directory
+   *
+   * @see PerlCoverageProfileState
+   */
+  static final String WORKER_DATABASE_PREFIX = "worker_";
 
   @Override
   public ProjectData loadCoverageData(@NotNull File sessionDataFile, @Nullable CoverageSuite baseCoverageSuite) {
@@ -88,7 +101,68 @@ public class PerlCoverageRunner extends CoverageRunner {
       LOG.error(e);
       return null;
     }
+    PerlHostData<?, ?> hostData = PerlHostData.notNullFrom(effectiveSdk);
 
+    List<File> workersDatabases = findWorkersDatabases(sessionDataFile);
+    if (workersDatabases.isEmpty()) {
+      ProjectData projectData = new ProjectData();
+      Boolean hasData = loadDatabase(project, effectiveSdk, sessionDataFile, it -> addFileData(projectData, hostData, it));
+      return Boolean.TRUE.equals(hasData) ? projectData : null;
+    }
+
+    LOG.info("Loading coverage from " + workersDatabases.size() + " worker databases");
+    Map<String, PerlFileData> filesData = new ConcurrentHashMap<>();
+    boolean isLoaded = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(
+      workersDatabases, ProgressManager.getInstance().getProgressIndicator(),
+      database -> loadDatabase(project, effectiveSdk, database, it -> mergeFileData(filesData, it)) != null);
+    if (!isLoaded || filesData.isEmpty()) {
+      return null;
+    }
+    ProjectData projectData = new ProjectData();
+    filesData.values().forEach(it -> addFileData(projectData, hostData, it));
+    return projectData;
+  }
+
+  /**
+   * @return databases, collected by parallel worker processes in separate directories inside the {@code sessionDataFile}
+   */
+  @NotNull
+  static List<File> findWorkersDatabases(@NotNull File sessionDataFile) {
+    File[] databases = sessionDataFile.listFiles(it -> it.isDirectory() && it.getName().startsWith(WORKER_DATABASE_PREFIX));
+    return databases == null ? Collections.emptyList() : Arrays.asList(databases);
+  }
+
+  /**
+   * Removes databases and locks of worker processes, left by the previous run
+   */
+  static void deleteWorkersDatabases(@NotNull File sessionDataFile) {
+    File[] files = sessionDataFile.listFiles(it -> it.getName().startsWith(WORKER_DATABASE_PREFIX));
+    if (files != null) {
+      for (File file : files) {
+        FileUtil.delete(file);
+      }
+    }
+  }
+
+  /**
+   * Merges {@code fileData}, reported for one of worker databases, into {@code filesData} by file name
+   */
+  static void mergeFileData(@NotNull Map<String, PerlFileData> filesData, @NotNull PerlFileData fileData) {
+    if (fileData.name != null) {
+      filesData.merge(fileData.name, fileData, PerlFileData::merge);
+    }
+  }
+
+  /**
+   * Runs {@code cover} on the {@code database} and passes reported files to the {@code fileDataConsumer}
+   *
+   * @return true if data was loaded, false if report is empty and null on error
+   */
+  @Nullable
+  private static Boolean loadDatabase(@NotNull Project project,
+                                      @NotNull Sdk effectiveSdk,
+                                      @NotNull File database,
+                                      @NotNull Consumer<PerlFileData> fileDataConsumer) {
     PerlCommandLine perlCommandLine = ReadAction.compute(() -> {
       if (project.isDisposed()) {
         return null;
@@ -110,7 +184,7 @@ public class PerlCoverageRunner extends CoverageRunner {
       }
 
       commandLine
-        .addParameters("--silent", "--nosummary", "-report", "camelcade", hostData.getRemotePath(sessionDataFile.getAbsolutePath()));
+        .addParameters("--silent", "--nosummary", "-report", "camelcade", hostData.getRemotePath(database.getAbsolutePath()));
       commandLine.withSdk(effectiveSdk);
       commandLine.withProject(project);
 
@@ -121,82 +195,169 @@ public class PerlCoverageRunner extends CoverageRunner {
       return null;
     }
 
+    LOG.info("Loading coverage by: " + perlCommandLine.getCommandLineString());
+    Process process;
     try {
-      LOG.info("Loading coverage by: " + perlCommandLine.getCommandLineString());
-      ProcessOutput output = PerlHostData.execAndGetOutput(perlCommandLine);
-      if (output.getExitCode() != 0) {
-        String errorMessage = output.getStderr();
-        if (StringUtil.isEmpty(errorMessage)) {
-          errorMessage = output.getStdout();
-        }
+      process = PerlHostData.createProcessHandler(perlCommandLine).getProcess();
+    }
+    catch (ExecutionException e) {
+      LOG.warn("Error loading coverage", e);
+      showError(project, e.getMessage());
+      return null;
+    }
 
+    Future<String> stderrFuture = ApplicationManager.getApplication().executeOnPooledThread(
+      () -> readLimited(new InputStreamReader(process.getErrorStream(), perlCommandLine.getCharset())));
+    boolean isCompleted = false;
+    try {
+      boolean hasData = readFilesData(new InputStreamReader(process.getInputStream(), perlCommandLine.getCharset()), fileDataConsumer);
+      int exitCode = process.waitFor();
+      isCompleted = true;
+      if (exitCode != 0) {
+        String errorMessage = stderrFuture.get();
         if (!StringUtil.isEmpty(errorMessage)) {
           showError(project, errorMessage);
         }
         return null;
       }
-      String stdout = output.getStdout();
-      if (StringUtil.isEmpty(stdout)) {
-        return null;
+      return hasData;
+    }
+    catch (JsonParseException | IllegalStateException | IOException e) {
+      // IllegalStateException is thrown by JsonReader on unexpected tokens, e.g. if output is not a json array
+      LOG.warn("Error parsing JSON", e);
+      String errorMessage = process.isAlive() ? null : getNow(stderrFuture);
+      showError(project, StringUtil.isEmpty(errorMessage) ? e.getMessage() : errorMessage);
+    }
+    catch (InterruptedException e) {
+      LOG.warn("Error loading coverage", e);
+      Thread.currentThread().interrupt();
+    }
+    catch (java.util.concurrent.ExecutionException e) {
+      LOG.warn("Error loading coverage", e);
+    }
+    finally {
+      if (!isCompleted) {
+        process.destroy();
       }
+    }
+    return null;
+  }
 
-      try {
-        PerlFileData[] filesData = new Gson().fromJson(stdout, PerlFileData[].class);
-        if (filesData != null) {
-          return parsePerlFileData(PerlHostData.notNullFrom(effectiveSdk), filesData);
-        }
+  /**
+   * Reads {@code cover -report camelcade} output: a json array of {@link PerlFileData}. Files are read and passed to the
+   * {@code fileDataConsumer} one by one, so the report is never kept in memory as a whole.
+   *
+   * @return false if output is empty
+   */
+  static boolean readFilesData(@NotNull Reader reader, @NotNull Consumer<PerlFileData> fileDataConsumer) throws IOException {
+    ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+    Gson gson = new Gson();
+    try (JsonReader jsonReader = new JsonReader(new BufferedReader(reader))) {
+      if (jsonReader.peek() == JsonToken.END_DOCUMENT) {
+        return false;
       }
-      catch (JsonParseException e) {
-        LOG.warn("Error parsing JSON", e);
-        showError(project, e.getMessage());
+      int filesNumber = 0;
+      jsonReader.beginArray();
+      while (jsonReader.hasNext()) {
+        ProgressManager.checkCanceled();
+        PerlFileData perlFileData = gson.fromJson(jsonReader, PerlFileData.class);
+        if (perlFileData == null) {
+          continue;
+        }
+        if (indicator != null) {
+          indicator.setText2(PerlBundle.message("perl.coverage.loading.file", ++filesNumber, perlFileData.name));
+        }
+        fileDataConsumer.accept(perlFileData);
       }
+      jsonReader.endArray();
+      return true;
     }
-    catch (ExecutionException e) {
-      LOG.warn("Error loading coverage", e);
-      showError(project, e.getMessage());
+  }
+
+  private static void addFileData(@NotNull ProjectData projectData,
+                                  @NotNull PerlHostData<?, ?> hostData,
+                                  @NotNull PerlFileData perlFileData) {
+    if (StringUtil.isEmpty(perlFileData.name) || perlFileData.lines == null) {
+      LOG.warn("Name or lines is null in " + perlFileData);
+      return;
     }
-    return null;
+    String localPath = hostData.getLocalPath(perlFileData.name);
+    if (localPath == null) {
+      return;
+    }
+    ClassData classData = projectData.getOrCreateClassData(FileUtil.toSystemIndependentName(localPath));
+    Set<Map.Entry<Integer, PerlLineData>> linesEntries = perlFileData.lines.entrySet();
+    Integer maxLineNumber = linesEntries.stream().map(Map.Entry::getKey).max(Integer::compare).orElse(0);
+    LineData[] linesData = new LineData[maxLineNumber + 1];
+    for (Map.Entry<Integer, PerlLineData> lineEntry : linesEntries) {
+      linesData[lineEntry.getKey()] = createLineData(lineEntry.getKey(), lineEntry.getValue());
+    }
+
+    classData.setLines(linesData);
   }
 
+  /**
+   * @return line data with statements hits and hits of each branch side. Status depends on statements only.
+   */
   @NotNull
-  private static ProjectData parsePerlFileData(@NotNull PerlHostData hostData, @NotNull PerlFileData[] filesData) {
-    ProjectData projectData = new ProjectData();
-    for (PerlFileData perlFileData : filesData) {
-      if (StringUtil.isEmpty(perlFileData.name) || perlFileData.lines == null) {
-        LOG.warn("Name or lines is null in " + perlFileData);
-        continue;
-      }
-      String localPath = hostData.getLocalPath(perlFileData.name);
-      if (localPath == null) {
-        continue;
+  static LineData createLineData(int lineNumber, @NotNull PerlLineData perlLineData) {
+    LineData lineData = new LineData(lineNumber, null) {
+      @Override
+      public int getStatus() {
+        if (perlLineData.cover == 0) {
+          return LineCoverage.NONE;
+        }
+        else if (perlLineData.cover < perlLineData.data) {
+          return LineCoverage.PARTIAL;
+        }
+        return LineCoverage.FULL;
       }
-      ClassData classData = projectData.getOrCreateClassData(FileUtil.toSystemIndependentName(localPath));
-      Set<Map.Entry<Integer, PerlLineData>> linesEntries = perlFileData.lines.entrySet();
-      Integer maxLineNumber = linesEntries.stream().map(Map.Entry::getKey).max(Integer::compare).orElse(0);
-      LineData[] linesData = new LineData[maxLineNumber + 1];
-      for (Map.Entry<Integer, PerlLineData> lineEntry : linesEntries) {
-        PerlLineData perlLineData = lineEntry.getValue();
-        final Integer lineNumber = lineEntry.getKey();
-        LineData lineData = new LineData(lineNumber, null) {
-          @Override
-          public int getStatus() {
-            if (perlLineData.cover == 0) {
-              return LineCoverage.NONE;
-            }
-            else if (perlLineData.cover < perlLineData.data) {
-              return LineCoverage.PARTIAL;
-            }
-            return LineCoverage.FULL;
-          }
-        };
-        lineData.setHits(perlLineData.cover);
-        linesData[lineNumber] = lineData;
+    };
+    lineData.setHits(perlLineData.cover);
+    if (perlLineData.branches != null) {
+      for (int i = 0; i < perlLineData.branches.length; i++) {
+        int[] branchHits = perlLineData.branches[i];
+        JumpData jumpData = lineData.addJump(i);
+        if (branchHits != null) {
+          jumpData.setTrueHits(branchHits.length > 0 ? branchHits[0] : 0);
+          jumpData.setFalseHits(branchHits.length > 1 ? branchHits[1] : 0);
+        }
       }
+      lineData.fillArrays();
+    }
+    return lineData;
+  }
 
-      classData.setLines(linesData);
+  @Nullable
+  private static String getNow(@NotNull Future<String> future) {
+    try {
+      return future.get(1, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
     }
+    catch (Exception e) {
+      return null;
+    }
+  }
 
-    return projectData;
+  /**
+   * @return first {@link #MAX_ERROR_LENGTH} chars of {@code reader}, rest is skipped
+   */
+  @NotNull
+  private static String readLimited(@NotNull Reader reader) throws IOException {
+    StringBuilder result = new StringBuilder();
+    char[] buffer = new char[8192];
+    try (Reader closeableReader = reader) {
+      int read;
+      while ((read = closeableReader.read(buffer)) != -1) {
+        if (result.length() < MAX_ERROR_LENGTH) {
+          result.append(buffer, 0, Math.min(read, MAX_ERROR_LENGTH - result.length()));
+        }
+      }
+    }
+    return result.toString();
   }
 
   private static void showError(@NotNull Project project, @NotNull String message) {
@@ -16,9 +16,31 @@
 
 package com.perl5.lang.perl.idea.coverage;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
 import java.util.Map;
 
 class PerlFileData {
   public String name;
   public Map<Integer, PerlLineData> lines;
+
+  /**
+   * Merges {@code other} data of the same file, collected in another worker database, into this one
+   */
+  @NotNull
+  PerlFileData merge(@NotNull PerlFileData other) {
+    if (other.lines != null) {
+      if (lines == null) {
+        lines = new HashMap<>();
+      }
+      other.lines.forEach((lineNumber, lineData) -> lines.merge(lineNumber, lineData, PerlLineData::merge));
+    }
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "PerlFileData{name='" + name + "', lines=" + (lines == null ? null : lines.size()) + '}';
+  }
 }
@@ -16,9 +16,56 @@
 
 package com.perl5.lang.perl.idea.coverage;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
 class PerlLineData {
   int data;
   int cover;
   int uncoverable;
   int time;
+  /**
+   * Hits of each side of each branch on this line, null if line has no branches
+   */
+  int[][] branches;
+
+  /**
+   * Adds {@code other} data, collected for the same line by another worker process
+   */
+  @NotNull
+  PerlLineData merge(@NotNull PerlLineData other) {
+    data = Math.max(data, other.data);
+    cover += other.cover;
+    uncoverable = Math.max(uncoverable, other.uncoverable);
+    time += other.time;
+    if (other.branches != null) {
+      if (branches == null) {
+        branches = new int[other.branches.length][];
+      }
+      else if (branches.length < other.branches.length) {
+        branches = Arrays.copyOf(branches, other.branches.length);
+      }
+      for (int i = 0; i < other.branches.length; i++) {
+        branches[i] = mergeHits(branches[i], other.branches[i]);
+      }
+    }
+    return this;
+  }
+
+  @Nullable
+  private static int[] mergeHits(@Nullable int[] hits, @Nullable int[] otherHits) {
+    if (otherHits == null) {
+      return hits;
+    }
+    if (hits == null) {
+      return otherHits.clone();
+    }
+    int[] result = Arrays.copyOf(hits, Math.max(hits.length, otherHits.length));
+    for (int i = 0; i < otherHits.length; i++) {
+      result[i] += otherHits[i];
+    }
+    return result;
+  }
 }
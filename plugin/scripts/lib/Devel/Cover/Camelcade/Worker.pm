@@ -0,0 +1,41 @@
+package Devel::Cover::Camelcade::Worker;
+use strict;
+use warnings FATAL => 'all';
+use Fcntl qw/:flock/;
+
+# Starts Devel::Cover with a database of a free worker slot. Slot stays locked until the process exits, so processes running at the
+# same time never share a database. Processes started by the worker inherit its slot instead of waiting for another one.
+# usage: -MDevel::Cover::Camelcade::Worker=<databases_root>,<workers_number>,<database_prefix>
+my $SLOT_VARIABLE = 'CAMELCADE_COVER_WORKER_SLOT';
+my $slot_lock;
+
+sub import {
+    my $class = shift;
+    my $databases_root = shift;
+    my $workers_number = shift || 1;
+    my $database_prefix = shift // 'worker_';
+
+    my $slot = $ENV{$SLOT_VARIABLE};
+    unless (defined $slot) {
+        mkdir $databases_root unless -d $databases_root;
+        SLOT: while (1) {
+            for my $candidate (0 .. $workers_number - 1) {
+                open my $lock, '>', "$databases_root/$database_prefix$candidate.lock" or next;
+                if (flock($lock, LOCK_EX | LOCK_NB)) {
+                    $slot_lock = $lock;
+                    $slot = $candidate;
+                    last SLOT;
+                }
+                close $lock;
+            }
+            # all slots are taken, e.g. by processes which are exiting now
+            select(undef, undef, undef, 0.1);
+        }
+        $ENV{$SLOT_VARIABLE} = $slot;
+    }
+
+    require Devel::Cover;
+    Devel::Cover->import('-silent', 1, '-db', "$databases_root/$database_prefix$slot", '-dir', '.');
+}
+
+1;
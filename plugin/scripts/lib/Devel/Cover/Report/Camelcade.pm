@@ -41,6 +41,15 @@ sub report {
                     }
                 }
             }
+            elsif ($criterion_name eq 'branch') {
+                for my $location_id ($criterion->items) {
+                    my $location_data = $criterion->location($location_id);
+                    my $location_result = $file_result->{lines}{$location_id} //= {};
+                    foreach my $element (@$location_data) {
+                        push @{$location_result->{branches}}, [ map {$element->covered($_) // 0} 0 .. $element->total - 1 ];
+                    }
+                }
+            }
             #            else {
             #                print "  $criterion_name\n";
             #                for my $location_id ($criterion->items) {
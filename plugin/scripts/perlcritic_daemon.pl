@@ -0,0 +1,70 @@
+#!/usr/bin/perl
+#
+# Long-living Perl::Critic worker. Policies are loaded once and sources are checked on request.
+#
+# Request:  <id> <length in bytes>\n<source bytes>
+# Response: <id> <number of lines>\n<violation lines>
+#
+# Arguments are perlcritic options, supported subset: -1..-5, --severity, --theme, --profile, --noprofile,
+# --include, --exclude, --single-policy, --force, --top, --brutal/cruel/harsh/stern/gentle
+# Exits before signaling readiness if options can't be parsed, so the daemon never runs with a policy set different from perlcritic
+use strict;
+use warnings;
+use Getopt::Long qw(GetOptionsFromArray);
+use Perl::Critic;
+use Perl::Critic::Violation;
+
+binmode STDIN;
+binmode STDOUT;
+$| = 1;
+
+my %options = ();
+my @args = @ARGV;
+foreach my $level (1 .. 5) {
+    @args = map {$_ eq "-$level" ? ('--severity', $level) : $_} @args;
+}
+GetOptionsFromArray(\@args,
+    'severity=s'      => \$options{-severity},
+    'theme=s'         => \$options{-theme},
+    'profile=s'       => \$options{-profile},
+    'noprofile'       => sub {$options{-profile} = ''},
+    'include=s@'      => \$options{-include},
+    'exclude=s@'      => \$options{-exclude},
+    'single-policy=s' => \$options{'-single-policy'},
+    'force!'          => \$options{-force},
+    'top:i'           => \$options{-top},
+    'brutal'          => sub {$options{-severity} = 1},
+    'cruel'           => sub {$options{-severity} = 2},
+    'harsh'           => sub {$options{-severity} = 3},
+    'stern'           => sub {$options{-severity} = 4},
+    'gentle'          => sub {$options{-severity} = 5},
+) or die "Unable to parse some options: @ARGV\n"; # IDE falls back to the perlcritic run with the same options
+delete @options{grep {!defined $options{$_}} keys %options};
+
+my $critic = Perl::Critic->new(%options);
+Perl::Critic::Violation::set_format("%m at line %l, column %c.  %e.  (Severity: %s)\n");
+
+# signaling that policies are loaded
+print "READY\n";
+
+while (my $header = <STDIN>) {
+    chomp $header;
+    my ($id, $length) = split /\s+/, $header;
+    next unless defined $length;
+
+    my $source = '';
+    while (length($source) < $length) {
+        my $read = read(STDIN, $source, $length - length($source), length($source));
+        last unless $read;
+    }
+
+    my @lines = eval {
+        map {my $line = "$_"; $line =~ s/\s*\n\s*/ /g; $line =~ s/\s+$//; $line} $critic->critique(\$source);
+    };
+    if (my $e = $@) {
+        $e =~ s/\s*\n\s*/ /g;
+        warn "Error critiquing request $id: $e\n";
+        @lines = ();
+    }
+    print join "\n", "$id " . scalar(@lines), @lines, '';
+}
@@ -0,0 +1,55 @@
+#!/usr/bin/perl
+#
+# Long-living Perl::Tidy worker. Module is loaded once and sources are formatted on request. Requests may be pipelined,
+# responses are sent in the same order.
+#
+# Request:  <id> <length in bytes>\n<source bytes>
+# Response: <id> <output length in bytes> <errors length in bytes>\n<output bytes><errors bytes>
+#
+# Arguments are perltidy options, applied to each request
+use strict;
+use warnings;
+use Perl::Tidy;
+
+binmode STDIN;
+binmode STDOUT;
+$| = 1;
+
+my @args = @ARGV;
+
+# signaling that module is loaded
+print "READY\n";
+
+while (my $header = <STDIN>) {
+    chomp $header;
+    my ($id, $length) = split /\s+/, $header;
+    next unless defined $length;
+
+    my $source = '';
+    while (length($source) < $length) {
+        my $read = read(STDIN, $source, $length - length($source), length($source));
+        last unless $read;
+    }
+
+    my $output = '';
+    my $errors = '';
+    my $failed = eval {
+        Perl::Tidy::perltidy(
+            source      => \$source,
+            destination => \$output,
+            stderr      => \$errors,
+            errorfile   => \$errors,
+            argv        => [ @args ],
+        );
+    };
+    if (my $e = $@) {
+        $errors .= $e;
+    }
+    elsif ($failed && !length $errors) {
+        $errors = "Perl::Tidy reported an error\n";
+    }
+    foreach ($output, $errors) {
+        utf8::encode($_) if utf8::is_utf8($_);
+    }
+    print "$id " . length($output) . ' ' . length($errors) . "\n", $output, $errors;
+}
@@ -158,6 +158,25 @@ public class PerlAnnotatorTest extends PerlLightTestCase {
   @Test
   public void testUnusedSubInspection() {doInspectionTest(PerlUnusedSubInspection.class);}
 
+  @Test
+  public void testUnusedSubInspectionSameFile() {doInspectionTest(PerlUnusedSubInspection.class);}
+
+  @Test
+  public void testUnusedSubInspectionCrossFile() {doTestUnusedSubInspectionWithUsages();}
+
+  @Test
+  public void testUnusedSubInspectionAccessors() {doTestUnusedSubInspectionWithUsages();}
+
+  /**
+   * Usages file is loaded by the references search, so files loading is not restricted here
+   */
+  private void doTestUnusedSubInspectionWithUsages() {
+    myFixture.copyFileToProject(getTestName(true) + "Usages.pl");
+    initWithFileSmart();
+    myFixture.enableInspections(PerlUnusedSubInspection.class);
+    myFixture.checkHighlighting(true, false, false);
+  }
+
   @Test
   public void testUnresolvedSubInspection() {doTestUnresolvedSubInspection();}
 
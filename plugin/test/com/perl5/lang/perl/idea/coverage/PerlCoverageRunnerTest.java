@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.coverage;
+
+import base.PerlLightTestCase;
+import com.intellij.rt.coverage.data.LineCoverage;
+import com.intellij.rt.coverage.data.LineData;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PerlCoverageRunnerTest extends PerlLightTestCase {
+  private static final String FIRST_WORKER_REPORT =
+    "[{\"name\":\"lib/Foo.pm\",\"lines\":{" +
+    "\"1\":{\"data\":1,\"cover\":1,\"time\":10}," +
+    "\"2\":{\"data\":2,\"cover\":1,\"branches\":[[1,0]]}," +
+    "\"3\":{\"data\":1,\"cover\":0}}}," +
+    "{\"name\":\"t/first.t\",\"lines\":{\"1\":{\"data\":1,\"cover\":1}}}]";
+  private static final String SECOND_WORKER_REPORT =
+    "[{\"name\":\"lib/Foo.pm\",\"lines\":{" +
+    "\"1\":{\"data\":1,\"cover\":2,\"time\":5}," +
+    "\"2\":{\"data\":2,\"cover\":2,\"branches\":[[0,3]]}," +
+    "\"4\":{\"data\":1,\"cover\":1}}}," +
+    "{\"name\":\"t/second.t\",\"lines\":{\"1\":{\"data\":1,\"cover\":0}}}]";
+
+  @Test
+  public void testMergeFiles() throws IOException {
+    Map<String, PerlFileData> filesData = loadWorkers();
+    assertSameElements(filesData.keySet(), "lib/Foo.pm", "t/first.t", "t/second.t");
+    assertSameElements(filesData.get("lib/Foo.pm").lines.keySet(), 1, 2, 3, 4);
+  }
+
+  @Test
+  public void testMergeLines() throws IOException {
+    Map<Integer, PerlLineData> lines = loadWorkers().get("lib/Foo.pm").lines;
+    PerlLineData firstLine = lines.get(1);
+    assertEquals(1, firstLine.data);
+    assertEquals(3, firstLine.cover);
+    assertEquals(15, firstLine.time);
+    assertEquals(0, lines.get(3).cover);
+    assertEquals(1, lines.get(4).cover);
+  }
+
+  @Test
+  public void testMergeBranches() throws IOException {
+    PerlLineData branchLine = loadWorkers().get("lib/Foo.pm").lines.get(2);
+    assertEquals(2, branchLine.data);
+    assertEquals(3, branchLine.cover);
+    assertEquals(1, branchLine.branches.length);
+    assertEquals(2, branchLine.branches[0].length);
+    assertEquals(1, branchLine.branches[0][0]);
+    assertEquals(3, branchLine.branches[0][1]);
+  }
+
+  @Test
+  public void testLineData() throws IOException {
+    Map<Integer, PerlLineData> lines = loadWorkers().get("lib/Foo.pm").lines;
+    LineData fullLine = PerlCoverageRunner.createLineData(1, lines.get(1));
+    assertEquals(3, fullLine.getHits());
+    assertEquals(LineCoverage.FULL, fullLine.getStatus());
+
+    LineData branchLine = PerlCoverageRunner.createLineData(2, lines.get(2));
+    assertEquals(LineCoverage.FULL, branchLine.getStatus());
+    assertEquals(1, branchLine.getJumpData(0).getTrueHits());
+    assertEquals(3, branchLine.getJumpData(0).getFalseHits());
+
+    assertEquals(LineCoverage.NONE, PerlCoverageRunner.createLineData(3, lines.get(3)).getStatus());
+  }
+
+  @Test
+  public void testEmptyReport() throws IOException {
+    assertFalse(PerlCoverageRunner.readFilesData(new StringReader(""), it -> fail("Unexpected file: " + it)));
+  }
+
+  @NotNull
+  private static Map<String, PerlFileData> loadWorkers() throws IOException {
+    Map<String, PerlFileData> filesData = new HashMap<>();
+    for (String report : new String[]{FIRST_WORKER_REPORT, SECOND_WORKER_REPORT}) {
+      assertTrue(PerlCoverageRunner.readFilesData(new StringReader(report), it -> PerlCoverageRunner.mergeFileData(filesData, it)));
+    }
+    return filesData;
+  }
+}
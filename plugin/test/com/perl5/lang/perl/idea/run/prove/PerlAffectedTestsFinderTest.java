@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.perl5.lang.perl.idea.run.prove;
+
+import base.PerlLightTestCase;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.fixtures.impl.CodeInsightTestFixtureImpl;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+public class PerlAffectedTestsFinderTest extends PerlLightTestCase {
+  @Test
+  public void testUseStatement() {
+    VirtualFile module = addFile("lib/Foo.pm", "package Foo; 1;");
+    addFile("t/foo.t", "use Foo; 1;");
+    addFile("t/other.t", "use strict; 1;");
+    doTest(module, "foo.t");
+  }
+
+  @Test
+  public void testTransitiveUse() {
+    VirtualFile module = addFile("lib/Bar.pm", "package Bar; 1;");
+    addFile("lib/Foo.pm", "package Foo; use Bar; 1;");
+    addFile("t/foo.t", "use Foo; 1;");
+    doTest(module, "foo.t");
+  }
+
+  @Test
+  public void testUseParent() {
+    doTestInheritance("package Child; use parent qw/Base/; 1;");
+  }
+
+  @Test
+  public void testUseBase() {
+    doTestInheritance("package Child; use base 'Base'; 1;");
+  }
+
+  @Test
+  public void testIsa() {
+    doTestInheritance("package Child; our @ISA = ('Base'); 1;");
+  }
+
+  @Test
+  public void testMooseExtends() {
+    doTestInheritance("package Child; use Moose; extends 'Base'; 1;");
+  }
+
+  @Test
+  public void testChangedTest() {
+    VirtualFile test = addFile("t/foo.t", "use strict; 1;");
+    addFile("t/other.t", "use strict; 1;");
+    doTest(test, "foo.t");
+  }
+
+  @Test
+  public void testUnrelatedChange() {
+    VirtualFile module = addFile("lib/Foo.pm", "package Foo; 1;");
+    addFile("t/other.t", "use strict; 1;");
+    doTest(module);
+  }
+
+  private void doTestInheritance(@NotNull String childSource) {
+    VirtualFile baseModule = addFile("lib/Base.pm", "package Base; 1;");
+    addFile("lib/Child.pm", childSource);
+    addFile("t/child.t", "use Child; 1;");
+    addFile("t/other.t", "use strict; 1;");
+    doTest(baseModule, "child.t");
+  }
+
+  @NotNull
+  private VirtualFile addFile(@NotNull String relativePath, @NotNull String content) {
+    return myFixture.addFileToProject(relativePath, content).getVirtualFile();
+  }
+
+  private void doTest(@NotNull VirtualFile changedFile, String... expectedTestsNames) {
+    CodeInsightTestFixtureImpl.ensureIndexesUpToDate(getProject());
+    Set<VirtualFile> affectedTests = new PerlAffectedTestsFinder(getProject())
+      .findAffectedTests(Collections.singletonList(changedFile), it -> "t".equals(it.getExtension()));
+    assertSameElements(ContainerUtil.map(affectedTests, VirtualFile::getName), expectedTestsNames);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.run.prove;
+
+import base.PerlLightTestCase;
+import com.intellij.execution.process.NopProcessHandler;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.perl5.lang.perl.idea.sdk.host.PerlHostHandler;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class PerlTestDurationsCollectorTest extends PerlLightTestCase {
+  private PerlTestDurationsStorage myStorage;
+  private PerlTestDurationsCollector myCollector;
+  private VirtualFile myFirstTest;
+  private VirtualFile mySecondTest;
+  private VirtualFile myThirdTest;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    File testsDir = FileUtil.createTempDirectory("perl", "durations", true);
+    myFirstTest = createTestFile(testsDir, "first.t");
+    mySecondTest = createTestFile(testsDir, "second.t");
+    myThirdTest = createTestFile(testsDir, "third.t");
+    myStorage = new PerlTestDurationsStorage();
+    myCollector = new PerlTestDurationsCollector(myStorage, PerlHostHandler.getDefaultHandler().createData());
+  }
+
+  @Test
+  public void testPassedSuite() {
+    feed(suiteStarted(1, myFirstTest),
+         testStarted(2, 1),
+         "ok 1 - some output\n",
+         suiteFinished(1));
+    assertNotNull(myStorage.getDuration(myFirstTest.getPath()));
+    assertFalse(myStorage.isFailed(myFirstTest.getPath()));
+    assertNull(myStorage.getDuration(mySecondTest.getPath()));
+  }
+
+  @Test
+  public void testNestedFailure() {
+    feed(suiteStarted(1, myFirstTest),
+         suiteStarted(2, mySecondTest),
+         message("testSuiteStarted", "name='subtest' nodeId='3' parentNodeId='1'"),
+         testStarted(4, 3),
+         message("testFailed", "name='inner' nodeId='4' parentNodeId='3'"),
+         suiteFinished(3),
+         suiteFinished(1),
+         suiteFinished(2));
+    assertTrue(myStorage.isFailed(myFirstTest.getPath()));
+    assertFalse(myStorage.isFailed(mySecondTest.getPath()));
+    assertNotNull(myStorage.getDuration(mySecondTest.getPath()));
+  }
+
+  @Test
+  public void testFailureFixed() {
+    myStorage.setFailed(myFirstTest.getPath(), true);
+    feed(suiteStarted(1, myFirstTest), suiteFinished(1));
+    assertFalse(myStorage.isFailed(myFirstTest.getPath()));
+  }
+
+  @Test
+  public void testSplitOutput() {
+    String text = suiteStarted(1, myFirstTest) + suiteFinished(1);
+    for (int i = 0; i < text.length(); i += 7) {
+      feed(text.substring(i, Math.min(text.length(), i + 7)));
+    }
+    assertNotNull(myStorage.getDuration(myFirstTest.getPath()));
+  }
+
+  @Test
+  public void testSortLongestFirst() {
+    myStorage.setDuration(myFirstTest.getPath(), 100);
+    myStorage.setDuration(mySecondTest.getPath(), 500);
+    assertOrderedEquals(myStorage.sortLongestFirst(Arrays.asList(myFirstTest, mySecondTest, myThirdTest)),
+                        myThirdTest, mySecondTest, myFirstTest);
+  }
+
+  @Test
+  public void testSortFailedFirst() {
+    myStorage.setFailed(myThirdTest.getPath(), true);
+    List<VirtualFile> testFiles = Arrays.asList(myFirstTest, mySecondTest, myThirdTest);
+    assertOrderedEquals(myStorage.sortFailedFirst(testFiles), myThirdTest, myFirstTest, mySecondTest);
+    assertOrderedEquals(testFiles, myFirstTest, mySecondTest, myThirdTest);
+  }
+
+  @Test
+  public void testPrune() throws IOException {
+    myStorage.setDuration(myFirstTest.getPath(), 100);
+    myStorage.setFailed(myFirstTest.getPath(), true);
+    myStorage.setDuration(mySecondTest.getPath(), 200);
+    String firstPath = myFirstTest.getPath();
+    WriteAction.runAndWait(() -> myFirstTest.delete(this));
+    PerlTestDurationsStorage.DurationsState state = myStorage.getState();
+    assertSameElements(state.durations.keySet(), mySecondTest.getPath());
+    assertDoesntContain(state.failed, firstPath);
+  }
+
+  private void feed(@NotNull String... texts) {
+    NopProcessHandler processHandler = new NopProcessHandler();
+    for (String text : texts) {
+      myCollector.onTextAvailable(new ProcessEvent(processHandler, text), ProcessOutputTypes.STDOUT);
+    }
+  }
+
+  @NotNull
+  private static String suiteStarted(int nodeId, @NotNull VirtualFile testFile) {
+    return message("testSuiteStarted", "name='" + testFile.getName() + "' locationHint='myfile://" + testFile.getPath() + "'" +
+                                       " nodeId='" + nodeId + "' parentNodeId='0'");
+  }
+
+  @NotNull
+  private static String testStarted(int nodeId, int parentNodeId) {
+    return message("testStarted", "name='test' nodeId='" + nodeId + "' parentNodeId='" + parentNodeId + "'");
+  }
+
+  @NotNull
+  private static String suiteFinished(int nodeId) {
+    return message("testSuiteFinished", "name='suite' nodeId='" + nodeId + "'");
+  }
+
+  @NotNull
+  private static String message(@NotNull String name, @NotNull String attributes) {
+    return "##teamcity[" + name + " " + attributes + "]\n";
+  }
+
+  @NotNull
+  private static VirtualFile createTestFile(@NotNull File dir, @NotNull String name) throws IOException {
+    File file = new File(dir, name);
+    FileUtil.writeToFile(file, "use Test::More; ok(1); done_testing;");
+    VirtualFile virtualFile = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(file);
+    assertNotNull(virtualFile);
+    return virtualFile;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.perl.idea.run.prove;
+
+import base.PerlLightTestCase;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class PerlTestExtensionsTest extends PerlLightTestCase {
+  @Test
+  public void testDefault() {
+    doTest("t", "--merge", "-v");
+  }
+
+  @Test
+  public void testSeparateValue() {
+    doTest("pl", "--ext", ".pl");
+  }
+
+  @Test
+  public void testInlineValue() {
+    doTest("pl", "--ext=.pl");
+  }
+
+  @Test
+  public void testSeveral() {
+    doTest("t,pl", "--ext", ".t", "-v", "--ext=.pl");
+  }
+
+  @Test
+  public void testMissingValue() {
+    doTest("t", "--ext");
+  }
+
+  private void doTest(@NotNull String expected, @NotNull String... parameters) {
+    assertEquals(expected, String.join(",", PerlTestRunConfiguration.computeTestExtensions(new ArrayList<>(Arrays.asList(parameters)))));
+  }
+}
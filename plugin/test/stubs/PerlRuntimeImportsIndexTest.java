@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package stubs;
+
+import base.PerlLightTestCase;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.fixtures.impl.CodeInsightTestFixtureImpl;
+import com.perl5.lang.perl.psi.stubs.imports.runtime.PerlRuntimeImportsIndex;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PerlRuntimeImportsIndexTest extends PerlLightTestCase {
+  @Test
+  public void testIndexKey() {
+    assertEquals("Bar.pm", PerlRuntimeImportsIndex.getIndexKey("Foo/Bar.pm"));
+    assertEquals("Bar.pm", PerlRuntimeImportsIndex.getIndexKey("Foo\\Bar.pm"));
+    assertEquals("Bar.pm", PerlRuntimeImportsIndex.getIndexKey("Bar.pm"));
+  }
+
+  @Test
+  public void testRequireNamespace() {
+    myFixture.addFileToProject("t/foo.t", "require Foo::Bar; 1;");
+    doTest("Bar.pm", "foo.t: Foo/Bar.pm");
+  }
+
+  @Test
+  public void testRequirePath() {
+    myFixture.addFileToProject("t/foo.t", "require 'Foo/Bar.pm'; 1;");
+    myFixture.addFileToProject("t/bar.t", "require \"Baz/Bar.pm\"; 1;");
+    doTest("Bar.pm", "bar.t: Baz/Bar.pm", "foo.t: Foo/Bar.pm");
+  }
+
+  @Test
+  public void testDo() {
+    myFixture.addFileToProject("t/foo.t", "do 'config/settings.pl'; 1;");
+    doTest("settings.pl", "foo.t: config/settings.pl");
+  }
+
+  @Test
+  public void testDynamicPath() {
+    myFixture.addFileToProject("t/foo.t", "my $path = 'Foo/Bar.pm'; require $path; 1;");
+    doTest("Bar.pm");
+  }
+
+  @Test
+  public void testUpdatedImport() throws IOException {
+    PsiFile file = myFixture.addFileToProject("t/foo.t", "require Foo::Bar; 1;");
+    doTest("Bar.pm", "foo.t: Foo/Bar.pm");
+    VirtualFile virtualFile = file.getVirtualFile();
+    WriteAction.run(() -> VfsUtil.saveText(virtualFile, "require Foo::Baz; 1;"));
+    doTest("Bar.pm");
+    doTest("Baz.pm", "foo.t: Foo/Baz.pm");
+  }
+
+  private void doTest(@NotNull String fileName, String... expectedImports) {
+    CodeInsightTestFixtureImpl.ensureIndexesUpToDate(getProject());
+    List<String> imports = new ArrayList<>();
+    PerlRuntimeImportsIndex.processImports(getProject(), GlobalSearchScope.allScope(getProject()), fileName, it -> {
+      imports.add(it.getContainingFile().getName() + ": " + it.getImportPath());
+      return true;
+    });
+    assertSameElements(imports, expectedImports);
+  }
+}
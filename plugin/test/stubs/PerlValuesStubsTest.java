@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stubs;
+
+import base.PerlLightTestCase;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.StubBasedPsiElement;
+import com.intellij.psi.impl.DebugUtil;
+import com.intellij.psi.impl.source.PsiFileImpl;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.ObjectStubTree;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubTreeLoader;
+import com.intellij.psi.tree.IStubFileElementType;
+import com.intellij.testFramework.fixtures.impl.CodeInsightTestFixtureImpl;
+import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValue;
+import com.perl5.lang.perl.psi.PerlSubDefinitionElement;
+import com.perl5.lang.perl.psi.stubs.subsdefinitions.PerlSubDefinitionStub;
+import com.perl5.lang.perl.psi.stubs.subsdefinitions.PerlSubDefinitionsIndex;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Checks that values with repeated parts survive writing to and reading from the stub index, including lazy reading of separate stubs
+ */
+public class PerlValuesStubsTest extends PerlLightTestCase {
+  private static final int FILES_NUMBER = 3;
+
+  @Test
+  public void testRepeatedValuesRoundTrip() {
+    List<PsiFile> psiFiles = new ArrayList<>();
+    for (int i = 0; i < FILES_NUMBER; i++) {
+      psiFiles.add(myFixture.addFileToProject("Foo/Bar" + i + ".pm", getSource("Foo::Bar" + i)));
+    }
+    CodeInsightTestFixtureImpl.ensureIndexesUpToDate(getProject());
+
+    Map<String, PerlValue> expectedValues = new HashMap<>();
+    for (PsiFile psiFile : psiFiles) {
+      ObjectStubTree<?> indexedTree = StubTreeLoader.getInstance().readFromVFile(getProject(), psiFile.getVirtualFile());
+      assertNotNull(indexedTree);
+      IStubFileElementType<?> fileElementType = (IStubFileElementType<?>)((PsiFileImpl)psiFile).getElementTypeForStubBuilder();
+      assertNotNull(fileElementType);
+      StubElement<?> builtStub = fileElementType.getBuilder().buildStubTree(psiFile);
+      assertEquals(DebugUtil.stubTreeToString(builtStub), DebugUtil.stubTreeToString(indexedTree.getRoot()));
+      collectReturnValues(builtStub, expectedValues);
+    }
+    assertSize(FILES_NUMBER * 3, expectedValues.keySet());
+
+    // reading subs from the last files first, so stubs with repeated values are read before the stubs with their first occurrences
+    for (int i = FILES_NUMBER - 1; i >= 0; i--) {
+      String namespaceName = "Foo::Bar" + i;
+      PsiManager.getInstance(getProject()).dropPsiCaches();
+      for (String subName : new String[]{"third", "second", "first"}) {
+        String canonicalName = namespaceName + "::" + subName;
+        Collection<PerlSubDefinitionElement> subDefinitions = StubIndex.getElements(
+          PerlSubDefinitionsIndex.KEY, canonicalName, getProject(), GlobalSearchScope.allScope(getProject()),
+          PerlSubDefinitionElement.class);
+        assertSize(1, subDefinitions);
+        PerlSubDefinitionElement subDefinition = subDefinitions.iterator().next();
+        assertInstanceOf(subDefinition, StubBasedPsiElement.class);
+        Object stub = ((StubBasedPsiElement<?>)subDefinition).getStub();
+        assertInstanceOf(stub, PerlSubDefinitionStub.class);
+        PerlValue returnValue = ((PerlSubDefinitionStub)stub).getReturnValueFromCode();
+        assertFalse(returnValue.isUnknown());
+        assertEquals(expectedValues.get(canonicalName), returnValue);
+      }
+    }
+  }
+
+  private static void collectReturnValues(@NotNull StubElement<?> stub, @NotNull Map<String, PerlValue> result) {
+    if (stub instanceof PerlSubDefinitionStub) {
+      result.put(((PerlSubDefinitionStub)stub).getCanonicalName(), ((PerlSubDefinitionStub)stub).getReturnValueFromCode());
+    }
+    for (StubElement<?> childStub : stub.getChildrenStubs()) {
+      collectReturnValues(childStub, result);
+    }
+  }
+
+  private static String getSource(String namespaceName) {
+    return "package " + namespaceName + ";\n" +
+           "sub first { return Some::Class->new(Some::Class->method('argument')); }\n" +
+           "sub second { return Some::Class->new(Some::Class->method('argument')); }\n" +
+           "sub third { return Some::Class->new(Some::Class->method('argument')); }\n" +
+           "our $variable = Some::Class->new(Some::Class->method('argument'));\n" +
+           "1;\n";
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package unit.perl;
+
+import com.intellij.util.containers.ContainerUtil;
+import com.perl5.lang.perl.psi.PerlSubElement;
+import com.perl5.lang.perl.psi.mixins.PerlNamespaceDefinitionMixin;
+import com.perl5.lang.perl.psi.mro.PerlMro;
+import com.perl5.lang.perl.util.PerlPackageUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class InheritedMethodsTest extends NamespaceTestCase {
+  @Test
+  public void testPackageSplitAcrossFiles() {
+    myFixture.addFileToProject("Base.pm", "package Base; sub first_method{my $self = shift;} 1;");
+    myFixture.addFileToProject("Base/Extra.pm", "package Base; sub second_method{my $self = shift;} 1;");
+    myFixture.addFileToProject("t/Base.pm", "package Base; sub third_method{my $self = shift;} 1;");
+    PerlNamespaceDefinitionMixin namespaceDefinition = getNamespaceInText("package Child; use parent qw/Base/; 1;", "Child");
+
+    List<String> methodsNames = ContainerUtil.map(PerlPackageUtil.getInheritedMethods(namespaceDefinition), PerlSubElement::getSubName);
+    assertSameElements(methodsNames, "first_method", "second_method", "third_method");
+  }
+
+  @Test
+  public void testLinearIsaIsMutable() {
+    myFixture.addFileToProject("Base.pm", "package Base; 1;");
+    getNamespaceInText("package Child; use parent qw/Base/; 1;", "Child");
+
+    List<String> linearISA = PerlMro.getLinearISA(getProject(), getFile().getResolveScope(), "Child", false);
+    assertEquals(Arrays.asList("Child", "Base", PerlPackageUtil.UNIVERSAL_NAMESPACE), linearISA);
+    linearISA.clear();
+    assertEquals(Arrays.asList("Child", "Base", PerlPackageUtil.UNIVERSAL_NAMESPACE),
+                 PerlMro.getLinearISA(getProject(), getFile().getResolveScope(), "Child", false));
+  }
+}
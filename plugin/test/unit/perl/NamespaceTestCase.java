@@ -27,6 +27,15 @@ import org.jetbrains.annotations.NotNull;
 public abstract class NamespaceTestCase extends PerlLightTestCase {
   protected PerlNamespaceDefinitionMixin getNamespaceInFile(@NotNull String fileName, @NotNull String namespaceName) {
     myFixture.configureByFile(fileName);
+    return getNamespaceInConfiguredFile(namespaceName);
+  }
+
+  protected PerlNamespaceDefinitionMixin getNamespaceInText(@NotNull String text, @NotNull String namespaceName) {
+    initWithTextSmart(text);
+    return getNamespaceInConfiguredFile(namespaceName);
+  }
+
+  private PerlNamespaceDefinitionMixin getNamespaceInConfiguredFile(@NotNull String namespaceName) {
     PsiFile file = myFixture.getFile();
 
     PerlNamespaceDefinitionMixin namespaceDefinition = null;
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package unit.perl;
+
+
+import base.PerlLightTestCase;
+import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValue;
+import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValues;
+import com.perl5.lang.perl.psi.PerlVariable;
+import com.perl5.lang.perl.psi.utils.PerlResolveUtil;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+public class PerlControlFlowValuesTest extends PerlLightTestCase {
+  @Test
+  public void testSequence() {
+    doTest("my $var = 'first';\n$var = 'second';\n$v<caret>ar;", "second");
+  }
+
+  @Test
+  public void testBranch() {
+    doTest("my $var = 'first';\nif($a){\n  $var = 'second';\n}\n$v<caret>ar;", "OneOf[first,\nsecond]");
+  }
+
+  @Test
+  public void testBranches() {
+    doTest("my $var = 'first';\nif($a){\n  $var = 'second';\n}\nelse{\n  $var = 'third';\n}\n$v<caret>ar;", "OneOf[second,\nthird]");
+  }
+
+  @Test
+  public void testLoop() {
+    doTest("my $var = 'first';\nwhile($a){\n  $var = 'second';\n}\n$v<caret>ar;", "OneOf[first,\nsecond]");
+  }
+
+  @Test
+  public void testLoopLaterMutation() {
+    doTest("my $var = 'first';\nwhile($a){\n  $v<caret>ar;\n  $var = 'second';\n}", "first");
+  }
+
+  @Test
+  public void testInnerDeclaration() {
+    doTest("my $var = 'first';\n{\n  my $var;\n}\n$v<caret>ar;", "first");
+  }
+
+  @Test
+  public void testOuterScope() {
+    doTest("my $var = 'outer';\nsub foo{\n  $v<caret>ar;\n}", "outer");
+  }
+
+  @Test
+  public void testOuterScopeBranch() {
+    doTest("my $var = 'outer';\nsub foo{\n  if($a){\n    $var = 'inner';\n  }\n  $v<caret>ar;\n}", "OneOf[inner,\nouter]");
+  }
+
+  @Test
+  public void testOuterScopeHidden() {
+    initWithTextSmart("my $var = 'outer';\nsub foo{\n  my $var;\n  $v<caret>ar;\n}");
+    assertTrue(inferValueAtCaret().isUnknown());
+  }
+
+  @Test
+  public void testArguments() {
+    initWithTextSmart("sub foo{\n  my $var = 'first';\n  @<caret>_;\n}");
+    assertEquals(PerlValues.ARGUMENTS_VALUE, inferValueAtCaret());
+  }
+
+  private void doTest(@NotNull String text, @NotNull String expected) {
+    initWithTextSmart(text);
+    assertEquals(expected, inferValueAtCaret().getPresentableText());
+  }
+
+  @NotNull
+  private PerlValue inferValueAtCaret() {
+    return PerlResolveUtil.inferVariableValue(getElementAtCaret(PerlVariable.class));
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package unit.perl;
+
+import base.PerlLightTestCase;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.text.StringUtil;
+import com.perl5.lang.perl.idea.execution.PerlHelperDaemon;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class PerlHelperDaemonTest extends PerlLightTestCase {
+  @Test
+  public void testRequests() throws IOException {
+    TestDaemon daemon = TestDaemon.start();
+    assertEquals("FIRST", daemon.request("first"));
+    assertEquals("SECOND", daemon.request("second"));
+    assertTrue(daemon.isAlive());
+    daemon.close();
+    assertFalse(daemon.isAlive());
+  }
+
+  @Test
+  public void testTimeout() throws IOException {
+    TestDaemon daemon = TestDaemon.start();
+    try {
+      daemon.request("hang");
+      fail("Timeout expected");
+    }
+    catch (IOException ignore) {
+    }
+    assertFalse(daemon.isAlive());
+    try {
+      daemon.request("next");
+      fail("Terminated daemon should not accept requests");
+    }
+    catch (IOException ignore) {
+    }
+  }
+
+  @Test
+  public void testCancelledResponseIsConsumed() throws IOException {
+    TestDaemon daemon = TestDaemon.start();
+    EmptyProgressIndicator indicator = new EmptyProgressIndicator();
+    indicator.cancel();
+    try {
+      ProgressManager.getInstance().runProcess(() -> {
+        try {
+          daemon.request("slow");
+        }
+        catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }, indicator);
+      fail("Cancellation expected");
+    }
+    catch (ProcessCanceledException ignore) {
+    }
+    assertTrue(daemon.isAlive());
+    assertEquals("NEXT", daemon.request("next"));
+    daemon.close();
+  }
+
+  @Test
+  public void testUnexpectedGreeting() {
+    TestDaemon daemon = new TestDaemon("NOT READY");
+    try {
+      daemon.awaitReady();
+      fail("Unexpected greeting should be reported");
+    }
+    catch (IOException ignore) {
+    }
+    daemon.close();
+  }
+
+  /**
+   * Daemon with line protocol: responds with upper-cased request, {@code slow} request is answered after a delay and {@code hang}
+   * is never answered
+   */
+  private static class TestDaemon extends PerlHelperDaemon {
+    private TestDaemon(@NotNull String greeting) {
+      this(greeting, new TestProcess());
+    }
+
+    private TestDaemon(@NotNull String greeting, @NotNull TestProcess process) {
+      super("test", process);
+      process.serve(greeting);
+    }
+
+    @NotNull
+    @Override
+    protected String getPresentableName() {
+      return "Test daemon";
+    }
+
+    @Override
+    protected long getResponseTimeout() {
+      return 500;
+    }
+
+    @Override
+    protected void awaitReady() throws IOException {
+      super.awaitReady();
+    }
+
+    @NotNull
+    String request(@NotNull String text) throws IOException {
+      return request(it -> it.write((text + "\n").getBytes(StandardCharsets.UTF_8)), this::readLine);
+    }
+
+    @NotNull
+    static TestDaemon start() throws IOException {
+      TestDaemon daemon = new TestDaemon("READY");
+      daemon.awaitReady();
+      return daemon;
+    }
+  }
+
+  private static class TestProcess extends Process {
+    private final Pipe myStdin = new Pipe();
+    private final Pipe myStdout = new Pipe();
+    private volatile boolean myIsAlive = true;
+
+    void serve(@NotNull String greeting) {
+      Thread thread = new Thread(() -> {
+        try {
+          BufferedReader reader = new BufferedReader(new InputStreamReader(myStdin.myInputStream, StandardCharsets.UTF_8));
+          PrintStream output = new PrintStream(myStdout.myOutputStream, true, StandardCharsets.UTF_8.name());
+          output.println(greeting);
+          String line;
+          while ((line = reader.readLine()) != null) {
+            if (line.equals("hang")) {
+              continue;
+            }
+            if (line.equals("slow")) {
+              TimeUnit.MILLISECONDS.sleep(200);
+            }
+            output.println(StringUtil.toUpperCase(line));
+          }
+        }
+        catch (IOException | InterruptedException ignore) {
+        }
+      }, "Test daemon");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return myStdin.myOutputStream;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return myStdout.myInputStream;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public int waitFor() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int exitValue() {
+      if (myIsAlive) {
+        throw new IllegalThreadStateException();
+      }
+      return 0;
+    }
+
+    @Override
+    public boolean isAlive() {
+      return myIsAlive;
+    }
+
+    @Override
+    public void destroy() {
+      myIsAlive = false;
+      myStdin.myOutputStream.close();
+      myStdout.myOutputStream.close();
+    }
+  }
+
+  /**
+   * In-memory pipe, which, unlike piped streams, may be written and read by any threads
+   */
+  private static class Pipe {
+    private static final int EOF = -1;
+    private final BlockingQueue<Integer> myBytes = new LinkedBlockingQueue<>();
+
+    private final OutputStream myOutputStream = new OutputStream() {
+      @Override
+      public void write(int b) {
+        myBytes.add(b & 0xFF);
+      }
+
+      @Override
+      public void close() {
+        myBytes.add(EOF);
+      }
+    };
+
+    private final InputStream myInputStream = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        try {
+          int b = myBytes.take();
+          if (b == EOF) {
+            myBytes.add(EOF);
+          }
+          return b;
+        }
+        catch (InterruptedException e) {
+          throw new InterruptedIOException();
+        }
+      }
+
+      @Override
+      public int read(@NotNull byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+          return 0;
+        }
+        int b = read();
+        if (b == EOF) {
+          return EOF;
+        }
+        buffer[offset] = (byte)b;
+        int read = 1;
+        Integer next;
+        while (read < length && (next = myBytes.peek()) != null && next != EOF) {
+          buffer[offset + read++] = (byte)(int)myBytes.poll();
+        }
+        return read;
+      }
+    };
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package unit.perl;
+
+import base.PerlLightTestCase;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.perl5.lang.perl.idea.project.PerlNamesCache;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class PerlNamesCacheTest extends PerlLightTestCase {
+  @Test
+  public void testSubRemovedAfterRebuild() {
+    PsiFile file = myFixture.addFileToProject("Foo/Bar.pm", "package Foo::Bar; sub removed_sub{} sub kept_sub{}");
+    PerlNamesCache namesCache = getNamesCache();
+    assertContainsElements(namesCache.getSubsNamesSet(), "removed_sub", "kept_sub");
+
+    setText(file, "package Foo::Bar; sub kept_sub{}");
+    namesCache.flushChanges();
+    assertContainsElements(namesCache.getSubsNamesSet(), "kept_sub");
+    assertDoesntContain(namesCache.getSubsNamesSet(), "removed_sub");
+  }
+
+  @Test
+  public void testNamespaceRemovedAfterRebuild() {
+    PsiFile file = myFixture.addFileToProject("Foo/Baz.pm", "package Foo::Removed; 1; package Foo::Kept; 1;");
+    PerlNamesCache namesCache = getNamesCache();
+    assertContainsElements(namesCache.getNamespacesNamesSet(), "Foo::Removed", "Foo::Kept");
+
+    setText(file, "package Foo::Kept; 1;");
+    namesCache.flushChanges();
+    assertContainsElements(namesCache.getNamespacesNamesSet(), "Foo::Kept");
+    assertDoesntContain(namesCache.getNamespacesNamesSet(), "Foo::Removed");
+
+    setText(file, "package Foo::Added; 1;");
+    namesCache.flushChanges();
+    assertContainsElements(namesCache.getNamespacesNamesSet(), "Foo::Added");
+    assertDoesntContain(namesCache.getNamespacesNamesSet(), "Foo::Kept");
+  }
+
+  @Test
+  public void testRenameToNonPerlFile() {
+    PsiFile file = myFixture.addFileToProject("Renamed.pm", "package Renamed::Package; sub renamed_sub{}");
+    PerlNamesCache namesCache = getNamesCache();
+    assertContainsElements(namesCache.getSubsNamesSet(), "renamed_sub");
+
+    WriteCommandAction.writeCommandAction(getProject()).run(() -> {
+      try {
+        file.getVirtualFile().rename(this, "Renamed.txt");
+      }
+      catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    namesCache.flushChanges();
+    assertDoesntContain(namesCache.getSubsNamesSet(), "renamed_sub");
+    assertDoesntContain(namesCache.getNamespacesNamesSet(), "Renamed::Package");
+  }
+
+  private PerlNamesCache getNamesCache() {
+    PerlNamesCache namesCache = PerlNamesCache.getInstance(getProject());
+    namesCache.forceCacheUpdate();
+    return namesCache;
+  }
+
+  private void setText(PsiFile file, String text) {
+    PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+    Document document = documentManager.getDocument(file);
+    assertNotNull(document);
+    WriteCommandAction.writeCommandAction(getProject()).run(() -> {
+      document.setText(text);
+      documentManager.commitDocument(document);
+    });
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package unit.perl;
+
+
+import base.PerlLightTestCase;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValue;
+import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValuesCacheService;
+import com.perl5.lang.perl.idea.codeInsight.typeInference.value.PerlValuesManager;
+import com.perl5.lang.perl.psi.PerlVariable;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Collection;
+
+public class PerlValuesCacheServiceTest extends PerlLightTestCase {
+  @Override
+  protected String getBaseDataPath() {
+    return "testData/unit/perl/perlValues";
+  }
+
+  @Test
+  public void testStatistics() {
+    PsiFile usageFile = addFiles();
+    PerlValuesCacheService cacheService = PerlValuesCacheService.getInstance(getProject());
+    resolveLastVariable(usageFile);
+    cacheService.resetStatistics();
+
+    PerlValuesCacheService.Statistics statistics = cacheService.getStatistics();
+    assertEquals(0, statistics.getRequests());
+    assertEquals(0, statistics.getBuilds());
+    assertTrue(statistics.getSize() > 0);
+
+    resolveLastVariable(usageFile);
+    statistics = cacheService.getStatistics();
+    assertTrue(statistics.getRequests() > 0);
+    assertEquals(0, statistics.getBuilds());
+    assertEquals(100, statistics.getHitRatio());
+    assertEquals(0, statistics.getInvalidations());
+    assertEquals(0, statistics.getClears());
+  }
+
+  @Test
+  public void testUnrelatedFileChange() {
+    PsiFile usageFile = addFiles();
+    PsiFile unrelatedFile = myFixture.addFileToProject("unrelated.pl", "my $other = 42;\nprint $other;");
+    PerlValuesCacheService cacheService = PerlValuesCacheService.getInstance(getProject());
+    String resolvedBefore = resolveLastVariable(usageFile).getPresentableText();
+    cacheService.resetStatistics();
+
+    appendText(unrelatedFile, "\nprint $other + 1;");
+
+    assertEquals(resolvedBefore, resolveLastVariable(usageFile).getPresentableText());
+    PerlValuesCacheService.Statistics statistics = cacheService.getStatistics();
+    assertTrue(statistics.getRequests() > 0);
+    assertEquals(0, statistics.getBuilds());
+    assertEquals(0, statistics.getInvalidations());
+    assertEquals(0, statistics.getClears());
+  }
+
+  @Test
+  public void testDependencyFileChange() {
+    PsiFile usageFile = addFiles();
+    PsiFile definitionFile = usageFile.getContainingDirectory().findFile("Foo.pm");
+    assertNotNull(definitionFile);
+    PerlValuesCacheService cacheService = PerlValuesCacheService.getInstance(getProject());
+    resolveLastVariable(usageFile);
+    cacheService.resetStatistics();
+
+    appendText(definitionFile, "\nsub other{}");
+
+    resolveLastVariable(usageFile);
+    PerlValuesCacheService.Statistics statistics = cacheService.getStatistics();
+    assertTrue(statistics.getBuilds() > 0);
+    assertTrue(statistics.getInvalidations() > 0);
+    assertEquals(0, statistics.getClears());
+  }
+
+  @NotNull
+  private PsiFile addFiles() {
+    myFixture.addFileToProject("Foo.pm", "package Foo;\nsub new{ my $class = shift; return bless {}, $class; }\n1;");
+    return myFixture.addFileToProject("usage.pl", "my $var = Foo->new();\n$var;");
+  }
+
+  private void appendText(@NotNull PsiFile psiFile, @NotNull String text) {
+    PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+    Document document = documentManager.getDocument(psiFile);
+    assertNotNull(document);
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      document.insertString(document.getTextLength(), text);
+      documentManager.commitDocument(document);
+    });
+  }
+
+  @NotNull
+  private static PerlValue resolveLastVariable(@NotNull PsiFile psiFile) {
+    Collection<PerlVariable> variables = PsiTreeUtil.findChildrenOfType(psiFile, PerlVariable.class);
+    assertFalse(variables.isEmpty());
+    PerlVariable variable = variables.stream().reduce((first, second) -> second).get();
+    PerlValue resolvedValue = PerlValuesManager.from(variable).resolve(variable);
+    assertFalse(resolvedValue.isUnknown());
+    return resolvedValue;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package unit.pod;
+
+import base.PerlLightTestCase;
+import com.perl5.lang.pod.parser.psi.stubs.PodTitlesStubIndex;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+public class PodTitlesStubIndexTest extends PerlLightTestCase {
+  @Test
+  public void testSingleWord() {
+    doTest("open", "open");
+  }
+
+  @Test
+  public void testFunctionSignature() {
+    doTest("open FILEHANDLE,MODE", "open", "open FILEHANDLE", "open FILEHANDLE,", "open FILEHANDLE,MODE");
+  }
+
+  @Test
+  public void testOperator() {
+    doTest("qr/STRING/msixpodualn", "qr", "qr/", "qr/STRING", "qr/STRING/", "qr/STRING/msixpodualn");
+  }
+
+  @Test
+  public void testVariable() {
+    doTest("$_ ", "$", "$_", "$_ ");
+  }
+
+  private void doTest(String title, String... expectedKeys) {
+    assertEquals(new LinkedHashSet<>(Arrays.asList(expectedKeys)), PodTitlesStubIndex.getIndexKeys(title));
+  }
+}
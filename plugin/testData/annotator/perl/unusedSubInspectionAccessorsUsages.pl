@@ -0,0 +1,2 @@
+Foo::Accessors->used_attr;
+Foo::Accessors->used_accessor;
@@ -0,0 +1,3 @@
+use Foo::Shared;
+
+Foo::Shared::shared_sub();
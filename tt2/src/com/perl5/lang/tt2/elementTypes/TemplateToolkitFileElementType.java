@@ -16,12 +16,96 @@
 
 package com.perl5.lang.tt2.elementTypes;
 
-import com.intellij.psi.tree.IFileElementType;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.StubBuilder;
+import com.intellij.psi.stubs.*;
+import com.intellij.psi.tree.IStubFileElementType;
 import com.perl5.lang.tt2.TemplateToolkitLanguage;
+import com.perl5.lang.tt2.psi.impl.TemplateToolkitFileImpl;
+import com.perl5.lang.tt2.psi.stubs.TemplateToolkitBlocksStubIndex;
+import com.perl5.lang.tt2.psi.stubs.TemplateToolkitFileStub;
+import com.perl5.lang.tt2.psi.stubs.TemplateToolkitIncludesStubIndex;
+import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class TemplateToolkitFileElementType extends IStubFileElementType<TemplateToolkitFileStub> {
+  private static final int VERSION = 2;
 
-public class TemplateToolkitFileElementType extends IFileElementType {
   public TemplateToolkitFileElementType() {
     super("Template Toolkit File", TemplateToolkitLanguage.INSTANCE);
   }
+
+  @Override
+  public int getStubVersion() {
+    return super.getStubVersion() + VERSION;
+  }
+
+  @NotNull
+  @Override
+  public String getExternalId() {
+    return "tt2.file";
+  }
+
+  @Override
+  public StubBuilder getBuilder() {
+    return new DefaultStubBuilder() {
+      @NotNull
+      @Override
+      protected StubElement createStubForFile(@NotNull PsiFile file) {
+        TemplateToolkitFileImpl templateFile = (TemplateToolkitFileImpl)file;
+        return new TemplateToolkitFileStub(
+          templateFile, TemplateToolkitFileElementType.this, templateFile.computeBlocksNames(), templateFile.computeIncludedPaths());
+      }
+
+      @Override
+      public boolean skipChildProcessingWhenBuildingStubs(@NotNull ASTNode parent, @NotNull ASTNode node) {
+        // all the data is in the file stub, embedded perl code is not stubbed
+        return true;
+      }
+    };
+  }
+
+  @Override
+  public void indexStub(@NotNull TemplateToolkitFileStub stub, @NotNull IndexSink sink) {
+    for (String blockName : stub.getBlocksNames()) {
+      sink.occurrence(TemplateToolkitBlocksStubIndex.KEY, blockName);
+    }
+    for (String includedPath : stub.getIncludedPaths()) {
+      sink.occurrence(TemplateToolkitIncludesStubIndex.KEY, TemplateToolkitIncludesStubIndex.getIndexKey(includedPath));
+    }
+  }
+
+  @Override
+  public void serialize(@NotNull TemplateToolkitFileStub stub, @NotNull StubOutputStream dataStream) throws IOException {
+    serializeNames(stub.getBlocksNames(), dataStream);
+    serializeNames(stub.getIncludedPaths(), dataStream);
+  }
+
+  @NotNull
+  @Override
+  public TemplateToolkitFileStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
+    return new TemplateToolkitFileStub(null, this, deserializeNames(dataStream), deserializeNames(dataStream));
+  }
+
+  private static void serializeNames(@NotNull List<String> names, @NotNull StubOutputStream dataStream) throws IOException {
+    dataStream.writeVarInt(names.size());
+    for (String name : names) {
+      dataStream.writeName(name);
+    }
+  }
+
+  @NotNull
+  private static List<String> deserializeNames(@NotNull StubInputStream dataStream) throws IOException {
+    int size = dataStream.readVarInt();
+    List<String> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(dataStream.readNameString());
+    }
+    return result;
+  }
 }
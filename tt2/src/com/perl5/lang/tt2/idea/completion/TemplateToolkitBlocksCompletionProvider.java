@@ -22,14 +22,20 @@ import com.intellij.codeInsight.completion.CompletionResultSet;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiUtilCore;
 import com.intellij.util.ProcessingContext;
+import com.perl5.lang.tt2.TemplateToolkitIcons;
 import com.perl5.lang.tt2.psi.TemplateToolkitNamedBlock;
 import com.perl5.lang.tt2.psi.TemplateToolkitString;
 import com.perl5.lang.tt2.psi.mixins.TemplateToolkitStringMixin;
+import com.perl5.lang.tt2.utils.TemplateToolkitIncludesUtil;
+import com.perl5.lang.tt2.utils.TemplateToolkitPsiUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.HashSet;
+import java.util.Set;
+
 
 public class TemplateToolkitBlocksCompletionProvider extends CompletionProvider<CompletionParameters> {
   @Override
@@ -52,18 +58,29 @@ public class TemplateToolkitBlocksCompletionProvider extends CompletionProvider<
       return;
     }
 
-    PsiTreeUtil.processElements(element.getContainingFile(), element1 -> {
-      if (element1 instanceof TemplateToolkitNamedBlock) {
-        String blockName = ((TemplateToolkitNamedBlock)element1).getName();
-        if (StringUtil.isNotEmpty(blockName)) {
-          result.addElement(
-            LookupElementBuilder.create(element1, blockName)
-              .withTypeText("BLOCK", true)
-              .withIcon(element1.getIcon(0))
-          );
-        }
+    PsiFile containingFile = element.getContainingFile();
+    Set<String> localNames = new HashSet<>();
+    for (TemplateToolkitNamedBlock namedBlock : TemplateToolkitPsiUtil.getNamedBlocks(containingFile)) {
+      String blockName = namedBlock.getName();
+      if (StringUtil.isNotEmpty(blockName)) {
+        localNames.add(blockName);
+        result.addElement(
+          LookupElementBuilder.create(namedBlock, blockName)
+            .withTypeText("BLOCK", true)
+            .withIcon(namedBlock.getIcon(0))
+        );
+      }
+    }
+
+    TemplateToolkitIncludesUtil.getExternalBlocksNames(containingFile).forEach((blockName, definingFile) -> {
+      if (!localNames.contains(blockName)) {
+        result.addElement(
+          LookupElementBuilder.create(blockName)
+            .withTailText(" (" + definingFile.getName() + ")", true)
+            .withTypeText("BLOCK", true)
+            .withIcon(TemplateToolkitIcons.TTK2_BLOCK_ICON)
+        );
       }
-      return true;
     });
   }
 }
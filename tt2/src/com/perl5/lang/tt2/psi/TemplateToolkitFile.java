@@ -18,7 +18,22 @@ package com.perl5.lang.tt2.psi;
 
 import com.intellij.psi.PsiFile;
 import com.perl5.lang.perl.psi.properties.PerlLexicalScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
 
 
 public interface TemplateToolkitFile extends PsiFile, PerlLexicalScope {
+  /**
+   * @return names of the {@code BLOCK}s defined in this template
+   */
+  @NotNull
+  List<String> getBlocksNames();
+
+  /**
+   * @return paths of the templates processed by this one with {@code INCLUDE}, {@code PROCESS} and {@code WRAPPER} directives, as
+   * they are written in the template
+   */
+  @NotNull
+  List<String> getIncludedPaths();
 }
@@ -18,12 +18,28 @@ package com.perl5.lang.tt2.psi.impl;
 
 import com.intellij.extapi.psi.PsiFileBase;
 import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.ElementManipulators;
 import com.intellij.psi.FileViewProvider;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtilCore;
 import com.perl5.lang.perl.psi.properties.PerlLexicalScope;
 import com.perl5.lang.tt2.TemplateToolkitLanguage;
 import com.perl5.lang.tt2.filetypes.TemplateToolkitFileType;
 import com.perl5.lang.tt2.psi.TemplateToolkitFile;
+import com.perl5.lang.tt2.psi.TemplateToolkitNamedBlock;
+import com.perl5.lang.tt2.psi.TemplateToolkitString;
+import com.perl5.lang.tt2.psi.mixins.TemplateToolkitStringMixin;
+import com.perl5.lang.tt2.psi.stubs.TemplateToolkitFileStub;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 
 public class TemplateToolkitFileImpl extends PsiFileBase implements TemplateToolkitFile {
@@ -41,4 +57,63 @@ public class TemplateToolkitFileImpl extends PsiFileBase implements TemplateTool
   public PerlLexicalScope getLexicalScope() {
     return null;
   }
+
+  @NotNull
+  @Override
+  public List<String> getBlocksNames() {
+    TemplateToolkitFileStub stub = getTemplateStub();
+    return stub == null ? computeBlocksNames() : stub.getBlocksNames();
+  }
+
+  @NotNull
+  @Override
+  public List<String> getIncludedPaths() {
+    TemplateToolkitFileStub stub = getTemplateStub();
+    return stub == null ? computeIncludedPaths() : stub.getIncludedPaths();
+  }
+
+  @Nullable
+  private TemplateToolkitFileStub getTemplateStub() {
+    StubElement stub = getGreenStub();
+    if (stub == null) {
+      stub = getStub();
+    }
+    return stub instanceof TemplateToolkitFileStub ? (TemplateToolkitFileStub)stub : null;
+  }
+
+  @NotNull
+  public List<String> computeBlocksNames() {
+    Set<String> result = new LinkedHashSet<>();
+    PsiTreeUtil.processElements(this, element -> {
+      if (element instanceof TemplateToolkitNamedBlock) {
+        String blockName = ((TemplateToolkitNamedBlock)element).getName();
+        if (StringUtil.isNotEmpty(blockName)) {
+          result.add(blockName);
+        }
+      }
+      return true;
+    });
+    return new ArrayList<>(result);
+  }
+
+  /**
+   * @return literal targets of {@code INCLUDE}, {@code PROCESS} and {@code WRAPPER} directives; targets with interpolated variables
+   * and targets naming blocks of this file are skipped
+   */
+  @NotNull
+  public List<String> computeIncludedPaths() {
+    Set<String> result = new LinkedHashSet<>();
+    Set<String> localBlocksNames = new HashSet<>(computeBlocksNames());
+    PsiTreeUtil.processElements(this, element -> {
+      if (element instanceof TemplateToolkitString &&
+          TemplateToolkitStringMixin.BLOCK_NAME_TARGETED_CONTAINERS.contains(PsiUtilCore.getElementType(element.getParent()))) {
+        String path = ElementManipulators.getValueText(element);
+        if (StringUtil.isNotEmpty(path) && path.indexOf('$') < 0 && !localBlocksNames.contains(path)) {
+          result.add(path);
+        }
+      }
+      return true;
+    });
+    return new ArrayList<>(result);
+  }
 }
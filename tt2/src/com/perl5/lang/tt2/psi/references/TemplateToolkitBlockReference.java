@@ -21,10 +21,12 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.ElementManipulators;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementResolveResult;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.ResolveResult;
-import com.intellij.psi.util.PsiTreeUtil;
 import com.perl5.lang.perl.psi.references.PerlCachingReference;
 import com.perl5.lang.tt2.psi.TemplateToolkitNamedBlock;
+import com.perl5.lang.tt2.utils.TemplateToolkitIncludesUtil;
+import com.perl5.lang.tt2.utils.TemplateToolkitPsiUtil;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
@@ -50,13 +52,19 @@ public class TemplateToolkitBlockReference extends PerlCachingReference<PsiEleme
 
     final List<ResolveResult> result = new ArrayList<>();
 
-    PsiTreeUtil.processElements(element.getContainingFile(), element1 ->
-    {
-      if (element1 instanceof TemplateToolkitNamedBlock && StringUtil.equals(((TemplateToolkitNamedBlock)element1).getName(), targetName)) {
-        result.add(new PsiElementResolveResult(element1));
+    PsiFile containingFile = element.getContainingFile();
+    for (TemplateToolkitNamedBlock namedBlock : TemplateToolkitPsiUtil.getNamedBlocks(containingFile)) {
+      if (StringUtil.equals(namedBlock.getName(), targetName)) {
+        result.add(new PsiElementResolveResult(namedBlock));
       }
-      return true;
-    });
+    }
+
+    if (result.isEmpty()) {
+      TemplateToolkitIncludesUtil.processExternalBlocks(containingFile, targetName.toString(), namedBlock -> {
+        result.add(new PsiElementResolveResult(namedBlock));
+        return true;
+      });
+    }
 
     return result.toArray(new ResolveResult[result.size()]);
   }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.tt2.psi.stubs;
+
+import com.intellij.psi.stubs.PsiFileStubImpl;
+import com.intellij.psi.tree.IStubFileElementType;
+import com.perl5.lang.tt2.elementTypes.TemplateToolkitFileElementType;
+import com.perl5.lang.tt2.psi.TemplateToolkitFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Template stub with names of the {@code BLOCK}s defined in it and paths of the templates it processes with {@code INCLUDE},
+ * {@code PROCESS} and {@code WRAPPER} directives
+ */
+public class TemplateToolkitFileStub extends PsiFileStubImpl<TemplateToolkitFile> {
+  @NotNull
+  private final TemplateToolkitFileElementType myElementType;
+  @NotNull
+  private final List<String> myBlocksNames;
+  @NotNull
+  private final List<String> myIncludedPaths;
+
+  public TemplateToolkitFileStub(@Nullable TemplateToolkitFile file,
+                                 @NotNull TemplateToolkitFileElementType elementType,
+                                 @NotNull List<String> blocksNames,
+                                 @NotNull List<String> includedPaths) {
+    super(file);
+    myElementType = elementType;
+    myBlocksNames = blocksNames;
+    myIncludedPaths = includedPaths;
+  }
+
+  @NotNull
+  @Override
+  public IStubFileElementType getType() {
+    return myElementType;
+  }
+
+  @NotNull
+  public List<String> getBlocksNames() {
+    return myBlocksNames;
+  }
+
+  @NotNull
+  public List<String> getIncludedPaths() {
+    return myIncludedPaths;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.tt2.psi.stubs;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.perl5.lang.perl.psi.stubs.PerlStubIndexBase;
+import com.perl5.lang.tt2.psi.TemplateToolkitFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Templates by names of templates they include. Key is a last segment of the path, because path resolution depends on the templates
+ * roots and has to be done on demand, see {@link com.perl5.lang.tt2.utils.TemplateToolkitIncludesUtil}
+ */
+public class TemplateToolkitIncludesStubIndex extends PerlStubIndexBase<TemplateToolkitFile> {
+  public static final int VERSION = 1;
+  public static final StubIndexKey<String, TemplateToolkitFile> KEY = StubIndexKey.createIndexKey("tt2.includes");
+
+  @Override
+  public int getVersion() {
+    return super.getVersion() + VERSION;
+  }
+
+  @NotNull
+  @Override
+  public StubIndexKey<String, TemplateToolkitFile> getKey() {
+    return KEY;
+  }
+
+  /**
+   * @return index key for the included template {@code path}
+   */
+  @NotNull
+  public static String getIndexKey(@NotNull String path) {
+    String name = StringUtil.substringAfterLast(path, "/");
+    return name == null ? path : name;
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.perl5.lang.tt2.utils;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.Processor;
+import com.perl5.lang.tt2.idea.settings.TemplateToolkitSettings;
+import com.perl5.lang.tt2.psi.TemplateToolkitFile;
+import com.perl5.lang.tt2.psi.TemplateToolkitNamedBlock;
+import com.perl5.lang.tt2.psi.stubs.TemplateToolkitBlocksStubIndex;
+import com.perl5.lang.tt2.psi.stubs.TemplateToolkitIncludesStubIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Cross-templates lookups, backed by {@link TemplateToolkitBlocksStubIndex} and {@link TemplateToolkitIncludesStubIndex}.
+ * Block, used in a template, may be defined in any template, processing it directly or transitively.
+ */
+public class TemplateToolkitIncludesUtil {
+  /**
+   * @return template file, {@code path} from the {@code includingFile} points to, or null if there is no such file
+   */
+  @Nullable
+  public static VirtualFile resolveTemplate(@NotNull Project project, @NotNull VirtualFile includingFile, @NotNull String path) {
+    if (StringUtil.startsWith(path, "/")) {
+      return asFile(includingFile.getFileSystem().findFileByPath(path));
+    }
+    VirtualFile containingDirectory = includingFile.getParent();
+    if (StringUtil.startsWith(path, ".")) {
+      return containingDirectory == null ? null : asFile(containingDirectory.findFileByRelativePath(path));
+    }
+    for (VirtualFile root : TemplateToolkitSettings.getInstance(project).getTemplateRoots()) {
+      VirtualFile result = asFile(root.findFileByRelativePath(path));
+      if (result != null) {
+        return result;
+      }
+    }
+    return containingDirectory == null ? null : asFile(containingDirectory.findFileByRelativePath(path));
+  }
+
+  @Nullable
+  private static VirtualFile asFile(@Nullable VirtualFile virtualFile) {
+    return virtualFile == null || virtualFile.isDirectory() ? null : virtualFile;
+  }
+
+  /**
+   * @return templates, directly including the {@code templateFile}
+   */
+  @NotNull
+  public static Set<VirtualFile> getIncludingFiles(@NotNull Project project, @NotNull VirtualFile templateFile) {
+    Set<VirtualFile> result = new LinkedHashSet<>();
+    if (DumbService.isDumb(project)) {
+      return result;
+    }
+    for (TemplateToolkitFile includingFile : StubIndex.getElements(
+      TemplateToolkitIncludesStubIndex.KEY, templateFile.getName(), project, GlobalSearchScope.allScope(project),
+      TemplateToolkitFile.class)) {
+      ProgressManager.checkCanceled();
+      VirtualFile includingVirtualFile = includingFile.getViewProvider().getVirtualFile();
+      for (String path : includingFile.getIncludedPaths()) {
+        if (templateFile.getName().equals(TemplateToolkitIncludesStubIndex.getIndexKey(path)) &&
+            templateFile.equals(resolveTemplate(project, includingVirtualFile, path))) {
+          result.add(includingVirtualFile);
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return templates, including the {@code templateFile} directly or transitively. Computed lazily and cached until psi, roots or
+   * dumb mode changes; result computed in dumb mode is empty
+   */
+  @NotNull
+  public static Set<VirtualFile> getTransitiveIncludingFiles(@NotNull PsiFile templateFile) {
+    return CachedValuesManager.getCachedValue(templateFile, () -> {
+      Project project = templateFile.getProject();
+      Set<VirtualFile> result = new LinkedHashSet<>();
+      VirtualFile virtualFile = templateFile.getViewProvider().getVirtualFile();
+      Deque<VirtualFile> queue = new ArrayDeque<>(Collections.singletonList(virtualFile));
+      while (!queue.isEmpty()) {
+        for (VirtualFile includingFile : getIncludingFiles(project, queue.removeFirst())) {
+          if (!includingFile.equals(virtualFile) && result.add(includingFile)) {
+            queue.addLast(includingFile);
+          }
+        }
+      }
+      return CachedValueProvider.Result.create(
+        Collections.unmodifiableSet(result),
+        PsiModificationTracker.MODIFICATION_COUNT,
+        ProjectRootManager.getInstance(project),
+        DumbService.getInstance(project).getModificationTracker());
+    });
+  }
+
+  /**
+   * Processes {@code BLOCK}s named {@code blockName}, defined in templates including the {@code templateFile}
+   */
+  public static boolean processExternalBlocks(@NotNull PsiFile templateFile,
+                                              @NotNull String blockName,
+                                              @NotNull Processor<? super TemplateToolkitNamedBlock> processor) {
+    Project project = templateFile.getProject();
+    Set<VirtualFile> includingFiles = getTransitiveIncludingFiles(templateFile);
+    if (includingFiles.isEmpty() || DumbService.isDumb(project)) {
+      return true;
+    }
+    for (TemplateToolkitFile definingFile : StubIndex.getElements(
+      TemplateToolkitBlocksStubIndex.KEY, blockName, project, GlobalSearchScope.filesScope(project, includingFiles),
+      TemplateToolkitFile.class)) {
+      ProgressManager.checkCanceled();
+      for (TemplateToolkitNamedBlock namedBlock : TemplateToolkitPsiUtil.getNamedBlocks(definingFile)) {
+        if (blockName.equals(namedBlock.getName()) && !processor.process(namedBlock)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return map of {@code BLOCK}s names, defined in templates including the {@code templateFile}, to these templates
+   */
+  @NotNull
+  public static Map<String, TemplateToolkitFile> getExternalBlocksNames(@NotNull PsiFile templateFile) {
+    Map<String, TemplateToolkitFile> result = new LinkedHashMap<>();
+    for (VirtualFile includingFile : getTransitiveIncludingFiles(templateFile)) {
+      ProgressManager.checkCanceled();
+      PsiFile includingPsiFile = includingFile.isValid() ? templateFile.getManager().findFile(includingFile) : null;
+      if (includingPsiFile instanceof TemplateToolkitFile) {
+        for (String blockName : ((TemplateToolkitFile)includingPsiFile).getBlocksNames()) {
+          result.putIfAbsent(blockName, (TemplateToolkitFile)includingPsiFile);
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -20,12 +20,21 @@ import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.ex.EditorEx;
 import com.intellij.openapi.editor.highlighter.HighlighterIterator;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.perl5.lang.tt2.TemplateToolkitParserDefinition;
 import com.perl5.lang.tt2.lexer.TemplateToolkitSyntaxElements;
+import com.perl5.lang.tt2.psi.TemplateToolkitNamedBlock;
 import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 public class TemplateToolkitPsiUtil {
   @Nullable
@@ -65,4 +74,21 @@ public class TemplateToolkitPsiUtil {
 
     return null;
   }
+
+  /**
+   * @return {@code BLOCK}s defined in the {@code file}, cached until file modification
+   */
+  @NotNull
+  public static List<TemplateToolkitNamedBlock> getNamedBlocks(@NotNull PsiFile file) {
+    return CachedValuesManager.getCachedValue(file, () -> {
+      List<TemplateToolkitNamedBlock> result = new ArrayList<>();
+      PsiTreeUtil.processElements(file, element -> {
+        if (element instanceof TemplateToolkitNamedBlock) {
+          result.add((TemplateToolkitNamedBlock)element);
+        }
+        return true;
+      });
+      return CachedValueProvider.Result.create(result, file);
+    });
+  }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2019 Alexandr Evstigneev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package resolve;
+
+import base.TemplateToolkitLightTestCase;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.perl5.lang.tt2.TemplateToolkitLanguage;
+import com.perl5.lang.tt2.psi.TemplateToolkitFile;
+import com.perl5.lang.tt2.psi.TemplateToolkitNamedBlock;
+import com.perl5.lang.tt2.psi.stubs.TemplateToolkitBlocksStubIndex;
+import com.perl5.lang.tt2.psi.stubs.TemplateToolkitIncludesStubIndex;
+import com.perl5.lang.tt2.utils.TemplateToolkitIncludesUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class TemplateToolkitIncludesTest extends TemplateToolkitLightTestCase {
+  public void testIncludesIndex() {
+    TemplateToolkitFile file = addTemplate(
+      "page.tt", "[% INCLUDE 'inc/header.tt' %][% PROCESS 'footer.tt' %][% INCLUDE $dynamic %][% PROCESS local %]" +
+                 "[% BLOCK local %]local[% END %]");
+    assertEquals(Arrays.asList("inc/header.tt", "footer.tt"), file.getIncludedPaths());
+    assertEquals(Collections.singletonList(file), getIndexed(TemplateToolkitIncludesStubIndex.KEY, "header.tt"));
+    assertEquals(Collections.singletonList(file), getIndexed(TemplateToolkitIncludesStubIndex.KEY, "footer.tt"));
+    assertEmpty(getIndexed(TemplateToolkitIncludesStubIndex.KEY, "local"));
+  }
+
+  public void testBlocksIndex() {
+    TemplateToolkitFile file = addTemplate("layout.tt", "[% BLOCK header %]h[% END %][% BLOCK footer %]f[% END %]");
+    assertEquals(Arrays.asList("header", "footer"), file.getBlocksNames());
+    assertEquals(Collections.singletonList(file), getIndexed(TemplateToolkitBlocksStubIndex.KEY, "header"));
+    assertEquals(Collections.singletonList(file), getIndexed(TemplateToolkitBlocksStubIndex.KEY, "footer"));
+  }
+
+  public void testTransitiveIncludingFiles() {
+    TemplateToolkitFile layout = addTemplate("layout.tt", "[% PROCESS 'sub/middle.tt' %]");
+    TemplateToolkitFile middle = addTemplate("sub/middle.tt", "[% INCLUDE './page.tt' %]");
+    TemplateToolkitFile page = addTemplate("sub/page.tt", "");
+    addTemplate("other.tt", "[% INCLUDE 'page.tt' %]");
+    assertSameElements(TemplateToolkitIncludesUtil.getTransitiveIncludingFiles(page),
+                       middle.getVirtualFile(), layout.getVirtualFile());
+  }
+
+  public void testExternalBlockResolution() {
+    addTemplate("layout.tt", "[% BLOCK header %]h[% END %][% PROCESS 'middle.tt' %]");
+    addTemplate("middle.tt", "[% INCLUDE 'page.tt' %]");
+    myFixture.configureByText("page.tt", "[% INCLUDE hea<caret>der %]");
+    PsiReference reference = myFixture.getFile().getViewProvider().findReferenceAt(
+      myFixture.getCaretOffset(), TemplateToolkitLanguage.INSTANCE);
+    assertNotNull(reference);
+    PsiElement target = reference.resolve();
+    assertInstanceOf(target, TemplateToolkitNamedBlock.class);
+    assertEquals("header", ((TemplateToolkitNamedBlock)target).getName());
+    assertEquals("layout.tt", target.getContainingFile().getName());
+  }
+
+  public void testExternalBlockCompletion() {
+    addTemplate("layout.tt", "[% BLOCK header %]h[% END %][% BLOCK footer %]f[% END %][% PROCESS 'page.tt' %]");
+    addTemplate("unrelated.tt", "[% BLOCK unrelated %]u[% END %]");
+    myFixture.configureByText("page.tt", "[% BLOCK local %]l[% END %][% INCLUDE <caret> %]");
+    myFixture.completeBasic();
+    List<String> lookupStrings = myFixture.getLookupElementStrings();
+    assertNotNull(lookupStrings);
+    assertContainsElements(lookupStrings, "local", "header", "footer");
+    assertDoesntContain(lookupStrings, "unrelated");
+  }
+
+  @NotNull
+  private Collection<TemplateToolkitFile> getIndexed(@NotNull StubIndexKey<String, TemplateToolkitFile> key, @NotNull String name) {
+    return StubIndex.getElements(key, name, getProject(), GlobalSearchScope.allScope(getProject()), TemplateToolkitFile.class);
+  }
+
+  @NotNull
+  private TemplateToolkitFile addTemplate(@NotNull String path, @NotNull String text) {
+    PsiFile file = myFixture.addFileToProject(path, text).getViewProvider().getPsi(TemplateToolkitLanguage.INSTANCE);
+    assertInstanceOf(file, TemplateToolkitFile.class);
+    return (TemplateToolkitFile)file;
+  }
+}